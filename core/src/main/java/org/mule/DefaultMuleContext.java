@@ -40,6 +40,7 @@ import org.mule.api.registry.MuleRegistry;
 import org.mule.api.registry.RegistrationException;
 import org.mule.api.registry.Registry;
 import org.mule.api.security.SecurityManager;
+import org.mule.api.serialization.ObjectSerializer;
 import org.mule.api.store.ListableObjectStore;
 import org.mule.api.transaction.TransactionManagerFactory;
 import org.mule.client.DefaultLocalMuleClient;
@@ -56,6 +57,7 @@ import org.mule.management.stats.AllStatistics;
 import org.mule.management.stats.ProcessingTimeWatcher;
 import org.mule.registry.DefaultRegistryBroker;
 import org.mule.registry.MuleRegistryHelper;
+import org.mule.serialization.JavaObjectSerializer;
 import org.mule.transport.DefaultPollingController;
 import org.mule.transport.PollingController;
 import org.mule.util.ApplicationShutdownSplashScreen;
@@ -148,6 +150,8 @@ public class DefaultMuleContext implements MuleContext
 
     private ProcessingTimeWatcher processingTimeWatcher;
 
+    private ObjectSerializer objectSerializer;
+
     public DefaultMuleContext(MuleConfiguration config,
                               WorkManager workManager,
                               WorkListener workListener,
@@ -853,4 +857,21 @@ public class DefaultMuleContext implements MuleContext
 
         return this.processingTimeWatcher;
     }
+
+    @Override
+    public ObjectSerializer getObjectSerializer()
+    {
+        if (this.objectSerializer == null)
+        {
+            ObjectSerializer serializer = registryBroker.get(MuleProperties.OBJECT_MULE_OBJECT_SERIALIZER);
+            if (serializer == null)
+            {
+                JavaObjectSerializer javaSerializer = new JavaObjectSerializer();
+                javaSerializer.setMuleContext(this);
+                serializer = javaSerializer;
+            }
+            this.objectSerializer = serializer;
+        }
+        return this.objectSerializer;
+    }
 }
@@ -34,7 +34,7 @@ import org.mule.session.DefaultMuleSession;
 import org.mule.transaction.TransactionCoordination;
 import org.mule.transformer.types.DataTypeFactory;
 import org.mule.transport.DefaultReplyToHandler;
-import org.mule.util.CaseInsensitiveHashMap;
+import org.mule.util.CaseInsensitivePropertyMap;
 import org.mule.util.store.DeserializationPostInitialisable;
 
 import java.io.IOException;
@@ -96,7 +96,7 @@ public class DefaultMuleEvent implements MuleEvent, ThreadSafeAccess, Deserializ
 
     private transient Map<String, Object> serializedData = null;
 
-    private Map<String, Object> flowVariables = new CaseInsensitiveHashMap/* <String, Object> */(6);
+    private Map<String, Object> flowVariables = new CaseInsensitivePropertyMap(6);
 
     // Constructors
 
@@ -950,7 +950,7 @@ public class DefaultMuleEvent implements MuleEvent, ThreadSafeAccess, Deserializ
         MuleMessage messageCopy = (MuleMessage) ((ThreadSafeAccess) event.getMessage()).newThreadCopy();
         DefaultMuleEvent eventCopy = new DefaultMuleEvent(messageCopy, event, new DefaultMuleSession(
             event.getSession()));
-        eventCopy.flowVariables = new CaseInsensitiveHashMap(((DefaultMuleEvent) event).flowVariables);
+        eventCopy.flowVariables = new CaseInsensitivePropertyMap(((DefaultMuleEvent) event).flowVariables);
         ((DefaultMuleMessage) messageCopy).setInvocationProperties(eventCopy.flowVariables);
         ((DefaultMuleMessage) messageCopy).resetAccessControl();
         return eventCopy;
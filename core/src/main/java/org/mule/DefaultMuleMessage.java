@@ -28,6 +28,10 @@ import org.mule.api.transport.OutputHandler;
 import org.mule.api.transport.PropertyScope;
 import org.mule.config.MuleManifest;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.serialization.CompactObjectInput;
+import org.mule.serialization.CompactObjectOutput;
+import org.mule.serialization.CompactObjectSerializer;
+import org.mule.serialization.TypeSerializer;
 import org.mule.transformer.TransformerUtils;
 import org.mule.transformer.types.DataTypeFactory;
 import org.mule.transformer.types.MimeTypes;
@@ -108,6 +112,13 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
      */
     private transient Map<String, DataHandler> outboundAttachments = new ConcurrentHashMap<String, DataHandler>();
 
+    /**
+     * Whether the attachment maps may be referenced by a copy of this message, or the message this one is a
+     * copy of, and so have to be copied before being written to
+     */
+    private transient volatile boolean inboundAttachmentsShared;
+    private transient volatile boolean outboundAttachmentsShared;
+
     private transient byte[] cache;
     protected transient MuleContext muleContext;
 
@@ -196,6 +207,11 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
             setPayload(payloadMessage.getPayload());
             copyMessageProperties(payloadMessage);
         }
+        else if (previous instanceof DefaultMuleMessage)
+        {
+            setPayload(message);
+            properties = new MessagePropertiesContext(((DefaultMuleMessage) previous).properties);
+        }
         else
         {
             setPayload(message);
@@ -214,7 +230,14 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
             setSessionProperties(((DefaultMuleMessage) previous).properties.sessionMap);
         }
 
-        copyAttachments(previous);
+        if (previous instanceof DefaultMuleMessage)
+        {
+            shareAttachments((DefaultMuleMessage) previous);
+        }
+        else
+        {
+            copyAttachments(previous);
+        }
 
         resetAccessControl();
     }
@@ -247,6 +270,40 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         }
     }
 
+    /**
+     * Makes this message use the attachment maps of another one until either of them adds or removes an
+     * attachment, see {@link #getWritableInboundAttachments()}
+     */
+    private void shareAttachments(DefaultMuleMessage previous)
+    {
+        previous.inboundAttachmentsShared = true;
+        previous.outboundAttachmentsShared = true;
+        inboundAttachmentsShared = true;
+        outboundAttachmentsShared = true;
+        inboundAttachments = previous.inboundAttachments;
+        outboundAttachments = previous.outboundAttachments;
+    }
+
+    private Map<String, DataHandler> getWritableInboundAttachments()
+    {
+        if (inboundAttachmentsShared)
+        {
+            inboundAttachments = new ConcurrentHashMap<String, DataHandler>(inboundAttachments);
+            inboundAttachmentsShared = false;
+        }
+        return inboundAttachments;
+    }
+
+    private Map<String, DataHandler> getWritableOutboundAttachments()
+    {
+        if (outboundAttachmentsShared)
+        {
+            outboundAttachments = new ConcurrentHashMap<String, DataHandler>(outboundAttachments);
+            outboundAttachmentsShared = false;
+        }
+        return outboundAttachments;
+    }
+
     private void copyAttachments(MuleMessage previous)
     {
         if (previous.getInboundAttachmentNames().size() > 0)
@@ -255,7 +312,7 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
             {
                 try
                 {
-                    inboundAttachments.put(name, previous.getInboundAttachment(name));
+                    getWritableInboundAttachments().put(name, previous.getInboundAttachment(name));
                 }
                 catch (Exception e)
                 {
@@ -285,6 +342,14 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         this(message.getPayload(), message, message.getMuleContext());
     }
 
+    /**
+     * Used by {@link CompactSerializer}, which restores the rest of the state
+     */
+    private DefaultMuleMessage(MuleContext muleContext)
+    {
+        this.muleContext = muleContext;
+    }
+
     private void setMuleContext(MuleContext context)
     {
         if (context == null)
@@ -644,7 +709,7 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
     public Set<String> getPropertyNames(PropertyScope scope)
     {
         assertAccess(READ);
-        return properties.getScopedProperties(scope).keySet();
+        return properties.getPropertyNames(scope);
     }
 
     @Override
@@ -1068,7 +1133,7 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
     public void addOutboundAttachment(String name, DataHandler dataHandler) throws Exception
     {
         assertAccess(WRITE);
-        outboundAttachments.put(name, dataHandler);
+        getWritableOutboundAttachments().put(name, dataHandler);
     }
 
     ///TODO this should not be here, but needed so that a message factory can add attachments
@@ -1077,7 +1142,7 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
     public void addInboundAttachment(String name, DataHandler dataHandler) throws Exception
     {
         assertAccess(WRITE);
-        inboundAttachments.put(name, dataHandler);
+        getWritableInboundAttachments().put(name, dataHandler);
     }
 
     @Override
@@ -1112,14 +1177,17 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         {
             dh = new DataHandler(object, contentType);
         }
-        outboundAttachments.put(name, dh);
+        getWritableOutboundAttachments().put(name, dh);
     }
 
     @Override
     public void removeOutboundAttachment(String name) throws Exception
     {
         assertAccess(WRITE);
-        outboundAttachments.remove(name);
+        if (outboundAttachments.containsKey(name))
+        {
+            getWritableOutboundAttachments().remove(name);
+        }
     }
 
     @Override
@@ -1768,6 +1836,68 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         outboundAttachments = deserializeAttachments((Map<String, SerializedDataHandler>)in.readObject());
     }
 
+    /**
+     * Writes and reads messages in the format of {@link CompactObjectSerializer}. The
+     * same state as with java serialization is kept.
+     */
+    public static class CompactSerializer implements TypeSerializer<DefaultMuleMessage>
+    {
+        @Override
+        public Class<DefaultMuleMessage> getType()
+        {
+            return DefaultMuleMessage.class;
+        }
+
+        @Override
+        public void write(DefaultMuleMessage message, CompactObjectOutput out) throws IOException
+        {
+            out.writeString(message.id);
+            out.writeString(message.rootId);
+            out.writeObject(message.exceptionPayload);
+            out.writeObject(message.properties);
+            out.writeObject(message.dataType);
+            if (message.payload instanceof Serializable)
+            {
+                out.writeObject(message.payload);
+            }
+            else
+            {
+                try
+                {
+                    out.writeObject(message.getPayloadAsBytes());
+                }
+                catch (IOException e)
+                {
+                    throw e;
+                }
+                catch (Exception e)
+                {
+                    IOException ioException = new IOException("Unable to serialize the payload of message " + message.id);
+                    ioException.initCause(e);
+                    throw ioException;
+                }
+            }
+            out.writeObject(message.serializeAttachments(message.inboundAttachments));
+            out.writeObject(message.serializeAttachments(message.outboundAttachments));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public DefaultMuleMessage read(CompactObjectInput in) throws IOException
+        {
+            DefaultMuleMessage message = new DefaultMuleMessage(in.getMuleContext());
+            message.id = in.readString();
+            message.rootId = in.readString();
+            message.exceptionPayload = (ExceptionPayload) in.readObject();
+            message.properties = (MessagePropertiesContext) in.readObject();
+            message.dataType = (DataType<?>) in.readObject();
+            message.payload = in.readObject();
+            message.inboundAttachments = message.deserializeAttachments((Map<String, SerializedDataHandler>) in.readObject());
+            message.outboundAttachments = message.deserializeAttachments((Map<String, SerializedDataHandler>) in.readObject());
+            return message;
+        }
+    }
+
     /**
      * Invoked after deserialization. This is called when the marker interface
      * {@link org.mule.util.store.DeserializationPostInitialisable} is used. This will get invoked
@@ -1965,8 +2095,10 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
             newMessage.setInboundProperty(s.getKey(), s.getValue());
         }
 
-        newMessage.inboundAttachments.clear();
-        newMessage.outboundAttachments.clear();
+        newMessage.inboundAttachments = new ConcurrentHashMap<String, DataHandler>();
+        newMessage.inboundAttachmentsShared = false;
+        newMessage.outboundAttachments = new ConcurrentHashMap<String, DataHandler>();
+        newMessage.outboundAttachmentsShared = false;
 
         for (Map.Entry<String, DataHandler> s : attachments.entrySet())
         {
@@ -15,7 +15,12 @@ import org.mule.api.MuleMessage;
 import org.mule.api.MuleSession;
 import org.mule.api.transport.PropertyScope;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.serialization.CompactObjectInput;
+import org.mule.serialization.CompactObjectOutput;
+import org.mule.serialization.CompactObjectSerializer;
+import org.mule.serialization.TypeSerializer;
 import org.mule.util.CaseInsensitiveHashMap;
+import org.mule.util.CaseInsensitivePropertyMap;
 import org.mule.util.MapUtils;
 import org.mule.util.ObjectUtils;
 
@@ -49,6 +54,10 @@ import org.apache.commons.logging.LogFactory;
  * used once a {@link MuleEvent} has been created as there is no {@link MuleSession} and therefore Session
  * scope properties before this time</li>
  * </ol>
+ * A context created as a copy of another one shares the inbound and outbound maps and the property names
+ * with it. Shared maps are never written to: the first write to a shared scope, through either context,
+ * replaces that scope's map in the writing context with a private copy. Like the message that owns it, a
+ * context must only be written to by one thread at a time.
  */
 public class MessagePropertiesContext implements Serializable
 {
@@ -62,21 +71,53 @@ public class MessagePropertiesContext implements Serializable
      */
     protected Map<PropertyScope, Map<String, Object>> scopedMap;
 
-    protected Map<String, Object> invocationMap = new UndefinedInvocationPropertiesMap();
-    protected transient Map<String, Object> sessionMap = new UndefinedSessionPropertiesMap();
+    protected Map<String, Object> invocationMap;
+    protected transient Map<String, Object> sessionMap;
 
     /**
      * The union of all property names from all scopes.
      */
     protected Set<String> keySet;
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Whether the inbound map, the outbound map and the key set may be referenced by another context and
+     * so have to be copied before being written to.
+     */
+    private transient volatile boolean inboundShared;
+    private transient volatile boolean outboundShared;
+    private transient volatile boolean keySetShared;
+
     public MessagePropertiesContext()
     {
         keySet = new TreeSet<String>();
         scopedMap = new TreeMap<PropertyScope, Map<String, Object>>(new PropertyScope.ScopeComparator());
-        scopedMap.put(PropertyScope.INBOUND, new CaseInsensitiveHashMap/* <String, Object> */(6));
-        scopedMap.put(PropertyScope.OUTBOUND, new CaseInsensitiveHashMap/* <String, Object> */(6));
+        scopedMap.put(PropertyScope.INBOUND, new CaseInsensitivePropertyMap(6));
+        scopedMap.put(PropertyScope.OUTBOUND, new CaseInsensitivePropertyMap(6));
+        invocationMap = new UndefinedInvocationScopeMap();
+        sessionMap = new UndefinedSessionPropertiesMap();
+    }
+
+    /**
+     * Creates a copy of a context without copying its properties. The inbound and outbound properties and
+     * the property names are shared until either context writes to them, the invocation and session
+     * properties are shared for good as they belong to the flow rather than to the message.
+     *
+     * @param original the context to copy
+     */
+    public MessagePropertiesContext(MessagePropertiesContext original)
+    {
+        original.inboundShared = true;
+        original.outboundShared = true;
+        original.keySetShared = true;
+        inboundShared = true;
+        outboundShared = true;
+        keySetShared = true;
+
+        keySet = original.keySet;
+        scopedMap = new TreeMap<PropertyScope, Map<String, Object>>(new PropertyScope.ScopeComparator());
+        scopedMap.putAll(original.scopedMap);
+        invocationMap = original.invocationMap;
+        sessionMap = original.sessionMap;
     }
 
     protected Map<String, Object> getScopedProperties(PropertyScope scope)
@@ -100,6 +141,37 @@ public class MessagePropertiesContext implements Serializable
         }
     }
 
+    /**
+     * Returns the map of a scope for writing, first replacing it with a private copy if it is shared.
+     */
+    protected Map<String, Object> getWritableScopedProperties(PropertyScope scope)
+    {
+        if (PropertyScope.INBOUND.equals(scope) && inboundShared)
+        {
+            scopedMap.put(scope, new CaseInsensitivePropertyMap(scopedMap.get(scope)));
+            inboundShared = false;
+        }
+        else if (PropertyScope.OUTBOUND.equals(scope) && outboundShared)
+        {
+            scopedMap.put(scope, new CaseInsensitivePropertyMap(scopedMap.get(scope)));
+            outboundShared = false;
+        }
+        return getScopedProperties(scope);
+    }
+
+    /**
+     * Returns the property names for writing, first replacing them with a private copy if they are shared.
+     */
+    protected Set<String> getWritableKeySet()
+    {
+        if (keySetShared)
+        {
+            keySet = new TreeSet<String>(keySet);
+            keySetShared = false;
+        }
+        return keySet;
+    }
+
     public PropertyScope getDefaultScope()
     {
         return DEFAULT_SCOPE;
@@ -114,8 +186,8 @@ public class MessagePropertiesContext implements Serializable
             {
                 props.put(entry.getKey(), entry.getValue());
             }
-            getScopedProperties(PropertyScope.INBOUND).putAll(props);
-            keySet.addAll(props.keySet());
+            getWritableScopedProperties(PropertyScope.INBOUND).putAll(props);
+            getWritableKeySet().addAll(props.keySet());
         }
     }
 
@@ -146,12 +218,8 @@ public class MessagePropertiesContext implements Serializable
      */
     public void clearProperties()
     {
-        Map<String, Object> props = getScopedProperties(PropertyScope.INVOCATION);
-        keySet.removeAll(props.keySet());
-        props.clear();
-        props = getScopedProperties(PropertyScope.OUTBOUND);
-        keySet.removeAll(props.keySet());
-        props.clear();
+        clearScopedProperties(PropertyScope.INVOCATION);
+        clearScopedProperties(PropertyScope.OUTBOUND);
     }
 
     public void clearProperties(PropertyScope scope)
@@ -162,9 +230,33 @@ public class MessagePropertiesContext implements Serializable
             return;
         }
 
+        clearScopedProperties(scope);
+    }
+
+    private void clearScopedProperties(PropertyScope scope)
+    {
         Map<String, Object> props = getScopedProperties(scope);
-        keySet.removeAll(props.keySet());
-        props.clear();
+        if (props.isEmpty())
+        {
+            return;
+        }
+        getWritableKeySet().removeAll(props.keySet());
+
+        // a shared map is dropped rather than copied only to be cleared
+        if (PropertyScope.INBOUND.equals(scope) && inboundShared)
+        {
+            scopedMap.put(scope, new CaseInsensitivePropertyMap(6));
+            inboundShared = false;
+        }
+        else if (PropertyScope.OUTBOUND.equals(scope) && outboundShared)
+        {
+            scopedMap.put(scope, new CaseInsensitivePropertyMap(6));
+            outboundShared = false;
+        }
+        else
+        {
+            props.clear();
+        }
     }
 
     /**
@@ -176,10 +268,13 @@ public class MessagePropertiesContext implements Serializable
      */
     public Object removeProperty(String key)
     {
-        Object value = getScopedProperties(PropertyScope.OUTBOUND).remove(key);
-        Object inv = getScopedProperties(PropertyScope.INVOCATION).remove(key);
+        Object value = removeScopedProperty(key, PropertyScope.OUTBOUND);
+        Object inv = removeScopedProperty(key, PropertyScope.INVOCATION);
 
-        keySet.remove(key);
+        if (keySet.contains(key))
+        {
+            getWritableKeySet().remove(key);
+        }
 
         if (value == null)
         {
@@ -202,19 +297,30 @@ public class MessagePropertiesContext implements Serializable
             return removeProperty(key);
         }
 
-        Object value = getScopedProperties(scope).remove(key);
+        Object value = removeScopedProperty(key, scope);
 
         // Only remove the property from the keySet if it does not exist in any other scope besides this one.
         if (getProperty(key, PropertyScope.OUTBOUND) == null
             && getProperty(key, PropertyScope.INVOCATION) == null
-            && getProperty(key, PropertyScope.INBOUND) == null)
+            && getProperty(key, PropertyScope.INBOUND) == null
+            && keySet.contains(key))
         {
-            keySet.remove(key);
+            getWritableKeySet().remove(key);
         }
 
         return value;
     }
 
+    private Object removeScopedProperty(String key, PropertyScope scope)
+    {
+        // removing a missing property does not need a private copy
+        if (!getScopedProperties(scope).containsKey(key))
+        {
+            return null;
+        }
+        return getWritableScopedProperties(scope).remove(key);
+    }
+
     /**
      * Set a property on the message
      *
@@ -225,8 +331,8 @@ public class MessagePropertiesContext implements Serializable
     @Deprecated
     public void setProperty(String key, Object value)
     {
-        getScopedProperties(DEFAULT_SCOPE).put(key, value);
-        keySet.add(key);
+        getWritableScopedProperties(DEFAULT_SCOPE).put(key, value);
+        addKey(key);
     }
 
     /**
@@ -244,8 +350,16 @@ public class MessagePropertiesContext implements Serializable
             logger.warn(CoreMessages.sessionPropertyNotSerializableWarning(key));
         }
 
-        getScopedProperties(scope).put(key, value);
-        keySet.add(key);
+        getWritableScopedProperties(scope).put(key, value);
+        addKey(key);
+    }
+
+    private void addKey(String key)
+    {
+        if (!keySet.contains(key))
+        {
+            getWritableKeySet().add(key);
+        }
     }
 
     /**
@@ -350,6 +464,12 @@ public class MessagePropertiesContext implements Serializable
      * Check for properties that can't be serialized
      */
     private void writeObject(java.io.ObjectOutputStream out) throws IOException
+    {
+        checkSerializable();
+        out.defaultWriteObject();
+    }
+
+    private void checkSerializable() throws IOException
     {
         for (PropertyScope scope : new PropertyScope[]{PropertyScope.INBOUND, PropertyScope.OUTBOUND})
         {
@@ -366,7 +486,7 @@ public class MessagePropertiesContext implements Serializable
                 }
             }
         }
-        if (invocationMap instanceof UndefinedInvocationPropertiesMap)
+        if (invocationMap instanceof UndefinedInvocationScopeMap)
         {
             for (Map.Entry<String, Object> entry : invocationMap.entrySet())
             {
@@ -381,7 +501,6 @@ public class MessagePropertiesContext implements Serializable
                 }
             }
         }
-        out.defaultWriteObject();
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
@@ -422,10 +541,105 @@ public class MessagePropertiesContext implements Serializable
         }
     }
 
+    private static class UndefinedInvocationScopeMap extends CaseInsensitivePropertyMap
+    {
+        private static final long serialVersionUID = 5594228613043112126L;
+
+        UndefinedInvocationScopeMap()
+        {
+            super();
+        }
+
+        UndefinedInvocationScopeMap(Map<String, ?> map)
+        {
+            super(map);
+        }
+    }
+
+    /**
+     * The map invocation properties used to be kept in before a {@link MuleEvent} was
+     * created. It is only kept to read messages serialized with it, and is replaced
+     * by an {@link UndefinedInvocationScopeMap} holding the same entries once read.
+     */
     private static class UndefinedInvocationPropertiesMap extends CaseInsensitiveHashMap
     {
         private static final long serialVersionUID = 8400889672358403911L;
 
+        @SuppressWarnings("unchecked")
+        private Object readResolve()
+        {
+            return new UndefinedInvocationScopeMap((Map<String, ?>) this);
+        }
     }
 
+    /**
+     * Writes and reads properties in the format of {@link CompactObjectSerializer}.
+     * Session properties are not written, as with java serialization.
+     */
+    public static class CompactSerializer implements TypeSerializer<MessagePropertiesContext>
+    {
+        @Override
+        public Class<MessagePropertiesContext> getType()
+        {
+            return MessagePropertiesContext.class;
+        }
+
+        @Override
+        public void write(MessagePropertiesContext properties, CompactObjectOutput out) throws IOException
+        {
+            properties.checkSerializable();
+            out.writeInt(properties.scopedMap.size());
+            for (Map.Entry<PropertyScope, Map<String, Object>> scope : properties.scopedMap.entrySet())
+            {
+                out.writeString(scope.getKey().getScopeName());
+                out.writeObject(scope.getValue());
+            }
+
+            boolean undefinedInvocationMap = properties.invocationMap instanceof UndefinedInvocationScopeMap;
+            out.writeBoolean(undefinedInvocationMap);
+            if (undefinedInvocationMap)
+            {
+                out.writeMapEntries(properties.invocationMap);
+            }
+            else
+            {
+                out.writeObject(properties.invocationMap);
+            }
+
+            out.writeInt(properties.keySet.size());
+            for (String key : properties.keySet)
+            {
+                out.writeString(key);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public MessagePropertiesContext read(CompactObjectInput in) throws IOException
+        {
+            MessagePropertiesContext properties = new MessagePropertiesContext();
+            int scopes = in.readInt();
+            for (int i = 0; i < scopes; i++)
+            {
+                PropertyScope scope = PropertyScope.get(in.readString());
+                properties.scopedMap.put(scope, (Map<String, Object>) in.readObject());
+            }
+
+            if (in.readBoolean())
+            {
+                in.readMapEntries(properties.invocationMap);
+            }
+            else
+            {
+                properties.invocationMap = (Map<String, Object>) in.readObject();
+            }
+
+            int keys = in.readInt();
+            for (int i = 0; i < keys; i++)
+            {
+                properties.keySet.add(in.readString());
+            }
+            return properties;
+        }
+    }
 }
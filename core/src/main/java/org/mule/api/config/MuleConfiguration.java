@@ -89,4 +89,9 @@ public interface MuleConfiguration
     boolean isEnricherPropagatesSessionVariableChanges();
 
     boolean isDisableTimeouts();
+
+    /**
+     * @return the maximum number of compiled expressions kept by the expression language
+     */
+    int getExpressionCacheCapacity();
 }
@@ -0,0 +1,89 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.api.expression;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+
+/**
+ * An expression, or a template with expressions embedded in it, that has been parsed once by
+ * {@link ExpressionManager#compile(String)} or {@link ExpressionManager#compileTemplate(String)}.
+ * Evaluators are looked up and expression language expressions compiled when the handle is created,
+ * so evaluating it against a message only executes it. Objects that are configured with an expression
+ * should obtain the handle when they are initialised and keep it.
+ * <p/>
+ * Instances are immutable and can be evaluated concurrently.
+ */
+public interface CompiledExpression
+{
+
+    /**
+     * @return the expression or template this handle was compiled from
+     */
+    String getExpression();
+
+    /**
+     * Evaluates the expression. A template evaluates to the resulting <code>String</code>.
+     *
+     * @param event the current event being processed
+     * @return the result of the evaluation
+     * @throws ExpressionRuntimeException if the evaluation fails
+     */
+    Object evaluate(MuleEvent event) throws ExpressionRuntimeException;
+
+    /**
+     * Evaluates the expression. A template evaluates to the resulting <code>String</code>.
+     *
+     * @param event the current event being processed
+     * @param failIfNull determines if an exception should be thrown if an evaluator returns null
+     * @return the result of the evaluation
+     * @throws ExpressionRuntimeException if the evaluation fails, or a null is found for the expression and
+     *             'failIfNull is set to true.
+     */
+    Object evaluate(MuleEvent event, boolean failIfNull) throws ExpressionRuntimeException;
+
+    /**
+     * Required to provide gradual migration to use of MuleEvent signatures
+     *
+     * @see #evaluate(MuleEvent)
+     */
+    @Deprecated
+    Object evaluate(MuleMessage message) throws ExpressionRuntimeException;
+
+    /**
+     * Required to provide gradual migration to use of MuleEvent signatures
+     *
+     * @see #evaluate(MuleEvent, boolean)
+     */
+    @Deprecated
+    Object evaluate(MuleMessage message, boolean failIfNull) throws ExpressionRuntimeException;
+
+    /**
+     * Evaluates the expression resolving the result of the evaluation to a boolean.
+     *
+     * @param event the current event being processed
+     * @param nullReturnsTrue determines if true should be returned if the result of the evaluation is null
+     * @param nonBooleanReturnsTrue determines if true should returned if the result is not null but isn't
+     *            recognised as a boolean
+     */
+    boolean evaluateBoolean(MuleEvent event, boolean nullReturnsTrue, boolean nonBooleanReturnsTrue)
+        throws ExpressionRuntimeException;
+
+    /**
+     * Required to provide gradual migration to use of MuleEvent signatures
+     *
+     * @see #evaluateBoolean(MuleEvent, boolean, boolean)
+     */
+    @Deprecated
+    boolean evaluateBoolean(MuleMessage message, boolean nullReturnsTrue, boolean nonBooleanReturnsTrue)
+        throws ExpressionRuntimeException;
+
+}
@@ -245,6 +245,30 @@ public interface ExpressionManager
     public String parse(final String expression, final MuleEvent event, final boolean failIfNull)
         throws ExpressionRuntimeException;
 
+    /**
+     * Parses a single expression once, with or without enclosing braces, so that it can be evaluated for
+     * every message without being parsed again. The evaluator of the expression is resolved now, and an
+     * expression language expression is compiled now.
+     *
+     * @param expression a single expression i.e. header:foo or #[message.payload]
+     * @return a handle that evaluates the expression
+     * @throws InvalidExpressionException if the expression cannot be compiled
+     * @since 3.5
+     */
+    public CompiledExpression compile(String expression) throws InvalidExpressionException;
+
+    /**
+     * Parses a string with one or more expressions embedded in it once, so that it can be evaluated for
+     * every message as {@link #parse(String, MuleEvent, boolean)} would without being parsed again.
+     *
+     * @param template one or more expressions ebedded in a literal string i.e.
+     *            "Value is #[xpath://foo] other value is #[header:foo]."
+     * @return a handle that evaluates the template to a <code>String</code>
+     * @throws InvalidExpressionException if one of the expressions cannot be compiled
+     * @since 3.5
+     */
+    public CompiledExpression compileTemplate(String template) throws InvalidExpressionException;
+
     /**
      * Clears all registered evaluators from the manager.
      */
@@ -21,6 +21,7 @@ import org.mule.api.MuleContext;
 import org.mule.api.MuleEvent;
 import org.mule.api.MuleException;
 import org.mule.api.context.MuleContextAware;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.expression.ExpressionManager;
 import org.mule.api.lifecycle.Initialisable;
 import org.mule.api.lifecycle.InitialisationException;
@@ -46,12 +47,17 @@ public class LoggerMessageProcessor implements MessageProcessor, Initialisable,
 
     protected MuleContext muleContext;
     protected ExpressionManager expressionManager;
+    private CompiledExpression compiledMessage;
     private final Map<QName, Object> annotations = new ConcurrentHashMap<QName, Object>();
 
     public void initialise() throws InitialisationException
     {
         initLogger();
         expressionManager = muleContext.getExpressionManager();
+        if (!StringUtils.isEmpty(message))
+        {
+            compiledMessage = expressionManager.compileTemplate(message);
+        }
     }
 
     protected void initLogger()
@@ -86,7 +92,9 @@ public class LoggerMessageProcessor implements MessageProcessor, Initialisable,
             }
             else
             {
-                logWithLevel(expressionManager.parse(message, event));
+                logWithLevel(compiledMessage != null
+                                                    ? compiledMessage.evaluate(event)
+                                                    : expressionManager.parse(message, event));
             }
         }
     }
@@ -132,6 +140,7 @@ public class LoggerMessageProcessor implements MessageProcessor, Initialisable,
     public void setMessage(String message)
     {
         this.message = message;
+        this.compiledMessage = null;
     }
 
     public void setCategory(String category)
@@ -0,0 +1,68 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.api.serialization;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.lang.SerializationException;
+
+/**
+ * Turns objects into bytes and back. Persistent object stores and queues, session
+ * handlers and wire formats use the serializer returned by
+ * {@link org.mule.api.MuleContext#getObjectSerializer()}, which can be replaced by
+ * registering another implementation under
+ * {@link org.mule.api.config.MuleProperties#OBJECT_MULE_OBJECT_SERIALIZER}.
+ * <p/>
+ * Implementations must be thread-safe and are expected to initialise deserialized
+ * objects that implement
+ * {@link org.mule.util.store.DeserializationPostInitialisable} with the current
+ * MuleContext.
+ */
+public interface ObjectSerializer
+{
+    /**
+     * Serializes the given object into a byte array.
+     *
+     * @param object the object to serialize, may be <code>null</code>
+     * @return the serialized form of <code>object</code>
+     * @throws SerializationException if the object can not be serialized
+     */
+    byte[] serialize(Object object) throws SerializationException;
+
+    /**
+     * Serializes the given object into a stream. The stream is closed once the
+     * object is written.
+     *
+     * @param object the object to serialize, may be <code>null</code>
+     * @param out the stream to write to
+     * @throws SerializationException if the object can not be serialized
+     */
+    void serialize(Object object, OutputStream out) throws SerializationException;
+
+    /**
+     * Deserializes an object from a byte array.
+     *
+     * @param bytes the serialized form, as returned by {@link #serialize(Object)}
+     * @return the deserialized object
+     * @throws SerializationException if the object can not be deserialized
+     */
+    <T> T deserialize(byte[] bytes) throws SerializationException;
+
+    /**
+     * Deserializes an object from a stream. The stream is closed once the object is
+     * read.
+     *
+     * @param in the stream to read from
+     * @return the deserialized object
+     * @throws SerializationException if the object can not be deserialized
+     */
+    <T> T deserialize(InputStream in) throws SerializationException;
+}
@@ -118,15 +118,18 @@ public abstract class AbstractComponent implements Component, MuleContextAware,
             fireComponentNotification(event.getMessage(), ComponentMessageNotification.COMPONENT_PRE_INVOKE);
 
             long startTime = 0;
+            long startNanos = 0;
             if (statistics.isEnabled())
             {
                 startTime = System.currentTimeMillis();
+                startNanos = System.nanoTime();
             }
 
             Object result = doInvoke(event);
 
             if (statistics.isEnabled())
             {
+                statistics.addExecutionLatency(System.nanoTime() - startNanos);
                 statistics.addExecutionTime(System.currentTimeMillis() - startTime);
             }
 
@@ -46,6 +46,8 @@ public class DefaultMuleConfiguration implements MuleConfiguration, MuleContextA
 
     public static final boolean DEFAULT_TRANSFORMATION_RESOLVE_NON_DIRECT = true;
 
+    public static final int DEFAULT_EXPRESSION_CACHE_CAPACITY = 1000;
+
     public static final String[] DEFAULT_STACKTRACE_FILTER = (
             "org.mule.processor.AbstractInterceptingMessageProcessor," +
             "org.mule.processor.chain")
@@ -104,6 +106,11 @@ public class DefaultMuleConfiguration implements MuleConfiguration, MuleContextA
      */
     private int shutdownTimeout = 5000;
 
+    /**
+     * The maximum number of compiled expressions the expression language keeps.
+     */
+    private int expressionCacheCapacity = DEFAULT_EXPRESSION_CACHE_CAPACITY;
+
     /**
      * Where Mule stores any runtime files to disk. Note that in container
      * mode each app will have its working dir set one level under this dir
@@ -345,6 +352,12 @@ public class DefaultMuleConfiguration implements MuleConfiguration, MuleContextA
         {
             disableTimeouts = Boolean.valueOf(p);
         }
+
+        p = System.getProperty(MuleProperties.SYSTEM_PROPERTY_PREFIX + "expression.cacheCapacity");
+        if (p != null)
+        {
+            expressionCacheCapacity = NumberUtils.toInt(p, DEFAULT_EXPRESSION_CACHE_CAPACITY);
+        }
     }
 
     protected void validateEncoding() throws FatalException
@@ -718,6 +731,20 @@ public class DefaultMuleConfiguration implements MuleConfiguration, MuleContextA
         return disableTimeouts;
     }
 
+    @Override
+    public int getExpressionCacheCapacity()
+    {
+        return expressionCacheCapacity;
+    }
+
+    public void setExpressionCacheCapacity(int expressionCacheCapacity)
+    {
+        if (verifyContextNotStarted())
+        {
+            this.expressionCacheCapacity = expressionCacheCapacity;
+        }
+    }
+
     @Override
     public int hashCode()
     {
@@ -735,6 +762,7 @@ public class DefaultMuleConfiguration implements MuleConfiguration, MuleContextA
         result = prime * result + ((id == null) ? 0 : id.hashCode());
         result = prime * result + responseTimeout;
         result = prime * result + shutdownTimeout;
+        result = prime * result + expressionCacheCapacity;
         result = prime * result + (useExtendedTransformations ? 1231 : 1237);
         result = prime * result + (flowEndingWithOneWayEndpointReturnsNull ? 1231 : 1237);
         result = prime * result + (synchronous ? 1231 : 1237);
@@ -829,6 +857,10 @@ public class DefaultMuleConfiguration implements MuleConfiguration, MuleContextA
         {
             return false;
         }
+        if (expressionCacheCapacity != other.expressionCacheCapacity)
+        {
+            return false;
+        }
         if (useExtendedTransformations != other.useExtendedTransformations)
         {
             return false;
@@ -28,6 +28,7 @@ import org.mule.management.stats.DefaultProcessingTimeWatcher;
 import org.mule.model.seda.SedaModel;
 import org.mule.retry.policies.NoRetryPolicyTemplate;
 import org.mule.security.MuleSecurityManager;
+import org.mule.serialization.JavaObjectSerializer;
 import org.mule.util.DefaultStreamCloserService;
 import org.mule.util.lock.MuleLockFactory;
 import org.mule.util.lock.SingleServerLockProvider;
@@ -95,6 +96,7 @@ public class DefaultsConfigurationBuilder extends AbstractConfigurationBuilder
 
         registry.registerObject(MuleProperties.OBJECT_PROCESSING_TIME_WATCHER,
             new DefaultProcessingTimeWatcher());
+        registry.registerObject(MuleProperties.OBJECT_MULE_OBJECT_SERIALIZER, new JavaObjectSerializer());
 
         configureThreadingProfiles(registry);
 
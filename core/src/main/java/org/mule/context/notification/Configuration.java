@@ -41,6 +41,7 @@ class Configuration
     private Set<Class<? extends ServerNotification>> disabledNotificationTypes = new HashSet<Class<? extends ServerNotification>>();
     private volatile boolean dirty = true;
     private Policy policy;
+    private int lanes = 1;
 
     synchronized void addInterfaceToType(Class<? extends ServerNotificationListener> iface, Class<? extends ServerNotification> type)
     {
@@ -151,6 +152,12 @@ class Configuration
         }
     }
 
+    synchronized void setLanes(int lanes)
+    {
+        dirty = true;
+        this.lanes = lanes;
+    }
+
     protected Policy getPolicy()
     {
         if (dirty)
@@ -159,7 +166,7 @@ class Configuration
             {
                 if (dirty)
                 {
-                    policy = new Policy(interfaceToTypes, listenerSubscriptionPairs, disabledInterfaces, disabledNotificationTypes);
+                    policy = new Policy(interfaceToTypes, listenerSubscriptionPairs, disabledInterfaces, disabledNotificationTypes, lanes);
                     dirty = false;
                 }
             }
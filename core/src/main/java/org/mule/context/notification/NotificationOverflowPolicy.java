@@ -0,0 +1,41 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.context.notification;
+
+/**
+ * What the {@link ServerNotificationManager} does with an asynchronous notification
+ * when listeners do not keep up and the buffer they are served from fills up.
+ */
+public enum NotificationOverflowPolicy
+{
+    /**
+     * The thread firing the notification waits until there is room for it. A
+     * listener firing a notification is never made to wait, as the lane it waits for
+     * may be its own: the notification is delivered right away if it goes to the
+     * lane of the listener, and dropped otherwise.
+     */
+    BLOCK,
+
+    /**
+     * The notification is discarded. This is the default, so that a slow listener
+     * never holds up the threads firing notifications.
+     */
+    DROP,
+
+    /**
+     * Once the buffer is half full only one in every
+     * {@link ServerNotificationManager#getSampleRate() sample rate} notifications is
+     * kept, so that listeners still see a thinned out stream of what happens rather
+     * than nothing at all once the buffer is full. Notifications that find the buffer
+     * full are discarded.
+     */
+    SAMPLE
+}
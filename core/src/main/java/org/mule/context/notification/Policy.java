@@ -38,14 +38,20 @@ class Policy
     private ConcurrentMap knownEventsExact = new ConcurrentHashMap();
     private ConcurrentMap knownEventsSuper = new ConcurrentHashMap();
 
+    // map from event to a bit set of the lanes with a sender for it, for this many lanes
+    private ConcurrentMap<Class, Integer> eventToLanes = new ConcurrentHashMap<Class, Integer>();
+    private final int lanes;
+
     /**
      * For each listener, we check each interface and see what events can be delivered.
      */
     Policy(Map<Class<? extends ServerNotificationListener>, Set<Class<? extends ServerNotification>>> interfaceToEvents, 
         Set<ListenerSubscriptionPair> listenerSubscriptionPairs, 
         Set<Class<? extends ServerNotificationListener>> disabledInterfaces, 
-        Set<Class<? extends ServerNotification>> disabledEvents)
+        Set<Class<? extends ServerNotification>> disabledEvents,
+        int lanes)
     {
+        this.lanes = lanes;
         for (ListenerSubscriptionPair pair : listenerSubscriptionPairs)
         {
             ServerNotificationListener listener = pair.getListener();
@@ -76,6 +82,17 @@ class Policy
         }
     }
 
+    /**
+     * All the listeners of a class share a lane, so that each listener gets its
+     * notifications in the order they were fired. The lane only depends on the number
+     * of lanes, so that notifications queued before that number changed still reach
+     * the listeners they were queued for.
+     */
+    static int laneOf(ServerNotificationListener listener, int lanes)
+    {
+        return (listener.getClass().hashCode() & Integer.MAX_VALUE) % lanes;
+    }
+
     protected static boolean notASubclassOfAnyClassInSet(Set set,  Class clazz)
     {
         for (Iterator iterator = set.iterator(); iterator.hasNext();)
@@ -103,6 +120,15 @@ class Policy
     }
 
     void dispatch(ServerNotification notification)
+    {
+        dispatch(notification, -1, lanes);
+    }
+
+    /**
+     * Delivers a notification to the listeners served from the given lane out of
+     * <code>lanes</code>, or to all of them if the lane is negative.
+     */
+    void dispatch(ServerNotification notification, int lane, int lanes)
     {
         if (null != notification)
         {
@@ -119,7 +145,11 @@ class Policy
                         found = true;
                         for (Iterator senders = ((Collection) eventToSenders.get(event)).iterator(); senders.hasNext();)
                         {
-                            ((Sender) senders.next()).dispatch(notification);
+                            Sender sender = (Sender) senders.next();
+                            if (lane < 0 || laneOf(sender.getListener(), lanes) == lane)
+                            {
+                                sender.dispatch(notification);
+                            }
                         }
                     }
                 }
@@ -128,6 +158,46 @@ class Policy
         }
     }
 
+    /**
+     * Tells which of <code>lanes</code> lanes serve listeners of a notification
+     * class. Once known for a class the answer is cached for the number of lanes this
+     * policy was built for, so that finding out that no listener is interested in a
+     * notification costs a single lookup.
+     *
+     * @return a bit set with the bit of each such lane set, zero if there is none
+     */
+    int getLanes(Class notfnClass, int lanes)
+    {
+        if (lanes != this.lanes)
+        {
+            // lanes are being replaced, and this policy has not been rebuilt yet
+            return computeLanes(notfnClass, lanes);
+        }
+        Integer cached = eventToLanes.get(notfnClass);
+        if (cached == null)
+        {
+            cached = Integer.valueOf(computeLanes(notfnClass, lanes));
+            eventToLanes.put(notfnClass, cached);
+        }
+        return cached.intValue();
+    }
+
+    private int computeLanes(Class notfnClass, int lanes)
+    {
+        int mask = 0;
+        for (Map.Entry<Class<? extends ServerNotification>, Collection<Sender>> entry : eventToSenders.entrySet())
+        {
+            if (entry.getKey().isAssignableFrom(notfnClass))
+            {
+                for (Sender sender : entry.getValue())
+                {
+                    mask |= 1 << laneOf(sender.getListener(), lanes);
+                }
+            }
+        }
+        return mask;
+    }
+
     /**
      * This returns a very "conservative" value - it is true if the notification or any subclass would be
      * accepted.  So if it returns false then you can be sure that there is no need to send the
@@ -11,6 +11,7 @@
 package org.mule.context.notification;
 
 import org.mule.api.context.notification.ServerNotification;
+import org.mule.api.context.notification.ServerNotificationListener;
 import org.mule.routing.filters.WildcardFilter;
 
 /**
@@ -31,6 +32,11 @@ class Sender
         subscriptionFilter.setCaseSensitive(false);
     }
 
+    ServerNotificationListener getListener()
+    {
+        return pair.getListener();
+    }
+
     public void dispatch(ServerNotification notification)
     {
         if (pair.isNullSubscription() ||
@@ -21,15 +21,19 @@ import org.mule.api.lifecycle.Disposable;
 import org.mule.api.lifecycle.LifecycleException;
 import org.mule.util.ClassUtils;
 
+import org.mule.util.concurrent.BoundedRingBuffer;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.resource.spi.work.Work;
 import javax.resource.spi.work.WorkException;
@@ -63,17 +67,52 @@ import org.apache.commons.logging.LogFactory;
  * <li>Disabling an event or interface disables all uses of that class or any subclass.</li>
  * <li>Enquiring whether an event is enabled returns true if any subclass is enabled.</li>
  * </ul>
+ *
+ * <p>Notifications other than {@link BlockingServerEvent}s are delivered asynchronously.
+ * They are queued in one or more lanes, each a bounded lock-free buffer drained in
+ * batches by a work of its own. The listeners of a class are all served from the same
+ * lane, so each listener gets its notifications in order, while a slow listener only
+ * holds up the listeners sharing its lane. A notification no listener is interested in
+ * is not queued at all. When a lane is full the {@link NotificationOverflowPolicy}
+ * decides whether the firing thread waits or the notification is dropped; by default
+ * it is dropped, so that firing a notification never holds up a flow. A listener
+ * never waits for room in a lane, as that could be waiting for itself: a notification
+ * it fires into its own full lane is delivered right away, and one it fires into
+ * another full lane is dropped.</p>
  */
 public class ServerNotificationManager implements Work, Disposable, ServerNotificationHandler, MuleContextAware
 {
     public static final String NULL_SUBSCRIPTION = "NULL";
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    public static final int DEFAULT_SAMPLE_RATE = 10;
+
+    /**
+     * Lanes interested in a notification are tracked in an int bit set
+     */
+    public static final int MAX_LANES = 32;
+
+    private static final int BATCH_SIZE = 256;
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
     protected Log logger = LogFactory.getLog(getClass());
     private boolean dynamic = false;
-    private Configuration configuration = new Configuration();
+    private volatile Configuration configuration = new Configuration();
     private AtomicBoolean disposed = new AtomicBoolean(false);
-    private BlockingDeque<ServerNotification> eventQueue = new LinkedBlockingDeque<ServerNotification>();
     private MuleContext muleContext;
 
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int lanes = 1;
+    private volatile NotificationOverflowPolicy overflowPolicy = NotificationOverflowPolicy.DROP;
+    private volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+    private volatile Lane[] dispatchLanes = createLanes();
+    // lanes replaced before the manager was started, still holding notifications
+    private final List<Lane> unscheduledRetiredLanes = new ArrayList<Lane>();
+    private final AtomicLong droppedNotifications = new AtomicLong();
+    // the lane the current thread delivers notifications from, if any
+    private final ThreadLocal<Lane> deliveringLane = new ThreadLocal<Lane>();
+    private WorkManager workManager;
+    private WorkListener workListener;
+
     @Override
     public boolean isNotificationDynamic()
     {
@@ -91,11 +130,23 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
         this.dynamic = dynamic;
     }
 
-    public void start(WorkManager workManager, WorkListener workListener) throws LifecycleException
+    public synchronized void start(WorkManager workManager, WorkListener workListener) throws LifecycleException
+    {
+        this.workManager = workManager;
+        this.workListener = workListener;
+        scheduleLanes(unscheduledRetiredLanes.toArray(new Lane[unscheduledRetiredLanes.size()]));
+        unscheduledRetiredLanes.clear();
+        scheduleLanes(dispatchLanes);
+    }
+
+    private void scheduleLanes(Lane[] lanes) throws LifecycleException
     {
         try
         {
-            workManager.scheduleWork(this, WorkManager.INDEFINITE, null, workListener);
+            for (Lane lane : lanes)
+            {
+                workManager.scheduleWork(lane, WorkManager.INDEFINITE, null, workListener);
+            }
         }
         catch (WorkException e)
         {
@@ -103,6 +154,134 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
         }
     }
 
+    private Lane[] createLanes()
+    {
+        Lane[] created = new Lane[lanes];
+        for (int i = 0; i < lanes; i++)
+        {
+            created[i] = new Lane(i, lanes, bufferSize);
+        }
+        return created;
+    }
+
+    /**
+     * Replaces the lanes after their number or size changed. The current lanes are
+     * still drained, as notifications may have been queued in them right before, and
+     * deliver them to the listeners they were queued for. Until the current lanes are
+     * drained, a listener that moved to another lane may get its notifications from
+     * both, out of order.
+     */
+    private synchronized void replaceLanes()
+    {
+        Lane[] retired = dispatchLanes;
+        Lane[] replacements = createLanes();
+        if (workManager != null)
+        {
+            try
+            {
+                scheduleLanes(replacements);
+            }
+            catch (LifecycleException e)
+            {
+                throw new IllegalStateException("Could not start notification lanes", e);
+            }
+        }
+        dispatchLanes = replacements;
+        for (Lane lane : retired)
+        {
+            lane.retire();
+            if (workManager == null)
+            {
+                unscheduledRetiredLanes.add(lane);
+            }
+        }
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    /**
+     * @param bufferSize the number of notifications each lane holds before the
+     *            overflow policy applies, {@link #DEFAULT_BUFFER_SIZE} by default
+     */
+    public synchronized void setBufferSize(int bufferSize)
+    {
+        if (bufferSize < 1)
+        {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        if (bufferSize != this.bufferSize)
+        {
+            this.bufferSize = bufferSize;
+            replaceLanes();
+        }
+    }
+
+    public int getLanes()
+    {
+        return lanes;
+    }
+
+    /**
+     * @param lanes the number of lanes asynchronous notifications are delivered from,
+     *            each with its own buffer and work, 1 by default
+     */
+    public synchronized void setLanes(int lanes)
+    {
+        if (lanes < 1 || lanes > MAX_LANES)
+        {
+            throw new IllegalArgumentException("Lanes must be between 1 and " + MAX_LANES + ": " + lanes);
+        }
+        if (lanes != this.lanes)
+        {
+            this.lanes = lanes;
+            Configuration current = configuration;
+            if (current != null)
+            {
+                current.setLanes(lanes);
+            }
+            replaceLanes();
+        }
+    }
+
+    public NotificationOverflowPolicy getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(NotificationOverflowPolicy overflowPolicy)
+    {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public int getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    /**
+     * @param sampleRate with the {@link NotificationOverflowPolicy#SAMPLE} policy, one
+     *            in how many notifications is kept once a lane is half full
+     */
+    public void setSampleRate(int sampleRate)
+    {
+        if (sampleRate < 1)
+        {
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return the number of notifications dropped because of the overflow policy
+     */
+    public long getDroppedNotificationCount()
+    {
+        return droppedNotifications.get();
+    }
+
     public void addInterfaceToType(Class<? extends ServerNotificationListener> iface, Class<? extends ServerNotification> event)
     {
         configuration.addInterfaceToType(iface, event);
@@ -201,17 +380,7 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
             }
             else
             {
-                try
-                {
-                    eventQueue.put(notification);
-                }
-                catch (InterruptedException e)
-                {
-                    if (!disposed.get())
-                    {
-                        logger.error("Failed to queue notification: " + notification, e);
-                    }
-                }
+                queueNotification(notification);
             }
         }
         else
@@ -220,6 +389,26 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
         }
     }
 
+    private void queueNotification(ServerNotification notification)
+    {
+        Configuration current = configuration;
+        if (current == null)
+        {
+            return;
+        }
+        // the lanes are picked for the number there is, which the policy may not know
+        // of yet while they are being replaced
+        Lane[] lanes = dispatchLanes;
+        int interested = current.getPolicy().getLanes(notification.getClass(), lanes.length);
+        for (int i = 0; interested != 0; i++, interested >>>= 1)
+        {
+            if ((interested & 1) != 0)
+            {
+                lanes[i].queue(notification);
+            }
+        }
+    }
+
     @Override
     public boolean isNotificationEnabled(Class<? extends ServerNotification> type)
     {
@@ -240,13 +429,23 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
     {
         disposed.set(true);
         configuration = null;
+        for (Lane lane : dispatchLanes)
+        {
+            lane.wakeUp();
+        }
     }
 
     protected void notifyListeners(ServerNotification notification)
     {
-        if (!disposed.get())
+        notifyListeners(notification, -1, lanes);
+    }
+
+    private void notifyListeners(ServerNotification notification, int lane, int lanes)
+    {
+        Configuration current = configuration;
+        if (!disposed.get() && current != null)
         {
-            configuration.getPolicy().dispatch(notification);
+            current.getPolicy().dispatch(notification, lane, lanes);
         }
         else
         {
@@ -260,33 +459,23 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
         dispose();
     }
 
+    /**
+     * Delivers the notifications of the first lane in the calling thread until the
+     * manager is disposed. The manager schedules a work per lane when started, so this
+     * is only needed by those running the manager as a work themselves.
+     */
     @Override
     public void run()
     {
-        while (!disposed.get())
-        {
-            try
-            {
-                int timeout = muleContext.getConfiguration().getDefaultQueueTimeout();
-                ServerNotification notification = eventQueue.poll(timeout, TimeUnit.MILLISECONDS);
-                if (notification != null)
-                {
-                    notifyListeners(notification);
-                }
-            }
-            catch (InterruptedException e)
-            {
-                Thread.currentThread().interrupt();
-            }
-        }
+        dispatchLanes[0].run();
     }
 
     /**
-     * @return DIRECT reference to an event queue
+     * @return DIRECT reference to the event queue of the first lane
      */
     public Queue<ServerNotification> getEventQueue()
     {
-        return eventQueue;
+        return dispatchLanes[0].buffer;
     }
 
     /**
@@ -327,4 +516,172 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
         return Collections.unmodifiableSet(configuration.getListeners());
     }
 
+    /**
+     * A buffer of notifications and the work delivering them to the listeners served
+     * from it.
+     */
+    private class Lane implements Work
+    {
+        private final int index;
+        // the number of lanes this one was created along with, which the listeners it
+        // serves were picked for
+        private final int count;
+        private final BoundedRingBuffer<ServerNotification> buffer;
+        private final AtomicLong sampled = new AtomicLong();
+        private volatile Thread waiter;
+        private volatile boolean overflowing;
+        private volatile boolean retired;
+
+        private Lane(int index, int count, int bufferSize)
+        {
+            this.index = index;
+            this.count = count;
+            this.buffer = new BoundedRingBuffer<ServerNotification>(bufferSize);
+        }
+
+        private void queue(ServerNotification notification)
+        {
+            NotificationOverflowPolicy policy = overflowPolicy;
+            if (policy == NotificationOverflowPolicy.SAMPLE && buffer.size() > buffer.capacity() / 2
+                && sampled.getAndIncrement() % sampleRate != 0)
+            {
+                drop(notification);
+                return;
+            }
+            while (!buffer.offer(notification))
+            {
+                Lane delivering = deliveringLane.get();
+                if (delivering == this && policy == NotificationOverflowPolicy.BLOCK && !disposed.get())
+                {
+                    // only this thread drains the lane, so waiting for room would never end
+                    deliver(notification);
+                    return;
+                }
+                if (policy != NotificationOverflowPolicy.BLOCK || delivering != null || disposed.get())
+                {
+                    drop(notification);
+                    return;
+                }
+                LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+                if (Thread.currentThread().isInterrupted())
+                {
+                    logger.error("Interrupted while waiting to queue notification: " + notification);
+                    return;
+                }
+            }
+            Thread sleeping = waiter;
+            if (sleeping != null)
+            {
+                LockSupport.unpark(sleeping);
+            }
+        }
+
+        private void drop(ServerNotification notification)
+        {
+            droppedNotifications.incrementAndGet();
+            if (!overflowing)
+            {
+                overflowing = true;
+                logger.warn(String.format(
+                    "Notification listeners are not keeping up, dropping notifications as the %s overflow policy says, starting with: %s",
+                    overflowPolicy, notification));
+            }
+        }
+
+        private void retire()
+        {
+            retired = true;
+            wakeUp();
+        }
+
+        private void wakeUp()
+        {
+            Thread sleeping = waiter;
+            if (sleeping != null)
+            {
+                LockSupport.unpark(sleeping);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            deliveringLane.set(this);
+            try
+            {
+                deliverUntilDone();
+            }
+            finally
+            {
+                deliveringLane.remove();
+            }
+        }
+
+        private void deliverUntilDone()
+        {
+            List<ServerNotification> batch = new ArrayList<ServerNotification>(BATCH_SIZE);
+            boolean idleSinceRetired = false;
+            // an interrupt means the work manager is shutting down
+            while (!disposed.get() && !Thread.currentThread().isInterrupted())
+            {
+                if (buffer.drainTo(batch, BATCH_SIZE) > 0)
+                {
+                    for (ServerNotification notification : batch)
+                    {
+                        deliver(notification);
+                    }
+                    batch.clear();
+                    continue;
+                }
+
+                overflowing = false;
+                if (retired)
+                {
+                    // waits for one idle period so that notifications queued by threads
+                    // that had not yet seen the replacement are delivered too
+                    if (idleSinceRetired)
+                    {
+                        return;
+                    }
+                    idleSinceRetired = true;
+                }
+                awaitNotifications();
+            }
+        }
+
+        private void deliver(ServerNotification notification)
+        {
+            try
+            {
+                notifyListeners(notification, index, count);
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Notification listener failed on: " + notification, e);
+            }
+        }
+
+        private void awaitNotifications()
+        {
+            waiter = Thread.currentThread();
+            try
+            {
+                if (buffer.isEmpty() && !disposed.get())
+                {
+                    int timeout = muleContext.getConfiguration().getDefaultQueueTimeout();
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeout));
+                }
+            }
+            finally
+            {
+                waiter = null;
+            }
+        }
+
+        @Override
+        public void release()
+        {
+            dispose();
+        }
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.el.mvel;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+
+import java.io.Serializable;
+
+/**
+ * An MVEL expression compiled once by {@link MVELExpressionLanguage#compile(String)}. Only the context is
+ * created for every evaluation, the same way {@link MVELExpressionLanguage} creates it for expressions
+ * that are not compiled. Expressions in the subset described by {@link SimpleExpression} skip the context
+ * too.
+ *
+ * @since 3.5
+ */
+public final class MVELCompiledExpression
+{
+
+    private final MVELExpressionLanguage expressionLanguage;
+    private final String source;
+    private final String expression;
+    private final Serializable compiledExpression;
+    private final SimpleExpression simpleExpression;
+
+    MVELCompiledExpression(MVELExpressionLanguage expressionLanguage,
+                           String source,
+                           String expression,
+                           Serializable compiledExpression,
+                           SimpleExpression simpleExpression)
+    {
+        this.expressionLanguage = expressionLanguage;
+        this.source = source;
+        this.expression = expression;
+        this.compiledExpression = compiledExpression;
+        this.simpleExpression = simpleExpression;
+    }
+
+    /**
+     * @return the expression as it was compiled, with enclosing braces if it had them
+     */
+    public String getExpression()
+    {
+        return source;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T evaluate(MuleEvent event)
+    {
+        if (simpleExpression != null)
+        {
+            Object result = expressionLanguage.evaluateSimple(simpleExpression, expression, event.getMessage());
+            if (result != SimpleExpression.FALLBACK)
+            {
+                return (T) result;
+            }
+        }
+        return expressionLanguage.<T> evaluateCompiled(expression, compiledExpression,
+            expressionLanguage.createExpressionLanguageContext(event, null));
+    }
+
+    @Deprecated
+    @SuppressWarnings("unchecked")
+    public <T> T evaluate(MuleMessage message)
+    {
+        if (simpleExpression != null && message != null)
+        {
+            Object result = expressionLanguage.evaluateSimple(simpleExpression, expression, message);
+            if (result != SimpleExpression.FALLBACK)
+            {
+                return (T) result;
+            }
+        }
+        return expressionLanguage.<T> evaluateCompiled(expression, compiledExpression,
+            expressionLanguage.createExpressionLanguageContext(message, null));
+    }
+
+    @Override
+    public String toString()
+    {
+        return source;
+    }
+}
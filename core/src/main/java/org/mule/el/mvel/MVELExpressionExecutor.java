@@ -12,10 +12,10 @@ package org.mule.el.mvel;
 
 import org.mule.api.el.ExpressionExecutor;
 import org.mule.api.expression.InvalidExpressionException;
+import org.mule.util.concurrent.BoundedConcurrentCache;
 
 import java.io.Serializable;
 
-import org.apache.commons.collections.map.LRUMap;
 import org.mvel2.MVEL;
 import org.mvel2.ParserContext;
 import org.mvel2.optimizers.OptimizerFactory;
@@ -30,24 +30,46 @@ public class MVELExpressionExecutor implements ExpressionExecutor<MVELExpression
     protected static final int COMPILED_EXPRESSION_MAX_CACHE_SIZE = 1000;
 
     protected ParserContext parserContext;
-    protected LRUMap compiledExpressionsCache = new LRUMap(COMPILED_EXPRESSION_MAX_CACHE_SIZE);
+    protected BoundedConcurrentCache<String, Serializable> compiledExpressionsCache;
 
     public MVELExpressionExecutor(ParserContext parserContext)
+    {
+        this(parserContext, COMPILED_EXPRESSION_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * @param parserContext the context expressions are compiled with
+     * @param cacheCapacity the maximum number of compiled expressions to keep
+     */
+    public MVELExpressionExecutor(ParserContext parserContext, int cacheCapacity)
     {
         this.parserContext = parserContext;
+        this.compiledExpressionsCache = new BoundedConcurrentCache<String, Serializable>(cacheCapacity);
     }
 
     public Object execute(String expression, MVELExpressionLanguageContext context)
     {
-        // Use reflective optimizer rather than default to avoid concurrency issues with JIT complication.
-        // See MULE-6630
-        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.SAFE_REFLECTIVE);
-
         if (log.isTraceEnabled())
         {
             log.trace("Executing MVEL expression '" + expression + "' with context: \n" + context.toString());
         }
-        return MVEL.executeExpression(getCompiledExpression(expression), context);
+        return execute(getCompiledExpression(expression), context);
+    }
+
+    /**
+     * Executes an expression compiled by {@link #compile(String)}.
+     * 
+     * @param compiledExpression the compiled expression
+     * @param context the context to execute the expression with
+     * @return the result of the execution
+     */
+    public Object execute(Serializable compiledExpression, MVELExpressionLanguageContext context)
+    {
+        // Use reflective optimizer rather than default to avoid concurrency issues with JIT complication.
+        // See MULE-6630
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.SAFE_REFLECTIVE);
+
+        return MVEL.executeExpression(compiledExpression, context);
     }
 
     public void validate(String expression) throws InvalidExpressionException
@@ -55,6 +77,18 @@ public class MVELExpressionExecutor implements ExpressionExecutor<MVELExpression
         getCompiledExpression(expression);
     }
 
+    /**
+     * Compiles an expression for the caller to keep, without looking it up in or adding it to the cache of
+     * compiled expressions.
+     * 
+     * @param expression Expression to be compiled
+     * @return A {@link Serializable} object representing the compiled expression
+     */
+    public Serializable compile(String expression)
+    {
+        return MVEL.compileExpression(expression, parserContext);
+    }
+
     /**
      * Compile an expression. If such expression was compiled before then return the compilation output from a
      * cache.
@@ -64,16 +98,26 @@ public class MVELExpressionExecutor implements ExpressionExecutor<MVELExpression
      */
     protected Serializable getCompiledExpression(String expression)
     {
-        if (compiledExpressionsCache.containsKey(expression))
-        {
-            return (Serializable) compiledExpressionsCache.get(expression);
-        }
-        else
+        Serializable compiledExpression = compiledExpressionsCache.get(expression);
+        if (compiledExpression == null)
         {
-            Serializable compiledExpression = MVEL.compileExpression(expression, parserContext);
-            compiledExpressionsCache.put(expression, compiledExpression);
-            return compiledExpression;
+            compiledExpression = MVEL.compileExpression(expression, parserContext);
+            Serializable cached = compiledExpressionsCache.putIfAbsent(expression, compiledExpression);
+            if (cached != null)
+            {
+                compiledExpression = cached;
+            }
         }
+        return compiledExpression;
+    }
+
+    /**
+     * @return the cache of expressions compiled by {@link #execute(String, MVELExpressionLanguageContext)}
+     *         and {@link #validate(String)}
+     */
+    public BoundedConcurrentCache<String, Serializable> getCompiledExpressionCache()
+    {
+        return compiledExpressionsCache;
     }
 
 }
@@ -12,6 +12,7 @@ package org.mule.el.mvel;
 
 import org.mule.api.MuleContext;
 import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
 import org.mule.api.MuleMessage;
 import org.mule.api.el.ExpressionLanguage;
 import org.mule.api.expression.ExpressionManager;
@@ -19,14 +20,17 @@ import org.mule.api.expression.ExpressionRuntimeException;
 import org.mule.api.expression.InvalidExpressionException;
 import org.mule.api.lifecycle.Initialisable;
 import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.lifecycle.Startable;
 import org.mule.api.transformer.DataType;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.expression.DefaultExpressionManager;
 import org.mule.transformer.types.DataTypeFactory;
 import org.mule.transport.NullPayload;
 import org.mule.util.IOUtils;
+import org.mule.util.concurrent.BoundedConcurrentCache;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.HashMap;
@@ -49,7 +53,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Expression language that uses MVEL (http://mvel.codehaus.org/).
  */
-public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
+public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable, Startable
 {
     private static Logger log = LoggerFactory.getLogger(MVELExpressionLanguage.class);
 
@@ -66,6 +70,9 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
     protected Map<String, String> aliases = new HashMap<String, String>();
     protected Map<String, Class<?>> imports = new HashMap<String, Class<?>>();
     protected boolean autoResolveVariables = true;
+    protected boolean optimizeSimpleExpressions = true;
+
+    private BoundedConcurrentCache<String, SimpleExpression> simpleExpressions;
 
     public MVELExpressionLanguage(MuleContext muleContext)
     {
@@ -81,12 +88,34 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
     public void initialise() throws InitialisationException
     {
         parserContext = createParserContext();
-        expressionExecutor = new MVELExpressionExecutor(parserContext);
+        int cacheCapacity = muleContext.getConfiguration().getExpressionCacheCapacity();
+        expressionExecutor = new MVELExpressionExecutor(parserContext, cacheCapacity);
+        simpleExpressions = new BoundedConcurrentCache<String, SimpleExpression>(cacheCapacity);
 
         loadGlobalFunctions();
         createStaticContext();
     }
 
+    /**
+     * Applies the configured capacity of the compiled expression cache, which may only have been set after
+     * this expression language was initialised.
+     */
+    @Override
+    public void start() throws MuleException
+    {
+        int cacheCapacity = muleContext.getConfiguration().getExpressionCacheCapacity();
+        expressionExecutor.getCompiledExpressionCache().setCapacity(cacheCapacity);
+        simpleExpressions.setCapacity(cacheCapacity);
+    }
+
+    /**
+     * @return the cache of expressions compiled when they are evaluated or validated
+     */
+    public BoundedConcurrentCache<String, Serializable> getCompiledExpressionCache()
+    {
+        return expressionExecutor.getCompiledExpressionCache();
+    }
+
     protected void createStaticContext()
     {
         staticContext = new StaticVariableResolverFactory(parserContext, muleContext);
@@ -146,56 +175,108 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
     @SuppressWarnings("unchecked")
     public <T> T evaluate(String expression, MuleEvent event, Map<String, Object> vars)
     {
-        MVELExpressionLanguageContext factory = createExpressionLanguageContext();
-        factory.addPrivateVariable(MVELExpressionLanguageContext.MULE_MESSAGE_INTERNAL_VARIABLE,
-                event.getMessage());
-        if (vars != null)
+        if (vars == null)
         {
-            factory.appendFactory(new CachedMapVariableResolverFactory(vars));
-        }
-        factory.appendFactory(createEventVariableResolverFactory(event));
-
-        factory.appendFactory(createGlobalVariableResolverFactory(factory));
-        if (autoResolveVariables)
-        {
-            factory.localFactory.appendFactory(createVariableVariableResolverFactory(event));
+            Object result = evaluateSimple(expression, event.getMessage());
+            if (result != SimpleExpression.FALLBACK)
+            {
+                return (T) result;
+            }
         }
-        return (T) evaluateInternal(expression, factory);
+        return (T) evaluateInternal(expression, createExpressionLanguageContext(event, vars));
     }
 
     @Override
     @Deprecated
     public <T> T evaluate(String expression, MuleMessage message)
     {
-        MVELExpressionLanguageContext factory = createExpressionLanguageContext();
-        factory.addPrivateVariable(MVELExpressionLanguageContext.MULE_MESSAGE_INTERNAL_VARIABLE, message);
-        factory.appendFactory(createMessageVariableResolverFactory(message));
-        factory.appendFactory(createGlobalVariableResolverFactory(factory));
-        if (autoResolveVariables)
-        {
-            factory.localFactory.appendFactory(createVariableVariableResolverFactory(message));
-        }
-        return (T) evaluateInternal(expression, factory);
+        return (T) evaluate(expression, message, null);
     }
 
     @Override
     @Deprecated
+    @SuppressWarnings("unchecked")
     public <T> T evaluate(String expression, MuleMessage message, Map<String, Object> vars)
     {
-        MVELExpressionLanguageContext factory = createExpressionLanguageContext();
-        factory.addPrivateVariable(MVELExpressionLanguageContext.MULE_MESSAGE_INTERNAL_VARIABLE, message);
-        if (vars != null)
+        if (vars == null)
         {
-            factory.appendFactory(new CachedMapVariableResolverFactory(vars));
+            Object result = evaluateSimple(expression, message);
+            if (result != SimpleExpression.FALLBACK)
+            {
+                return (T) result;
+            }
         }
-        factory.appendFactory(createMessageVariableResolverFactory(message));
+        return (T) evaluateInternal(expression, createExpressionLanguageContext(message, vars));
+    }
 
-        factory.appendFactory(createGlobalVariableResolverFactory(factory));
-        if (autoResolveVariables)
+    /**
+     * Evaluates an expression in the subset described by {@link SimpleExpression} directly against the
+     * message, without creating a context.
+     *
+     * @return the result, or {@link SimpleExpression#FALLBACK} if the expression has to be evaluated by MVEL
+     */
+    Object evaluateSimple(String expression, MuleMessage message)
+    {
+        if (!optimizeSimpleExpressions || message == null)
         {
-            factory.localFactory.appendFactory(createVariableVariableResolverFactory(message));
+            return SimpleExpression.FALLBACK;
+        }
+        SimpleExpression simpleExpression = simpleExpressions.get(expression);
+        if (simpleExpression == null)
+        {
+            simpleExpression = SimpleExpression.parse(expression);
+            if (simpleExpression == null)
+            {
+                simpleExpression = SimpleExpression.UNSUPPORTED;
+            }
+            simpleExpressions.putIfAbsent(expression, simpleExpression);
+        }
+        return evaluateSimple(simpleExpression, expression, message);
+    }
+
+    Object evaluateSimple(SimpleExpression simpleExpression, String expression, MuleMessage message)
+    {
+        if (autoResolveVariables && simpleExpression.root != null
+            && (message.getInvocationProperty(simpleExpression.root) != null
+                || message.getSessionProperty(simpleExpression.root) != null))
+        {
+            // a variable hides the message
+            return SimpleExpression.FALLBACK;
+        }
+        return simpleExpression.evaluate(expression, message);
+    }
+
+    /**
+     * Compiles an expression once so that it can be executed for every event without being validated,
+     * parsed or looked up in the cache of compiled expressions again.
+     * 
+     * @param expression the expression, with or without enclosing braces
+     * @return the compiled expression
+     * @throws InvalidExpressionException if the expression cannot be compiled
+     * @since 3.5
+     */
+    public MVELCompiledExpression compile(String expression) throws InvalidExpressionException
+    {
+        String source = expression;
+        if (expression.startsWith(ExpressionManager.DEFAULT_EXPRESSION_PREFIX))
+        {
+            if (!expression.endsWith(ExpressionManager.DEFAULT_EXPRESSION_POSTFIX))
+            {
+                throw new InvalidExpressionException(expression, "Expression string is not an expression");
+            }
+            expression = expression.substring(2, expression.length() - 1);
+        }
+
+        try
+        {
+            Serializable compiledExpression = expressionExecutor.compile(expression);
+            SimpleExpression simpleExpression = optimizeSimpleExpressions ? SimpleExpression.parse(expression) : null;
+            return new MVELCompiledExpression(this, source, expression, compiledExpression, simpleExpression);
+        }
+        catch (CompileException e)
+        {
+            throw new InvalidExpressionException(expression, e.getMessage());
         }
-        return (T) evaluateInternal(expression, factory);
     }
 
     @SuppressWarnings("unchecked")
@@ -218,6 +299,24 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
         }
     }
 
+    /**
+     * Executes an expression compiled by {@link #compile(String)}.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T evaluateCompiled(String expression,
+                                     Serializable compiledExpression,
+                                     MVELExpressionLanguageContext variableResolverFactory)
+    {
+        try
+        {
+            return (T) expressionExecutor.execute(compiledExpression, variableResolverFactory);
+        }
+        catch (Exception e)
+        {
+            throw new ExpressionRuntimeException(CoreMessages.expressionEvaluationFailed(expression), e);
+        }
+    }
+
     @Override
     public boolean isValid(String expression)
     {
@@ -263,6 +362,46 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
         return factory;
     }
 
+    protected MVELExpressionLanguageContext createExpressionLanguageContext(MuleEvent event,
+                                                                           Map<String, Object> vars)
+    {
+        MVELExpressionLanguageContext factory = createExpressionLanguageContext();
+        factory.addPrivateVariable(MVELExpressionLanguageContext.MULE_MESSAGE_INTERNAL_VARIABLE,
+                event.getMessage());
+        if (vars != null)
+        {
+            factory.appendFactory(new CachedMapVariableResolverFactory(vars));
+        }
+        factory.appendFactory(createEventVariableResolverFactory(event));
+
+        factory.appendFactory(createGlobalVariableResolverFactory(factory));
+        if (autoResolveVariables)
+        {
+            factory.localFactory.appendFactory(createVariableVariableResolverFactory(event));
+        }
+        return factory;
+    }
+
+    @Deprecated
+    protected MVELExpressionLanguageContext createExpressionLanguageContext(MuleMessage message,
+                                                                           Map<String, Object> vars)
+    {
+        MVELExpressionLanguageContext factory = createExpressionLanguageContext();
+        factory.addPrivateVariable(MVELExpressionLanguageContext.MULE_MESSAGE_INTERNAL_VARIABLE, message);
+        if (vars != null)
+        {
+            factory.appendFactory(new CachedMapVariableResolverFactory(vars));
+        }
+        factory.appendFactory(createMessageVariableResolverFactory(message));
+
+        factory.appendFactory(createGlobalVariableResolverFactory(factory));
+        if (autoResolveVariables)
+        {
+            factory.localFactory.appendFactory(createVariableVariableResolverFactory(message));
+        }
+        return factory;
+    }
+
     protected ParserContext createParserContext()
     {
         ParserContext parserContext = new ParserContext();
@@ -310,6 +449,17 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
         this.imports = imports;
     }
 
+    /**
+     * Determines if expressions such as <code>#[flowVars.foo]</code> or <code>#[payload.bar == 'x']</code>
+     * are evaluated without MVEL. Enabled by default.
+     *
+     * @see SimpleExpression
+     */
+    public void setOptimizeSimpleExpressions(boolean optimizeSimpleExpressions)
+    {
+        this.optimizeSimpleExpressions = optimizeSimpleExpressions;
+    }
+
     public void setAutoResolveVariables(boolean autoResolveVariables)
     {
         this.autoResolveVariables = autoResolveVariables;
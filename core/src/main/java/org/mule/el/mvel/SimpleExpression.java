@@ -0,0 +1,551 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.el.mvel;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.expression.ExpressionManager;
+import org.mule.api.expression.ExpressionRuntimeException;
+import org.mule.api.transport.PropertyScope;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.el.context.MessagePropertyMapContext;
+import org.mule.transport.NullPayload;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+/**
+ * An expression from the subset of MEL that {@link MVELExpressionLanguage} evaluates directly against the
+ * message, without creating the variable resolver factories MVEL needs. The subset is:
+ * <ul>
+ * <li><code>payload</code> and <code>message.payload</code></li>
+ * <li><code>message.inboundProperties['name']</code>, <code>message.outboundProperties['name']</code>,
+ * <code>flowVars['name']</code> and <code>sessionVars['name']</code>, where <code>['name']</code> may
+ * also be written <code>.name</code></li>
+ * <li>any of the above followed by bean properties or map keys, i.e. <code>payload.order.id</code></li>
+ * <li>any of the above compared with <code>==</code> or <code>!=</code> to a string, integer, boolean or
+ * <code>null</code> literal</li>
+ * </ul>
+ * Every other expression is left to MVEL. An expression in the subset still returns {@link #FALLBACK} when
+ * a value is one MVEL would treat specially, such as a <code>null</code> in the middle of a path, a
+ * property without a public getter or a comparison that needs type coercion, so that the result is always
+ * the one MVEL would give. Bean property getters are looked up once per class and invoked reflectively.
+ * <p/>
+ * Variables added to the context by an {@link org.mule.api.el.ExpressionLanguageExtension} are not seen,
+ * so an extension must not redefine <code>payload</code>, <code>message</code>, <code>flowVars</code> or
+ * <code>sessionVars</code>.
+ */
+abstract class SimpleExpression
+{
+
+    /**
+     * Returned by {@link #evaluate(String, MuleMessage)} when the expression has to be evaluated by MVEL.
+     */
+    static final Object FALLBACK = new Object();
+
+    /**
+     * Stands for an expression that is not in the subset, so that it is only parsed once.
+     */
+    static final SimpleExpression UNSUPPORTED = new SimpleExpression(null)
+    {
+        @Override
+        Object evaluate(String expression, MuleMessage message)
+        {
+            return FALLBACK;
+        }
+    };
+
+    /**
+     * The variable the expression starts with. A flow or session variable with the same name would hide
+     * it when variables are resolved automatically.
+     */
+    final String root;
+
+    SimpleExpression(String root)
+    {
+        this.root = root;
+    }
+
+    /**
+     * Parses an expression, with or without enclosing braces.
+     *
+     * @return the expression, or <code>null</code> if it is not in the subset
+     */
+    static SimpleExpression parse(String expression)
+    {
+        if (expression.startsWith(ExpressionManager.DEFAULT_EXPRESSION_PREFIX))
+        {
+            if (!expression.endsWith(ExpressionManager.DEFAULT_EXPRESSION_POSTFIX))
+            {
+                return null;
+            }
+            expression = expression.substring(2, expression.length() - 1);
+        }
+        return new Parser(expression).parse();
+    }
+
+    /**
+     * @param expression the expression, for error messages
+     * @param message the current message
+     * @return the result, or {@link #FALLBACK}
+     */
+    abstract Object evaluate(String expression, MuleMessage message);
+
+    private static final class Parser
+    {
+        private final String text;
+        private int position;
+
+        Parser(String text)
+        {
+            this.text = text;
+        }
+
+        SimpleExpression parse()
+        {
+            SimpleExpression path = parsePath();
+            if (path == null)
+            {
+                return null;
+            }
+            skipWhitespace();
+            if (atEnd())
+            {
+                return path;
+            }
+            boolean equal;
+            if (text.startsWith("==", position))
+            {
+                equal = true;
+            }
+            else if (text.startsWith("!=", position))
+            {
+                equal = false;
+            }
+            else
+            {
+                return null;
+            }
+            position += 2;
+            skipWhitespace();
+            Object literal = parseLiteral();
+            skipWhitespace();
+            if (literal == null || !atEnd())
+            {
+                return null;
+            }
+            return new Comparison(path, literal == NULL_LITERAL ? null : literal, equal);
+        }
+
+        private SimpleExpression parsePath()
+        {
+            skipWhitespace();
+            String root = parseIdentifier();
+            SimpleExpression path;
+            if ("payload".equals(root))
+            {
+                path = new Payload("payload", false);
+            }
+            else if ("flowVars".equals(root))
+            {
+                path = parseProperty(root, PropertyScope.INVOCATION);
+            }
+            else if ("sessionVars".equals(root))
+            {
+                path = parseProperty(root, PropertyScope.SESSION);
+            }
+            else if ("message".equals(root) && consume('.'))
+            {
+                String name = parseIdentifier();
+                if ("payload".equals(name))
+                {
+                    path = new Payload("message", true);
+                }
+                else if ("inboundProperties".equals(name))
+                {
+                    path = parseProperty(root, PropertyScope.INBOUND);
+                }
+                else if ("outboundProperties".equals(name))
+                {
+                    path = parseProperty(root, PropertyScope.OUTBOUND);
+                }
+                else
+                {
+                    return null;
+                }
+            }
+            else
+            {
+                return null;
+            }
+
+            while (path != null && !atEnd() && (peek() == '.' || peek() == '['))
+            {
+                boolean key = peek() == '[';
+                String name = parseSelector();
+                path = name == null ? null : new PropertyStep(path, name, key);
+            }
+            return path;
+        }
+
+        private SimpleExpression parseProperty(String root, PropertyScope scope)
+        {
+            boolean key = !atEnd() && peek() == '[';
+            String name = parseSelector();
+            if (name == null || (!key && findGetter(MessagePropertyMapContext.class, name) != null))
+            {
+                // flowVars.empty is a property of the map rather than a variable
+                return null;
+            }
+            return new MessageProperty(root, scope, name, key);
+        }
+
+        /**
+         * Parses <code>.name</code> or <code>['name']</code>.
+         */
+        private String parseSelector()
+        {
+            if (consume('.'))
+            {
+                return parseIdentifier();
+            }
+            if (consume('['))
+            {
+                Object key = parseLiteral();
+                if (key instanceof String && consume(']'))
+                {
+                    return (String) key;
+                }
+            }
+            return null;
+        }
+
+        private String parseIdentifier()
+        {
+            int start = position;
+            if (atEnd() || !Character.isJavaIdentifierStart(peek()))
+            {
+                return null;
+            }
+            while (!atEnd() && Character.isJavaIdentifierPart(peek()))
+            {
+                position++;
+            }
+            return text.substring(start, position);
+        }
+
+        /**
+         * @return a <code>String</code>, <code>Long</code> or <code>Boolean</code>, {@link #NULL_LITERAL}
+         *         or <code>null</code> if there is no literal
+         */
+        private Object parseLiteral()
+        {
+            if (atEnd())
+            {
+                return null;
+            }
+            char c = peek();
+            if (c == '\'' || c == '"')
+            {
+                int end = text.indexOf(c, position + 1);
+                if (end < 0 || text.lastIndexOf('\\', end) > position)
+                {
+                    return null;
+                }
+                String value = text.substring(position + 1, end);
+                position = end + 1;
+                return value;
+            }
+            if (Character.isDigit(c) || c == '-')
+            {
+                int start = position++;
+                while (!atEnd() && Character.isDigit(peek()))
+                {
+                    position++;
+                }
+                String digits = text.substring(c == '-' ? start + 1 : start, position);
+                if (digits.length() == 0 || (digits.length() > 1 && digits.charAt(0) == '0')
+                    || (!atEnd() && (Character.isJavaIdentifierPart(peek()) || peek() == '.')))
+                {
+                    // octal, hexadecimal, decimal and suffixed literals are left to MVEL
+                    return null;
+                }
+                try
+                {
+                    return Long.valueOf(text.substring(start, position));
+                }
+                catch (NumberFormatException e)
+                {
+                    return null;
+                }
+            }
+            String identifier = parseIdentifier();
+            if ("true".equals(identifier))
+            {
+                return Boolean.TRUE;
+            }
+            if ("false".equals(identifier))
+            {
+                return Boolean.FALSE;
+            }
+            if ("null".equals(identifier))
+            {
+                return NULL_LITERAL;
+            }
+            return null;
+        }
+
+        private boolean consume(char c)
+        {
+            if (!atEnd() && peek() == c)
+            {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace()
+        {
+            while (!atEnd() && Character.isWhitespace(peek()))
+            {
+                position++;
+            }
+        }
+
+        private char peek()
+        {
+            return text.charAt(position);
+        }
+
+        private boolean atEnd()
+        {
+            return position >= text.length();
+        }
+    }
+
+    private static final Object NULL_LITERAL = new Object();
+
+    private static final class Payload extends SimpleExpression
+    {
+        private final boolean nullPayloadAsNull;
+
+        Payload(String root, boolean nullPayloadAsNull)
+        {
+            super(root);
+            this.nullPayloadAsNull = nullPayloadAsNull;
+        }
+
+        @Override
+        Object evaluate(String expression, MuleMessage message)
+        {
+            Object payload = message.getPayload();
+            if (payload instanceof NullPayload)
+            {
+                // message.payload hides NullPayload like MessageContext does
+                return nullPayloadAsNull ? null : FALLBACK;
+            }
+            return payload;
+        }
+    }
+
+    private static final class MessageProperty extends SimpleExpression
+    {
+        private final PropertyScope scope;
+        private final String name;
+        private final boolean key;
+
+        MessageProperty(String root, PropertyScope scope, String name, boolean key)
+        {
+            super(root);
+            this.scope = scope;
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        Object evaluate(String expression, MuleMessage message)
+        {
+            Object value = message.getProperty(name, scope);
+            // MVEL fails on flowVars.name for a variable that is not set, but not on flowVars['name']
+            return value == null && !key ? FALLBACK : value;
+        }
+    }
+
+    /**
+     * A bean property or map key of the value of another expression. The getter is looked up for the
+     * first class it is applied to and kept until a value of another class comes along.
+     */
+    private static final class PropertyStep extends SimpleExpression
+    {
+        private final SimpleExpression target;
+        private final String name;
+        private final boolean key;
+        private volatile Getter getter;
+
+        PropertyStep(SimpleExpression target, String name, boolean key)
+        {
+            super(target.root);
+            this.target = target;
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        Object evaluate(String expression, MuleMessage message)
+        {
+            Object value = target.evaluate(expression, message);
+            if (value == FALLBACK || value == null)
+            {
+                return FALLBACK;
+            }
+            if (key)
+            {
+                return value instanceof Map ? ((Map<?, ?>) value).get(name) : FALLBACK;
+            }
+
+            Getter cached = getter;
+            if (cached == null || cached.type != value.getClass())
+            {
+                cached = new Getter(value.getClass(), findGetter(value.getClass(), name));
+                getter = cached;
+            }
+            if (cached.method != null)
+            {
+                try
+                {
+                    return cached.method.invoke(value);
+                }
+                catch (InvocationTargetException e)
+                {
+                    throw new ExpressionRuntimeException(CoreMessages.expressionEvaluationFailed(expression),
+                        e.getCause());
+                }
+                catch (IllegalAccessException e)
+                {
+                    throw new ExpressionRuntimeException(CoreMessages.expressionEvaluationFailed(expression), e);
+                }
+            }
+            // like MVEL, a map entry is only used when there is no bean property and the key is present
+            if (value instanceof Map && ((Map<?, ?>) value).containsKey(name))
+            {
+                return ((Map<?, ?>) value).get(name);
+            }
+            return FALLBACK;
+        }
+    }
+
+    /**
+     * Finds the method MVEL would read a property with: a public getter, a boolean <code>is</code>
+     * method or a method with the name of the property.
+     *
+     * @return the method, or <code>null</code> if there is none, the property is a public field or more
+     *         than one method qualifies
+     */
+    static Method findGetter(Class<?> type, String name)
+    {
+        try
+        {
+            type.getField(name);
+            return null;
+        }
+        catch (NoSuchFieldException e)
+        {
+            // not a field, look for a method
+        }
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Method found = null;
+        for (Method method : type.getMethods())
+        {
+            if (method.getParameterTypes().length != 0 || Modifier.isStatic(method.getModifiers())
+                || method.isBridge())
+            {
+                continue;
+            }
+            String methodName = method.getName();
+            if (methodName.equals("get" + suffix) || methodName.equals(name)
+                || (methodName.equals("is" + suffix) && method.getReturnType() == boolean.class))
+            {
+                if (found != null)
+                {
+                    return null;
+                }
+                found = method;
+            }
+        }
+        if (found != null && !Modifier.isPublic(found.getDeclaringClass().getModifiers()))
+        {
+            return null;
+        }
+        return found;
+    }
+
+    private static final class Getter
+    {
+        final Class<?> type;
+        final Method method;
+
+        Getter(Class<?> type, Method method)
+        {
+            this.type = type;
+            this.method = method;
+        }
+    }
+
+    private static final class Comparison extends SimpleExpression
+    {
+        private final SimpleExpression operand;
+        private final Object literal;
+        private final boolean equal;
+
+        Comparison(SimpleExpression operand, Object literal, boolean equal)
+        {
+            super(operand.root);
+            this.operand = operand;
+            this.literal = literal;
+            this.equal = equal;
+        }
+
+        @Override
+        Object evaluate(String expression, MuleMessage message)
+        {
+            Object value = operand.evaluate(expression, message);
+            if (value == FALLBACK)
+            {
+                return FALLBACK;
+            }
+            boolean result;
+            if (value == null || literal == null)
+            {
+                result = value == literal;
+            }
+            else if (literal instanceof Long)
+            {
+                if (!(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte))
+                {
+                    return FALLBACK;
+                }
+                result = ((Number) value).longValue() == (Long) literal;
+            }
+            else if (value.getClass() == literal.getClass())
+            {
+                result = value.equals(literal);
+            }
+            else
+            {
+                // MVEL would try to coerce one to the other
+                return FALLBACK;
+            }
+            return equal == result;
+        }
+    }
+}
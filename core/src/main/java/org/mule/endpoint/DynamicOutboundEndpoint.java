@@ -21,6 +21,7 @@ import org.mule.api.endpoint.EndpointMessageProcessorChainFactory;
 import org.mule.api.endpoint.EndpointURI;
 import org.mule.api.endpoint.MalformedEndpointException;
 import org.mule.api.endpoint.OutboundEndpoint;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.expression.ExpressionManager;
 import org.mule.api.expression.ExpressionRuntimeException;
 import org.mule.api.lifecycle.InitialisationException;
@@ -71,6 +72,9 @@ public class DynamicOutboundEndpoint implements OutboundEndpoint
 
     private final OutboundEndpoint prototypeEndpoint;
 
+    // Compiled on first use, as the expression manager may not be initialised yet when endpoints are built
+    private volatile CompiledExpression compiledUriTemplate;
+
     // Caches resolved static endpoints to improve performance
     private Map<String, OutboundEndpoint> staticEndpoints = Collections.synchronizedMap(new LRUMap(64));
 
@@ -136,7 +140,13 @@ public class DynamicOutboundEndpoint implements OutboundEndpoint
 
     protected String parseURIString(String uri, MuleMessage message)
     {
-        return this.getMuleContext().getExpressionManager().parse(uri, message, true);
+        CompiledExpression template = compiledUriTemplate;
+        if (template == null || !template.getExpression().equals(uri))
+        {
+            template = this.getMuleContext().getExpressionManager().compileTemplate(uri);
+            compiledUriTemplate = template;
+        }
+        return (String) template.evaluate(message, true);
     }
 
     public MuleEvent process(MuleEvent event) throws MuleException
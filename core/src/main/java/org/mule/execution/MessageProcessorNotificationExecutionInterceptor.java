@@ -17,9 +17,11 @@ import org.mule.api.construct.Pipeline;
 import org.mule.api.processor.MessageProcessor;
 import org.mule.context.notification.MessageProcessorNotification;
 import org.mule.context.notification.ServerNotificationManager;
+import org.mule.management.stats.FlowConstructStatistics;
 
 /**
- * Intercepts MessageProcessor execution to fire before and after notifications
+ * Intercepts MessageProcessor execution to fire before and after notifications, and
+ * to record its latency in the flow construct's statistics when they are enabled
  */
 class MessageProcessorNotificationExecutionInterceptor implements MessageProcessorExecutionInterceptor
 {
@@ -48,6 +50,9 @@ class MessageProcessorNotificationExecutionInterceptor implements MessageProcess
                              null, MessageProcessorNotification.MESSAGE_PROCESSOR_PRE_INVOKE);
         }
 
+        String processorPath = getLatencyProcessorPath(event.getFlowConstruct(), messageProcessor);
+        long startNanos = processorPath != null ? System.nanoTime() : 0;
+
         MuleEvent result = null;
         MessagingException exceptionThrown = null;
         try
@@ -73,6 +78,11 @@ class MessageProcessorNotificationExecutionInterceptor implements MessageProcess
         }
         finally
         {
+            if (processorPath != null)
+            {
+                event.getFlowConstruct().getStatistics().addMessageProcessorLatency(processorPath,
+                    System.nanoTime() - startNanos);
+            }
             if (fireNotification)
             {
                 fireNotification(notificationManager, event.getFlowConstruct(), result != null ? result : event, messageProcessor,
@@ -82,6 +92,23 @@ class MessageProcessorNotificationExecutionInterceptor implements MessageProcess
         return result;
     }
 
+    /**
+     * @return the path of the processor if its latency has to be recorded, null
+     *         otherwise
+     */
+    private String getLatencyProcessorPath(FlowConstruct flowConstruct, MessageProcessor processor)
+    {
+        if (flowConstruct instanceof Pipeline)
+        {
+            FlowConstructStatistics statistics = flowConstruct.getStatistics();
+            if (statistics != null && statistics.isEnabled())
+            {
+                return ((Pipeline) flowConstruct).getProcessorPath(processor);
+            }
+        }
+        return null;
+    }
+
     protected void fireNotification(ServerNotificationManager serverNotificationManager, FlowConstruct flowConstruct, MuleEvent event, MessageProcessor processor, MessagingException exceptionThrown, int action)
     {
         if (serverNotificationManager != null
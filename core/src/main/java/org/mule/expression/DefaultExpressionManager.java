@@ -15,6 +15,7 @@ import org.mule.api.MuleEvent;
 import org.mule.api.MuleMessage;
 import org.mule.api.context.MuleContextAware;
 import org.mule.api.el.ExpressionLanguage;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.expression.ExpressionEnricher;
 import org.mule.api.expression.ExpressionEvaluator;
 import org.mule.api.expression.ExpressionManager;
@@ -25,16 +26,20 @@ import org.mule.api.lifecycle.Disposable;
 import org.mule.api.lifecycle.Initialisable;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.el.mvel.MVELCompiledExpression;
 import org.mule.el.mvel.MVELExpressionLanguage;
 import org.mule.util.StringUtils;
 import org.mule.util.TemplateParser;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
@@ -302,12 +307,26 @@ public class DefaultExpressionManager implements ExpressionManager, MuleContextA
         {
             return expressionLanguage.evaluate(expression, message);
         }
+        return evaluate(expression, evaluator, lookupEvaluator(evaluator), message, failIfNull);
+    }
+
+    private ExpressionEvaluator lookupEvaluator(String evaluator)
+    {
         ExpressionEvaluator extractor = (ExpressionEvaluator) evaluators.get(evaluator);
         if (extractor == null)
         {
             throw new IllegalArgumentException(CoreMessages.expressionEvaluatorNotRegistered(evaluator)
                 .getMessage());
         }
+        return extractor;
+    }
+
+    private Object evaluate(String expression,
+                            String evaluator,
+                            ExpressionEvaluator extractor,
+                            MuleMessage message,
+                            boolean failIfNull)
+    {
         Object result = extractor.evaluate(expression, message);
         // TODO Handle empty collections || (result instanceof Collection && ((Collection)result).size()==0)
         if (failIfNull && (result == null))
@@ -491,6 +510,50 @@ public class DefaultExpressionManager implements ExpressionManager, MuleContextA
         }, expression);
     }
 
+    /**
+     * Parses a single expression once. The evaluator of the expression is looked up now, so an evaluator
+     * registered later under the same name is not used by the returned handle.
+     */
+    @Override
+    public CompiledExpression compile(String expression) throws InvalidExpressionException
+    {
+        String source = expression;
+        expression = preProcessExpression(expression);
+        if (isEvaluatorExpression(expression))
+        {
+            String[] parts = expression.split(":", 2);
+            return new EvaluatorExpression(source, parts[1], parts[0]);
+        }
+        else
+        {
+            return new LanguageExpression(source, expression);
+        }
+    }
+
+    @Override
+    public CompiledExpression compileTemplate(String template) throws InvalidExpressionException
+    {
+        if (template == null)
+        {
+            throw new IllegalArgumentException(CoreMessages.objectIsNull("template").getMessage());
+        }
+        List<String> literals = new ArrayList<String>();
+        List<CompiledExpression> expressions = new ArrayList<CompiledExpression>();
+        Matcher matcher = TemplateParser.WIGGLY_MULE_TEMPLATE_PATTERN.matcher(template);
+        int literalStart = 0;
+        while (matcher.find())
+        {
+            String match = matcher.group();
+            literals.add(template.substring(literalStart, matcher.start()));
+            expressions.add(compile(match.substring(DEFAULT_EXPRESSION_PREFIX.length(),
+                match.length() - DEFAULT_EXPRESSION_POSTFIX.length())));
+            literalStart = matcher.end();
+        }
+        literals.add(template.substring(literalStart));
+        return new TemplateExpression(template, literals.toArray(new String[literals.size()]),
+            expressions.toArray(new CompiledExpression[expressions.size()]));
+    }
+
     /**
      * Clears all registered evaluators from the manager.
      */
@@ -674,4 +737,204 @@ public class DefaultExpressionManager implements ExpressionManager, MuleContextA
     {
         this.expressionLanguage = expressionLanguage;
     }
+
+    public ExpressionLanguage getExpressionLanguage()
+    {
+        return expressionLanguage;
+    }
+
+    private abstract class AbstractCompiledExpression implements CompiledExpression
+    {
+        protected final String source;
+
+        protected AbstractCompiledExpression(String source)
+        {
+            this.source = source;
+        }
+
+        @Override
+        public String getExpression()
+        {
+            return source;
+        }
+
+        @Override
+        public Object evaluate(MuleEvent event)
+        {
+            return evaluate(event, false);
+        }
+
+        @Override
+        public Object evaluate(MuleMessage message)
+        {
+            return evaluate(message, false);
+        }
+
+        @Override
+        public boolean evaluateBoolean(MuleEvent event, boolean nullReturnsTrue, boolean nonBooleanReturnsTrue)
+        {
+            return resolveBoolean(evaluate(event, false), nullReturnsTrue, nonBooleanReturnsTrue, source);
+        }
+
+        @Override
+        public boolean evaluateBoolean(MuleMessage message,
+                                       boolean nullReturnsTrue,
+                                       boolean nonBooleanReturnsTrue)
+        {
+            try
+            {
+                return resolveBoolean(evaluate(message, false), nullReturnsTrue, nonBooleanReturnsTrue,
+                    source);
+            }
+            catch (RequiredValueException e)
+            {
+                return nullReturnsTrue;
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return source;
+        }
+    }
+
+    /**
+     * An expression for one of the registered {@link ExpressionEvaluator}s
+     */
+    private class EvaluatorExpression extends AbstractCompiledExpression
+    {
+        private final String expression;
+        private final String evaluatorName;
+        private final ExpressionEvaluator evaluator;
+
+        EvaluatorExpression(String source, String expression, String evaluatorName)
+        {
+            super(source);
+            this.expression = expression;
+            this.evaluatorName = evaluatorName;
+            this.evaluator = lookupEvaluator(evaluatorName);
+        }
+
+        @Override
+        public Object evaluate(MuleEvent event, boolean failIfNull)
+        {
+            return evaluate(event.getMessage(), failIfNull);
+        }
+
+        @Override
+        public Object evaluate(MuleMessage message, boolean failIfNull)
+        {
+            return DefaultExpressionManager.this.evaluate(expression, evaluatorName, evaluator, message,
+                failIfNull);
+        }
+    }
+
+    /**
+     * An expression for the expression language, compiled when the language is MEL
+     */
+    private class LanguageExpression extends AbstractCompiledExpression
+    {
+        private final String expression;
+        private final MVELCompiledExpression compiledExpression;
+
+        LanguageExpression(String source, String expression)
+        {
+            super(source);
+            this.expression = expression;
+            if (expressionLanguage instanceof MVELExpressionLanguage)
+            {
+                this.compiledExpression = ((MVELExpressionLanguage) expressionLanguage).compile(expression);
+            }
+            else
+            {
+                expressionLanguage.validate(expression);
+                this.compiledExpression = null;
+            }
+        }
+
+        @Override
+        public Object evaluate(MuleEvent event, boolean failIfNull)
+        {
+            if (compiledExpression != null)
+            {
+                return compiledExpression.evaluate(event);
+            }
+            return expressionLanguage.evaluate(expression, event);
+        }
+
+        @Override
+        public Object evaluate(MuleMessage message, boolean failIfNull)
+        {
+            if (compiledExpression != null)
+            {
+                return compiledExpression.evaluate(message);
+            }
+            return expressionLanguage.evaluate(expression, message);
+        }
+    }
+
+    /**
+     * Literal text with expressions embedded in it, evaluated as {@link #parse(String, MuleEvent, boolean)}
+     * would
+     */
+    private class TemplateExpression extends AbstractCompiledExpression
+    {
+        private final String[] literals;
+        private final CompiledExpression[] expressions;
+
+        /**
+         * @param literals the text around the expressions, one more than there are expressions
+         */
+        TemplateExpression(String source, String[] literals, CompiledExpression[] expressions)
+        {
+            super(source);
+            this.literals = literals;
+            this.expressions = expressions;
+        }
+
+        @Override
+        public Object evaluate(MuleEvent event, boolean failIfNull)
+        {
+            if (expressions.length == 0)
+            {
+                return source;
+            }
+            StringBuilder result = new StringBuilder(source.length() + 16);
+            for (int i = 0; i < expressions.length; i++)
+            {
+                result.append(literals[i]);
+                appendResult(result, expressions[i].evaluate(event, failIfNull));
+            }
+            return result.append(literals[expressions.length]).toString();
+        }
+
+        @Override
+        public Object evaluate(MuleMessage message, boolean failIfNull)
+        {
+            if (expressions.length == 0)
+            {
+                return source;
+            }
+            StringBuilder result = new StringBuilder(source.length() + 16);
+            for (int i = 0; i < expressions.length; i++)
+            {
+                result.append(literals[i]);
+                appendResult(result, expressions[i].evaluate(message, failIfNull));
+            }
+            return result.append(literals[expressions.length]).toString();
+        }
+
+        private void appendResult(StringBuilder result, Object value)
+        {
+            if (value instanceof MuleMessage)
+            {
+                result.append(((MuleMessage) value).getPayload());
+            }
+            else
+            {
+                result.append(value);
+            }
+        }
+    }
 }
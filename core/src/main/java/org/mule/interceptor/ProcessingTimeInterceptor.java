@@ -32,6 +32,24 @@ public class ProcessingTimeInterceptor extends AbstractEnvelopeInterceptor
         setFlowConstruct(fc);
     }
 
+    @Override
+    public MuleEvent process(MuleEvent event) throws MuleException
+    {
+        long startNanos = System.nanoTime();
+        ProcessingTime time = event.getProcessingTime();
+        try
+        {
+            return super.process(event);
+        }
+        finally
+        {
+            if (time != null)
+            {
+                time.addFlowExecutionBranchLatency(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
     @Override
     public MuleEvent before(MuleEvent event) throws MuleException
     {
@@ -0,0 +1,89 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import org.mule.api.management.stats.Statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hit, miss and eviction counters of an in-memory cache. Counters are updated
+ * without locking and may be read while the cache is in use.
+ */
+public class CacheStatistics implements Statistics
+{
+    private static final long serialVersionUID = -2517439604843370523L;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile boolean enabled = true;
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public void clear()
+    {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    public void incHits()
+    {
+        if (enabled)
+        {
+            hits.incrementAndGet();
+        }
+    }
+
+    public void incMisses()
+    {
+        if (enabled)
+        {
+            misses.incrementAndGet();
+        }
+    }
+
+    /**
+     * Counts entries dropped to keep the cache within its capacity.
+     */
+    public void incEvictions(int count)
+    {
+        if (enabled && count > 0)
+        {
+            evictions.addAndGet(count);
+        }
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+}
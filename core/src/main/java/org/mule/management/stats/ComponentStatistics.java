@@ -41,6 +41,7 @@ public class ComponentStatistics implements Statistics
     private long intervalTime = 0;
     private long currentIntervalStartTime = 0;
     private boolean statIntervalTimeEnabled = false;
+    private final LatencyHistogram executionLatency = new LatencyHistogram();
 
     /**
      * The constructor added to initialize the interval time in ms that stats   
@@ -81,6 +82,7 @@ public class ComponentStatistics implements Statistics
         executedEvent = 0;
         totalExecTime = 0;
         averageExecutionTime = 0;
+        executionLatency.clear();
     }
 
     public boolean isEnabled()
@@ -218,4 +220,23 @@ public class ComponentStatistics implements Statistics
         return averageExecutionTime;
     }
 
+    /**
+     * Add a new execution latency measurement, with a higher resolution than
+     * {@link #addExecutionTime(long)} and kept for percentiles.
+     *
+     * @param nanos the time to process an event in nanoseconds
+     */
+    public void addExecutionLatency(long nanos)
+    {
+        executionLatency.record(nanos);
+    }
+
+    /**
+     * @return the distribution of execution latencies, in microseconds
+     */
+    public LatencyHistogram getExecutionLatency()
+    {
+        return executionLatency;
+    }
+
 }
@@ -13,6 +13,10 @@ package org.mule.management.stats;
 import org.mule.api.processor.ProcessingStrategy;
 import org.mule.processor.strategy.AsynchronousProcessingStrategy;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class FlowConstructStatistics extends AbstractFlowConstructStatistics implements QueueStatistics
@@ -22,6 +26,7 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
     private final AtomicLong fatalError = new AtomicLong(0);
     private int threadPoolSize = 0;
     protected final ComponentStatistics flowStatistics = new ComponentStatistics();
+    private final ConcurrentMap<String, LatencyHistogram> messageProcessorLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
     
     // these can't sensibly converted to AtomicLong as they are processed together
     // in incQueuedEvent
@@ -98,6 +103,10 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
         {
             flowStatistics.clear();
         }
+        if (messageProcessorLatencies != null)
+        {
+            messageProcessorLatencies.clear();
+        }
     }
 
     public void addCompleteFlowExecutionTime(long time)
@@ -110,6 +119,53 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
         flowStatistics.addExecutionBranchTime(time == total, time, total);
     }
 
+    /**
+     * Add the latency of one branch of processing an event, in nanoseconds
+     */
+    public void addFlowExecutionBranchLatency(long nanos)
+    {
+        flowStatistics.addExecutionLatency(nanos);
+    }
+
+    /**
+     * Add the latency of a message processor of this flow construct, such as an
+     * outbound endpoint, in nanoseconds
+     *
+     * @param processorPath the path of the message processor within the flow construct
+     */
+    public void addMessageProcessorLatency(String processorPath, long nanos)
+    {
+        LatencyHistogram latency = messageProcessorLatencies.get(processorPath);
+        if (latency == null)
+        {
+            LatencyHistogram newLatency = new LatencyHistogram();
+            latency = messageProcessorLatencies.putIfAbsent(processorPath, newLatency);
+            if (latency == null)
+            {
+                latency = newLatency;
+            }
+        }
+        latency.record(nanos);
+    }
+
+    /**
+     * @return the distribution of the latencies of the branches of processing an
+     *         event, in microseconds
+     */
+    public LatencyHistogram getProcessingLatency()
+    {
+        return flowStatistics.getExecutionLatency();
+    }
+
+    /**
+     * @return the distribution of latencies of each message processor that has
+     *         processed an event, by processor path
+     */
+    public Map<String, LatencyHistogram> getMessageProcessorLatencies()
+    {
+        return Collections.unmodifiableMap(messageProcessorLatencies);
+    }
+
     public long getAverageProcessingTime()
     {
         return flowStatistics.getAverageExecutionTime();
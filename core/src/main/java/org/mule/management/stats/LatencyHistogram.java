@@ -0,0 +1,285 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies in constant memory so that percentiles such as the 99th can be
+ * read at any time.
+ * <p/>
+ * Latencies are counted in microsecond buckets laid out the way HdrHistogram lays
+ * them out: values below 64 have a bucket each, and every power of two above that is
+ * split in 32 buckets, so a percentile is never off by more than about 3%. Values
+ * from one microsecond to about 19 hours are told apart; longer ones are counted in
+ * the last bucket.
+ * <p/>
+ * Recording takes no lock. Each thread counts into one of a few cells picked by its
+ * id, so threads only share a cell when there are more of them than processors,
+ * and the cells are only added up when the histogram is read. A read while
+ * latencies are being recorded may not include all of them, and {@link #clear()}
+ * may lose latencies recorded at the same time.
+ */
+public class LatencyHistogram implements Serializable
+{
+    private static final long serialVersionUID = -2994862306377364101L;
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    private static final int MAX_VALUE_BITS = 36;
+
+    /**
+     * Number of buckets, one more than the index of the largest value
+     */
+    static final int BUCKET_COUNT = bucketIndex((1L << MAX_VALUE_BITS) - 1) + 1;
+
+    // slots after the buckets in each cell
+    private static final int TOTAL = BUCKET_COUNT;
+    private static final int MIN = BUCKET_COUNT + 1;
+    private static final int MAX = BUCKET_COUNT + 2;
+    private static final int CELL_LENGTH = BUCKET_COUNT + 3;
+
+    private static final int MAX_CELLS = 8;
+
+    private final AtomicLongArray[] cells;
+    private final int cellMask;
+
+    public LatencyHistogram()
+    {
+        int count = 1;
+        while (count < Math.min(Runtime.getRuntime().availableProcessors(), MAX_CELLS))
+        {
+            count <<= 1;
+        }
+        cells = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++)
+        {
+            cells[i] = newCell();
+        }
+        cellMask = count - 1;
+    }
+
+    private static AtomicLongArray newCell()
+    {
+        AtomicLongArray cell = new AtomicLongArray(CELL_LENGTH);
+        cell.set(MIN, Long.MAX_VALUE);
+        return cell;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        long micros = Math.max(0, nanos / 1000);
+        AtomicLongArray cell = cells[(int) Thread.currentThread().getId() & cellMask];
+        cell.incrementAndGet(bucketIndex(micros));
+        cell.addAndGet(TOTAL, micros);
+        long min = cell.get(MIN);
+        while (micros < min && !cell.compareAndSet(MIN, min, micros))
+        {
+            min = cell.get(MIN);
+        }
+        long max = cell.get(MAX);
+        while (micros > max && !cell.compareAndSet(MAX, max, micros))
+        {
+            max = cell.get(MAX);
+        }
+    }
+
+    /**
+     * Records the time elapsed since a value returned by <code>System.nanoTime()</code>.
+     */
+    public void recordSince(long startNanos)
+    {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void clear()
+    {
+        for (AtomicLongArray cell : cells)
+        {
+            for (int i = 0; i < CELL_LENGTH; i++)
+            {
+                cell.set(i, 0);
+            }
+            cell.set(MIN, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * @return the number of latencies recorded
+     */
+    public long getCount()
+    {
+        return getSnapshot().getCount();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency in microseconds that the given percentage of the recorded
+     *         ones do not exceed
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        return getSnapshot().getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Adds up the cells once, so that several values can be read from the same
+     * recorded latencies.
+     */
+    public Snapshot getSnapshot()
+    {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (AtomicLongArray cell : cells)
+        {
+            for (int i = 0; i < BUCKET_COUNT; i++)
+            {
+                counts[i] += cell.get(i);
+            }
+            total += cell.get(TOTAL);
+            min = Math.min(min, cell.get(MIN));
+            max = Math.max(max, cell.get(MAX));
+        }
+        return new Snapshot(counts, total, min, max);
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+        {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift + SUB_BUCKET_BITS > MAX_VALUE_BITS)
+        {
+            return BUCKET_COUNT - 1;
+        }
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * @return the largest value counted in a bucket
+     */
+    static long highestValueInBucket(int index)
+    {
+        if (index < SUB_BUCKET_COUNT)
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        long subBucket = index - shift * SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * The latencies recorded up to the moment it was taken. All values are in
+     * microseconds.
+     */
+    public static final class Snapshot implements Serializable
+    {
+        private static final long serialVersionUID = 6123570391541298722L;
+
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long min;
+        private final long max;
+
+        Snapshot(long[] counts, long total, long min, long max)
+        {
+            this.counts = counts;
+            long count = 0;
+            for (long c : counts)
+            {
+                count += c;
+            }
+            this.count = count;
+            this.total = total;
+            this.min = count == 0 ? 0 : min;
+            this.max = max;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public long getMin()
+        {
+            return min;
+        }
+
+        public long getMax()
+        {
+            return max;
+        }
+
+        public long getMean()
+        {
+            return count == 0 ? 0 : total / count;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the latency that the given percentage of the recorded ones do not
+         *         exceed, or 0 if none were recorded
+         */
+        public long getValueAtPercentile(double percentile)
+        {
+            if (count == 0)
+            {
+                return 0;
+            }
+            double bounded = Math.min(Math.max(percentile, 0), 100);
+            long rank = Math.max(1, (long) Math.ceil(bounded / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= rank)
+                {
+                    return Math.max(min, Math.min(max, highestValueInBucket(i)));
+                }
+            }
+            return max;
+        }
+
+        public long getMedian()
+        {
+            return getValueAtPercentile(50);
+        }
+
+        public long get99thPercentile()
+        {
+            return getValueAtPercentile(99);
+        }
+
+        public long get999thPercentile()
+        {
+            return getValueAtPercentile(99.9);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "count=" + count + ", min=" + min + ", median=" + getMedian() + ", 99%=" + get99thPercentile()
+                   + ", 99.9%=" + get999thPercentile() + ", max=" + max + " (us)";
+        }
+    }
+}
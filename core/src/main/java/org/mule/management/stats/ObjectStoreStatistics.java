@@ -0,0 +1,138 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import org.mule.api.management.stats.Statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Access, eviction and expiration counters of an object store. Counters are
+ * updated without locking and may be read while the store is in use.
+ */
+public class ObjectStoreStatistics implements Statistics
+{
+    private static final long serialVersionUID = 4914374781342960286L;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong removed = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    private volatile boolean enabled = true;
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public void clear()
+    {
+        hits.set(0);
+        misses.set(0);
+        stored.set(0);
+        removed.set(0);
+        evicted.set(0);
+        expired.set(0);
+    }
+
+    public void incHits()
+    {
+        if (enabled)
+        {
+            hits.incrementAndGet();
+        }
+    }
+
+    public void incMisses()
+    {
+        if (enabled)
+        {
+            misses.incrementAndGet();
+        }
+    }
+
+    public void incStored()
+    {
+        if (enabled)
+        {
+            stored.incrementAndGet();
+        }
+    }
+
+    public void incRemoved()
+    {
+        if (enabled)
+        {
+            removed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Counts an entry dropped to make room for a new one.
+     */
+    public void incEvicted()
+    {
+        if (enabled)
+        {
+            evicted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Counts an entry dropped because its time to live elapsed or because the
+     * store held more entries than allowed.
+     */
+    public void incExpired()
+    {
+        if (enabled)
+        {
+            expired.incrementAndGet();
+        }
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getStored()
+    {
+        return stored.get();
+    }
+
+    public long getRemoved()
+    {
+        return removed.get();
+    }
+
+    public long getEvicted()
+    {
+        return evicted.get();
+    }
+
+    public long getExpired()
+    {
+        return expired.get();
+    }
+}
@@ -80,6 +80,19 @@ public class ProcessingTime implements Serializable
         }
     }
 
+    /**
+     * Add the latency of this branch to the flow construct's statistics
+     *
+     * @param nanos the time this branch took, in nanoseconds
+     */
+    public void addFlowExecutionBranchLatency(long nanos)
+    {
+        if (statistics.isEnabled())
+        {
+            statistics.addFlowExecutionBranchLatency(nanos);
+        }
+    }
+
     /**
      * Convert processing time to effective processing time.  If processing took less than a tick, we consider
      * it to have been one millisecond
@@ -11,6 +11,7 @@
 package org.mule.management.stats.printers;
 
 import org.mule.management.stats.FlowConstructStatistics;
+import org.mule.management.stats.LatencyHistogram;
 import org.mule.management.stats.RouterStatistics;
 import org.mule.management.stats.SedaServiceStatistics;
 import org.mule.management.stats.ServiceStatistics;
@@ -30,6 +31,8 @@ import java.util.Map;
  */
 public class AbstractTablePrinter extends PrintWriter
 {
+    protected static final int LATENCY_COLUMNS = 5;
+
     public AbstractTablePrinter(Writer out)
     {
         super(out, true);
@@ -42,7 +45,7 @@ public class AbstractTablePrinter extends PrintWriter
 
     public String[] getHeaders()
     {
-        String[] column = new String[41];
+        String[] column = new String[46];
         column[0] = "Name";
         column[1] = "Service Pool Max Size";
         column[2] = "Service Pool Size";
@@ -84,6 +87,7 @@ public class AbstractTablePrinter extends PrintWriter
         column[38] = "By Provider";
         column[39] = "";
         column[40] = "Sample Period";
+        addLatencyHeaders(column);
         return column;
     }
 
@@ -156,6 +160,34 @@ public class AbstractTablePrinter extends PrintWriter
         }
 
         col[40] = String.valueOf(stats.getSamplePeriod());
+        getLatencyInfo(stats.getProcessingLatency(), col);
+    }
+
+    /**
+     * Fills the last {@link #LATENCY_COLUMNS} headers
+     */
+    protected void addLatencyHeaders(String[] column)
+    {
+        int index = column.length - LATENCY_COLUMNS;
+        column[index++] = "Median Processing Latency (us)";
+        column[index++] = "90th Percentile Processing Latency (us)";
+        column[index++] = "99th Percentile Processing Latency (us)";
+        column[index++] = "99.9th Percentile Processing Latency (us)";
+        column[index] = "Max Processing Latency (us)";
+    }
+
+    /**
+     * Fills the last {@link #LATENCY_COLUMNS} columns
+     */
+    protected void getLatencyInfo(LatencyHistogram latency, String[] col)
+    {
+        LatencyHistogram.Snapshot snapshot = latency.getSnapshot();
+        int index = col.length - LATENCY_COLUMNS;
+        col[index++] = String.valueOf(snapshot.getMedian());
+        col[index++] = String.valueOf(snapshot.getValueAtPercentile(90));
+        col[index++] = String.valueOf(snapshot.get99thPercentile());
+        col[index++] = String.valueOf(snapshot.get999thPercentile());
+        col[index] = String.valueOf(snapshot.getMax());
     }
 
     protected int getRouterInfo(RouterStatistics stats, String[] col, int index)
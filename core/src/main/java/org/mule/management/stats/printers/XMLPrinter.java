@@ -44,7 +44,7 @@ public class XMLPrinter extends AbstractTablePrinter
 
     public String[] getHeaders()
     {
-        String[] column = new String[42];
+        String[] column = new String[47];
         column[0] = "Service Name";
         column[1] = "Service Pool Max Size";
         column[2] = "Service Pool Size";
@@ -87,6 +87,7 @@ public class XMLPrinter extends AbstractTablePrinter
         column[39] = "Providers";
         column[40] = "Router";
         column[41] = "Sample Period";
+        addLatencyHeaders(column);
         return column;
     }
     
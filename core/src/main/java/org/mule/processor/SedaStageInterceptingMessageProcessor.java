@@ -40,7 +40,10 @@ import org.mule.util.queue.QueueConfiguration;
 import org.mule.util.queue.QueueSession;
 import org.mule.work.MuleWorkManager;
 
+import java.io.Serializable;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import javax.resource.spi.work.Work;
 import javax.resource.spi.work.WorkException;
@@ -54,12 +57,29 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
 {
     protected static final String QUEUE_NAME_PREFIX = "seda.queue";
 
+    /**
+     * Maximum number of events taken off a non-persistent queue in one go
+     */
+    protected static final int DEFAULT_DEQUEUE_BATCH_SIZE = 32;
+
     protected QueueProfile queueProfile;
     protected int queueTimeout;
     protected QueueStatistics queueStatistics;
     protected String queueName;
     protected Queue queue;
     protected QueueConfiguration queueConfiguration;
+    protected int dequeueBatchSize = DEFAULT_DEQUEUE_BATCH_SIZE;
+
+    /**
+     * Events already taken off the queue but not yet handed to the work manager. Only
+     * accessed by the thread executing {@link #run()}.
+     */
+    private final Deque<Serializable> dequeuedEvents = new ArrayDeque<Serializable>();
+    /**
+     * The size of {@link #dequeuedEvents}, kept by the thread executing {@link #run()}
+     * for {@link #getQueueSize()} to read from other threads.
+     */
+    private volatile int dequeuedEventCount = 0;
     private WaitableBoolean running = new WaitableBoolean(false);
     protected SedaStageLifecycleManager lifecycleManager;
 
@@ -131,18 +151,63 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
                 getStageDescription(), queueTimeout));
         }
 
-        MuleEvent event = (MuleEvent)queue.poll(queueTimeout);
+        if (dequeuedEvents.isEmpty())
+        {
+            queue.drainTo(dequeuedEvents, getDequeueBatchSize(), queueTimeout);
+        }
+
+        MuleEvent event = (MuleEvent) dequeuedEvents.poll();
+        dequeuedEventCount = dequeuedEvents.size();
         // If the service has been paused why the poll was waiting for an event to
         // arrive on the queue,
         // we put the object back on the queue
         if (event != null && lifecycleManager.isPhaseComplete(Pausable.PHASE_NAME))
         {
-            queue.untake(event);
+            dequeuedEvents.addFirst(event);
+            dequeuedEventCount = dequeuedEvents.size();
+            returnDequeuedEvents();
             return null;
         }
         return event;
     }
 
+    /**
+     * Events taken off a persistent queue are no longer in its store, so only take one
+     * at a time to avoid losing a whole batch on a crash. Events held in a batch no
+     * longer count against the capacity of a bounded queue either, so only take one
+     * at a time from those too, which keeps the capacity the limit on events waiting
+     * for the stage.
+     */
+    protected int getDequeueBatchSize()
+    {
+        if (isQueuePersistent() || (queueConfiguration != null && queueConfiguration.getCapacity() > 0))
+        {
+            return 1;
+        }
+        return dequeueBatchSize;
+    }
+
+    /**
+     * Puts events that were dequeued as part of a batch, but not processed yet, back
+     * at the front of the queue in their original order.
+     */
+    protected void returnDequeuedEvents() throws Exception
+    {
+        Serializable event;
+        try
+        {
+            while ((event = dequeuedEvents.pollLast()) != null)
+            {
+                queue.untake(event);
+                dequeuedEventCount = dequeuedEvents.size();
+            }
+        }
+        finally
+        {
+            dequeuedEventCount = dequeuedEvents.size();
+        }
+    }
+
     /**
      * Roll back the previous dequeue(), i.e., put the event at the front of the queue, not at the back which
      * is what enqueue() does.
@@ -156,6 +221,7 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
         }
         try
         {
+            returnDequeuedEvents();
             queue.untake(event);
         }
         catch (Exception e)
@@ -173,104 +239,120 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
         QueueSession queueSession = muleContext.getQueueManager().getQueueSession();
 
         running.set(true);
-        while (!lifecycleManager.getState().isStopped())
+        try
         {
-            try
+            while (!lifecycleManager.getState().isStopped())
             {
-                // Wait if the service is paused
-                if (lifecycleManager.isPhaseComplete(Pausable.PHASE_NAME))
+                try
                 {
-                    waitIfPaused();
-
-                    // If service is resumed as part of stopping
-                    if (lifecycleManager.getState().isStopping())
+                    // Wait if the service is paused
+                    if (lifecycleManager.isPhaseComplete(Pausable.PHASE_NAME))
                     {
-                        if (!isQueuePersistent() && (queueSession != null && getQueueSize() > 0))
+                        waitIfPaused();
+
+                        // If service is resumed as part of stopping
+                        if (lifecycleManager.getState().isStopping())
                         {
-                            // Any messages in a non-persistent queue when paused
-                            // service is stopped are lost
-                            logger.warn(CoreMessages.stopPausedSedaStageNonPeristentQueueMessageLoss(
-                                getQueueSize(), getQueueName()));
+                            if (!isQueuePersistent() && (queueSession != null && getQueueSize() > 0))
+                            {
+                                // Any messages in a non-persistent queue when paused
+                                // service is stopped are lost
+                                logger.warn(CoreMessages.stopPausedSedaStageNonPeristentQueueMessageLoss(
+                                    getQueueSize(), getQueueName()));
+                            }
+                            break;
                         }
-                        break;
-                    }
-                }
-
-                // If we're doing a draining stop, read all events from the queue
-                // before stopping
-                if (lifecycleManager.getState().isStopping())
-                {
-                    if (isQueuePersistent() || queueSession == null || getQueueSize() <= 0)
-                    {
-                        break;
                     }
-                }
 
-                event = (DefaultMuleEvent)dequeue();
-            }
-            catch (InterruptedException ie)
-            {
-                break;
-            }
-            catch (Exception e)
-            {
-                muleContext.getExceptionListener().handleException(e);
-            }
-
-            if (event != null)
-            {
-                final MuleEvent eventToProcess = event;
-                TransactionalErrorHandlingExecutionTemplate executionTemplate = TransactionalErrorHandlingExecutionTemplate.createMainExecutionTemplate(muleContext, event.getFlowConstruct().getExceptionListener());
-                ExecutionCallback<MuleEvent> processingCallback = new ExecutionCallback<MuleEvent>()
-                {
-
-                    @Override
-                    public MuleEvent process() throws Exception
+                    // If we're doing a draining stop, read all events from the queue
+                    // before stopping
+                    if (lifecycleManager.getState().isStopping())
                     {
-                        if (isStatsEnabled())
+                        if (isQueuePersistent() || queueSession == null || getQueueSize() <= 0)
                         {
-                            queueStatistics.decQueuedEvent();
+                            break;
                         }
-
-                        if (logger.isDebugEnabled())
-                        {
-                            logger.debug(MessageFormat.format("{0}: Dequeued event from {1}",
-                                getStageDescription(), getQueueName()));
-                        }
-                        AsyncMessageProcessorWorker work = new AsyncMessageProcessorWorker(eventToProcess);
-                        try
-                        {
-                            // TODO Remove this thread handoff to ensure Zero Message Loss
-                            workManagerSource.getWorkManager().scheduleWork(work, WorkManager.INDEFINITE,
-                                null, new AsyncWorkListener(next));
-                        }
-                        catch (Exception e)
-                        {
-                            // because dequeued event may still be owned by a previuos
-                            // thread we need to use the copy created in AsyncMessageProcessorWorker
-                            // constructor.
-                            OptimizedRequestContext.unsafeSetEvent(work.getEvent());
-                            throw new MessagingException(work.getEvent(), e, SedaStageInterceptingMessageProcessor.this);
-                        }
-                        return null;
                     }
-                };
 
-                try
-                {
-                    executionTemplate.execute(processingCallback);
+                    event = (DefaultMuleEvent)dequeue();
                 }
-                catch (MessagingException e)
+                catch (InterruptedException ie)
                 {
-                    //Already handled by processing template
+                    break;
                 }
                 catch (Exception e)
                 {
                     muleContext.getExceptionListener().handleException(e);
                 }
+
+                if (event != null)
+                {
+                    final MuleEvent eventToProcess = event;
+                    TransactionalErrorHandlingExecutionTemplate executionTemplate = TransactionalErrorHandlingExecutionTemplate.createMainExecutionTemplate(muleContext, event.getFlowConstruct().getExceptionListener());
+                    ExecutionCallback<MuleEvent> processingCallback = new ExecutionCallback<MuleEvent>()
+                    {
+
+                        @Override
+                        public MuleEvent process() throws Exception
+                        {
+                            if (isStatsEnabled())
+                            {
+                                queueStatistics.decQueuedEvent();
+                            }
+
+                            if (logger.isDebugEnabled())
+                            {
+                                logger.debug(MessageFormat.format("{0}: Dequeued event from {1}",
+                                    getStageDescription(), getQueueName()));
+                            }
+                            AsyncMessageProcessorWorker work = new AsyncMessageProcessorWorker(eventToProcess);
+                            try
+                            {
+                                // TODO Remove this thread handoff to ensure Zero Message Loss
+                                workManagerSource.getWorkManager().scheduleWork(work, WorkManager.INDEFINITE,
+                                    null, new AsyncWorkListener(next));
+                            }
+                            catch (Exception e)
+                            {
+                                // because dequeued event may still be owned by a previuos
+                                // thread we need to use the copy created in AsyncMessageProcessorWorker
+                                // constructor.
+                                OptimizedRequestContext.unsafeSetEvent(work.getEvent());
+                                throw new MessagingException(work.getEvent(), e, SedaStageInterceptingMessageProcessor.this);
+                            }
+                            return null;
+                        }
+                    };
+
+                    try
+                    {
+                        executionTemplate.execute(processingCallback);
+                    }
+                    catch (MessagingException e)
+                    {
+                        //Already handled by processing template
+                    }
+                    catch (Exception e)
+                    {
+                        muleContext.getExceptionListener().handleException(e);
+                    }
+                }
             }
         }
-        running.set(false);
+        finally
+        {
+            // events taken off the queue in a batch and not handed over yet go back
+            // on it, so they are delivered once the stage is started again
+            try
+            {
+                returnDequeuedEvents();
+            }
+            catch (Exception e)
+            {
+                logger.error(e);
+            }
+            running.set(false);
+        }
     }
 
     /** Are the events in the SEDA queue persistent? */
@@ -281,7 +363,7 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
 
     public int getQueueSize()
     {
-        return queue.size();
+        return queue.size() + dequeuedEventCount;
     }
 
     protected String getQueueName()
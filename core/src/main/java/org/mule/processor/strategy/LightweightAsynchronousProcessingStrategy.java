@@ -0,0 +1,61 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.processor.strategy;
+
+import org.mule.api.MuleContext;
+import org.mule.api.config.ThreadingProfile;
+import org.mule.util.concurrent.LightweightExecutorService;
+import org.mule.work.LightweightWorkManagerFactory;
+
+/**
+ * This strategy processes the pipeline of message processors asynchronously, as
+ * {@link AsynchronousProcessingStrategy} does, but runs each event in a thread of its
+ * own instead of in a thread taken from a pool. Where the JVM has virtual threads
+ * these are used, so that flows that block on I/O can have many thousands of events in
+ * flight; <code>maxThreads</code> then defaults to {@link #DEFAULT_MAX_VIRTUAL_THREADS}.
+ * Elsewhere events run on platform threads created on demand, and
+ * <code>maxThreads</code> keeps its usual default.
+ *
+ * @see LightweightExecutorService
+ */
+public class LightweightAsynchronousProcessingStrategy extends AsynchronousProcessingStrategy
+{
+
+    public static final int DEFAULT_MAX_VIRTUAL_THREADS = 10000;
+
+    protected boolean useVirtualThreads = true;
+
+    @Override
+    protected ThreadingProfile createThreadingProfile(MuleContext muleContext)
+    {
+        ThreadingProfile threadingProfile = super.createThreadingProfile(muleContext);
+        if (maxThreads == null && useVirtualThreads && LightweightExecutorService.isVirtualThreadsSupported())
+        {
+            threadingProfile.setMaxThreadsActive(DEFAULT_MAX_VIRTUAL_THREADS);
+        }
+        LightweightWorkManagerFactory workManagerFactory = new LightweightWorkManagerFactory();
+        workManagerFactory.setUseVirtualThreads(useVirtualThreads);
+        workManagerFactory.setMuleContext(muleContext);
+        threadingProfile.setWorkManagerFactory(workManagerFactory);
+        return threadingProfile;
+    }
+
+    public boolean isUseVirtualThreads()
+    {
+        return useVirtualThreads;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads)
+    {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+}
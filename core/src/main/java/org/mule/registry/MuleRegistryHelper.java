@@ -40,10 +40,12 @@ import org.mule.api.transformer.Transformer;
 import org.mule.api.transformer.TransformerException;
 import org.mule.api.transport.Connector;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.transformer.types.DataTypePair;
 import org.mule.transformer.types.SimpleDataType;
 import org.mule.util.SpiUtils;
 import org.mule.util.StringUtils;
 import org.mule.util.UUID;
+import org.mule.util.concurrent.BoundedConcurrentCache;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -53,7 +55,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -71,11 +73,30 @@ public class MuleRegistryHelper implements MuleRegistry
      */
     private DefaultRegistryBroker registry;
 
+    /**
+     * The maximum number of pairs of data types each transformer cache keeps. The
+     * caches are bounded because the mime type and encoding of a data type can come
+     * from the Content-Type of a remote client.
+     */
+    public static final int TRANSFORMER_CACHE_CAPACITY = 1000;
+
     /**
      * We cache transformer searches so that we only search once
      */
-    protected ConcurrentHashMap/*<String, Transformer>*/ exactTransformerCache = new ConcurrentHashMap/*<String, Transformer>*/(8);
-    protected ConcurrentHashMap/*Map<String, List<Transformer>>*/ transformerListCache = new ConcurrentHashMap/*<String, List<Transformer>>*/(8);
+    protected BoundedConcurrentCache<DataTypePair, Transformer> exactTransformerCache = new BoundedConcurrentCache<DataTypePair, Transformer>(TRANSFORMER_CACHE_CAPACITY);
+    protected BoundedConcurrentCache<DataTypePair, List<Transformer>> transformerListCache = new BoundedConcurrentCache<DataTypePair, List<Transformer>>(TRANSFORMER_CACHE_CAPACITY);
+
+    /**
+     * Pairs of data types no transformer was found for. Resolvers may find one once
+     * other objects are registered, so this is cleared whenever the registry changes.
+     */
+    protected BoundedConcurrentCache<DataTypePair, Boolean> missingTransformerCache = new BoundedConcurrentCache<DataTypePair, Boolean>(TRANSFORMER_CACHE_CAPACITY);
+
+    /**
+     * Counts the clears of {@link #missingTransformerCache}, so that a lookup can tell
+     * whether the registry changed while it was resolving a transformer.
+     */
+    private final AtomicLong missingTransformerGeneration = new AtomicLong();
 
     private MuleContext muleContext;
 
@@ -103,6 +124,7 @@ public class MuleRegistryHelper implements MuleRegistry
     {
         transformerListCache.clear();
         exactTransformerCache.clear();
+        clearMissingTransformers();
     }
 
     public void fireLifecycle(String phase) throws LifecycleException
@@ -225,19 +247,23 @@ public class MuleRegistryHelper implements MuleRegistry
      */
     public Transformer lookupTransformer(DataType source, DataType result) throws TransformerException
     {
-        final String dataTypePairHash = getDataTypeSourceResultPairHash(source, result);
-        Transformer cachedTransformer = (Transformer) exactTransformerCache.get(dataTypePairHash);
+        final DataTypePair dataTypePair = new DataTypePair(source, result);
+        Transformer cachedTransformer = exactTransformerCache.get(dataTypePair);
         if (cachedTransformer != null)
         {
             return cachedTransformer;
         }
+        if (missingTransformerCache.get(dataTypePair) != null)
+        {
+            throw new TransformerException(CoreMessages.noTransformerFoundForMessage(source, result));
+        }
 
+        long generation = missingTransformerGeneration.get();
         Transformer trans = resolveTransformer(source, result);
 
         if (trans != null)
         {
-            Transformer concurrentlyAddedTransformer = (Transformer) exactTransformerCache.putIfAbsent(
-                dataTypePairHash, trans);
+            Transformer concurrentlyAddedTransformer = exactTransformerCache.putIfAbsent(dataTypePair, trans);
             if (concurrentlyAddedTransformer != null)
             {
                 return concurrentlyAddedTransformer;
@@ -249,6 +275,13 @@ public class MuleRegistryHelper implements MuleRegistry
         }
         else
         {
+            missingTransformerCache.putIfAbsent(dataTypePair, Boolean.TRUE);
+            if (missingTransformerGeneration.get() != generation)
+            {
+                // a transformer may have been registered after the resolvers were asked,
+                // and the cache cleared before the pair was added to it
+                missingTransformerCache.remove(dataTypePair);
+            }
             throw new TransformerException(CoreMessages.noTransformerFoundForMessage(source, result));
         }
     }
@@ -281,9 +314,9 @@ public class MuleRegistryHelper implements MuleRegistry
      */
     public List<Transformer> lookupTransformers(DataType source, DataType result)
     {
-        final String dataTypePairHash = getDataTypeSourceResultPairHash(source, result);
+        final DataTypePair dataTypePair = new DataTypePair(source, result);
 
-        List<Transformer> results = (List<Transformer>) transformerListCache.get(dataTypePairHash);
+        List<Transformer> results = transformerListCache.get(dataTypePair);
         if (results != null)
         {
             return results;
@@ -307,8 +340,7 @@ public class MuleRegistryHelper implements MuleRegistry
             }
         }
 
-        List<Transformer> concurrentlyAddedTransformers = (List<Transformer>) transformerListCache.putIfAbsent(
-            dataTypePairHash, results);
+        List<Transformer> concurrentlyAddedTransformers = transformerListCache.putIfAbsent(dataTypePair, results);
         if (concurrentlyAddedTransformers != null)
         {
             return concurrentlyAddedTransformers;
@@ -459,6 +491,13 @@ public class MuleRegistryHelper implements MuleRegistry
             transformerListCache.clear();
             exactTransformerCache.clear();
         }
+        clearMissingTransformers();
+    }
+
+    private void clearMissingTransformers()
+    {
+        missingTransformerGeneration.incrementAndGet();
+        missingTransformerCache.clear();
     }
 
     /**
@@ -715,6 +754,7 @@ public class MuleRegistryHelper implements MuleRegistry
     public void registerObject(String key, Object value, Object metadata) throws RegistrationException
     {
         registry.registerObject(key, value, metadata);
+        clearMissingTransformers();
     }
 
     /**
@@ -723,6 +763,7 @@ public class MuleRegistryHelper implements MuleRegistry
     public void registerObject(String key, Object value) throws RegistrationException
     {
         registry.registerObject(key, value);
+        clearMissingTransformers();
     }
 
     /**
@@ -731,6 +772,7 @@ public class MuleRegistryHelper implements MuleRegistry
     public void registerObjects(Map objects) throws RegistrationException
     {
         registry.registerObjects(objects);
+        clearMissingTransformers();
     }
 
     /**
@@ -739,6 +781,7 @@ public class MuleRegistryHelper implements MuleRegistry
     public void unregisterObject(String key, Object metadata) throws RegistrationException
     {
         registry.unregisterObject(key, metadata);
+        clearMissingTransformers();
     }
 
     /**
@@ -747,6 +790,7 @@ public class MuleRegistryHelper implements MuleRegistry
     public void unregisterObject(String key) throws RegistrationException
     {
         registry.unregisterObject(key);
+        clearMissingTransformers();
     }
 
     /**
@@ -802,12 +846,6 @@ public class MuleRegistryHelper implements MuleRegistry
         return false;
     }
 
-    private String getDataTypeSourceResultPairHash(DataType<?> source, DataType<?> result)
-    {
-        return source.getClass().getName() + source.hashCode() + ":" + result.getClass().getName()
-               + result.hashCode();
-    }
-
     private class TransformerResolverComparator implements Comparator<TransformerResolver>
     {
         public int compare(TransformerResolver transformerResolver, TransformerResolver transformerResolver1)
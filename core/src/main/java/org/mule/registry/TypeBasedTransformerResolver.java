@@ -27,12 +27,12 @@ import org.mule.transformer.TransformerWeighting;
 import org.mule.transformer.graph.GraphTransformerResolver;
 import org.mule.transformer.simple.ObjectToByteArray;
 import org.mule.transformer.simple.ObjectToString;
+import org.mule.transformer.types.DataTypePair;
 import org.mule.transformer.types.SimpleDataType;
+import org.mule.util.concurrent.BoundedConcurrentCache;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -54,7 +54,7 @@ public class TypeBasedTransformerResolver implements TransformerResolver, MuleCo
 
     private MuleContext muleContext;
 
-    protected Map<String, Transformer> exactTransformerCache = new ConcurrentHashMap/*<String, Transformer>*/(8);
+    protected BoundedConcurrentCache<DataTypePair, Transformer> exactTransformerCache = new BoundedConcurrentCache<DataTypePair, Transformer>(MuleRegistryHelper.TRANSFORMER_CACHE_CAPACITY);
 
     protected TransformerResolver graphTransformerResolver = new GraphTransformerResolver();
 
@@ -80,7 +80,8 @@ public class TypeBasedTransformerResolver implements TransformerResolver, MuleCo
 
     public Transformer resolve(DataType source, DataType result) throws ResolverException
     {
-        Transformer transformer = exactTransformerCache.get(source.toString() + result.toString());
+        DataTypePair dataTypePair = new DataTypePair(source, result);
+        Transformer transformer = exactTransformerCache.get(dataTypePair);
         if (transformer != null)
         {
             return transformer;
@@ -140,7 +141,7 @@ public class TypeBasedTransformerResolver implements TransformerResolver, MuleCo
 
         if (transformer != null)
         {
-            exactTransformerCache.put(source.toString() + result.toString(), transformer);
+            exactTransformerCache.putIfAbsent(dataTypePair, transformer);
         }
         return transformer;
     }
@@ -65,6 +65,12 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
     private static boolean hasNoCommonRootId = false;
     private int arrivalOrderCounter = 0;
 
+    /**
+     * Number of events in {@link #events}, so that it does not need to be listed for
+     * every event added. <code>null</code> when unknown, e.g. after deserialization.
+     */
+    transient private Integer eventCount;
+
     public static final String DEFAULT_STORE_PREFIX = "DEFAULT_STORE";
 
     public EventGroup(Object groupId, MuleContext muleContext)
@@ -88,6 +94,7 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
 
         this.expectedSize = expectedSize;
         this.groupId = groupId;
+        this.eventCount = 0;
     }
 
     /**
@@ -231,11 +238,11 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
     {
         synchronized (events)
         {
-            if (events.allKeys().isEmpty())
+            List<Serializable> keys = events.allKeys();
+            if (keys.isEmpty())
             {
                 return EMPTY_EVENTS_ARRAY;
             }
-            List<Serializable> keys = events.allKeys();
             MuleEvent[] eventArray = new MuleEvent[keys.size()];
             for (int i = 0; i < keys.size(); i++)
             {
@@ -259,11 +266,12 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
     {
         synchronized (events)
         {
-            //Using both event ID and CorrelationSequence since in certain instances
-            //when an event is split up, the same event IDs are used.
-            Serializable key=event.getId()+event.getMessage().getCorrelationSequence();
             event.getMessage().setInvocationProperty(MULE_ARRIVAL_ORDER_PROPERTY, ++arrivalOrderCounter);
-            events.store(key, event);
+            events.store(getEventKey(event), event);
+            if (eventCount != null)
+            {
+                eventCount++;
+            }
 
             if (!hasNoCommonRootId)
             {
@@ -292,10 +300,21 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
     {
         synchronized (events)
         {
-            events.remove(event.getId());
+            events.remove(getEventKey(event));
+            if (eventCount != null)
+            {
+                eventCount--;
+            }
         }
     }
 
+    private Serializable getEventKey(MuleEvent event)
+    {
+        //Using both event ID and CorrelationSequence since in certain instances
+        //when an event is split up, the same event IDs are used.
+        return event.getId() + event.getMessage().getCorrelationSequence();
+    }
+
     /**
      * Return the creation timestamp of the current group in nanoseconds.
      *
@@ -315,15 +334,19 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
     {
         synchronized (events)
         {
-            try
-            {
-                return events.allKeys().size();
-            }
-            catch (ObjectStoreException e)
+            if (eventCount == null)
             {
-                // TODO Check if this is ok.
-                return -1;
+                try
+                {
+                    eventCount = events.allKeys().size();
+                }
+                catch (ObjectStoreException e)
+                {
+                    // TODO Check if this is ok.
+                    return -1;
+                }
             }
+            return eventCount;
         }
     }
 
@@ -345,7 +368,11 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
      */
     public void clear() throws ObjectStoreException
     {
-        getObjectStoreManager().disposeStore(events);
+        synchronized (events)
+        {
+            getObjectStoreManager().disposeStore(events);
+            eventCount = 0;
+        }
     }
 
     @Override
@@ -13,6 +13,7 @@ package org.mule.routing;
 import org.mule.DefaultMuleMessage;
 import org.mule.api.MuleEvent;
 import org.mule.api.MuleMessage;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.expression.ExpressionManager;
 import org.mule.api.lifecycle.Initialisable;
 import org.mule.api.lifecycle.InitialisationException;
@@ -40,6 +41,7 @@ public class ExpressionSplitter extends AbstractSplitter
 
     protected ExpressionManager expressionManager;
     protected ExpressionConfig config = new ExpressionConfig();
+    private CompiledExpression compiledExpression;
 
     public ExpressionSplitter()
     {
@@ -56,14 +58,13 @@ public class ExpressionSplitter extends AbstractSplitter
     {
         expressionManager = muleContext.getExpressionManager();
         config.validate(expressionManager);
+        compiledExpression = expressionManager.compile(config.getFullExpression(expressionManager));
     }
 
     @Override
     protected List<MuleMessage> splitMessage(MuleEvent event)
     {
-        Object result = event.getMuleContext()
-            .getExpressionManager()
-            .evaluate(config.getFullExpression(expressionManager), event);
+        Object result = compiledExpression.evaluate(event);
         if (result instanceof Object[])
         {
             result = Arrays.asList((Object[]) result);
@@ -23,10 +23,14 @@ import org.mule.api.routing.RoutingException;
 import org.mule.api.store.*;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.processor.AbstractFilteringMessageProcessor;
+import org.mule.util.RotatingBloomFilter;
 import org.mule.util.concurrent.ThreadNameHelper;
 import org.mule.util.store.InMemoryObjectStore;
 
+import java.io.Serializable;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * <code>IdempotentMessageFilter</code> ensures that only unique messages are passed
@@ -34,6 +38,13 @@ import java.text.MessageFormat;
  * underlying endpoint must support unique message IDs for this to work, otherwise a
  * <code>UniqueIdNotSupportedException</code> is thrown.<br>
  * <p>
+ * Setting {@link #setBloomFilterExpectedInsertions(int) bloomFilterExpectedInsertions}
+ * keeps a {@link RotatingBloomFilter} of the recently seen IDs in front of the store,
+ * so that the store is only asked whether it contains an ID the filter has probably
+ * seen. IDs the filter does not know are still stored, which fails for duplicates,
+ * so the filter never lets a duplicate through; it only saves store lookups. See
+ * {@link RotatingBloomFilter} for how its false positive budget is met.
+ * <p>
  * <b>EIP Reference:</b> <a
  * href="http://www.eaipatterns.com/IdempotentReceiver.html">
  * http://www.eaipatterns.com/IdempotentReceiver.html</a>
@@ -44,6 +55,12 @@ public class IdempotentMessageFilter extends AbstractFilteringMessageProcessor i
     protected FlowConstruct flowConstruct;
     protected String storePrefix;
 
+    private int bloomFilterExpectedInsertions = 0;
+    private double bloomFilterFalsePositiveProbability = 0.01;
+    private int bloomFilterSlices = 6;
+    private long bloomFilterRotationInterval = 60 * 1000;
+    private volatile RotatingBloomFilter bloomFilter;
+
     protected String idExpression = MessageFormat.format("{0}message:id{1}",
         ExpressionManager.DEFAULT_EXPRESSION_PREFIX, ExpressionManager.DEFAULT_EXPRESSION_POSTFIX);
 
@@ -67,6 +84,45 @@ public class IdempotentMessageFilter extends AbstractFilteringMessageProcessor i
         {
             this.store = createMessageIdStore();
         }
+        if (bloomFilterExpectedInsertions > 0 && bloomFilter == null)
+        {
+            bloomFilter = createBloomFilter();
+        }
+    }
+
+    /**
+     * Creates the Bloom filter and adds the IDs already in the store to it, if the
+     * store can list them. As many as fit in the false positive budget are added; the
+     * others are still rejected by the store.
+     */
+    protected RotatingBloomFilter createBloomFilter()
+    {
+        RotatingBloomFilter filter = new RotatingBloomFilter(bloomFilterExpectedInsertions,
+            bloomFilterFalsePositiveProbability, bloomFilterSlices, bloomFilterRotationInterval);
+        if (store instanceof ListableObjectStore)
+        {
+            try
+            {
+                List<Serializable> keys = ((ListableObjectStore<?>) store).allKeys();
+                List<String> ids = new ArrayList<String>(keys.size());
+                for (Serializable id : keys)
+                {
+                    ids.add(id.toString());
+                }
+                int added = filter.preload(ids);
+                if (added < ids.size() && logger.isInfoEnabled())
+                {
+                    logger.info(String.format("Only %d of the %d IDs in the store fit in the Bloom filter",
+                        added, ids.size()));
+                }
+            }
+            catch (ObjectStoreException e)
+            {
+                // IDs missing from the filter are still rejected by the store
+                logger.warn("Could not load the IDs in the store into the Bloom filter: " + e.getMessage());
+            }
+        }
+        return filter;
     }
 
     protected ObjectStore<String> createMessageIdStore() throws InitialisationException
@@ -124,10 +180,12 @@ public class IdempotentMessageFilter extends AbstractFilteringMessageProcessor i
                 try
                 {
                     store.store(id, value);
+                    addToBloomFilter(id);
                     return true;
                 }
                 catch (ObjectAlreadyExistsException ex)
                 {
+                    addToBloomFilter(id);
                     return false;
                 }
                 catch (ObjectStoreNotAvaliableException e)
@@ -181,6 +239,10 @@ public class IdempotentMessageFilter extends AbstractFilteringMessageProcessor i
                     initialise();
                 }
             }
+            if (bloomFilter != null && !bloomFilter.mightContain(id))
+            {
+                return true;
+            }
             return !store.contains(id);
         }
         catch (MuleException e)
@@ -192,6 +254,14 @@ public class IdempotentMessageFilter extends AbstractFilteringMessageProcessor i
         }
     }
 
+    private void addToBloomFilter(String id)
+    {
+        if (bloomFilter != null)
+        {
+            bloomFilter.add(id);
+        }
+    }
+
     @Override
     public void setFlowConstruct(FlowConstruct flowConstruct)
     {
@@ -212,4 +282,55 @@ public class IdempotentMessageFilter extends AbstractFilteringMessageProcessor i
     {
         this.storePrefix = storePrefix;
     }
+
+    public int getBloomFilterExpectedInsertions()
+    {
+        return bloomFilterExpectedInsertions;
+    }
+
+    /**
+     * Number of new IDs expected per {@link #setBloomFilterRotationInterval(long)
+     * rotation interval}. A positive value enables the Bloom filter; it is disabled
+     * by default.
+     */
+    public void setBloomFilterExpectedInsertions(int bloomFilterExpectedInsertions)
+    {
+        this.bloomFilterExpectedInsertions = bloomFilterExpectedInsertions;
+    }
+
+    public double getBloomFilterFalsePositiveProbability()
+    {
+        return bloomFilterFalsePositiveProbability;
+    }
+
+    /**
+     * Probability of asking the store about a new ID, 0.01 by default.
+     */
+    public void setBloomFilterFalsePositiveProbability(double bloomFilterFalsePositiveProbability)
+    {
+        this.bloomFilterFalsePositiveProbability = bloomFilterFalsePositiveProbability;
+    }
+
+    public int getBloomFilterSlices()
+    {
+        return bloomFilterSlices;
+    }
+
+    public void setBloomFilterSlices(int bloomFilterSlices)
+    {
+        this.bloomFilterSlices = bloomFilterSlices;
+    }
+
+    public long getBloomFilterRotationInterval()
+    {
+        return bloomFilterRotationInterval;
+    }
+
+    /**
+     * Milliseconds after which the oldest slice of the Bloom filter is dropped.
+     */
+    public void setBloomFilterRotationInterval(long bloomFilterRotationInterval)
+    {
+        this.bloomFilterRotationInterval = bloomFilterRotationInterval;
+    }
 }
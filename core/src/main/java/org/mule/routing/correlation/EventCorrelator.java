@@ -42,11 +42,10 @@ import org.mule.util.concurrent.ThreadNameHelper;
 import org.mule.util.monitor.Expirable;
 import org.mule.util.monitor.ExpiryMonitor;
 import org.mule.util.store.DeserializationPostInitialisable;
+import org.mule.util.timer.TimingWheel;
 
 import java.io.Serializable;
 import java.text.MessageFormat;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
@@ -76,6 +75,19 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
      */
     protected ListableObjectStore<EventGroup> eventGroups;
 
+    /**
+     * Number of locks the event groups are striped over, a power of two
+     */
+    protected static final int GROUP_LOCK_STRIPES = 256;
+
+    private static final int EXPIRY_WHEEL_BUCKETS = 1024;
+
+    private final Object[] groupLocks = new Object[GROUP_LOCK_STRIPES];
+
+    /**
+     * Only guards {@link #processedGroups}, whose store may not be thread safe.
+     * Event groups are guarded by {@link #getGroupLock(Object)}.
+     */
     protected final Object groupsLock = new Object();
 
     // @GuardedBy groupsLock
@@ -104,6 +116,12 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
     private final boolean persistentStores;
     private final String storePrefix;
 
+    /**
+     * Ids of the groups created, due when the group would time out
+     */
+    private final TimingWheel<Serializable> expiryWheel = new TimingWheel<Serializable>(
+        ExpiringGroupMonitoringThread.DELAY_TIME, TimeUnit.MILLISECONDS, EXPIRY_WHEEL_BUCKETS);
+
     public EventCorrelator(EventCorrelatorCallback callback,
                            MessageProcessor timeoutMessageProcessor,
                            MessageInfoMapping messageInfoMapping,
@@ -131,6 +149,10 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         this.timeoutMessageProcessor = timeoutMessageProcessor;
         this.persistentStores = persistentStores;
         this.storePrefix = storePrefix;
+        for (int i = 0; i < groupLocks.length; i++)
+        {
+            groupLocks[i] = new Object();
+        }
         name = String.format("%s%s.event.correlator", ThreadNameHelper.getPrefix(muleContext),
             flowConstructName);
         ObjectStoreManager objectStoreManager = muleContext.getRegistry().get(
@@ -147,21 +169,32 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
 
     public void forceGroupExpiry(String groupId) throws MessagingException
     {
-        try
+        // as on timeouts, the group is only removed while holding its lock, so that
+        // the flow it is handed to does not hold up the groups sharing the lock
+        EventGroup group = null;
+        synchronized (getGroupLock(groupId))
         {
-            if (eventGroups.retrieve(groupId) != null)
+            try
             {
-                handleGroupExpiry(getEventGroup(groupId));
+                if (eventGroups.retrieve(groupId) != null)
+                {
+                    group = getEventGroup(groupId);
+                    removeEventGroup(group);
+                }
+                else
+                {
+                    addProcessedGroup(groupId);
+                }
             }
-            else
+            catch (ObjectStoreException e)
             {
-                addProcessedGroup(groupId);
+                // TODO improve this
+                throw new MessagingException(null, e);
             }
         }
-        catch (ObjectStoreException e)
+        if (group != null)
         {
-            // TODO improve this
-            throw new MessagingException(null, e);
+            handleRemovedGroupExpiry(group);
         }
     }
 
@@ -189,25 +222,9 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
             throw new RoutingException(CoreMessages.noCorrelationId(), event, timeoutMessageProcessor);
         }
 
-        // indicates interleaved EventGroup removal (very rare)
-        boolean lookupMiss = false;
-
-        // spinloop for the EventGroup lookup
-        while (true)
+        // ensure that only one thread at a time evaluates the EventGroup of this id
+        synchronized (getGroupLock(groupId))
         {
-            if (lookupMiss)
-            {
-                try
-                {
-                    // recommended over Thread.yield()
-                    Thread.sleep(1);
-                }
-                catch (InterruptedException interrupted)
-                {
-                    Thread.currentThread().interrupt();
-                }
-            }
-
             try
             {
                 if (isGroupAlreadyProcessed(groupId))
@@ -235,78 +252,79 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
             try
             {
                 group = this.getEventGroup(groupId);
+
+                // does the group exist?
+                if (group == null)
+                {
+                    // ..apparently not, so create a new one & add it
+                    group = this.addEventGroup(callback.createEventGroup(event, groupId));
+                }
             }
             catch (ObjectStoreException e)
             {
                 throw new RoutingException(event, timeoutMessageProcessor, e);
             }
 
-            // does the group exist?
-            if (group == null)
+            if (logger.isDebugEnabled())
             {
-                // ..apparently not, so create a new one & add it
-                try
-                {
-                    group = this.addEventGroup(callback.createEventGroup(event, groupId));
-                }
-                catch (ObjectStoreException e)
-                {
-                    throw new RoutingException(event, timeoutMessageProcessor, e);
-                }
+                logger.debug("Adding event to aggregator group: " + groupId);
+            }
+
+            // add the incoming event to the group
+            try
+            {
+                group.addEvent(event);
+            }
+            catch (ObjectStoreException e)
+            {
+                throw new RoutingException(event, timeoutMessageProcessor, e);
             }
 
-            // ensure that only one thread at a time evaluates this EventGroup
-            synchronized (groupsLock)
+            // check to see if the event group is ready to be aggregated
+            if (callback.shouldAggregateEvents(group))
             {
-                if (logger.isDebugEnabled())
+                // create the response event
+                MuleEvent returnEvent = callback.aggregateEvents(group);
+                returnEvent.getMessage().setCorrelationId(groupId);
+                String rootId = group.getCommonRootId();
+                if (rootId != null)
                 {
-                    logger.debug("Adding event to aggregator group: " + groupId);
+                    returnEvent.getMessage().setMessageRootId(rootId);
                 }
 
-                // add the incoming event to the group
+                // remove the eventGroup as no further message will be received
+                // for this group once we aggregate
                 try
                 {
-                    group.addEvent(event);
+                    this.removeEventGroup(group);
+                    group.clear();
                 }
                 catch (ObjectStoreException e)
                 {
                     throw new RoutingException(event, timeoutMessageProcessor, e);
                 }
 
-                // check to see if the event group is ready to be aggregated
-                if (callback.shouldAggregateEvents(group))
-                {
-                    // create the response event
-                    MuleEvent returnEvent = callback.aggregateEvents(group);
-                    returnEvent.getMessage().setCorrelationId(groupId);
-                    String rootId = group.getCommonRootId();
-                    if (rootId != null)
-                    {
-                        returnEvent.getMessage().setMessageRootId(rootId);
-                    }
-
-                    // remove the eventGroup as no further message will be received
-                    // for this group once we aggregate
-                    try
-                    {
-                        this.removeEventGroup(group);
-                        group.clear();
-                    }
-                    catch (ObjectStoreException e)
-                    {
-                        throw new RoutingException(event, timeoutMessageProcessor, e);
-                    }
-
-                    return returnEvent;
-                }
-                else
-                {
-                    return null;
-                }
+                return returnEvent;
+            }
+            else
+            {
+                return null;
             }
         }
     }
 
+    /**
+     * Returns the lock that guards the {@link EventGroup} with the given id. Locks are
+     * striped so that groups with different ids are mostly evaluated concurrently.
+     */
+    protected Object getGroupLock(Object groupId)
+    {
+        int hash = groupId.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return groupLocks[hash & (groupLocks.length - 1)];
+    }
+
     protected EventGroup getEventGroup(Serializable groupId) throws ObjectStoreException
     {
         try
@@ -336,6 +354,7 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         try
         {
             eventGroups.store((Serializable) group.getGroupId(), group);
+            scheduleExpiry(group);
             return group;
         }
         catch (ObjectAlreadyExistsException e)
@@ -344,6 +363,15 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         }
     }
 
+    private void scheduleExpiry(EventGroup group)
+    {
+        if (timeout != 0)
+        {
+            expiryWheel.schedule((Serializable) group.getGroupId(),
+                group.getCreated() + timeout * MILLI_TO_NANO_MULTIPLIER);
+        }
+    }
+
     protected void removeEventGroup(EventGroup group) throws ObjectStoreException
     {
         final Object groupId = group.getGroupId();
@@ -397,7 +425,15 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         {
             throw new MessagingException(group.getMessageCollectionEvent(), e);
         }
+        handleRemovedGroupExpiry(group);
+    }
 
+    /**
+     * Fails or forwards an expired group that has already been removed, so that no
+     * event can be added to it any more and the group lock need not be held.
+     */
+    protected void handleRemovedGroupExpiry(EventGroup group) throws MessagingException
+    {
         if (isFailOnTimeout())
         {
             MuleMessageCollection messageCollection;
@@ -488,6 +524,7 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         if (timeout != 0)
         {
             expiringGroupMonitoringThread = new ExpiringGroupMonitoringThread();
+            expiringGroupMonitoringThread.scheduleStoredGroups();
             expiringGroupMonitoringThread.start();
         }
     }
@@ -542,18 +579,20 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
             }
         }
 
-        @Override
-        public void doRun()
+        /**
+         * Schedules the expiry of groups that already were in the store when the
+         * correlator started, e.g. restored from a persistent store.
+         */
+        private void scheduleStoredGroups()
         {
-            List<EventGroup> expired = new ArrayList<EventGroup>(1);
             try
             {
                 for (Serializable o : eventGroups.allKeys())
                 {
-                    EventGroup group = getEventGroup(o) ;
-                    if ((group.getCreated() + getTimeout() * MILLI_TO_NANO_MULTIPLIER) < System.nanoTime())
+                    EventGroup group = getEventGroup(o);
+                    if (group != null)
                     {
-                        expired.add(group);
+                        scheduleExpiry(group);
                     }
                 }
             }
@@ -561,32 +600,57 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
             {
                 logger.warn("expiry failed dues to ObjectStoreException " + e);
             }
-            if (expired.size() > 0)
+        }
+
+        @Override
+        public void doRun()
+        {
+            final long now = System.nanoTime();
+            for (Serializable groupId : expiryWheel.expire(now))
             {
-                for (Object anExpired : expired)
+                // the group may have been aggregated in the meantime, so it is
+                // checked again, and removed, while no event can be added to it
+                final EventGroup group;
+                synchronized (getGroupLock(groupId))
                 {
-                    final EventGroup group = (EventGroup) anExpired;
-                    ExecutionTemplate<MuleEvent> executionTemplate = ErrorHandlingExecutionTemplate.createErrorHandlingExecutionTemplate(muleContext, group.getMessageCollectionEvent().getFlowConstruct().getExceptionListener());
                     try
                     {
-                        executionTemplate.execute(new ExecutionCallback<MuleEvent>()
+                        group = getEventGroup(groupId);
+                        if (group == null || (group.getCreated() + getTimeout() * MILLI_TO_NANO_MULTIPLIER) >= now)
                         {
-                            @Override
-                            public MuleEvent process() throws Exception
-                            {
-                                handleGroupExpiry(group);
-                                return null;
-                            }
-                        });
+                            continue;
+                        }
+                        removeEventGroup(group);
                     }
-                    catch (MessagingException e)
+                    catch (ObjectStoreException e)
                     {
-                        //Already handled by TransactionTemplate
+                        logger.warn("expiry failed dues to ObjectStoreException " + e);
+                        continue;
                     }
-                    catch (Exception e)
+                }
+
+                // the group is no longer in the store, so it is expired without
+                // holding up the events of the other groups sharing its lock
+                ExecutionTemplate<MuleEvent> executionTemplate = ErrorHandlingExecutionTemplate.createErrorHandlingExecutionTemplate(muleContext, group.getMessageCollectionEvent().getFlowConstruct().getExceptionListener());
+                try
+                {
+                    executionTemplate.execute(new ExecutionCallback<MuleEvent>()
                     {
-                        muleContext.getExceptionListener().handleException(e);
-                    }
+                        @Override
+                        public MuleEvent process() throws Exception
+                        {
+                            handleRemovedGroupExpiry(group);
+                            return null;
+                        }
+                    });
+                }
+                catch (MessagingException e)
+                {
+                    //Already handled by TransactionTemplate
+                }
+                catch (Exception e)
+                {
+                    muleContext.getExceptionListener().handleException(e);
                 }
             }
         }
@@ -16,6 +16,7 @@ import static org.mule.util.ClassUtils.hash;
 import org.mule.api.MuleContext;
 import org.mule.api.MuleMessage;
 import org.mule.api.context.MuleContextAware;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.routing.filter.Filter;
 import org.mule.api.transport.PropertyScope;
 import org.mule.expression.ExceptionTypeExpressionEvaluator;
@@ -56,6 +57,7 @@ public class ExpressionFilter implements Filter, MuleContextAware
 
     private ExpressionConfig config;
     private String fullExpression;
+    private volatile CompiledExpression compiledExpression;
     private boolean nullReturnsTrue = false;
     private MuleContext muleContext;
 
@@ -124,8 +126,7 @@ public class ExpressionFilter implements Filter, MuleContextAware
         try
         {
             Thread.currentThread().setContextClassLoader(expressionEvaluationClassLoader);
-            return muleContext.getExpressionManager().evaluateBoolean(expr, message, nullReturnsTrue,
-                !nullReturnsTrue);
+            return getCompiledExpression(expr).evaluateBoolean(message, nullReturnsTrue, !nullReturnsTrue);
         }
         finally
         {
@@ -134,6 +135,21 @@ public class ExpressionFilter implements Filter, MuleContextAware
         }
     }
 
+    /**
+     * The expression is compiled the first time a message is filtered, with the class-loader expressions
+     * are evaluated with, as filters are not initialised.
+     */
+    private CompiledExpression getCompiledExpression(String expr)
+    {
+        CompiledExpression compiled = compiledExpression;
+        if (compiled == null || !compiled.getExpression().equals(expr))
+        {
+            compiled = muleContext.getExpressionManager().compile(expr);
+            compiledExpression = compiled;
+        }
+        return compiled;
+    }
+
     protected String getFullExpression()
     {
         if (config.getEvaluator() == null)
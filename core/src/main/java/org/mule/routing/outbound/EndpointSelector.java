@@ -17,6 +17,7 @@ import org.mule.api.MuleMessage;
 import org.mule.api.endpoint.EndpointNotFoundException;
 import org.mule.api.endpoint.ImmutableEndpoint;
 import org.mule.api.endpoint.MalformedEndpointException;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.expression.ExpressionRuntimeException;
 import org.mule.api.processor.MessageProcessor;
 import org.mule.api.routing.CouldNotRouteOutboundMessageException;
@@ -55,6 +56,8 @@ public class EndpointSelector extends FilteringOutboundRouter
 
     private ExpressionConfig expressionConfig = new ExpressionConfig(DEFAULT_SELECTOR_EXPRESSION, DEFAULT_SELECTOR_EVALUATOR, null);
 
+    private volatile CompiledExpression compiledExpression;
+
     @Override
     public MuleEvent route(MuleEvent event) throws RoutingException
     {
@@ -64,16 +67,27 @@ public class EndpointSelector extends FilteringOutboundRouter
         String endpointName;
 
         String prop = expressionConfig.getFullExpression(expressionManager);
-        if (!expressionManager.isValidExpression(prop))
+        CompiledExpression expression = compiledExpression;
+        if (expression == null || !expression.getExpression().equals(prop))
         {
-            throw new CouldNotRouteOutboundMessageException(
-                    CoreMessages.expressionInvalidForProperty("expression", prop), event, null);
+            // only validated until it has been compiled
+            if (!expressionManager.isValidExpression(prop))
+            {
+                throw new CouldNotRouteOutboundMessageException(
+                        CoreMessages.expressionInvalidForProperty("expression", prop), event, null);
+            }
+            expression = null;
         }
 
         Object property = null;
         try
         {
-            property = expressionManager.evaluate(prop, event);
+            if (expression == null)
+            {
+                expression = expressionManager.compile(prop);
+                compiledExpression = expression;
+            }
+            property = expression.evaluate(event);
         }
         catch (ExpressionRuntimeException e)
         {
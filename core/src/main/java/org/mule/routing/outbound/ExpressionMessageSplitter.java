@@ -11,6 +11,7 @@
 package org.mule.routing.outbound;
 
 import org.mule.api.MuleMessage;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.expression.ExpressionConfig;
 
@@ -23,6 +24,7 @@ import java.util.List;
 public class ExpressionMessageSplitter extends AbstractRoundRobinMessageSplitter
 {
     protected ExpressionConfig config = new ExpressionConfig();
+    private CompiledExpression compiledExpression;
 
     public ExpressionMessageSplitter()
     {
@@ -75,13 +77,14 @@ public class ExpressionMessageSplitter extends AbstractRoundRobinMessageSplitter
     {
         super.initialise();
         config.validate(expressionManager);
+        compiledExpression = expressionManager.compile(config.getFullExpression(expressionManager));
     }
 
     @Override
     protected List<Object> splitMessage(MuleMessage message)
     {
         List<Object> results = new ArrayList<Object>(4);
-        Object result = muleContext.getExpressionManager().evaluate(config.getFullExpression(expressionManager), message);
+        Object result = compiledExpression.evaluate(message);
         if (result instanceof List)
         {
             results.addAll((List<?>)result);
@@ -11,6 +11,7 @@
 package org.mule.routing.outbound;
 
 import org.mule.api.MuleEvent;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.routing.CouldNotRouteOutboundMessageException;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.expression.ExpressionConfig;
@@ -28,17 +29,26 @@ public class ExpressionRecipientList extends AbstractRecipientList
 
     protected ExpressionConfig expressionConfig = new ExpressionConfig();
 
+    private volatile CompiledExpression compiledExpression;
+
     @Override
     protected List<Object> getRecipients(MuleEvent event) throws CouldNotRouteOutboundMessageException
     {
         String expr = getFullExpression();
-        if (!muleContext.getExpressionManager().isValidExpression(expr))
+        CompiledExpression expression = compiledExpression;
+        if (expression == null || !expression.getExpression().equals(expr))
         {
-            throw new CouldNotRouteOutboundMessageException(
-                    CoreMessages.expressionInvalidForProperty("expression", expr), event, null);
+            // only validated until it has been compiled
+            if (!muleContext.getExpressionManager().isValidExpression(expr))
+            {
+                throw new CouldNotRouteOutboundMessageException(
+                        CoreMessages.expressionInvalidForProperty("expression", expr), event, null);
+            }
+            expression = muleContext.getExpressionManager().compile(expr);
+            compiledExpression = expression;
         }
 
-        Object msgRecipients = muleContext.getExpressionManager().evaluate(expr, event);
+        Object msgRecipients = expression.evaluate(event);
         if (msgRecipients == null)
         {
             throw new CouldNotRouteOutboundMessageException(
@@ -10,13 +10,14 @@
 
 package org.mule.security;
 
+import org.mule.api.MuleRuntimeException;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.security.CryptoFailureException;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.util.Base64;
+import org.mule.util.pool.RecyclingPool;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.security.spec.AlgorithmParameterSpec;
@@ -25,13 +26,16 @@ import java.security.spec.KeySpec;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
  * A JCE based encryption strategy. It also provides base64 encoding of
  * encrypted/decrypted data by setting the base64encoding attribute.
+ * <p/>
+ * Ciphers cannot be used by more than one thread at a time, so each operation takes
+ * an initialised cipher from a pool. Streams are encrypted and decrypted as they are
+ * read rather than being loaded into memory.
  */
 public abstract class AbstractJCEEncryptionStrategy extends AbstractNamedEncryptionStrategy
 {
@@ -45,6 +49,14 @@ public abstract class AbstractJCEEncryptionStrategy extends AbstractNamedEncrypt
     protected Cipher encryptCipher;
     protected Cipher decryptCipher;
 
+    /**
+     * The maximum number of idle ciphers kept for reuse in each direction
+     */
+    protected int maxIdleCiphers = 4 * Runtime.getRuntime().availableProcessors();
+
+    protected RecyclingPool<Cipher> encryptCiphers;
+    protected RecyclingPool<Cipher> decryptCiphers;
+
     protected String algorithm = null;
 
     protected boolean base64Encoding = true;
@@ -70,17 +82,14 @@ public abstract class AbstractJCEEncryptionStrategy extends AbstractNamedEncrypt
             decryptCipher = Cipher.getInstance(getAlgorithm());
 
             AlgorithmParameterSpec paramSpec = createAlgorithmParameterSpec();
-            if (paramSpec != null)
-            {
-                encryptCipher.init(Cipher.ENCRYPT_MODE, secretKey, paramSpec);
-                decryptCipher.init(Cipher.DECRYPT_MODE, secretKey, paramSpec);
-            }
-            else
-            {
-                encryptCipher.init(Cipher.ENCRYPT_MODE, secretKey);
-                decryptCipher.init(Cipher.DECRYPT_MODE, secretKey);
-            }
+            initCipher(encryptCipher, Cipher.ENCRYPT_MODE, paramSpec);
+            initCipher(decryptCipher, Cipher.DECRYPT_MODE, paramSpec);
 
+            encryptCiphers = new CipherPool(Cipher.ENCRYPT_MODE, paramSpec);
+            decryptCiphers = new CipherPool(Cipher.DECRYPT_MODE, paramSpec);
+            // the ciphers created above are the first ones pooled
+            encryptCiphers.returnObject(encryptCipher);
+            decryptCiphers.returnObject(decryptCipher);
         }
         catch (Exception e)
         {
@@ -89,35 +98,51 @@ public abstract class AbstractJCEEncryptionStrategy extends AbstractNamedEncrypt
         }
     }
 
-    protected abstract SecretKey getSecretKey() throws GeneralSecurityException;
-
-    public InputStream encrypt(InputStream data, Object info) throws CryptoFailureException {
-        try
+    private void initCipher(Cipher cipher, int mode, AlgorithmParameterSpec paramSpec)
+        throws GeneralSecurityException
+    {
+        if (paramSpec != null)
         {
-            return new ByteArrayInputStream(this.encrypt(IOUtils.toByteArray(data), info));
+            cipher.init(mode, secretKey, paramSpec);
         }
-        catch (IOException e)
+        else
         {
-            throw new CryptoFailureException(this, e);
+            cipher.init(mode, secretKey);
         }
     }
 
-    public InputStream decrypt(InputStream data, Object info) throws CryptoFailureException {
-        try
+    protected abstract SecretKey getSecretKey() throws GeneralSecurityException;
+
+    public InputStream encrypt(InputStream data, Object info) throws CryptoFailureException
+    {
+        InputStream encrypted = new CipherInputStream(data, encryptCiphers);
+        if (base64Encoding)
         {
-            return new ByteArrayInputStream(this.decrypt(IOUtils.toByteArray(data), info));
+            return new Base64.InputStream(encrypted, Base64.ENCODE);
         }
-        catch (IOException e)
+        else
         {
-            throw new CryptoFailureException(this, e);
+            return encrypted;
         }
     }
-    
+
+    public InputStream decrypt(InputStream data, Object info) throws CryptoFailureException
+    {
+        InputStream encrypted = data;
+        if (base64Encoding)
+        {
+            encrypted = new Base64.InputStream(new BufferedInputStream(data), Base64.DECODE);
+        }
+        return new CipherInputStream(encrypted, decryptCiphers);
+    }
+
     public byte[] encrypt(byte[] data, Object info) throws CryptoFailureException
     {
+        Cipher cipher = encryptCiphers.borrowObject();
         try
         {
-            byte[] buf = encryptCipher.doFinal(data);
+            byte[] buf = cipher.doFinal(data);
+            encryptCiphers.returnObject(cipher);
             if (base64Encoding)
             {
                 return Base64.encodeBytes(buf).getBytes();
@@ -129,25 +154,39 @@ public abstract class AbstractJCEEncryptionStrategy extends AbstractNamedEncrypt
         }
         catch (Exception e)
         {
+            encryptCiphers.invalidateObject(cipher);
             throw new CryptoFailureException(this, e);
         }
     }
 
     public byte[] decrypt(byte[] data, Object info) throws CryptoFailureException
     {
+        byte[] dec;
         try
         {
-            byte[] dec = data;
+            dec = data;
             if (base64Encoding)
             {
                 dec = Base64.decode(new String(data));
             }
-            return decryptCipher.doFinal(dec);
         }
         catch (Exception e)
         {
             throw new CryptoFailureException(this, e);
         }
+
+        Cipher cipher = decryptCiphers.borrowObject();
+        try
+        {
+            byte[] result = cipher.doFinal(dec);
+            decryptCiphers.returnObject(cipher);
+            return result;
+        }
+        catch (Exception e)
+        {
+            decryptCiphers.invalidateObject(cipher);
+            throw new CryptoFailureException(this, e);
+        }
     }
 
     public String getAlgorithm()
@@ -177,8 +216,50 @@ public abstract class AbstractJCEEncryptionStrategy extends AbstractNamedEncrypt
         this.base64Encoding = base64Encoding;
     }
 
+    public int getMaxIdleCiphers()
+    {
+        return maxIdleCiphers;
+    }
+
+    public void setMaxIdleCiphers(int maxIdleCiphers)
+    {
+        this.maxIdleCiphers = maxIdleCiphers;
+    }
+
     protected abstract KeySpec createKeySpec();
 
     protected abstract AlgorithmParameterSpec createAlgorithmParameterSpec();
 
+    /**
+     * Creates ciphers initialised with the key and parameters of this strategy.
+     * A cipher goes back to its initial state once it completes an operation, so
+     * returned ciphers need no reset.
+     */
+    private class CipherPool extends RecyclingPool<Cipher>
+    {
+        private final int mode;
+        private final AlgorithmParameterSpec paramSpec;
+
+        CipherPool(int mode, AlgorithmParameterSpec paramSpec)
+        {
+            super(maxIdleCiphers);
+            this.mode = mode;
+            this.paramSpec = paramSpec;
+        }
+
+        @Override
+        protected Cipher create()
+        {
+            try
+            {
+                Cipher cipher = Cipher.getInstance(getAlgorithm());
+                initCipher(cipher, mode, paramSpec);
+                return cipher;
+            }
+            catch (GeneralSecurityException e)
+            {
+                throw new MuleRuntimeException(CoreMessages.failedToCreate("encryption ciphers"), e);
+            }
+        }
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.security;
+
+import org.mule.util.pool.RecyclingPool;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+
+/**
+ * Encrypts or decrypts a stream as it is read, with a {@link Cipher} taken from a
+ * pool. Unlike <code>javax.crypto.CipherInputStream</code> it reports a failure to
+ * finish the operation, such as bad padding, as an <code>IOException</code> rather
+ * than ending the stream silently.
+ * <p/>
+ * The cipher is returned to the pool once the stream is read to the end, at which
+ * point it is back in its initial state. A stream closed before that leaves the
+ * cipher in the middle of an operation, so it is dropped.
+ */
+class CipherInputStream extends FilterInputStream
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private final RecyclingPool<Cipher> pool;
+    private Cipher cipher;
+
+    private final byte[] input = new byte[BUFFER_SIZE];
+    private byte[] output = new byte[0];
+    private int position;
+    private int limit;
+    private boolean done;
+
+    CipherInputStream(InputStream in, RecyclingPool<Cipher> pool)
+    {
+        super(in);
+        this.pool = pool;
+        this.cipher = pool.borrowObject();
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (position >= limit && !fill())
+        {
+            return -1;
+        }
+        return output[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        if (position >= limit && !fill())
+        {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        System.arraycopy(output, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long skipped = 0;
+        while (skipped < n && (position < limit || fill()))
+        {
+            int count = (int) Math.min(n - skipped, limit - position);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            if (cipher != null)
+            {
+                pool.invalidateObject(cipher);
+                cipher = null;
+            }
+            done = true;
+        }
+    }
+
+    /**
+     * Reads and transforms input until there is some output or the end of the stream
+     * is reached.
+     *
+     * @return false if there is no more output
+     */
+    private boolean fill() throws IOException
+    {
+        while (!done)
+        {
+            int count = in.read(input, 0, input.length);
+            try
+            {
+                position = 0;
+                if (count == -1)
+                {
+                    ensureOutputSize(cipher.getOutputSize(0));
+                    limit = cipher.doFinal(output, 0);
+                    done = true;
+                    pool.returnObject(cipher);
+                    cipher = null;
+                }
+                else
+                {
+                    ensureOutputSize(cipher.getOutputSize(count));
+                    limit = cipher.update(input, 0, count, output, 0);
+                }
+            }
+            catch (GeneralSecurityException e)
+            {
+                pool.invalidateObject(cipher);
+                cipher = null;
+                done = true;
+                limit = 0;
+                IOException ioe = new IOException(e.getMessage());
+                ioe.initCause(e);
+                throw ioe;
+            }
+            if (limit > 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureOutputSize(int size)
+    {
+        if (output.length < size)
+        {
+            output = new byte[size];
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import org.mule.api.MuleContext;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Stream that {@link TypeSerializer}s read from, the counterpart of
+ * {@link CompactObjectOutput}.
+ */
+public class CompactObjectInput extends DataInputStream
+{
+    private final CompactObjectSerializer serializer;
+
+    CompactObjectInput(InputStream in, CompactObjectSerializer serializer)
+    {
+        super(in);
+        this.serializer = serializer;
+    }
+
+    public Object readObject() throws IOException
+    {
+        return serializer.readObject(this);
+    }
+
+    public String readString() throws IOException
+    {
+        int length = readInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        readFully(bytes);
+        return new String(bytes, CompactObjectOutput.UTF_8);
+    }
+
+    /**
+     * Reads the entries written by {@link CompactObjectOutput#writeMapEntries(Map)}
+     * into the given map.
+     *
+     * @return <code>map</code>
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> readMapEntries(Map<K, V> map) throws IOException
+    {
+        int size = readInt();
+        for (int i = 0; i < size; i++)
+        {
+            K key = (K) readObject();
+            map.put(key, (V) readObject());
+        }
+        return map;
+    }
+
+    public MuleContext getMuleContext()
+    {
+        return serializer.getMuleContext();
+    }
+
+    public ClassLoader getClassLoader()
+    {
+        return serializer.getClassLoader();
+    }
+}
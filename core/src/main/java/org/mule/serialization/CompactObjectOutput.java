@@ -0,0 +1,92 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Stream that {@link TypeSerializer}s write to. Besides the primitive values of
+ * {@link DataOutputStream} it writes strings of any length and nested objects in the
+ * format of the {@link CompactObjectSerializer} it was created by.
+ */
+public class CompactObjectOutput extends DataOutputStream
+{
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final CompactObjectSerializer serializer;
+
+    /**
+     * Objects being written, used to detect cycles which this format can not represent
+     */
+    private final Map<Object, Object> inProgress = new IdentityHashMap<Object, Object>();
+
+    CompactObjectOutput(OutputStream out, CompactObjectSerializer serializer)
+    {
+        super(out);
+        this.serializer = serializer;
+    }
+
+    /**
+     * Writes any object, including <code>null</code>, that the serializer supports.
+     */
+    public void writeObject(Object object) throws IOException
+    {
+        serializer.writeObject(object, this);
+    }
+
+    /**
+     * Writes a string, which may be <code>null</code>.
+     */
+    public void writeString(String value) throws IOException
+    {
+        if (value == null)
+        {
+            writeInt(-1);
+        }
+        else
+        {
+            byte[] bytes = value.getBytes(UTF_8);
+            writeInt(bytes.length);
+            write(bytes);
+        }
+    }
+
+    /**
+     * Writes the number of entries of a map followed by its keys and values, to be
+     * read with {@link CompactObjectInput#readMapEntries(Map)}.
+     */
+    public void writeMapEntries(Map<?, ?> map) throws IOException
+    {
+        writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet())
+        {
+            writeObject(entry.getKey());
+            writeObject(entry.getValue());
+        }
+    }
+
+    void enter(Object object) throws IOException
+    {
+        if (inProgress.put(object, object) != null)
+        {
+            throw new IOException("Can not serialize cyclic reference to " + object.getClass().getName());
+        }
+    }
+
+    void exit(Object object)
+    {
+        inProgress.remove(object);
+    }
+}
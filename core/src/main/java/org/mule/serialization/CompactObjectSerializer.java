@@ -0,0 +1,579 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.MessagePropertiesContext;
+import org.mule.api.MuleContext;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.session.DefaultMuleSession;
+import org.mule.transformer.types.SimpleDataType;
+import org.mule.util.CaseInsensitiveHashMap;
+import org.mule.util.CaseInsensitivePropertyMap;
+import org.mule.util.SerializationUtils;
+import org.mule.util.store.DeserializationPostInitialisable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.input.ClassLoaderObjectInputStream;
+import org.apache.commons.lang.SerializationException;
+
+/**
+ * {@link ObjectSerializer} with a compact binary format. Strings, boxed primitives,
+ * byte arrays, dates and the common collections are written with a one byte type tag,
+ * and {@link DefaultMuleMessage}, {@link MessagePropertiesContext},
+ * {@link DefaultMuleSession} and {@link SimpleDataType} have dedicated
+ * {@link TypeSerializer}s, so none of them pays for java serialization class
+ * descriptors. Serializers for other types can be added with
+ * {@link #setTypeSerializers(Collection)}.
+ * <p/>
+ * Any other {@link Serializable} object is written with java serialization, in which
+ * nested objects that have a type serializer are still written in the compact format.
+ * Streams written with java serialization, e.g. by previous versions or by
+ * {@link JavaObjectSerializer}, are recognised and read as such.
+ * <p/>
+ * Unlike java serialization this format does not preserve shared references within an
+ * object graph and rejects cycles.
+ */
+public class CompactObjectSerializer implements ObjectSerializer, MuleContextAware
+{
+    static final short MAGIC = 0x4D43;
+    private static final short JAVA_SERIALIZATION_MAGIC = (short) 0xACED;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BYTE_ARRAY = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte SHORT = 8;
+    private static final byte BYTE = 9;
+    private static final byte CHARACTER = 10;
+    private static final byte DATE = 11;
+    private static final byte HASH_MAP = 20;
+    private static final byte LINKED_HASH_MAP = 21;
+    private static final byte CASE_INSENSITIVE_MAP = 22;
+    private static final byte ARRAY_LIST = 23;
+    private static final byte LINKED_LIST = 24;
+    private static final byte HASH_SET = 25;
+    private static final byte LINKED_HASH_SET = 26;
+    private static final byte CASE_INSENSITIVE_PROPERTY_MAP = 27;
+    private static final byte MULE_MESSAGE = 40;
+    private static final byte MESSAGE_PROPERTIES = 41;
+    private static final byte MULE_SESSION = 42;
+    private static final byte DATA_TYPE = 43;
+    private static final byte CUSTOM = 126;
+    private static final byte JAVA = 127;
+
+    private final Map<Class<?>, Byte> builtInTags = new HashMap<Class<?>, Byte>();
+    private final TypeSerializer<?>[] builtInSerializers = new TypeSerializer<?>[JAVA + 1];
+    private final Map<Class<?>, TypeSerializer<?>> customSerializers = new ConcurrentHashMap<Class<?>, TypeSerializer<?>>();
+    private final Map<String, TypeSerializer<?>> customSerializersByName = new ConcurrentHashMap<String, TypeSerializer<?>>();
+
+    private MuleContext muleContext;
+
+    public CompactObjectSerializer()
+    {
+        addBuiltInSerializer(MULE_MESSAGE, new DefaultMuleMessage.CompactSerializer());
+        addBuiltInSerializer(MESSAGE_PROPERTIES, new MessagePropertiesContext.CompactSerializer());
+        addBuiltInSerializer(MULE_SESSION, new DefaultMuleSession.CompactSerializer());
+        addBuiltInSerializer(DATA_TYPE, new DataTypeSerializer());
+    }
+
+    private void addBuiltInSerializer(byte tag, TypeSerializer<?> serializer)
+    {
+        builtInTags.put(serializer.getType(), tag);
+        builtInSerializers[tag] = serializer;
+    }
+
+    /**
+     * Adds serializers for types that are otherwise written with java serialization.
+     * Both ends must have the same serializers.
+     */
+    public void setTypeSerializers(Collection<TypeSerializer<?>> serializers)
+    {
+        for (TypeSerializer<?> serializer : serializers)
+        {
+            customSerializers.put(serializer.getType(), serializer);
+            customSerializersByName.put(serializer.getType().getName(), serializer);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws SerializationException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        serialize(object, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream out) throws SerializationException
+    {
+        if (!(out instanceof ByteArrayOutputStream))
+        {
+            out = new BufferedOutputStream(out);
+        }
+        CompactObjectOutput output = new CompactObjectOutput(out, this);
+        try
+        {
+            output.writeShort(MAGIC);
+            writeObject(object, output);
+            output.flush();
+        }
+        catch (IOException e)
+        {
+            throw new SerializationException(e);
+        }
+        finally
+        {
+            closeQuietly(output);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes) throws SerializationException
+    {
+        if (bytes == null)
+        {
+            throw new IllegalArgumentException("The byte[] must not be null");
+        }
+        return this.<T> deserialize(new ByteArrayInputStream(bytes));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(InputStream in) throws SerializationException
+    {
+        if (in == null)
+        {
+            throw new IllegalArgumentException("The InputStream must not be null");
+        }
+        if (!(in instanceof ByteArrayInputStream))
+        {
+            in = new BufferedInputStream(in);
+        }
+        CompactObjectInput input = new CompactObjectInput(in, this);
+        try
+        {
+            short magic = input.readShort();
+            if (magic == JAVA_SERIALIZATION_MAGIC)
+            {
+                byte[] header = new byte[] {(byte) (magic >> 8), (byte) magic};
+                return (T) SerializationUtils.deserialize(new SequenceInputStream(new ByteArrayInputStream(header), in), muleContext);
+            }
+            if (magic != MAGIC)
+            {
+                throw new SerializationException("Unknown serialization format " + Integer.toHexString(magic & 0xFFFF));
+            }
+            return (T) readObject(input);
+        }
+        catch (IOException e)
+        {
+            throw new SerializationException(e);
+        }
+        finally
+        {
+            closeQuietly(input);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void writeObject(Object object, CompactObjectOutput out) throws IOException
+    {
+        if (object == null)
+        {
+            out.writeByte(NULL);
+            return;
+        }
+
+        Class<?> type = object.getClass();
+        if (type == String.class)
+        {
+            out.writeByte(STRING);
+            out.writeString((String) object);
+        }
+        else if (type == byte[].class)
+        {
+            byte[] bytes = (byte[]) object;
+            out.writeByte(BYTE_ARRAY);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        else if (type == Integer.class)
+        {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) object);
+        }
+        else if (type == Long.class)
+        {
+            out.writeByte(LONG);
+            out.writeLong((Long) object);
+        }
+        else if (type == Boolean.class)
+        {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) object);
+        }
+        else if (type == Double.class)
+        {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) object);
+        }
+        else if (type == Float.class)
+        {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) object);
+        }
+        else if (type == Short.class)
+        {
+            out.writeByte(SHORT);
+            out.writeShort((Short) object);
+        }
+        else if (type == Byte.class)
+        {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) object);
+        }
+        else if (type == Character.class)
+        {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character) object);
+        }
+        else if (type == Date.class)
+        {
+            out.writeByte(DATE);
+            out.writeLong(((Date) object).getTime());
+        }
+        else if (type == HashMap.class || type == LinkedHashMap.class || type == CaseInsensitiveHashMap.class || type == CaseInsensitivePropertyMap.class)
+        {
+            out.writeByte(type == HashMap.class ? HASH_MAP : type == LinkedHashMap.class ? LINKED_HASH_MAP : type == CaseInsensitiveHashMap.class ? CASE_INSENSITIVE_MAP : CASE_INSENSITIVE_PROPERTY_MAP);
+            out.enter(object);
+            out.writeMapEntries((Map<?, ?>) object);
+            out.exit(object);
+        }
+        else if (type == ArrayList.class || type == LinkedList.class || type == HashSet.class || type == LinkedHashSet.class)
+        {
+            out.writeByte(type == ArrayList.class ? ARRAY_LIST : type == LinkedList.class ? LINKED_LIST : type == HashSet.class ? HASH_SET : LINKED_HASH_SET);
+            out.enter(object);
+            Collection<?> collection = (Collection<?>) object;
+            out.writeInt(collection.size());
+            for (Object member : collection)
+            {
+                writeObject(member, out);
+            }
+            out.exit(object);
+        }
+        else if (builtInTags.containsKey(type))
+        {
+            byte tag = builtInTags.get(type);
+            out.writeByte(tag);
+            out.enter(object);
+            ((TypeSerializer) builtInSerializers[tag]).write(object, out);
+            out.exit(object);
+        }
+        else if (customSerializers.containsKey(type))
+        {
+            out.writeByte(CUSTOM);
+            out.writeString(type.getName());
+            out.enter(object);
+            ((TypeSerializer) customSerializers.get(type)).write(object, out);
+            out.exit(object);
+        }
+        else if (object instanceof Serializable)
+        {
+            out.writeByte(JAVA);
+            byte[] bytes = javaSerialize(object);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        else
+        {
+            throw new IOException("Object of type " + type.getName() + " is not serializable");
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object readObject(CompactObjectInput in) throws IOException
+    {
+        byte tag = in.readByte();
+        switch (tag)
+        {
+            case NULL:
+                return null;
+            case STRING:
+                return in.readString();
+            case BYTE_ARRAY:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case CHARACTER:
+                return in.readChar();
+            case DATE:
+                return new Date(in.readLong());
+            case HASH_MAP:
+                return in.readMapEntries(new HashMap<Object, Object>());
+            case LINKED_HASH_MAP:
+                return in.readMapEntries(new LinkedHashMap<Object, Object>());
+            case CASE_INSENSITIVE_MAP:
+                return in.readMapEntries(new CaseInsensitiveHashMap());
+            case CASE_INSENSITIVE_PROPERTY_MAP:
+                return in.readMapEntries(new CaseInsensitivePropertyMap());
+            case ARRAY_LIST:
+                return readCollection(in, new ArrayList<Object>());
+            case LINKED_LIST:
+                return readCollection(in, new LinkedList<Object>());
+            case HASH_SET:
+                return readCollection(in, new HashSet<Object>());
+            case LINKED_HASH_SET:
+                return readCollection(in, new LinkedHashSet<Object>());
+            case CUSTOM:
+                String typeName = in.readString();
+                TypeSerializer<?> serializer = customSerializersByName.get(typeName);
+                if (serializer == null)
+                {
+                    throw new IOException("No serializer for type " + typeName);
+                }
+                return serializer.read(in);
+            case JAVA:
+                byte[] serialized = new byte[in.readInt()];
+                in.readFully(serialized);
+                return javaDeserialize(serialized);
+            default:
+                if (tag > 0 && builtInSerializers[tag] != null)
+                {
+                    return builtInSerializers[tag].read(in);
+                }
+                throw new IOException("Unknown type tag " + tag);
+        }
+    }
+
+    private Collection<Object> readCollection(CompactObjectInput in, Collection<Object> collection) throws IOException
+    {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++)
+        {
+            collection.add(in.readObject());
+        }
+        return collection;
+    }
+
+    private boolean hasTypeSerializer(Class<?> type)
+    {
+        return builtInTags.containsKey(type) || customSerializers.containsKey(type);
+    }
+
+    private byte[] javaSerialize(Object object) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        ObjectOutputStream out = new CompactReplacingObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private Object javaDeserialize(byte[] bytes) throws IOException
+    {
+        CompactResolvingObjectInputStream in = new CompactResolvingObjectInputStream(getClassLoader(), new ByteArrayInputStream(bytes));
+        try
+        {
+            Object object = in.readObject();
+            if (object instanceof DeserializationPostInitialisable)
+            {
+                DeserializationPostInitialisable.Implementation.init(object, muleContext);
+            }
+            return object;
+        }
+        catch (IOException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            IOException ioException = new IOException(e.getMessage());
+            ioException.initCause(e);
+            throw ioException;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private void closeQuietly(Closeable closeable)
+    {
+        try
+        {
+            closeable.close();
+        }
+        catch (IOException e)
+        {
+            // ignore close exception
+        }
+    }
+
+    MuleContext getMuleContext()
+    {
+        return muleContext;
+    }
+
+    ClassLoader getClassLoader()
+    {
+        if (muleContext != null && muleContext.getExecutionClassLoader() != null)
+        {
+            return muleContext.getExecutionClassLoader();
+        }
+        return getClass().getClassLoader();
+    }
+
+    @Override
+    public void setMuleContext(MuleContext context)
+    {
+        this.muleContext = context;
+    }
+
+    /**
+     * Takes the place of an object that has a type serializer within a graph written
+     * with java serialization.
+     */
+    private static class CompactForm implements Serializable
+    {
+        private static final long serialVersionUID = -4133180233539431385L;
+
+        private final byte[] bytes;
+
+        CompactForm(byte[] bytes)
+        {
+            this.bytes = bytes;
+        }
+    }
+
+    private class CompactReplacingObjectOutputStream extends ObjectOutputStream
+    {
+        CompactReplacingObjectOutputStream(OutputStream out) throws IOException
+        {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object object) throws IOException
+        {
+            if (object != null && hasTypeSerializer(object.getClass()))
+            {
+                return new CompactForm(serialize(object));
+            }
+            return object;
+        }
+    }
+
+    private class CompactResolvingObjectInputStream extends ClassLoaderObjectInputStream
+    {
+        CompactResolvingObjectInputStream(ClassLoader classLoader, InputStream in) throws IOException
+        {
+            super(classLoader, in);
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object object) throws IOException
+        {
+            if (object instanceof CompactForm)
+            {
+                try
+                {
+                    return deserialize(((CompactForm) object).bytes);
+                }
+                catch (SerializationException e)
+                {
+                    IOException ioException = new IOException(e.getMessage());
+                    ioException.initCause(e);
+                    throw ioException;
+                }
+            }
+            return object;
+        }
+    }
+
+    private static class DataTypeSerializer implements TypeSerializer<SimpleDataType>
+    {
+        @Override
+        public Class<SimpleDataType> getType()
+        {
+            return SimpleDataType.class;
+        }
+
+        @Override
+        public void write(SimpleDataType dataType, CompactObjectOutput out) throws IOException
+        {
+            out.writeString(dataType.getType() == null ? null : dataType.getType().getName());
+            out.writeString(dataType.getMimeType());
+            out.writeString(dataType.getEncoding());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public SimpleDataType read(CompactObjectInput in) throws IOException
+        {
+            String typeName = in.readString();
+            SimpleDataType dataType;
+            try
+            {
+                dataType = new SimpleDataType(typeName == null ? null : Class.forName(typeName, false, in.getClassLoader()));
+            }
+            catch (ClassNotFoundException e)
+            {
+                IOException ioException = new IOException("Could not load data type " + typeName);
+                ioException.initCause(e);
+                throw ioException;
+            }
+            dataType.setMimeType(in.readString());
+            dataType.setEncoding(in.readString());
+            return dataType;
+        }
+    }
+}
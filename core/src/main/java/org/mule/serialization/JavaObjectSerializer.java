@@ -0,0 +1,71 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import org.mule.api.MuleContext;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.util.SerializationUtils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+import org.apache.commons.lang.SerializationException;
+
+/**
+ * {@link ObjectSerializer} that uses standard java serialization. This is the default
+ * serializer.
+ */
+public class JavaObjectSerializer implements ObjectSerializer, MuleContextAware
+{
+    private MuleContext muleContext;
+
+    @Override
+    public byte[] serialize(Object object) throws SerializationException
+    {
+        return SerializationUtils.serialize(checkSerializable(object));
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream out) throws SerializationException
+    {
+        SerializationUtils.serialize(checkSerializable(object), out);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(byte[] bytes) throws SerializationException
+    {
+        return (T) SerializationUtils.deserialize(bytes, muleContext);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(InputStream in) throws SerializationException
+    {
+        return (T) SerializationUtils.deserialize(in, muleContext);
+    }
+
+    private Serializable checkSerializable(Object object)
+    {
+        if (object != null && !(object instanceof Serializable))
+        {
+            throw new SerializationException("Object of type " + object.getClass().getName() + " is not serializable");
+        }
+        return (Serializable) object;
+    }
+
+    @Override
+    public void setMuleContext(MuleContext context)
+    {
+        this.muleContext = context;
+    }
+}
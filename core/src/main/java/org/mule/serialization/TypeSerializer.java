@@ -0,0 +1,26 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads instances of one class in the binary format of
+ * {@link CompactObjectSerializer}. A type serializer only applies to instances of
+ * exactly {@link #getType()}, never to its subclasses.
+ */
+public interface TypeSerializer<T>
+{
+    Class<T> getType();
+
+    void write(T object, CompactObjectOutput out) throws IOException;
+
+    T read(CompactObjectInput in) throws IOException;
+}
@@ -15,6 +15,10 @@ import org.mule.api.MuleSession;
 import org.mule.api.construct.FlowConstruct;
 import org.mule.api.security.SecurityContext;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.serialization.CompactObjectInput;
+import org.mule.serialization.CompactObjectOutput;
+import org.mule.serialization.CompactObjectSerializer;
+import org.mule.serialization.TypeSerializer;
 import org.mule.util.CaseInsensitiveHashMap;
 import org.mule.util.UUID;
 
@@ -301,6 +305,44 @@ public final class DefaultMuleSession implements MuleSession
         in.defaultReadObject();
     }
 
+    /**
+     * Writes and reads sessions in the format of {@link CompactObjectSerializer}.
+     * Properties that are not serializable are dropped, as with java serialization.
+     */
+    public static class CompactSerializer implements TypeSerializer<DefaultMuleSession>
+    {
+        @Override
+        public Class<DefaultMuleSession> getType()
+        {
+            return DefaultMuleSession.class;
+        }
+
+        @Override
+        public void write(DefaultMuleSession session, CompactObjectOutput out) throws IOException
+        {
+            DefaultMuleSession copy = new DefaultMuleSession(session);
+            copy.removeNonSerializableProperties();
+
+            out.writeString(session.id);
+            out.writeBoolean(session.valid);
+            out.writeObject(session.securityContext);
+            out.writeObject(session.flowConstruct);
+            out.writeMapEntries(copy.properties);
+        }
+
+        @Override
+        public DefaultMuleSession read(CompactObjectInput in) throws IOException
+        {
+            DefaultMuleSession session = new DefaultMuleSession();
+            session.id = in.readString();
+            session.valid = in.readBoolean();
+            session.securityContext = (SecurityContext) in.readObject();
+            session.flowConstruct = (FlowConstruct) in.readObject();
+            in.readMapEntries(session.properties);
+            return session;
+        }
+    }
+
     @Override
     public void clearProperties()
     {
@@ -10,18 +10,26 @@
 
 package org.mule.transformer.compression;
 
+import org.mule.api.MuleEvent;
 import org.mule.api.transformer.TransformerException;
+import org.mule.api.transport.OutputHandler;
 import org.mule.transformer.types.DataTypeFactory;
 import org.mule.util.SerializationUtils;
+import org.mule.util.compression.CompressionStrategy;
+import org.mule.util.compression.GZIPCompressorOutputStream;
 import org.mule.util.compression.GZipCompression;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
 /**
  * <code>GZipCompressTransformer</code> is a transformer compressing objects into
- * byte arrays.
+ * byte arrays. Streams and {@link OutputHandler}s are compressed as they are read or
+ * written rather than being loaded into memory.
  */
 public class GZipCompressTransformer extends AbstractCompressionTransformer
 {
@@ -32,7 +40,9 @@ public class GZipCompressTransformer extends AbstractCompressionTransformer
         this.registerSourceType(DataTypeFactory.create(Serializable.class));
         this.registerSourceType(DataTypeFactory.BYTE_ARRAY);
         this.registerSourceType(DataTypeFactory.INPUT_STREAM);
-        // No type checking for the return type by default. It could either be a byte array or an input stream.
+        this.registerSourceType(DataTypeFactory.create(OutputHandler.class));
+        // No type checking for the return type by default. It could either be a byte array, an input stream or an
+        // output handler.
         this.setReturnDataType(DataTypeFactory.OBJECT);
     }
 
@@ -45,6 +55,10 @@ public class GZipCompressTransformer extends AbstractCompressionTransformer
             {
                 return getStrategy().compressInputStream((InputStream) src);
             }
+            else if (src instanceof OutputHandler)
+            {
+                return new CompressingOutputHandler(getStrategy(), (OutputHandler) src);
+            }
             else
             {
                 byte[] data;
@@ -64,4 +78,43 @@ public class GZipCompressTransformer extends AbstractCompressionTransformer
             throw new TransformerException(this, ioex);
         }
     }
+
+    /**
+     * Compresses the payload written by another {@link OutputHandler} as it is
+     * written, leaving the stream open for the transport that owns it.
+     */
+    private static class CompressingOutputHandler implements OutputHandler
+    {
+        private final CompressionStrategy strategy;
+        private final OutputHandler handler;
+
+        CompressingOutputHandler(CompressionStrategy strategy, OutputHandler handler)
+        {
+            this.strategy = strategy;
+            this.handler = handler;
+        }
+
+        public void write(MuleEvent event, OutputStream out) throws IOException
+        {
+            OutputStream compressed = strategy.compressOutputStream(new CloseShieldOutputStream(out));
+            boolean written = false;
+            try
+            {
+                handler.write(event, compressed);
+                written = true;
+            }
+            finally
+            {
+                if (written)
+                {
+                    compressed.close();
+                }
+                else if (compressed instanceof GZIPCompressorOutputStream)
+                {
+                    // don't terminate a payload that was only partly written
+                    ((GZIPCompressorOutputStream) compressed).abort();
+                }
+            }
+        }
+    }
 }
@@ -16,19 +16,26 @@ import org.mule.api.transformer.Converter;
 import org.mule.api.transformer.DataType;
 import org.mule.api.transformer.Transformer;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.registry.MuleRegistryHelper;
+import org.mule.transformer.types.DataTypePair;
+import org.mule.util.concurrent.BoundedConcurrentCache;
 
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import org.apache.commons.collections.map.LRUMap;
-
 public class GraphTransformerResolver implements TransformerResolver
 {
 
+    /**
+     * Cached for pairs of data types there is no converter for, so that the graph is
+     * not searched again for them
+     */
+    private static final Object NO_CONVERTER = new Object();
+
     private ReentrantReadWriteLock readWriteLock;
     private TransformationGraph graph;
     private CompositeConverterFilter converterFilter;
-    private LRUMap cache;
+    private BoundedConcurrentCache<DataTypePair, Object> cache;
     private TransformationGraphLookupStrategy lookupStrategyTransformation;
 
     public GraphTransformerResolver()
@@ -37,60 +44,41 @@ public class GraphTransformerResolver implements TransformerResolver
         this.graph = new TransformationGraph();
         lookupStrategyTransformation = new TransformationGraphLookupStrategy(graph);
         converterFilter = new CompositeConverterFilter(new TransformationLengthConverterFilter(), new PriorityWeightingConverterFilter(), new NameConverterFilter());
-        cache = new LRUMap();
+        cache = new BoundedConcurrentCache<DataTypePair, Object>(MuleRegistryHelper.TRANSFORMER_CACHE_CAPACITY);
     }
 
     @Override
     public Transformer resolve(DataType<?> source, DataType<?> result) throws ResolverException
     {
-        String cacheKey = getDataTypeSourceResultPairHash(source, result);
+        DataTypePair cacheKey = new DataTypePair(source, result);
 
-        readWriteLock.readLock().lock();
-        try
+        Object cached = cache.get(cacheKey);
+        if (cached != null)
         {
-            if (cache.containsKey(cacheKey))
-            {
-                return (Converter) cache.get(cacheKey);
-            }
-        }
-        finally
-        {
-            readWriteLock.readLock().unlock();
+            return cached == NO_CONVERTER ? null : (Transformer) cached;
         }
 
-        List<Converter> converters = converterFilter.filter(lookupStrategyTransformation.lookupConverters(source, result), source, result);
-
-        if (converters.size() > 1)
+        // Holding the read lock until the result is cached means a converter added
+        // meanwhile clears it, rather than being hidden by it
+        readWriteLock.readLock().lock();
+        try
         {
-            throw new ResolverException(CoreMessages.transformHasMultipleMatches(source.getType(), result.getType(), converters.get(0), converters.get(1)));
-        }
+            List<Converter> converters = converterFilter.filter(lookupStrategyTransformation.lookupConverters(source, result), source, result);
 
-        Transformer converter = (converters.size() == 0) ? null : converters.get(0);
+            if (converters.size() > 1)
+            {
+                throw new ResolverException(CoreMessages.transformHasMultipleMatches(source.getType(), result.getType(), converters.get(0), converters.get(1)));
+            }
 
+            Transformer converter = (converters.size() == 0) ? null : converters.get(0);
+            cache.putIfAbsent(cacheKey, converter == null ? NO_CONVERTER : converter);
 
-        readWriteLock.writeLock().lock();
-        try
-        {
-            cache.put(cacheKey, converter);
+            return converter;
         }
         finally
         {
-            readWriteLock.writeLock().unlock();
+            readWriteLock.readLock().unlock();
         }
-
-        return converter;
-    }
-
-    private String getDataTypeSourceResultPairHash(DataType<?> source, DataType<?> result)
-    {
-        StringBuilder builder = new StringBuilder();
-        builder.append(source.getClass().getName());
-        builder.append(source.hashCode());
-        builder.append(":");
-        builder.append(result.getClass().getName());
-        builder.append(result.hashCode());
-
-        return builder.toString();
     }
 
     @Override
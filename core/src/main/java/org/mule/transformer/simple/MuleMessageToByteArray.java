@@ -12,7 +12,6 @@ package org.mule.transformer.simple;
 import org.mule.api.MuleMessage;
 import org.mule.transformer.AbstractMessageTransformer;
 import org.mule.transformer.types.DataTypeFactory;
-import org.mule.util.SerializationUtils;
 
 /** TODO */
 public class MuleMessageToByteArray extends AbstractMessageTransformer
@@ -26,6 +25,6 @@ public class MuleMessageToByteArray extends AbstractMessageTransformer
     @Override
     public Object transformMessage(MuleMessage message, String outputEncoding)
     {
-        return SerializationUtils.serialize(message);
+        return muleContext.getObjectSerializer().serialize(message);
     }
 }
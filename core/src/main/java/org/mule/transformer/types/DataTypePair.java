@@ -0,0 +1,116 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transformer.types;
+
+import org.mule.api.transformer.DataType;
+
+/**
+ * Key for caches of transformer resolution results, made of a source and a result
+ * {@link DataType}.
+ * <p/>
+ * Data types can be changed after they are created and their <code>equals</code>
+ * treats {@link DataType#ANY_MIME_TYPE} as a wildcard, so neither can be used as a
+ * key. Instead the key takes a copy of the class, item type, mime type and encoding
+ * of both data types when it is created, and two keys are equal only when all of
+ * them are.
+ */
+public final class DataTypePair
+{
+    private final Class<?> sourceClass;
+    private final Class<?> sourceType;
+    private final Class<?> sourceItemType;
+    private final String sourceMimeType;
+    private final String sourceEncoding;
+
+    private final Class<?> resultClass;
+    private final Class<?> resultType;
+    private final Class<?> resultItemType;
+    private final String resultMimeType;
+    private final String resultEncoding;
+
+    private final int hash;
+
+    public DataTypePair(DataType<?> source, DataType<?> result)
+    {
+        sourceClass = source.getClass();
+        sourceType = source.getType();
+        sourceItemType = itemTypeOf(source);
+        sourceMimeType = source.getMimeType();
+        sourceEncoding = source.getEncoding();
+
+        resultClass = result.getClass();
+        resultType = result.getType();
+        resultItemType = itemTypeOf(result);
+        resultMimeType = result.getMimeType();
+        resultEncoding = result.getEncoding();
+
+        int h = hashOf(sourceType, sourceItemType, sourceMimeType, sourceEncoding);
+        hash = 31 * h + hashOf(resultType, resultItemType, resultMimeType, resultEncoding);
+    }
+
+    private static Class<?> itemTypeOf(DataType<?> dataType)
+    {
+        return dataType instanceof CollectionDataType ? ((CollectionDataType<?>) dataType).getItemType() : null;
+    }
+
+    private static int hashOf(Class<?> type, Class<?> itemType, String mimeType, String encoding)
+    {
+        int h = type.hashCode();
+        h = 31 * h + (itemType != null ? itemType.hashCode() : 0);
+        h = 31 * h + (mimeType != null ? mimeType.hashCode() : 0);
+        h = 31 * h + (encoding != null ? encoding.hashCode() : 0);
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof DataTypePair))
+        {
+            return false;
+        }
+
+        DataTypePair that = (DataTypePair) o;
+
+        return hash == that.hash
+               && sourceType == that.sourceType
+               && resultType == that.resultType
+               && sourceClass == that.sourceClass
+               && resultClass == that.resultClass
+               && sourceItemType == that.sourceItemType
+               && resultItemType == that.resultItemType
+               && equal(sourceMimeType, that.sourceMimeType)
+               && equal(resultMimeType, that.resultMimeType)
+               && equal(sourceEncoding, that.sourceEncoding)
+               && equal(resultEncoding, that.resultEncoding);
+    }
+
+    private static boolean equal(String a, String b)
+    {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DataTypePair{source=" + sourceType.getName() + "(" + sourceMimeType + ")"
+               + ", result=" + resultType.getName() + "(" + resultMimeType + ")}";
+    }
+}
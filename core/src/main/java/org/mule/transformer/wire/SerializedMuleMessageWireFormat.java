@@ -14,7 +14,8 @@ import org.mule.transformer.simple.ByteArrayToMuleMessage;
 import org.mule.transformer.simple.MuleMessageToByteArray;
 
 /**
- * Wire format using Java serialization to serialize MuleMessage objects accross the wire
+ * Wire format using the {@link org.mule.api.serialization.ObjectSerializer} of the
+ * MuleContext to serialize MuleMessage objects accross the wire
  */
 public class SerializedMuleMessageWireFormat extends TransformerPairWireFormat
 {
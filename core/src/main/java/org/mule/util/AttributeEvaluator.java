@@ -11,13 +11,15 @@
 package org.mule.util;
 
 import org.mule.api.MuleMessage;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.expression.ExpressionManager;
 
 import java.util.regex.Pattern;
 
 /**
  * This class acts as a wrapper for configuration attributes that support simple text, expression or regular
- * expressions. It can be extended to support other cases too.
+ * expressions. It can be extended to support other cases too. The attribute is compiled once when the
+ * evaluator is initialized.
  */
 public class AttributeEvaluator
 {
@@ -31,6 +33,7 @@ public class AttributeEvaluator
     private final String attributeValue;
     private ExpressionManager expressionManager;
     private AttributeType attributeType;
+    private CompiledExpression compiledExpression;
 
     public AttributeEvaluator(String attributeValue)
     {
@@ -41,6 +44,12 @@ public class AttributeEvaluator
     {
         this.expressionManager = expressionManager;
         resolveAttributeType();
+        if (attributeValue != null)
+        {
+            compiledExpression = isExpression()
+                                               ? expressionManager.compile(attributeValue)
+                                               : expressionManager.compileTemplate(attributeValue);
+        }
     }
 
     private void resolveAttributeType()
@@ -72,7 +81,11 @@ public class AttributeEvaluator
 
     public Object resolveValue(MuleMessage message)
     {
-        if (isExpression())
+        if (compiledExpression != null)
+        {
+            return compiledExpression.evaluate(message);
+        }
+        else if (isExpression())
         {
             return expressionManager.evaluate(attributeValue, message);
         }
@@ -0,0 +1,525 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A case-insensitive <code>Map</code> of message properties, with keys compared as by
+ * {@link String#equalsIgnoreCase(String)}.
+ * <p/>
+ * Unlike {@link CaseInsensitiveHashMap} it never creates a lower case copy of a key:
+ * the case-insensitive hash of a key is computed in place, and kept next to the key
+ * when it is stored, so lookups neither allocate nor compare keys whose hashes differ.
+ * Keys that are the same instance as the stored one, such as constants, are not
+ * compared at all. Entries live in open addressed arrays rather than in one object
+ * per entry, which also makes copying the map cheap.
+ * <p/>
+ * The <code>keySet()</code> method returns all keys in the case they were first put
+ * with; putting a key that differs only by case replaces the value and keeps the key.
+ * <p/>
+ * <strong>Note that this map is not synchronized and is not thread-safe.</strong>
+ *
+ * @see CaseInsensitiveHashMap
+ */
+public class CaseInsensitivePropertyMap extends AbstractMap<String, Object> implements Serializable
+{
+    private static final long serialVersionUID = 3907422612633471578L;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Stands in for a <code>null</code> key
+     */
+    private static final String NULL_KEY = new String("<null>");
+
+    /**
+     * Marks the slot of a removed entry so that probing goes past it
+     */
+    private static final String REMOVED = new String("<removed>");
+
+    private transient String[] keys;
+    private transient Object[] values;
+    private transient int[] hashes;
+    private transient int size;
+
+    /**
+     * Slots holding either an entry or {@link #REMOVED}
+     */
+    private transient int used;
+    private transient int modCount;
+
+    private transient Set<Map.Entry<String, Object>> entrySet;
+
+    public CaseInsensitivePropertyMap()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of entries the map will hold without growing
+     */
+    public CaseInsensitivePropertyMap(int expectedSize)
+    {
+        if (expectedSize < 0)
+        {
+            throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Constructor copying the entries of another map. Keys that differ only by case
+     * collapse into one entry.
+     *
+     * @param map the map to copy
+     */
+    public CaseInsensitivePropertyMap(Map<String, ?> map)
+    {
+        if (map instanceof CaseInsensitivePropertyMap)
+        {
+            CaseInsensitivePropertyMap other = (CaseInsensitivePropertyMap) map;
+            keys = other.keys.clone();
+            values = other.values.clone();
+            hashes = other.hashes.clone();
+            size = other.size;
+            used = other.used;
+        }
+        else
+        {
+            allocate(capacityFor(map.size()));
+            putAll(map);
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return (key == null || key instanceof String) && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+        if (key != null && !(key instanceof String))
+        {
+            return null;
+        }
+        int index = indexOf((String) key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public Object put(String key, Object value)
+    {
+        String maskedKey = key == null ? NULL_KEY : key;
+        int hash = hash(maskedKey);
+        int mask = keys.length - 1;
+        int firstRemoved = -1;
+        for (int i = hash & mask; ; i = (i + 1) & mask)
+        {
+            String current = keys[i];
+            if (current == null)
+            {
+                if (firstRemoved >= 0)
+                {
+                    i = firstRemoved;
+                }
+                else
+                {
+                    used++;
+                }
+                keys[i] = maskedKey;
+                values[i] = value;
+                hashes[i] = hash;
+                size++;
+                modCount++;
+                if (used > maxUsed(keys.length))
+                {
+                    resize();
+                }
+                return null;
+            }
+            if (current == REMOVED)
+            {
+                if (firstRemoved < 0)
+                {
+                    firstRemoved = i;
+                }
+            }
+            else if (matches(current, hashes[i], maskedKey, hash))
+            {
+                Object previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+    }
+
+    @Override
+    public Object remove(Object key)
+    {
+        if (key != null && !(key instanceof String))
+        {
+            return null;
+        }
+        int index = indexOf((String) key);
+        if (index < 0)
+        {
+            return null;
+        }
+        Object previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear()
+    {
+        if (used > 0)
+        {
+            allocate(keys.length);
+            size = 0;
+            used = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet()
+    {
+        if (entrySet == null)
+        {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * Hashes a key so that keys equal ignoring case hash the same. Characters are
+     * folded as {@link String#equalsIgnoreCase(String)} does, with a shortcut for
+     * ASCII.
+     */
+    static int hash(String key)
+    {
+        int hash = 0;
+        for (int i = 0; i < key.length(); i++)
+        {
+            char c = key.charAt(i);
+            if (c < 128)
+            {
+                if (c >= 'A' && c <= 'Z')
+                {
+                    c += 'a' - 'A';
+                }
+            }
+            else
+            {
+                c = Character.toLowerCase(Character.toUpperCase(c));
+            }
+            hash = 31 * hash + c;
+        }
+        // spreads the low order bits, which select the slot
+        return hash ^ (hash >>> 16);
+    }
+
+    private int indexOf(String key)
+    {
+        String maskedKey = key == null ? NULL_KEY : key;
+        int hash = hash(maskedKey);
+        int mask = keys.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask)
+        {
+            String current = keys[i];
+            if (current == null)
+            {
+                return -1;
+            }
+            if (current != REMOVED && matches(current, hashes[i], maskedKey, hash))
+            {
+                return i;
+            }
+        }
+    }
+
+    private static boolean matches(String stored, int storedHash, String key, int hash)
+    {
+        if (stored == key)
+        {
+            return true;
+        }
+        return storedHash == hash && stored != NULL_KEY && key != NULL_KEY && stored.equalsIgnoreCase(key);
+    }
+
+    private void removeAt(int index)
+    {
+        keys[index] = REMOVED;
+        values[index] = null;
+        size--;
+        modCount++;
+    }
+
+    private void resize()
+    {
+        String[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+
+        // only grows when removed slots are not what fills the table
+        int capacity = size >= maxUsed(oldKeys.length) / 2 ? oldKeys.length * 2 : oldKeys.length;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            String key = oldKeys[j];
+            if (key != null && key != REMOVED)
+            {
+                int i = oldHashes[j] & mask;
+                while (keys[i] != null)
+                {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+        used = size;
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new String[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+    }
+
+    /**
+     * Tables are kept at most two thirds full so that probe sequences stay short
+     */
+    private static int maxUsed(int capacity)
+    {
+        return capacity * 2 / 3;
+    }
+
+    private static int capacityFor(int expectedSize)
+    {
+        int capacity = 4;
+        while (maxUsed(capacity) < expectedSize)
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++)
+        {
+            String key = keys[i];
+            if (key != null && key != REMOVED)
+            {
+                out.writeObject(key == NULL_KEY ? null : key);
+                out.writeObject(values[i]);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        int entries = in.readInt();
+        allocate(capacityFor(entries));
+        for (int i = 0; i < entries; i++)
+        {
+            put((String) in.readObject(), in.readObject());
+        }
+    }
+
+    /**
+     * Called instead of {@link #readObject(ObjectInputStream)} when a subclass is read
+     * from a stream written while it had another superclass, leaving the map empty
+     * rather than without tables.
+     */
+    private void readObjectNoData()
+    {
+        allocate(capacityFor(0));
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, Object>>
+    {
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator()
+        {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public void clear()
+        {
+            CaseInsensitivePropertyMap.this.clear();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, Object>>
+    {
+        private final String[] iteratedKeys = keys;
+        private int next = -1;
+        private int current = -1;
+        private int expectedModCount = modCount;
+
+        private EntryIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            do
+            {
+                next++;
+            }
+            while (next < iteratedKeys.length && (iteratedKeys[next] == null || iteratedKeys[next] == REMOVED));
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < iteratedKeys.length;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next()
+        {
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            advance();
+            return new Entry(current);
+        }
+
+        @Override
+        public void remove()
+        {
+            if (current < 0)
+            {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(current);
+            expectedModCount = modCount;
+            current = -1;
+        }
+    }
+
+    /**
+     * An entry as it was when iterated; setting its value writes through to the map
+     * as long as the key is still there.
+     */
+    private class Entry implements Map.Entry<String, Object>
+    {
+        private final String key;
+        private Object value;
+
+        private Entry(int index)
+        {
+            String storedKey = keys[index];
+            this.key = storedKey == NULL_KEY ? null : storedKey;
+            this.value = values[index];
+        }
+
+        @Override
+        public String getKey()
+        {
+            return key;
+        }
+
+        @Override
+        public Object getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value)
+        {
+            Object previous = this.value;
+            this.value = value;
+            int index = indexOf(key);
+            if (index >= 0)
+            {
+                values[index] = value;
+            }
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Map.Entry))
+            {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return ObjectUtils.equals(key, other.getKey()) && ObjectUtils.equals(value, other.getValue());
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter over strings made of time slices. Strings are added to the
+ * current slice and looked up in all of them; every <code>rotationInterval</code>
+ * milliseconds the oldest slice is dropped and a new empty one started, so strings
+ * are forgotten after between <code>slices - 1</code> and <code>slices</code>
+ * intervals and the filter never fills up.
+ * <p/>
+ * <b>False positive budget:</b> every slice is sized so that, holding
+ * <code>expectedInsertions</code> strings, it answers a lookup of a string it does
+ * not hold positively with a probability of at most
+ * <code>falsePositiveProbability / slices</code>. A lookup therefore is a false
+ * positive with probability at most <code>falsePositiveProbability</code> as long as
+ * no more than <code>expectedInsertions</code> strings are added per rotation
+ * interval. Beyond that the probability grows quickly. There are no false
+ * negatives for strings added within the last <code>slices - 1</code> intervals.
+ * <p/>
+ * This class is thread safe; concurrent adds and lookups do not block each other.
+ */
+public class RotatingBloomFilter
+{
+    private static final double LN2 = Math.log(2);
+
+    private final int expectedInsertions;
+    private final int bitsPerSlice;
+    private final int hashFunctions;
+    private final long rotationInterval;
+
+    private volatile AtomicLongArray[] slices;
+    private volatile long nextRotation;
+
+    /**
+     * @param expectedInsertions number of strings added per rotation interval
+     * @param falsePositiveProbability accepted probability of a false positive
+     * @param slices number of slices, at least 1
+     * @param rotationInterval milliseconds between rotations, not positive to never
+     *            rotate
+     */
+    public RotatingBloomFilter(int expectedInsertions,
+                               double falsePositiveProbability,
+                               int slices,
+                               long rotationInterval)
+    {
+        if (expectedInsertions <= 0)
+        {
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1)
+        {
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1");
+        }
+        if (slices < 1)
+        {
+            throw new IllegalArgumentException("slices must be at least 1");
+        }
+        this.expectedInsertions = expectedInsertions;
+        double sliceProbability = falsePositiveProbability / slices;
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(sliceProbability) / (LN2 * LN2));
+        this.bitsPerSlice = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitsPerSlice / expectedInsertions * LN2));
+        this.rotationInterval = rotationInterval;
+
+        this.slices = new AtomicLongArray[slices];
+        for (int i = 0; i < slices; i++)
+        {
+            this.slices[i] = newSlice();
+        }
+        this.nextRotation = rotationInterval > 0 ? System.currentTimeMillis() + rotationInterval : Long.MAX_VALUE;
+    }
+
+    public void add(String value)
+    {
+        add(currentSlices()[0], value);
+    }
+
+    /**
+     * Adds strings known from before the filter was created, such as the IDs already
+     * in a store, without going over the false positive budget. They are spread over
+     * the slices but the current one, which is left to the strings added while it is
+     * current, newest first and at most <code>expectedInsertions</code> to a slice; a
+     * filter of a single slice takes them in that slice. Strings that do not fit are
+     * not added, so lookups of them may be negative. This is meant to be called before
+     * the filter is used.
+     *
+     * @return the number of strings added
+     */
+    public int preload(Collection<String> values)
+    {
+        AtomicLongArray[] current = slices;
+        int slice = current.length > 1 ? 1 : 0;
+        int added = 0;
+        int inSlice = 0;
+        for (String value : values)
+        {
+            if (inSlice == expectedInsertions)
+            {
+                if (++slice == current.length)
+                {
+                    break;
+                }
+                inSlice = 0;
+            }
+            add(current[slice], value);
+            inSlice++;
+            added++;
+        }
+        return added;
+    }
+
+    private void add(AtomicLongArray slice, String value)
+    {
+        int h1 = mix(value.hashCode());
+        int h2 = secondHash(value);
+        for (int i = 0; i < hashFunctions; i++)
+        {
+            int bit = bitIndex(h1, h2, i);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do
+            {
+                current = slice.get(word);
+                if ((current & mask) != 0)
+                {
+                    break;
+                }
+            }
+            while (!slice.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * @return <code>false</code> if the string was definitely not added within the
+     *         last <code>slices - 1</code> rotation intervals
+     */
+    public boolean mightContain(String value)
+    {
+        int h1 = mix(value.hashCode());
+        int h2 = secondHash(value);
+        for (AtomicLongArray slice : currentSlices())
+        {
+            if (contains(slice, h1, h2))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return bits of each slice
+     */
+    public int getBitsPerSlice()
+    {
+        return bitsPerSlice;
+    }
+
+    public int getHashFunctions()
+    {
+        return hashFunctions;
+    }
+
+    private boolean contains(AtomicLongArray slice, int h1, int h2)
+    {
+        for (int i = 0; i < hashFunctions; i++)
+        {
+            int bit = bitIndex(h1, h2, i);
+            if ((slice.get(bit >>> 6) & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private AtomicLongArray[] currentSlices()
+    {
+        if (System.currentTimeMillis() >= nextRotation)
+        {
+            rotate();
+        }
+        return slices;
+    }
+
+    private synchronized void rotate()
+    {
+        long now = System.currentTimeMillis();
+        if (now < nextRotation)
+        {
+            return;
+        }
+        AtomicLongArray[] rotated = new AtomicLongArray[slices.length];
+        // a filter idle for longer than all its slices starts over empty
+        long missed = Math.min(rotated.length, 1 + (now - nextRotation) / rotationInterval);
+        for (int i = 0; i < rotated.length; i++)
+        {
+            rotated[i] = i < missed ? newSlice() : slices[(int) (i - missed)];
+        }
+        slices = rotated;
+        nextRotation = now + rotationInterval;
+    }
+
+    private AtomicLongArray newSlice()
+    {
+        return new AtomicLongArray((bitsPerSlice + 63) >>> 6);
+    }
+
+    /**
+     * Derives the i-th hash from two independent ones, which is as good as i
+     * independent hash functions for a Bloom filter (Kirsch and Mitzenmacher).
+     */
+    private int bitIndex(int h1, int h2, int i)
+    {
+        int combined = h1 + i * h2;
+        return (combined & Integer.MAX_VALUE) % bitsPerSlice;
+    }
+
+    /**
+     * FNV-1a over the characters, which is unrelated to {@link String#hashCode()}
+     */
+    private static int secondHash(String value)
+    {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < value.length(); i++)
+        {
+            hash ^= value.charAt(i);
+            hash *= 0x01000193;
+        }
+        return mix(hash) | 1;
+    }
+
+    private static int mix(int hash)
+    {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -134,7 +134,8 @@ public final class TemplateParser
     {
         String result = template;
         Map<?, ?> newProps = props;
-        if (props != null && !(props instanceof CaseInsensitiveHashMap))
+        if (props != null && !(props instanceof CaseInsensitiveHashMap)
+            && !(props instanceof CaseInsensitivePropertyMap))
         {
             newProps = new CaseInsensitiveHashMap(props);
         }
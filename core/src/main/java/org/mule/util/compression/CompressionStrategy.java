@@ -12,6 +12,7 @@ package org.mule.util.compression;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * <code>CompressionStrategy</code> is a base interface for Different compression
@@ -51,6 +52,16 @@ public interface CompressionStrategy
      */
     InputStream compressInputStream(InputStream is) throws IOException;
 
+    /**
+     * Wraps an {@link OutputStream} so that data written to it is compressed. Closing
+     * the returned stream closes the given one.
+     *
+     * @param os The {@link OutputStream} to write compressed data to.
+     * @return An {@link OutputStream} compressing the data written to it.
+     * @throws IOException If an I/O error has occurred.
+     */
+    OutputStream compressOutputStream(OutputStream os) throws IOException;
+
     /**
      * Uncompresses a compressed byte array.
      *
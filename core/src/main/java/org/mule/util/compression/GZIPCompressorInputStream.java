@@ -19,6 +19,8 @@ import java.util.zip.DeflaterInputStream;
 
 /**
  * Implements an input stream for compressing input data in the GZIP compression format.
+ * Data is only compressed as the stream is read, and the {@link Deflater} is taken from
+ * a pool and returned to it once the stream is read to the end or closed.
  */
 public class GZIPCompressorInputStream extends DeflaterInputStream
 {
@@ -48,6 +50,9 @@ public class GZIPCompressorInputStream extends DeflaterInputStream
     // Internal buffer for GZIP header and trailer.
     private Buffer buffer;
 
+    // If true, the deflater has been given back to the pool and must not be used.
+    private boolean deflaterReleased = false;
+
     /**
      * Helper inner class containing the length and position of the internal buffer.
      */
@@ -86,12 +91,21 @@ public class GZIPCompressorInputStream extends DeflaterInputStream
      */
     public GZIPCompressorInputStream(InputStream in)
     {
-        super(new CheckedInputStream(in, new CRC32()), new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        super(new CheckedInputStream(in, new CRC32()), GZipCompression.DEFLATER_POOL.borrowObject());
         buffer = new Buffer();
     }
 
     public int read(byte b[], int off, int len) throws IOException
     {
+        if (deflaterReleased)
+        {
+            return -1;
+        }
+        if (len == 0)
+        {
+            return 0;
+        }
+
         // Check if there are bytes left to be read from the internal buffer. This is used to provide the header
         // or trailer, and always takes precedence.
         int count;
@@ -124,7 +138,35 @@ public class GZIPCompressorInputStream extends DeflaterInputStream
         }
         else
         {
-            return count;
+            // Everything, trailer included, has been read, so the deflater can be reused.
+            releaseDeflater();
+            return -1;
+        }
+    }
+
+    public int available() throws IOException
+    {
+        return deflaterReleased ? 0 : super.available();
+    }
+
+    public void close() throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            releaseDeflater();
+        }
+    }
+
+    private void releaseDeflater()
+    {
+        if (!deflaterReleased)
+        {
+            deflaterReleased = true;
+            GZipCompression.DEFLATER_POOL.returnObject(def);
         }
     }
 
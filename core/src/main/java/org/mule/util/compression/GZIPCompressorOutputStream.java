@@ -0,0 +1,185 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Implements an output stream for compressing data in the GZIP compression format,
+ * like <code>java.util.zip.GZIPOutputStream</code> but with a {@link Deflater} taken
+ * from a pool and returned to it once the stream is finished.
+ * <p/>
+ * {@link #finish()} writes the GZIP trailer without closing the underlying stream, so
+ * the stream can be used to compress data written to a stream that belongs to
+ * someone else.
+ */
+public class GZIPCompressorOutputStream extends DeflaterOutputStream
+{
+    // GZIP header magic number.
+    private final static int GZIP_MAGIC = 0x8b1f;
+
+    // Writes GZIP member header.
+    private final static byte[] HEADER = {
+        (byte) GZIP_MAGIC,                // Magic number (short)
+        (byte)(GZIP_MAGIC >> 8),          // Magic number (short)
+        Deflater.DEFLATED,                // Compression method (CM)
+        0,                                // Flags (FLG)
+        0,                                // Modification time MTIME (int)
+        0,                                // Modification time MTIME (int)
+        0,                                // Modification time MTIME (int)
+        0,                                // Modification time MTIME (int)
+        0,                                // Extra flags (XFLG)
+        0                                 // Operating system (OS)
+    };
+
+    // Trailer length in bytes.
+    private final static int TRAILER_LENGTH = 8;
+
+    private final CRC32 crc = new CRC32();
+
+    // If true, the deflater has been given back to the pool and must not be used.
+    private boolean deflaterReleased = false;
+
+    /**
+     * Creates a new {@link GZIPCompressorOutputStream} writing compressed data to an
+     * {@link OutputStream}.
+     *
+     * @param out The {@link OutputStream} to write compressed data to.
+     * @throws IOException If the GZIP header cannot be written.
+     */
+    public GZIPCompressorOutputStream(OutputStream out) throws IOException
+    {
+        this(out, GZipCompression.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param out The {@link OutputStream} to write compressed data to.
+     * @param size The size of the buffer used to write compressed data.
+     * @throws IOException If the GZIP header cannot be written.
+     */
+    public GZIPCompressorOutputStream(OutputStream out, int size) throws IOException
+    {
+        super(out, GZipCompression.DEFLATER_POOL.borrowObject(), size);
+        try
+        {
+            out.write(HEADER);
+        }
+        catch (IOException e)
+        {
+            releaseDeflater();
+            throw e;
+        }
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        if (deflaterReleased)
+        {
+            throw new IOException("Stream is already finished");
+        }
+        super.write(b, off, len);
+        crc.update(b, off, len);
+    }
+
+    /**
+     * Writes the remaining compressed data and the GZIP trailer to the underlying
+     * stream, without closing it, and releases the {@link Deflater}.
+     *
+     * @throws IOException If an I/O error is produced.
+     */
+    public void finish() throws IOException
+    {
+        if (deflaterReleased)
+        {
+            return;
+        }
+        try
+        {
+            def.finish();
+            while (!def.finished())
+            {
+                int count = def.deflate(buf, 0, buf.length);
+                if (def.finished() && buf.length - count >= TRAILER_LENGTH)
+                {
+                    // Trailer fits in the buffer with the last compressed data.
+                    writeTrailer(buf, count);
+                    out.write(buf, 0, count + TRAILER_LENGTH);
+                    return;
+                }
+                if (count > 0)
+                {
+                    out.write(buf, 0, count);
+                }
+            }
+            byte[] trailer = new byte[TRAILER_LENGTH];
+            writeTrailer(trailer, 0);
+            out.write(trailer);
+        }
+        finally
+        {
+            releaseDeflater();
+        }
+    }
+
+    /**
+     * Releases the {@link Deflater} without writing the remaining compressed data or
+     * the GZIP trailer, nor closing the underlying stream, so that data that failed
+     * to be written whole is not mistaken for a complete GZIP stream.
+     */
+    public void abort()
+    {
+        releaseDeflater();
+    }
+
+    public void close() throws IOException
+    {
+        try
+        {
+            finish();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private void releaseDeflater()
+    {
+        if (!deflaterReleased)
+        {
+            deflaterReleased = true;
+            GZipCompression.DEFLATER_POOL.returnObject(def);
+        }
+    }
+
+    /**
+     * Writes GZIP member trailer to a byte array, starting at a given offset.
+     */
+    private void writeTrailer(byte[] buf, int offset)
+    {
+        writeInt((int) crc.getValue(), buf, offset); // CRC-32 of uncompr. data
+        writeInt(def.getTotalIn(), buf, offset + 4); // Number of uncompr. bytes
+    }
+
+    /**
+     * Writes integer in Intel byte order to a byte array, starting at a given offset.
+     */
+    private void writeInt(int i, byte[] buf, int offset)
+    {
+        buf[offset] = (byte) (i & 0xff);
+        buf[offset + 1] = (byte) ((i >> 8) & 0xff);
+        buf[offset + 2] = (byte) ((i >> 16) & 0xff);
+        buf[offset + 3] = (byte) ((i >> 24) & 0xff);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Implements an input stream for uncompressing data in the GZIP compression format,
+ * like <code>java.util.zip.GZIPInputStream</code> but with an {@link Inflater} taken
+ * from a pool and returned to it once the stream is read to the end or closed.
+ * Concatenated GZIP members are read as one stream.
+ */
+public class GZIPUncompressorInputStream extends InflaterInputStream
+{
+    // GZIP header magic number.
+    private final static int GZIP_MAGIC = 0x8b1f;
+
+    // File header flags.
+    private final static int FHCRC = 2;
+    private final static int FEXTRA = 4;
+    private final static int FNAME = 8;
+    private final static int FCOMMENT = 16;
+
+    // Trailer length in bytes.
+    private final static int TRAILER_LENGTH = 8;
+
+    private final CRC32 crc = new CRC32();
+
+    // If true, the end of the last GZIP member has been reached.
+    private boolean eos = false;
+
+    // If true, the inflater has been given back to the pool and must not be used.
+    private boolean inflaterReleased = false;
+
+    /**
+     * Creates a new {@link GZIPUncompressorInputStream} from a compressed
+     * {@link InputStream}, reading its GZIP header.
+     *
+     * @param in The compressed {@link InputStream}.
+     * @throws ZipException If the data is not in the GZIP format.
+     * @throws IOException If an I/O error is produced.
+     */
+    public GZIPUncompressorInputStream(InputStream in) throws IOException
+    {
+        this(in, GZipCompression.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param in The compressed {@link InputStream}.
+     * @param size The size of the buffer used to read compressed data.
+     * @throws ZipException If the data is not in the GZIP format.
+     * @throws IOException If an I/O error is produced.
+     */
+    public GZIPUncompressorInputStream(InputStream in, int size) throws IOException
+    {
+        super(in, GZipCompression.INFLATER_POOL.borrowObject(), size);
+        try
+        {
+            readHeader(in);
+        }
+        catch (IOException e)
+        {
+            releaseInflater();
+            throw e;
+        }
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (eos || inflaterReleased)
+        {
+            return -1;
+        }
+        if (len == 0)
+        {
+            return 0;
+        }
+        int count = super.read(b, off, len);
+        if (count == -1)
+        {
+            if (readTrailer())
+            {
+                eos = true;
+                releaseInflater();
+                return -1;
+            }
+            return read(b, off, len);
+        }
+        crc.update(b, off, count);
+        return count;
+    }
+
+    public int available() throws IOException
+    {
+        return eos || inflaterReleased ? 0 : super.available();
+    }
+
+    public void close() throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            releaseInflater();
+        }
+    }
+
+    private void releaseInflater()
+    {
+        if (!inflaterReleased)
+        {
+            inflaterReleased = true;
+            GZipCompression.INFLATER_POOL.returnObject(inf);
+        }
+    }
+
+    /**
+     * Reads a GZIP member header.
+     *
+     * @return The number of bytes read.
+     */
+    private int readHeader(InputStream in) throws IOException
+    {
+        crc.reset();
+        if (readUShort(in) != GZIP_MAGIC)
+        {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (readUByte(in) != 8)
+        {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = readUByte(in);
+        // Skips modification time, extra flags and operating system.
+        skipBytes(in, 6);
+        int count = 10;
+        if ((flags & FEXTRA) == FEXTRA)
+        {
+            int extraLength = readUShort(in);
+            skipBytes(in, extraLength);
+            count += extraLength + 2;
+        }
+        if ((flags & FNAME) == FNAME)
+        {
+            count += skipZeroTerminated(in);
+        }
+        if ((flags & FCOMMENT) == FCOMMENT)
+        {
+            count += skipZeroTerminated(in);
+        }
+        if ((flags & FHCRC) == FHCRC)
+        {
+            // The header CRC is not checked, as java.util.zip.GZIPInputStream does.
+            skipBytes(in, 2);
+            count += 2;
+        }
+        return count;
+    }
+
+    /**
+     * Reads and checks a GZIP member trailer, and the header of the next member if
+     * there is one.
+     *
+     * @return True if the end of the stream has been reached.
+     */
+    private boolean readTrailer() throws IOException
+    {
+        InputStream in = this.in;
+        int remaining = inf.getRemaining();
+        if (remaining > 0)
+        {
+            in = new SequenceInputStream(new ByteArrayInputStream(buf, len - remaining, remaining), this.in);
+        }
+        if ((readUInt(in) != crc.getValue()) || (readUInt(in) != (inf.getBytesWritten() & 0xffffffffL)))
+        {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+
+        // Another member follows if more input is available, as it is in
+        // java.util.zip.GZIPInputStream.
+        if (this.in.available() > 0 || remaining > TRAILER_LENGTH + 10)
+        {
+            int headerLength = TRAILER_LENGTH;
+            try
+            {
+                headerLength += readHeader(in);
+            }
+            catch (IOException e)
+            {
+                // Trailing garbage is ignored.
+                return true;
+            }
+            inf.reset();
+            if (remaining > headerLength)
+            {
+                inf.setInput(buf, len - remaining + headerLength, remaining - headerLength);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private long readUInt(InputStream in) throws IOException
+    {
+        long s = readUShort(in);
+        return ((long) readUShort(in) << 16) | s;
+    }
+
+    private int readUShort(InputStream in) throws IOException
+    {
+        int b = readUByte(in);
+        return (readUByte(in) << 8) | b;
+    }
+
+    private int readUByte(InputStream in) throws IOException
+    {
+        int b = in.read();
+        if (b == -1)
+        {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private void skipBytes(InputStream in, int n) throws IOException
+    {
+        while (n-- > 0)
+        {
+            readUByte(in);
+        }
+    }
+
+    private int skipZeroTerminated(InputStream in) throws IOException
+    {
+        int count = 1;
+        while (readUByte(in) != 0)
+        {
+            count++;
+        }
+        return count;
+    }
+}
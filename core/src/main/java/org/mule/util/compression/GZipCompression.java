@@ -10,11 +10,15 @@
 
 package org.mule.util.compression;
 
+import org.mule.util.pool.RecyclingPool;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
@@ -26,11 +30,62 @@ import org.apache.commons.logging.LogFactory;
  * GZip library included in the JDK java.util.zip. This is the default
  * CompressionStrategy used by the CompressionHelper discovery when no other
  * implementation is discovered.
+ * <p/>
+ * Streams compress and uncompress data as they are read or written, and all of them
+ * share pools of native {@link Deflater} and {@link Inflater} instances rather than
+ * creating new ones for each message.
  */
 public class GZipCompression implements CompressionStrategy
 {
     public static final int DEFAULT_BUFFER_SIZE = 32768;
-    
+
+    /**
+     * The maximum number of idle deflaters and inflaters kept for reuse
+     */
+    private static final int MAX_IDLE = 4 * Runtime.getRuntime().availableProcessors();
+
+    static final RecyclingPool<Deflater> DEFLATER_POOL = new RecyclingPool<Deflater>(MAX_IDLE)
+    {
+        @Override
+        protected Deflater create()
+        {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+
+        @Override
+        protected void reset(Deflater deflater)
+        {
+            deflater.reset();
+        }
+
+        @Override
+        protected void destroy(Deflater deflater)
+        {
+            deflater.end();
+        }
+    };
+
+    static final RecyclingPool<Inflater> INFLATER_POOL = new RecyclingPool<Inflater>(MAX_IDLE)
+    {
+        @Override
+        protected Inflater create()
+        {
+            return new Inflater(true);
+        }
+
+        @Override
+        protected void reset(Inflater inflater)
+        {
+            inflater.reset();
+        }
+
+        @Override
+        protected void destroy(Inflater inflater)
+        {
+            inflater.end();
+        }
+    };
+
     /**
      * The logger for this class
      */
@@ -62,8 +117,8 @@ public class GZipCompression implements CompressionStrategy
      * 
      * @param bytes An array of bytes to compress
      * @return a compressed byte array
-     * @throws java.io.IOException if it fails to write to a GZIPOutputStream
-     * @see java.util.zip.GZIPOutputStream
+     * @throws java.io.IOException if it fails to write to a GZIPCompressorOutputStream
+     * @see GZIPCompressorOutputStream
      */
     public byte[] compressByteArray(byte[] bytes) throws IOException
     {
@@ -84,12 +139,12 @@ public class GZipCompression implements CompressionStrategy
         }
 
         ByteArrayOutputStream baos = null;
-        GZIPOutputStream gzos = null;
+        GZIPCompressorOutputStream gzos = null;
 
         try
         {
             baos = new ByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-            gzos = new GZIPOutputStream(baos);
+            gzos = new GZIPCompressorOutputStream(baos);
 
             gzos.write(bytes, 0, bytes.length);
             gzos.finish();
@@ -121,13 +176,18 @@ public class GZipCompression implements CompressionStrategy
         return new GZIPCompressorInputStream(is);
     }
 
+    public OutputStream compressOutputStream(OutputStream os) throws IOException
+    {
+        return new GZIPCompressorOutputStream(os);
+    }
+
     /**
      * Used for uncompressing a byte array into a uncompressed byte array using GZIP
      * 
      * @param bytes An array of bytes to uncompress
      * @return an uncompressed byte array
-     * @throws java.io.IOException if it fails to read from a GZIPInputStream
-     * @see java.util.zip.GZIPInputStream
+     * @throws java.io.IOException if it fails to read from a GZIPUncompressorInputStream
+     * @see GZIPUncompressorInputStream
      */
     public byte[] uncompressByteArray(byte[] bytes) throws IOException
     {
@@ -156,13 +216,13 @@ public class GZipCompression implements CompressionStrategy
         }
 
         ByteArrayInputStream bais = null;
-        GZIPInputStream gzis = null;
+        GZIPUncompressorInputStream gzis = null;
         ByteArrayOutputStream baos = null;
 
         try
         {
             bais = new ByteArrayInputStream(bytes);
-            gzis = new GZIPInputStream(bais);
+            gzis = new GZIPUncompressorInputStream(bais);
             baos = new ByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
 
             IOUtils.copy(gzis, baos);
@@ -193,7 +253,7 @@ public class GZipCompression implements CompressionStrategy
 
     public InputStream uncompressInputStream(InputStream is) throws IOException
     {
-        return new GZIPInputStream(is);
+        return new GZIPUncompressorInputStream(is);
     }
 
 }
@@ -0,0 +1,298 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import org.mule.management.stats.CacheStatistics;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size-bounded cache that can be read and written by any number of threads.
+ * <p/>
+ * Entries are spread over segments, each a <code>ConcurrentHashMap</code> with its
+ * own share of the capacity. Lookups take no lock and write nothing but a
+ * reference bit, set only when it is not set yet. When a put takes a segment over
+ * its share, entries are evicted in approximately least recently used order with
+ * the clock algorithm: a hand goes round the segment giving entries that were
+ * used since it last passed a second chance and evicting the first one that was
+ * not. Only one thread evicts from a segment at a time and others do not wait
+ * for it, so the cache may hold a few entries more than its capacity for a
+ * moment.
+ * <p/>
+ * Hits, misses and evictions are counted in {@link CacheStatistics}.
+ */
+public class BoundedConcurrentCache<K, V>
+{
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+    private static final int MAX_SEGMENTS = 64;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    private volatile int capacity;
+    private volatile int segmentCapacity;
+
+    /**
+     * Creates a cache with as many segments as there are processors, as long as
+     * each one holds a reasonable number of entries.
+     *
+     * @param capacity the maximum number of entries
+     */
+    public BoundedConcurrentCache(int capacity)
+    {
+        this(capacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param capacity the maximum number of entries
+     * @param concurrencyLevel the number of threads expected to write at once
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedConcurrentCache(int capacity, int concurrencyLevel)
+    {
+        checkCapacity(capacity);
+        int count = 1;
+        int bits = 0;
+        int limit = Math.min(Math.min(concurrencyLevel, MAX_SEGMENTS), Math.max(1, capacity / MIN_SEGMENT_CAPACITY));
+        while (count < limit)
+        {
+            count <<= 1;
+            bits++;
+        }
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++)
+        {
+            segments[i] = new Segment<K, V>();
+        }
+        segmentShift = 32 - bits;
+        segmentMask = count - 1;
+        setCapacity(capacity);
+    }
+
+    private static void checkCapacity(int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+    }
+
+    /**
+     * @return the cached value, or <code>null</code> if there is none
+     */
+    public V get(K key)
+    {
+        Entry<V> entry = segmentFor(key).map.get(key);
+        if (entry == null)
+        {
+            statistics.incMisses();
+            return null;
+        }
+        entry.touch();
+        statistics.incHits();
+        return entry.value;
+    }
+
+    /**
+     * Caches a value unless there already is one for the key.
+     *
+     * @return the value that was already cached, or <code>null</code> if the given
+     *         one was added
+     */
+    public V putIfAbsent(K key, V value)
+    {
+        if (value == null)
+        {
+            throw new NullPointerException();
+        }
+        Segment<K, V> segment = segmentFor(key);
+        Entry<V> existing = segment.map.putIfAbsent(key, new Entry<V>(value));
+        if (existing != null)
+        {
+            existing.touch();
+            return existing.value;
+        }
+        if (segment.size.incrementAndGet() > segmentCapacity)
+        {
+            statistics.incEvictions(segment.evict(this));
+        }
+        return null;
+    }
+
+    /**
+     * @return the value that was removed, or <code>null</code> if there was none
+     */
+    public V remove(K key)
+    {
+        Segment<K, V> segment = segmentFor(key);
+        Entry<V> entry = segment.map.remove(key);
+        if (entry == null)
+        {
+            return null;
+        }
+        segment.size.decrementAndGet();
+        return entry.value;
+    }
+
+    public void clear()
+    {
+        for (Segment<K, V> segment : segments)
+        {
+            for (K key : segment.map.keySet())
+            {
+                if (segment.map.remove(key) != null)
+                {
+                    segment.size.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Segment<K, V> segment : segments)
+        {
+            size += segment.size.get();
+        }
+        return size;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Changes the maximum number of entries. When it shrinks, entries are evicted
+     * as new ones are added.
+     */
+    public void setCapacity(int capacity)
+    {
+        checkCapacity(capacity);
+        this.capacity = capacity;
+        this.segmentCapacity = Math.max(1, (capacity + segments.length - 1) / segments.length);
+    }
+
+    public CacheStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    private Segment<K, V> segmentFor(Object key)
+    {
+        // uses the high bits so that each map still sees well spread hashes
+        int h = key.hashCode();
+        h += (h << 15) ^ 0xffffcd7d;
+        h ^= (h >>> 10);
+        h += (h << 3);
+        h ^= (h >>> 6);
+        h += (h << 2) + (h << 14);
+        h ^= (h >>> 16);
+        return segments[(h >>> segmentShift) & segmentMask];
+    }
+
+    private static final class Entry<V>
+    {
+        final V value;
+        volatile boolean referenced;
+
+        Entry(V value)
+        {
+            this.value = value;
+        }
+
+        void touch()
+        {
+            // avoids writing to a shared cache line on every hit
+            if (!referenced)
+            {
+                referenced = true;
+            }
+        }
+    }
+
+    private static final class Segment<K, V>
+    {
+        final ConcurrentMap<K, Entry<V>> map = new ConcurrentHashMap<K, Entry<V>>();
+        final AtomicInteger size = new AtomicInteger();
+        final ReentrantLock evictionLock = new ReentrantLock();
+
+        /**
+         * The clock hand, guarded by evictionLock
+         */
+        Iterator<Map.Entry<K, Entry<V>>> hand;
+
+        /**
+         * Evicts entries until the segment is within its share of the capacity,
+         * unless another thread is already doing so. The size is checked again after
+         * the lock is released, so entries added by threads that found it held are
+         * not left behind.
+         *
+         * @return the number of entries evicted
+         */
+        int evict(BoundedConcurrentCache<K, V> cache)
+        {
+            int evicted = 0;
+            while (size.get() > cache.segmentCapacity && evictionLock.tryLock())
+            {
+                try
+                {
+                    evicted += evictLocked(cache.segmentCapacity);
+                }
+                finally
+                {
+                    evictionLock.unlock();
+                }
+            }
+            return evicted;
+        }
+
+        private int evictLocked(int capacity)
+        {
+            int evicted = 0;
+            // entries used all the time would keep the hand going round forever
+            int secondChances = 2 * size.get();
+            while (size.get() > capacity)
+            {
+                if (hand == null || !hand.hasNext())
+                {
+                    hand = map.entrySet().iterator();
+                    if (!hand.hasNext())
+                    {
+                        break;
+                    }
+                }
+                Map.Entry<K, Entry<V>> candidate = hand.next();
+                Entry<V> entry = candidate.getValue();
+                if (entry.referenced && secondChances-- > 0)
+                {
+                    entry.referenced = false;
+                }
+                else if (map.remove(candidate.getKey(), entry))
+                {
+                    size.decrementAndGet();
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for any number of producers and consumers, backed by an
+ * array used as a ring. Each slot carries a sequence number telling producers whether
+ * it is free and consumers whether it is filled, so that neither side takes a lock and
+ * producers only contend with each other for the tail, and consumers for the head.
+ * <p/>
+ * It never blocks: {@link #offer(Object)} fails when the queue is full and
+ * {@link #poll()} returns <code>null</code> when it is empty, leaving it to the caller
+ * to decide how to wait. {@link #drainTo(Collection, int)} takes elements in batches.
+ * The capacity is rounded up to a power of two. Iteration is weakly consistent and
+ * does not support removal.
+ */
+public class BoundedRingBuffer<E> extends AbstractQueue<E>
+{
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity the minimum number of elements the queue holds
+     */
+    public BoundedRingBuffer(int capacity)
+    {
+        if (capacity < 1 || capacity > 1 << 30)
+        {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+        {
+            size <<= 1;
+        }
+        mask = size - 1;
+        slots = new AtomicReferenceArray<E>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+        {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return the number of elements the queue holds
+     */
+    public int capacity()
+    {
+        return mask + 1;
+    }
+
+    @Override
+    public boolean offer(E element)
+    {
+        if (element == null)
+        {
+            throw new NullPointerException();
+        }
+        long position = tail.get();
+        while (true)
+        {
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0)
+            {
+                if (tail.compareAndSet(position, position + 1))
+                {
+                    slots.set(index, element);
+                    // publishes the element to consumers
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            }
+            else if (available < 0)
+            {
+                // the slot still holds the element from one lap ago
+                return false;
+            }
+            else
+            {
+                position = tail.get();
+            }
+        }
+    }
+
+    @Override
+    public E poll()
+    {
+        long position = head.get();
+        while (true)
+        {
+            int index = (int) position & mask;
+            long filled = sequences.get(index) - (position + 1);
+            if (filled == 0)
+            {
+                if (head.compareAndSet(position, position + 1))
+                {
+                    E element = slots.get(index);
+                    slots.set(index, null);
+                    // hands the slot over to producers of the next lap
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            }
+            else if (filled < 0)
+            {
+                return null;
+            }
+            else
+            {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Removes up to <code>maxElements</code> elements and adds them to the given
+     * collection.
+     *
+     * @return the number of elements moved
+     */
+    public int drainTo(Collection<? super E> collection, int maxElements)
+    {
+        int drained = 0;
+        E element;
+        while (drained < maxElements && (element = poll()) != null)
+        {
+            collection.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public E peek()
+    {
+        long position = head.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) == position + 1)
+        {
+            return slots.get(index);
+        }
+        return null;
+    }
+
+    @Override
+    public int size()
+    {
+        // reads the head first so that a concurrent poll cannot make the result negative
+        long position = head.get();
+        long size = tail.get() - position;
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return peek() == null;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        List<E> snapshot = new ArrayList<E>();
+        long last = tail.get();
+        for (long position = head.get(); position < last; position++)
+        {
+            int index = (int) position & mask;
+            E element = slots.get(index);
+            if (sequences.get(index) == position + 1 && element != null)
+            {
+                snapshot.add(element);
+            }
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import org.mule.api.config.ThreadingProfile;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An <code>ExecutorService</code> that runs every task in a thread of its own instead
+ * of queueing tasks for a fixed set of pooled threads. On a JVM with virtual threads
+ * those are used, so that tasks blocking on I/O do not hold on to an operating system
+ * thread and many thousands of them can be in flight at once. Elsewhere tasks run on
+ * platform threads that are created on demand and discarded after
+ * {@link ThreadingProfile#getThreadTTL()} of inactivity.
+ * <p/>
+ * {@link ThreadingProfile#getMaxThreadsActive()} bounds the number of tasks in flight.
+ * There is no buffer: a task submitted beyond the bound is handled right away as
+ * the {@link ThreadingProfile#getPoolExhaustedAction() pool exhausted action} says,
+ * where WAIT waits for a running task to finish for at most
+ * {@link ThreadingProfile#getThreadWaitTimeout()} and DISCARD_OLDEST behaves as
+ * DISCARD. A custom rejected execution handler is not supported, as there is no
+ * <code>ThreadPoolExecutor</code> to hand to it.
+ */
+public class LightweightExecutorService extends AbstractExecutorService
+{
+    private static final Log logger = LogFactory.getLog(LightweightExecutorService.class);
+
+    private final ExecutorService delegate;
+    private final TaskPermits permits;
+    private final ClassLoader contextClassLoader;
+    private final boolean virtual;
+
+    /**
+     * @param name prefix of the names of the threads
+     * @param profile bounds and exhausted action
+     * @param useVirtualThreads whether to use virtual threads when the JVM has them
+     */
+    public LightweightExecutorService(String name, ThreadingProfile profile, boolean useVirtualThreads)
+    {
+        this.permits = new TaskPermits(profile.getMaxThreadsActive(), profile);
+        // same as NamedThreadFactory, threads use the class loader of whoever creates the pool
+        this.contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        ExecutorService virtualThreadExecutor = useVirtualThreads ? createVirtualThreadExecutor(name) : null;
+        if (virtualThreadExecutor != null)
+        {
+            this.delegate = virtualThreadExecutor;
+            this.virtual = true;
+        }
+        else
+        {
+            ThreadFactory threadFactory = profile.getThreadFactory() != null
+                                                                            ? profile.getThreadFactory()
+                                                                            : new NamedThreadFactory(name, contextClassLoader);
+            this.delegate = new ThreadPoolExecutor(Math.min(profile.getMaxThreadsIdle(), profile.getMaxThreadsActive()),
+                Integer.MAX_VALUE, profile.getThreadTTL(), TimeUnit.MILLISECONDS,
+                new SynchronousQueue<Runnable>(), threadFactory);
+            this.virtual = false;
+        }
+    }
+
+    /**
+     * @return whether virtual threads are available in this JVM
+     */
+    public static boolean isVirtualThreadsSupported()
+    {
+        try
+        {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Creates a thread per task executor of named virtual threads through reflection,
+     * as they are not part of the JDK this is compiled against.
+     */
+    private static ExecutorService createVirtualThreadExecutor(String name)
+    {
+        if (!isVirtualThreadsSupported())
+        {
+            return null;
+        }
+        try
+        {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder,
+                (name == null ? "lightweight" : name) + ".", 1L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        }
+        catch (Exception e)
+        {
+            logger.warn("Virtual threads are available but could not be used, falling back to platform threads", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return whether tasks run on virtual threads
+     */
+    public boolean isVirtual()
+    {
+        return virtual;
+    }
+
+    /**
+     * @return number of tasks currently running
+     */
+    public int getActiveCount()
+    {
+        return permits.getAcquired();
+    }
+
+    @Override
+    public void execute(final Runnable command)
+    {
+        if (command == null)
+        {
+            throw new NullPointerException();
+        }
+        if (delegate.isShutdown())
+        {
+            throw new RejectedExecutionException("Executor is already shut down");
+        }
+        if (!permits.acquire(command))
+        {
+            return;
+        }
+
+        try
+        {
+            delegate.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Thread thread = Thread.currentThread();
+                    ClassLoader previous = thread.getContextClassLoader();
+                    thread.setContextClassLoader(contextClassLoader);
+                    try
+                    {
+                        command.run();
+                    }
+                    finally
+                    {
+                        thread.setContextClassLoader(previous);
+                        permits.release();
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown()
+    {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import org.mule.api.config.ThreadingProfile;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the tasks an executor that is not a <code>ThreadPoolExecutor</code> has
+ * accepted, and applies the pool exhausted action of a {@link ThreadingProfile} when
+ * the bound is reached, the same way {@link WaitPolicy} and the JDK rejection policies
+ * do for thread pools. DISCARD_OLDEST behaves as DISCARD.
+ */
+class TaskPermits
+{
+    private final int maxTasks;
+    private final Semaphore permits;
+    private final int poolExhaustedAction;
+    private final long threadWaitTimeout;
+
+    TaskPermits(int maxTasks, ThreadingProfile profile)
+    {
+        this.maxTasks = maxTasks;
+        this.permits = new Semaphore(maxTasks);
+        this.poolExhaustedAction = profile.getPoolExhaustedAction();
+        this.threadWaitTimeout = profile.getThreadWaitTimeout();
+    }
+
+    /**
+     * Takes a permit for a task, waiting for one if the exhausted action is WAIT.
+     *
+     * @return <code>true</code> if the task was given a permit and must be executed,
+     *         <code>false</code> if it was already dealt with, either run in the
+     *         calling thread or discarded
+     * @throws RejectedExecutionException if the task is rejected
+     */
+    boolean acquire(Runnable command)
+    {
+        if (permits.tryAcquire() || (poolExhaustedAction == ThreadingProfile.WHEN_EXHAUSTED_WAIT && await()))
+        {
+            return true;
+        }
+        switch (poolExhaustedAction)
+        {
+            case ThreadingProfile.WHEN_EXHAUSTED_RUN :
+                command.run();
+                return false;
+            case ThreadingProfile.WHEN_EXHAUSTED_DISCARD :
+            case ThreadingProfile.WHEN_EXHAUSTED_DISCARD_OLDEST :
+                return false;
+            case ThreadingProfile.WHEN_EXHAUSTED_ABORT :
+                throw new RejectedExecutionException("Executor has no capacity left for " + command);
+            default :
+                throw new RejectedExecutionException(String.format(
+                    "Executor did not accept within %1d MILLISECONDS", threadWaitTimeout));
+        }
+    }
+
+    private boolean await()
+    {
+        try
+        {
+            if (threadWaitTimeout < 0)
+            {
+                permits.acquire();
+                return true;
+            }
+            return permits.tryAcquire(threadWaitTimeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    }
+
+    void release()
+    {
+        permits.release();
+    }
+
+    void release(int count)
+    {
+        if (count > 0)
+        {
+            permits.release(count);
+        }
+    }
+
+    int getAcquired()
+    {
+        return maxTasks - permits.availablePermits();
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import org.mule.api.config.ThreadingProfile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed size thread pool where every thread has a deque of tasks of its own rather
+ * than all threads sharing a single queue, so that threads busy with short CPU bound
+ * tasks do not contend with each other for the head of the queue.
+ * <p/>
+ * Tasks submitted from outside the pool are handed to the threads in turn, at the tail
+ * of their deques. A task submitted by one of the threads of the pool goes to the head
+ * of that thread's own deque and is likely to run next in the same thread, with the
+ * data it works on still in cache. A thread whose deque is empty steals from the tails
+ * of the others before going idle.
+ * <p/>
+ * The pool has {@link ThreadingProfile#getMaxThreadsActive()} threads and holds up to
+ * {@link ThreadingProfile#getMaxBufferSize()} tasks on top of those running. A task
+ * submitted beyond that is handled as the
+ * {@link ThreadingProfile#getPoolExhaustedAction() pool exhausted action} says, where
+ * WAIT waits for at most {@link ThreadingProfile#getThreadWaitTimeout()} as
+ * {@link WaitPolicy} does and DISCARD_OLDEST behaves as DISCARD. A custom rejected
+ * execution handler is not supported, as there is no <code>ThreadPoolExecutor</code> to
+ * hand to it.
+ */
+public class WorkStealingExecutorService extends AbstractExecutorService
+{
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+
+    private static final ThreadLocal<Worker> currentWorker = new ThreadLocal<Worker>();
+
+    private final Worker[] workers;
+    private final TaskPermits permits;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final CountDownLatch terminated;
+
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition workAvailable = idleLock.newCondition();
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+    private volatile int runState = RUNNING;
+
+    /**
+     * @param name prefix of the names of the threads
+     * @param profile number of threads, bounds and exhausted action
+     */
+    public WorkStealingExecutorService(String name, ThreadingProfile profile)
+    {
+        int threads = Math.max(1, profile.getMaxThreadsActive());
+        this.permits = new TaskPermits(threads + Math.max(0, profile.getMaxBufferSize()), profile);
+        this.terminated = new CountDownLatch(threads);
+
+        ThreadFactory threadFactory = profile.getThreadFactory() != null
+                                                                        ? profile.getThreadFactory()
+                                                                        : new NamedThreadFactory(name, Thread.currentThread().getContextClassLoader());
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            workers[i] = new Worker(i);
+        }
+        for (Worker worker : workers)
+        {
+            worker.thread = threadFactory.newThread(worker);
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * @return number of threads of the pool
+     */
+    public int getPoolSize()
+    {
+        return workers.length;
+    }
+
+    /**
+     * @return number of tasks accepted and not yet completed, whether queued or running
+     */
+    public int getTaskCount()
+    {
+        return permits.getAcquired();
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        if (command == null)
+        {
+            throw new NullPointerException();
+        }
+        if (runState != RUNNING)
+        {
+            throw new RejectedExecutionException("Executor is already shut down");
+        }
+        if (!permits.acquire(command))
+        {
+            return;
+        }
+
+        Worker self = currentWorker.get();
+        LinkedBlockingDeque<Runnable> deque;
+        if (self != null && self.getPool() == this)
+        {
+            deque = self.deque;
+            deque.offerFirst(command);
+        }
+        else
+        {
+            deque = workers[(nextWorker.getAndIncrement() & Integer.MAX_VALUE) % workers.length].deque;
+            deque.offerLast(command);
+        }
+
+        if (runState == STOP && deque.remove(command))
+        {
+            permits.release();
+            throw new RejectedExecutionException("Executor is already shut down");
+        }
+        if (idleWorkers.get() > 0)
+        {
+            idleLock.lock();
+            try
+            {
+                workAvailable.signal();
+            }
+            finally
+            {
+                idleLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown()
+    {
+        advanceRunState(SHUTDOWN);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        advanceRunState(STOP);
+        List<Runnable> pending = new ArrayList<Runnable>();
+        for (Worker worker : workers)
+        {
+            worker.deque.drainTo(pending);
+        }
+        permits.release(pending.size());
+        for (Worker worker : workers)
+        {
+            worker.thread.interrupt();
+        }
+        return pending;
+    }
+
+    private void advanceRunState(int state)
+    {
+        idleLock.lock();
+        try
+        {
+            if (runState < state)
+            {
+                runState = state;
+            }
+            workAvailable.signalAll();
+        }
+        finally
+        {
+            idleLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return runState != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return terminated.await(timeout, unit);
+    }
+
+    private class Worker implements Runnable
+    {
+        private final int index;
+        private final LinkedBlockingDeque<Runnable> deque = new LinkedBlockingDeque<Runnable>();
+        private Thread thread;
+
+        private Worker(int index)
+        {
+            this.index = index;
+        }
+
+        private WorkStealingExecutorService getPool()
+        {
+            return WorkStealingExecutorService.this;
+        }
+
+        @Override
+        public void run()
+        {
+            currentWorker.set(this);
+            try
+            {
+                Runnable task;
+                while ((task = nextTask()) != null)
+                {
+                    if (runState != STOP)
+                    {
+                        // an interrupt meant for the previous task must not reach this one
+                        Thread.interrupted();
+                    }
+                    try
+                    {
+                        task.run();
+                    }
+                    catch (Throwable t)
+                    {
+                        // keeps the thread, and with it the deque, alive
+                        Thread current = Thread.currentThread();
+                        current.getUncaughtExceptionHandler().uncaughtException(current, t);
+                    }
+                    finally
+                    {
+                        permits.release();
+                    }
+                }
+            }
+            finally
+            {
+                currentWorker.remove();
+                terminated.countDown();
+            }
+        }
+
+        /**
+         * @return the next task to run, or <code>null</code> once the pool is stopped,
+         *         or shut down and out of tasks
+         */
+        private Runnable nextTask()
+        {
+            while (runState != STOP)
+            {
+                Runnable task = pollAny();
+                if (task != null)
+                {
+                    return task;
+                }
+                if (runState != RUNNING)
+                {
+                    return null;
+                }
+
+                idleLock.lock();
+                idleWorkers.incrementAndGet();
+                try
+                {
+                    // looks again now that submitters know to signal
+                    task = pollAny();
+                    if (task != null)
+                    {
+                        return task;
+                    }
+                    if (runState == RUNNING)
+                    {
+                        workAvailable.await();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    // checks the run state again
+                }
+                finally
+                {
+                    idleWorkers.decrementAndGet();
+                    idleLock.unlock();
+                }
+            }
+            return null;
+        }
+
+        private Runnable pollAny()
+        {
+            Runnable task = deque.pollFirst();
+            for (int i = 1; task == null && i < workers.length; i++)
+            {
+                task = workers[(index + i) % workers.length].deque.pollLast();
+            }
+            return task;
+        }
+    }
+}
@@ -22,6 +22,9 @@ import java.util.Iterator;
  * <li>create a counter</li>
  * <li>retrieve a list of public counters</li>
  * </ul>
+ * Counters can be updated by many threads at once without locking, so they can be
+ * updated for every message. Aggregate counters keep only what they need to compute
+ * their value when it is read.
  */
 public final class CounterFactory
 {
@@ -13,9 +13,8 @@ package org.mule.util.counters.impl;
 import org.mule.util.counters.Counter;
 import org.mule.util.counters.CounterFactory.Type;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public abstract class AbstractCounter implements Counter
 {
@@ -28,7 +27,7 @@ public abstract class AbstractCounter implements Counter
         super();
         this.name = name;
         this.type = type;
-        this.aggregates = Collections.synchronizedList(new ArrayList<AggregateCounter>());
+        this.aggregates = new CopyOnWriteArrayList<AggregateCounter>();
     }
 
     @Override
@@ -63,11 +62,21 @@ public abstract class AbstractCounter implements Counter
         this.aggregates.add(counter);
     }
 
-    protected void propagate()
+    protected boolean hasAggregates()
+    {
+        return !this.aggregates.isEmpty();
+    }
+
+    /**
+     * Lets the aggregates computed from this counter see its new value.
+     *
+     * @param value the value of this counter after the change
+     */
+    protected void propagate(double value)
     {
         for (AggregateCounter counter : this.aggregates)
         {
-            counter.compute();
+            counter.compute(value);
         }
     }
 }
@@ -48,10 +48,20 @@ public abstract class AggregateCounter extends AbstractCounter
         throw new UnsupportedOperationException();
     }
 
-    public final synchronized void compute()
+    /**
+     * Updates this counter with a new value of its base. It may be called by several
+     * threads at once, so implementations must be thread safe; they should not lock,
+     * as the base is usually updated for every message.
+     *
+     * @param baseValue the value of the base after the change
+     */
+    public final void compute(double baseValue)
     {
-        this.doCompute();
-        this.propagate();
+        this.doCompute(baseValue);
+        if (hasAggregates())
+        {
+            this.propagate(nextValue());
+        }
     }
 
     public Counter getBase()
@@ -62,5 +72,5 @@ public abstract class AggregateCounter extends AbstractCounter
     @Override
     public abstract double nextValue();
 
-    public abstract void doCompute();
+    public abstract void doCompute(double baseValue);
 }
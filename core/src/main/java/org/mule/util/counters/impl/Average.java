@@ -14,8 +14,8 @@ import org.mule.util.counters.CounterFactory.Type;
 
 public class Average extends AggregateCounter
 {
-    private double sum = 0;
-    private long times = 0;
+    private final StripedDouble sum = new StripedDouble();
+    private final StripedDouble times = new StripedDouble();
 
     public Average(String name, AbstractCounter base)
     {
@@ -25,13 +25,14 @@ public class Average extends AggregateCounter
     @Override
     public double nextValue()
     {
-        return (times > 0) ? sum / times : 0;
+        double times = this.times.sum();
+        return (times > 0) ? sum.sum() / times : 0;
     }
 
     @Override
-    public void doCompute()
+    public void doCompute(double baseValue)
     {
-        this.sum += getBase().nextValue();
-        this.times++;
+        this.sum.add(baseValue);
+        this.times.add(1.0);
     }
 }
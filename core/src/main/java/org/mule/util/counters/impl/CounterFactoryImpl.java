@@ -13,16 +13,16 @@ package org.mule.util.counters.impl;
 import org.mule.util.counters.Counter;
 import org.mule.util.counters.CounterFactory.Type;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public final class CounterFactoryImpl
 {
-    private static Map<String, AbstractCounter> counters = new HashMap<String, AbstractCounter>();
-    private static List<AbstractCounter> publicCounters = new ArrayList<AbstractCounter>();
+    private static ConcurrentMap<String, AbstractCounter> counters = new ConcurrentHashMap<String, AbstractCounter>();
+    private static List<AbstractCounter> publicCounters = new CopyOnWriteArrayList<AbstractCounter>();
 
     /** Do not instanciate. */
     private CounterFactoryImpl ()
@@ -32,7 +32,7 @@ public final class CounterFactoryImpl
 
     public static Counter getCounter(String name)
     {
-        return counters.get(name);
+        return name == null ? null : counters.get(name);
     }
 
     public static Counter createCounter(String name, String first, String second, Type type, boolean visible)
@@ -150,7 +150,10 @@ public final class CounterFactoryImpl
         {
             throw new IllegalStateException();
         }
-        counters.put(name, counter);
+        if (counters.putIfAbsent(name, counter) != null)
+        {
+            throw new IllegalStateException();
+        }
         if (visible)
         {
             publicCounters.add(counter);
@@ -12,10 +12,27 @@ package org.mule.util.counters.impl;
 
 import org.mule.util.counters.CounterFactory.Type;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 public class Delta extends AggregateCounter
 {
-    private double first = 0.0;
-    private double second = 0.0;
+    /**
+     * The last two values of the base, replaced as a whole so that they are always
+     * read together
+     */
+    private static final class Values
+    {
+        private final double first;
+        private final double second;
+
+        Values(double first, double second)
+        {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private final AtomicReference<Values> values = new AtomicReference<Values>(new Values(0.0, 0.0));
 
     public Delta(String name, AbstractCounter base)
     {
@@ -25,6 +42,9 @@ public class Delta extends AggregateCounter
     @Override
     public double nextValue()
     {
+        Values values = this.values.get();
+        double first = values.first;
+        double second = values.second;
         if (Double.isNaN(first) || Double.isNaN(second))
         {
             return Double.NaN;
@@ -36,9 +56,13 @@ public class Delta extends AggregateCounter
     }
 
     @Override
-    public void doCompute()
+    public void doCompute(double baseValue)
     {
-        first = second;
-        second = this.getBase().nextValue();
+        Values current;
+        do
+        {
+            current = values.get();
+        }
+        while (!values.compareAndSet(current, new Values(current.second, baseValue)));
     }
 }
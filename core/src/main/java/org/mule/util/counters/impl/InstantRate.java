@@ -12,11 +12,29 @@ package org.mule.util.counters.impl;
 
 import org.mule.util.counters.CounterFactory.Type;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 public class InstantRate extends AggregateCounter
 {
-    private double firstTime;
-    private double lastTime;
-    private double value;
+    /**
+     * The times of the last two changes of the base and its last value, replaced as a
+     * whole so that they are always read together
+     */
+    private static final class Sample
+    {
+        private final double firstTime;
+        private final double lastTime;
+        private final double value;
+
+        Sample(double firstTime, double lastTime, double value)
+        {
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReference<Sample> sample = new AtomicReference<Sample>(new Sample(0, 0, 0));
 
     public InstantRate(String name, AbstractCounter base)
     {
@@ -26,21 +44,26 @@ public class InstantRate extends AggregateCounter
     @Override
     public double nextValue()
     {
-        if (firstTime == 0 || firstTime == lastTime)
+        Sample sample = this.sample.get();
+        if (sample.firstTime == 0 || sample.firstTime == sample.lastTime)
         {
             return Double.NaN;
         }
         else
         {
-            return value / (lastTime - firstTime) * 1000.0;
+            return sample.value / (sample.lastTime - sample.firstTime) * 1000.0;
         }
     }
 
     @Override
-    public void doCompute()
+    public void doCompute(double baseValue)
     {
-        firstTime = lastTime;
-        lastTime = System.currentTimeMillis();
-        value = getBase().nextValue();
+        long now = System.currentTimeMillis();
+        Sample current;
+        do
+        {
+            current = sample.get();
+        }
+        while (!sample.compareAndSet(current, new Sample(current.lastTime, now, baseValue)));
     }
 }
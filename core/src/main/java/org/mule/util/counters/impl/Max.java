@@ -12,9 +12,11 @@ package org.mule.util.counters.impl;
 
 import org.mule.util.counters.CounterFactory.Type;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class Max extends AggregateCounter
 {
-    private double max = Double.MIN_VALUE;
+    private final AtomicLong max = new AtomicLong(Double.doubleToRawLongBits(Double.MIN_VALUE));
 
     public Max(String name, AbstractCounter base)
     {
@@ -24,17 +26,22 @@ public class Max extends AggregateCounter
     @Override
     public double nextValue()
     {
-        return max;
+        return Double.longBitsToDouble(max.get());
     }
 
     @Override
-    public void doCompute()
+    public void doCompute(double baseValue)
     {
-        double next = this.getBase().nextValue();
-
-        if (Double.isNaN(max) || (next > max))
+        long current = max.get();
+        double max = Double.longBitsToDouble(current);
+        while (Double.isNaN(max) || (baseValue > max))
         {
-            max = next;
+            if (this.max.compareAndSet(current, Double.doubleToRawLongBits(baseValue)))
+            {
+                return;
+            }
+            current = this.max.get();
+            max = Double.longBitsToDouble(current);
         }
     }
 }
@@ -12,9 +12,11 @@ package org.mule.util.counters.impl;
 
 import org.mule.util.counters.CounterFactory.Type;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class Min extends AggregateCounter
 {
-    private double min = Double.MAX_VALUE;
+    private final AtomicLong min = new AtomicLong(Double.doubleToRawLongBits(Double.MAX_VALUE));
 
     public Min(String name, AbstractCounter base)
     {
@@ -24,17 +26,22 @@ public class Min extends AggregateCounter
     @Override
     public double nextValue()
     {
-        return min;
+        return Double.longBitsToDouble(min.get());
     }
 
     @Override
-    public void doCompute()
+    public void doCompute(double baseValue)
     {
-        double next = getBase().nextValue();
-
-        if (Double.isNaN(min) || (next < min))
+        long current = min.get();
+        double min = Double.longBitsToDouble(current);
+        while (Double.isNaN(min) || (baseValue < min))
         {
-            min = next;
+            if (this.min.compareAndSet(current, Double.doubleToRawLongBits(baseValue)))
+            {
+                return;
+            }
+            current = this.min.get();
+            min = Double.longBitsToDouble(current);
         }
     }
 }
@@ -12,9 +12,14 @@ package org.mule.util.counters.impl;
 
 import org.mule.util.counters.CounterFactory.Type;
 
+/**
+ * A counter that threads update without locking or contending with each other, see
+ * {@link StripedDouble}. The value returned by an update is read right after it,
+ * so it may include updates made by other threads at the same time.
+ */
 public class Number extends AbstractCounter
 {
-    private double value = 0.0;
+    private final StripedDouble value = new StripedDouble();
 
     public Number(String name)
     {
@@ -22,39 +27,36 @@ public class Number extends AbstractCounter
     }
 
     @Override
-    public synchronized double increment()
+    public double increment()
     {
-        this.value++;
-        propagate();
-        return this.value;
+        return incrementBy(1.0);
     }
 
     @Override
-    public synchronized double incrementBy(double value)
+    public double incrementBy(double value)
     {
-        this.value += value;
-        propagate();
-        return this.value;
+        this.value.add(value);
+        double next = this.value.sum();
+        propagate(next);
+        return next;
     }
 
     @Override
-    public synchronized double decrement()
+    public double decrement()
     {
-        this.value--;
-        propagate();
-        return this.value;
+        return incrementBy(-1.0);
     }
 
     @Override
-    public synchronized void setRawValue(double value)
+    public void setRawValue(double value)
     {
-        this.value = value;
-        propagate();
+        this.value.set(value);
+        propagate(value);
     }
 
     @Override
-    public synchronized double nextValue()
+    public double nextValue()
     {
-        return this.value;
+        return this.value.sum();
     }
 }
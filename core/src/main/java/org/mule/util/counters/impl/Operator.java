@@ -13,11 +13,13 @@ package org.mule.util.counters.impl;
 import org.mule.util.counters.Counter;
 import org.mule.util.counters.CounterFactory.Type;
 
+/**
+ * Computes its value from the current values of both bases when it is read, so
+ * updating a base costs nothing.
+ */
 public class Operator extends AggregateCounter
 {
     private final Counter base2;
-    private double val1;
-    private double val2;
 
     public Operator(String name, AbstractCounter base, AbstractCounter base2, Type type)
     {
@@ -30,6 +32,8 @@ public class Operator extends AggregateCounter
     public double nextValue()
     {
         Type type = this.getType();
+        double val1 = this.getBase().nextValue();
+        double val2 = base2.nextValue();
 
         if (type == Type.PLUS)
         {
@@ -56,9 +60,8 @@ public class Operator extends AggregateCounter
     }
 
     @Override
-    public void doCompute()
+    public void doCompute(double baseValue)
     {
-        this.val1 = this.getBase().nextValue();
-        this.val2 = base2.nextValue();
+        // computed when read
     }
 }
@@ -13,44 +13,31 @@ package org.mule.util.counters.impl;
 import org.mule.util.counters.CounterFactory.Type;
 
 import java.security.InvalidParameterException;
-import java.util.Iterator;
-import java.util.LinkedList;
-
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The sum of the values of its base per unit of time, over a sliding window of the
+ * last <code>length</code> units.
+ * <p/>
+ * Values are added to a fixed ring of buckets, one per unit of time, so the memory
+ * used does not grow with the number of updates and the rate is only computed when
+ * it is read. Each {@link StripedDouble} cell has its own ring, so threads updating
+ * the base at the same time do not contend on the bucket of the current unit.
+ */
 public class RatePerUnit extends AggregateCounter
 {
-    private static class Sample
-    {
-        private double value;
-        private long time;
-
-        public Sample(double value, long time)
-        {
-            this.value = value;
-            this.time = time;
-        }
-
-        /**
-         * @return the time of the sample
-         */
-        public long getTime()
-        {
-            return time;
-        }
-
-        /**
-         * @return the value of the sample
-         */
-        public double getValue()
-        {
-            return value;
-        }
-    }
+    private static final long EMPTY = -1;
 
-    private final LinkedList<Sample> samples;
     private final long unit;
     private final long length;
     private final long baseTime;
 
+    // buckets per ring, one per unit in the window
+    private final int size;
+    // for each cell, the time of each bucket and the sum of the values added to it
+    private final AtomicLongArray times;
+    private final AtomicLongArray values;
+
     public RatePerUnit(String name, String p, Type type, AbstractCounter base)
     {
         super(name, type, base);
@@ -92,54 +79,61 @@ public class RatePerUnit extends AggregateCounter
             length = newLength;
         }
 
-        samples = new LinkedList<Sample>();
+        size = (int) length + 1;
+        times = new AtomicLongArray(StripedDouble.CELLS * size);
+        values = new AtomicLongArray(StripedDouble.CELLS * size);
+        for (int i = 0; i < times.length(); i++)
+        {
+            times.set(i, EMPTY);
+        }
         baseTime = System.currentTimeMillis();
     }
 
     @Override
     public double nextValue()
     {
-        if (samples.isEmpty())
-        {
-            return 0.0;
-        }
-        else
+        double total = 0.0;
+        long current = getTime();
+        long oldest = current;
+        boolean empty = true;
+        for (int i = 0; i < times.length(); i++)
         {
-            double total = 0.0;
-            long current = getTime();
-            Iterator<Sample> it = samples.iterator();
-            Sample sample = null;
-            while (it.hasNext())
+            long time = times.get(i);
+            if (time != EMPTY && time <= current && current - time <= length)
             {
-                sample = it.next();
-                if (current - sample.time > length)
-                {
-                    break;
-                }
-                total += sample.value;
+                total += Double.longBitsToDouble(values.get(i));
+                oldest = Math.min(oldest, time);
+                empty = false;
             }
-            return total / (1 + current - (sample != null ? sample.time : 0));
         }
+        return empty ? 0.0 : total / (1 + current - oldest);
     }
 
     @Override
-    public void doCompute()
+    public void doCompute(double baseValue)
     {
-        Sample l = samples.isEmpty() ? null : (Sample) samples.getFirst();
         long t = getTime();
-        if (l == null || t > l.time)
-        {
-            Sample s = new Sample(this.getBase().nextValue(), t);
-            samples.addFirst(s);
-        }
-        else
+        int index = StripedDouble.cellIndex() * size + (int) (t % size);
+        long time = times.get(index);
+        double value = baseValue;
+        if (time < t)
         {
-            l.value += getBase().nextValue();
+            // the bucket holds an older unit, which has left the window. Threads that
+            // see the new time add to the bucket as soon as it is set, so rather than
+            // overwriting their values, take away the sum of the older unit
+            double stale = Double.longBitsToDouble(values.get(index));
+            if (times.compareAndSet(index, time, t))
+            {
+                value -= stale;
+            }
         }
-        while (samples.size() > length)
+        long current;
+        do
         {
-            samples.removeLast();
+            current = values.get(index);
         }
+        while (!values.compareAndSet(index, current,
+            Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value)));
     }
 
     protected long getTime()
@@ -0,0 +1,95 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.counters.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A double that many threads can add to without contending, in the manner of
+ * <code>LongAdder</code>: each thread adds to one of a few cells picked by its id,
+ * and the cells are only summed when the value is read. Cells are spaced a cache
+ * line apart so that threads adding to different cells do not share one.
+ * <p/>
+ * The sum is not a snapshot: it may include only some of the additions made while
+ * it is read, and {@link #set(double)} may lose additions made at the same time.
+ */
+final class StripedDouble
+{
+    private static final int MAX_CELLS = 8;
+
+    // longs per cell, so that each cell is on its own 64 byte cache line
+    private static final int STRIDE = 8;
+
+    static final int CELLS;
+
+    static
+    {
+        int count = 1;
+        while (count < Math.min(Runtime.getRuntime().availableProcessors(), MAX_CELLS))
+        {
+            count <<= 1;
+        }
+        CELLS = count;
+    }
+
+    private final AtomicLongArray cells = new AtomicLongArray(CELLS * STRIDE);
+
+    StripedDouble()
+    {
+        this(0.0);
+    }
+
+    StripedDouble(double value)
+    {
+        if (value != 0.0)
+        {
+            set(value);
+        }
+    }
+
+    /**
+     * @return the cell the current thread adds to, from 0 to {@link #CELLS} - 1
+     */
+    static int cellIndex()
+    {
+        return (int) Thread.currentThread().getId() & (CELLS - 1);
+    }
+
+    void add(double value)
+    {
+        int index = cellIndex() * STRIDE;
+        long current;
+        do
+        {
+            current = cells.get(index);
+        }
+        while (!cells.compareAndSet(index, current,
+            Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value)));
+    }
+
+    double sum()
+    {
+        double sum = 0.0;
+        for (int i = 0; i < CELLS; i++)
+        {
+            sum += Double.longBitsToDouble(cells.get(i * STRIDE));
+        }
+        return sum;
+    }
+
+    void set(double value)
+    {
+        for (int i = 1; i < CELLS; i++)
+        {
+            cells.set(i * STRIDE, 0L);
+        }
+        cells.set(0, Double.doubleToRawLongBits(value));
+    }
+}
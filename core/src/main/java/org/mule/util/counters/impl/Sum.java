@@ -14,7 +14,7 @@ import org.mule.util.counters.CounterFactory.Type;
 
 public class Sum extends AggregateCounter
 {
-    private double value;
+    private final StripedDouble value = new StripedDouble();
 
     public Sum(String name, AbstractCounter base)
     {
@@ -24,12 +24,12 @@ public class Sum extends AggregateCounter
     @Override
     public double nextValue()
     {
-        return this.value;
+        return this.value.sum();
     }
 
     @Override
-    public void doCompute()
+    public void doCompute(double baseValue)
     {
-        this.value += getBase().nextValue();
+        this.value.add(baseValue);
     }
 }
@@ -12,12 +12,30 @@ package org.mule.util.counters.impl;
 
 import org.mule.util.counters.CounterFactory.Type;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 public class TimeAverage extends AggregateCounter
 {
-    private double sum = 0.0;
-    private double lastValue = 0.0;
+    /**
+     * The integral of the base over time up to its last change, replaced as a whole
+     * so that it is always read with the value and time of that change
+     */
+    private static final class Integral
+    {
+        private final double sum;
+        private final double lastValue;
+        private final long lastTime;
+
+        Integral(double sum, double lastValue, long lastTime)
+        {
+            this.sum = sum;
+            this.lastValue = lastValue;
+            this.lastTime = lastTime;
+        }
+    }
+
     private final long firstTime = System.currentTimeMillis();
-    private long lastTime = firstTime;
+    private final AtomicReference<Integral> integral = new AtomicReference<Integral>(new Integral(0.0, 0.0, firstTime));
 
     public TimeAverage(String name, AbstractCounter base)
     {
@@ -28,15 +46,22 @@ public class TimeAverage extends AggregateCounter
     public double nextValue()
     {
         long current = System.currentTimeMillis();
-        return (sum + lastValue * (current - this.lastTime)) / (current - firstTime);
+        Integral integral = this.integral.get();
+        return (integral.sum + integral.lastValue * (current - integral.lastTime)) / (current - firstTime);
     }
 
     @Override
-    public void doCompute()
+    public void doCompute(double baseValue)
     {
-        long current = System.currentTimeMillis();
-        this.sum += this.lastValue * (current - this.lastTime);
-        this.lastValue = getBase().nextValue();
-        this.lastTime = current;
+        long now = System.currentTimeMillis();
+        Integral last;
+        long current;
+        do
+        {
+            last = integral.get();
+            current = Math.max(now, last.lastTime);
+        }
+        while (!integral.compareAndSet(last, new Integral(last.sum + last.lastValue * (current - last.lastTime),
+            baseValue, current)));
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.pool;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free pool of objects that are expensive to create but can be reset and
+ * used again, such as a <code>Deflater</code> or an initialised
+ * <code>Cipher</code>.
+ * <p/>
+ * Unlike an {@link ObjectPool} it never makes a caller wait: when no idle object is
+ * available a new one is created, and objects returned while the pool already
+ * holds <code>maxIdle</code> of them are destroyed. Objects are not tied to the
+ * thread that borrowed them, so a stream may borrow one where it is created and
+ * return it from whichever thread reads it to the end.
+ */
+public abstract class RecyclingPool<T>
+{
+    private final Queue<T> idle = new ConcurrentLinkedQueue<T>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int maxIdle;
+
+    /**
+     * @param maxIdle the maximum number of objects kept for reuse
+     */
+    public RecyclingPool(int maxIdle)
+    {
+        if (maxIdle < 0)
+        {
+            throw new IllegalArgumentException("maxIdle must not be negative: " + maxIdle);
+        }
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @return an idle object, or a new one if there is none
+     */
+    public T borrowObject()
+    {
+        T object = idle.poll();
+        if (object != null)
+        {
+            idleCount.decrementAndGet();
+            return object;
+        }
+        return create();
+    }
+
+    /**
+     * Resets an object that is no longer used and keeps it for reuse, unless the pool
+     * is full or resetting it fails.
+     */
+    public void returnObject(T object)
+    {
+        if (idleCount.incrementAndGet() > maxIdle)
+        {
+            idleCount.decrementAndGet();
+            destroy(object);
+            return;
+        }
+        try
+        {
+            reset(object);
+        }
+        catch (RuntimeException e)
+        {
+            idleCount.decrementAndGet();
+            destroy(object);
+            return;
+        }
+        idle.offer(object);
+    }
+
+    /**
+     * Destroys an object that was left in a state it cannot be reset from, such as a
+     * stream that was closed before it was read to the end.
+     */
+    public void invalidateObject(T object)
+    {
+        destroy(object);
+    }
+
+    /**
+     * @return the number of objects kept for reuse
+     */
+    public int getNumIdle()
+    {
+        return idleCount.get();
+    }
+
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    protected abstract T create();
+
+    /**
+     * Prepares a returned object to be borrowed again. Does nothing by default.
+     */
+    protected void reset(T object)
+    {
+        // no-op
+    }
+
+    /**
+     * Releases the resources held by an object that is not kept. Does nothing by
+     * default.
+     */
+    protected void destroy(T object)
+    {
+        // no-op
+    }
+}
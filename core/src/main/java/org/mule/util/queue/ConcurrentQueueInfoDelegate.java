@@ -0,0 +1,344 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A transient QueueInfoDelegate whose enqueue and dequeue operations do not take a
+ * lock. Members are kept in a non-blocking {@link ConcurrentLinkedQueue} and the
+ * capacity is enforced by reserving room on an atomic counter, so producers and
+ * consumers only synchronize with each other when they have to wait for a member
+ * or for room to become available.
+ */
+public class ConcurrentQueueInfoDelegate implements TransientQueueInfoDelegate
+{
+    protected final int capacity;
+
+    private final ConcurrentLinkedQueue<Serializable> queue = new ConcurrentLinkedQueue<Serializable>();
+
+    /**
+     * Members restored with {@link #untake(Serializable)}, handed out before the ones
+     * in {@link #queue}. Guarded by itself.
+     */
+    private final LinkedList<Serializable> untaken = new LinkedList<Serializable>();
+    private volatile boolean hasUntaken;
+
+    /**
+     * Number of members in the queue, including room reserved by producers that are
+     * about to add a member
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition notEmpty = waitLock.newCondition();
+    private final Condition notFull = waitLock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    public ConcurrentQueueInfoDelegate(int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void putNow(Serializable o)
+    {
+        size.incrementAndGet();
+        queue.offer(o);
+        signalNotEmpty(false);
+    }
+
+    @Override
+    public boolean offer(Serializable o, int room, long timeout) throws InterruptedException
+    {
+        if (Thread.interrupted())
+        {
+            throw new InterruptedException();
+        }
+        if (capacity > 0)
+        {
+            if (capacity <= room)
+            {
+                throw new IllegalStateException("Can not add more objects than the capacity in one time");
+            }
+            if (!reserveRoom(o != null, capacity - room, timeout))
+            {
+                return false;
+            }
+        }
+        else if (o != null)
+        {
+            size.incrementAndGet();
+        }
+
+        if (o != null)
+        {
+            queue.offer(o);
+            signalNotEmpty(false);
+        }
+        return true;
+    }
+
+    @Override
+    public Serializable poll(long timeout) throws InterruptedException
+    {
+        if (Thread.interrupted())
+        {
+            throw new InterruptedException();
+        }
+
+        Serializable o = pollNow();
+        if (o != null || timeout <= 0L)
+        {
+            return o;
+        }
+
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        waitLock.lockInterruptibly();
+        waitingConsumers.incrementAndGet();
+        try
+        {
+            // re-check after registering as a waiter so a concurrent put cannot be missed
+            while ((o = pollNow()) == null)
+            {
+                if (nanos <= 0L)
+                {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return o;
+        }
+        finally
+        {
+            waitingConsumers.decrementAndGet();
+            waitLock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Serializable> items, int maxElements, long timeout) throws InterruptedException
+    {
+        if (maxElements <= 0)
+        {
+            return 0;
+        }
+        Serializable o = poll(timeout);
+        if (o == null)
+        {
+            return 0;
+        }
+
+        items.add(o);
+        int drained = 1;
+        while (drained < maxElements && (o = pollNow()) != null)
+        {
+            items.add(o);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public Serializable peek() throws InterruptedException
+    {
+        if (Thread.interrupted())
+        {
+            throw new InterruptedException();
+        }
+        if (hasUntaken)
+        {
+            synchronized (untaken)
+            {
+                if (!untaken.isEmpty())
+                {
+                    return untaken.getFirst();
+                }
+            }
+        }
+        return queue.peek();
+    }
+
+    @Override
+    public void untake(Serializable item) throws InterruptedException
+    {
+        if (Thread.interrupted())
+        {
+            throw new InterruptedException();
+        }
+        synchronized (untaken)
+        {
+            untaken.addFirst(item);
+            size.incrementAndGet();
+            hasUntaken = true;
+        }
+        signalNotEmpty(false);
+    }
+
+    @Override
+    public int getSize()
+    {
+        return size.get();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Serializable> items)
+    {
+        boolean result = false;
+        for (Serializable item : items)
+        {
+            size.incrementAndGet();
+            result |= queue.offer(item);
+        }
+        signalNotEmpty(true);
+        return result;
+    }
+
+    /**
+     * Removes all members from this queue, in order, and returns them. Used to hand
+     * the members over when the queue gets a new delegate.
+     */
+    public List<Serializable> drain()
+    {
+        List<Serializable> result = new ArrayList<Serializable>();
+        Serializable o;
+        while ((o = pollNow()) != null)
+        {
+            result.add(o);
+        }
+        return result;
+    }
+
+    private Serializable pollNow()
+    {
+        Serializable o = null;
+        if (hasUntaken)
+        {
+            synchronized (untaken)
+            {
+                o = untaken.poll();
+                hasUntaken = !untaken.isEmpty();
+            }
+        }
+        if (o == null)
+        {
+            o = queue.poll();
+        }
+        if (o != null)
+        {
+            size.decrementAndGet();
+            signalNotFull();
+        }
+        return o;
+    }
+
+    /**
+     * Waits until fewer than <code>limit</code> members are in the queue and, if
+     * <code>reserve</code> is set, atomically claims the room for one member.
+     */
+    private boolean reserveRoom(boolean reserve, int limit, long timeout) throws InterruptedException
+    {
+        if (tryReserve(reserve, limit))
+        {
+            return true;
+        }
+        if (timeout <= 0L)
+        {
+            return false;
+        }
+
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        waitLock.lockInterruptibly();
+        waitingProducers.incrementAndGet();
+        try
+        {
+            while (!tryReserve(reserve, limit))
+            {
+                if (nanos <= 0L)
+                {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        }
+        finally
+        {
+            waitingProducers.decrementAndGet();
+            waitLock.unlock();
+        }
+    }
+
+    private boolean tryReserve(boolean reserve, int limit)
+    {
+        while (true)
+        {
+            int current = size.get();
+            if (current >= limit)
+            {
+                return false;
+            }
+            if (!reserve || size.compareAndSet(current, current + 1))
+            {
+                return true;
+            }
+        }
+    }
+
+    private void signalNotEmpty(boolean all)
+    {
+        if (waitingConsumers.get() > 0)
+        {
+            waitLock.lock();
+            try
+            {
+                if (all)
+                {
+                    notEmpty.signalAll();
+                }
+                else
+                {
+                    notEmpty.signal();
+                }
+            }
+            finally
+            {
+                waitLock.unlock();
+            }
+        }
+    }
+
+    private void signalNotFull()
+    {
+        if (waitingProducers.get() > 0)
+        {
+            waitLock.lock();
+            try
+            {
+                // producers may be waiting for different amounts of room
+                notFull.signalAll();
+            }
+            finally
+            {
+                waitLock.unlock();
+            }
+        }
+    }
+}
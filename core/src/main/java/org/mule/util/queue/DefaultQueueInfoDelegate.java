@@ -100,6 +100,38 @@ public class DefaultQueueInfoDelegate implements TransientQueueInfoDelegate
         }
     }
 
+    @Override
+    public int drainTo(Collection<? super Serializable> items, int maxElements, long timeout) throws InterruptedException
+    {
+        if (Thread.interrupted())
+        {
+            throw new InterruptedException();
+        }
+        synchronized (list)
+        {
+            long l1 = timeout > 0L ? System.currentTimeMillis() : 0L;
+            long l2 = timeout;
+            while (list.isEmpty())
+            {
+                if (l2 <= 0L)
+                {
+                    return 0;
+                }
+                list.wait(l2);
+                l2 = timeout - (System.currentTimeMillis() - l1);
+            }
+
+            int drained = 0;
+            while (drained < maxElements && !list.isEmpty())
+            {
+                items.add(list.removeFirst());
+                drained++;
+            }
+            list.notifyAll();
+            return drained;
+        }
+    }
+
     @Override
     public Serializable peek() throws InterruptedException
     {
@@ -14,6 +14,7 @@ import org.mule.api.NamedObject;
 import org.mule.api.store.ObjectStoreException;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 /**
  * <code>Queue</code> TODO
@@ -45,4 +46,13 @@ public interface Queue extends NamedObject
 
     boolean offer(Serializable object, long timeout) throws InterruptedException, ObjectStoreException;
 
+    /**
+     * Removes up to <code>maxElements</code> objects from this queue and adds them,
+     * in order, to the given collection. Waits up to <code>timeout</code> milliseconds
+     * for the first object to become available, but not for the following ones.
+     *
+     * @return the number of objects added to the collection
+     */
+    int drainTo(Collection<? super Serializable> collection, int maxElements, long timeout) throws InterruptedException;
+
 }
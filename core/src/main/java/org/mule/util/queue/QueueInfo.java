@@ -16,21 +16,22 @@ import org.mule.api.store.ObjectStore;
 import org.mule.api.store.ObjectStoreException;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Stores information about a Queue
  */
 public class QueueInfo
 {
-    private QueueConfiguration config;
+    private volatile QueueConfiguration config;
     private String name;
-    private QueueInfoDelegate delegate;
+    private volatile QueueInfoDelegate delegate;
     private MuleContext muleContext;
-    private boolean delegateCanTake;
+    private volatile boolean delegateCanTake;
 
-    private static Map<Class<? extends ObjectStore>, QueueInfoDelegateFactory> delegateFactories = new HashMap<Class<? extends ObjectStore>, QueueInfoDelegateFactory>();
+    private static Map<Class<? extends ObjectStore>, QueueInfoDelegateFactory> delegateFactories = new ConcurrentHashMap<Class<? extends ObjectStore>, QueueInfoDelegateFactory>();
 
     public QueueInfo(String name, MuleContext muleContext, QueueConfiguration config)
     {
@@ -49,7 +50,7 @@ public class QueueInfo
         setConfigAndDelegate(config);
     }
 
-    private void setConfigAndDelegate(QueueConfiguration config)
+    private synchronized void setConfigAndDelegate(QueueConfiguration config)
     {
         boolean hadConfig = this.config != null;
         this.config = config;
@@ -62,12 +63,16 @@ public class QueueInfo
         }
         if (delegate == null || (config != null && !hadConfig))
         {
-            QueueInfoDelegate newDelegate = factory != null ? factory.createDelegate(this, muleContext) : new DefaultQueueInfoDelegate(capacity);
+            QueueInfoDelegate newDelegate = factory != null ? factory.createDelegate(this, muleContext) : new ConcurrentQueueInfoDelegate(capacity);
             delegateCanTake = newDelegate instanceof TakingQueueInfoDelegate;
-            if (delegate != null && delegate instanceof DefaultQueueInfoDelegate)
+            if (delegate instanceof DefaultQueueInfoDelegate)
             {
                 newDelegate.addAll(((DefaultQueueInfoDelegate) delegate).list);
             }
+            else if (delegate instanceof ConcurrentQueueInfoDelegate)
+            {
+                newDelegate.addAll(((ConcurrentQueueInfoDelegate) delegate).drain());
+            }
             delegate = newDelegate;
         }
     }
@@ -107,6 +112,12 @@ public class QueueInfo
         return delegate.poll(timeout);
     }
 
+    public int drainTo(Collection<? super Serializable> items, int maxElements, long timeout)
+        throws InterruptedException
+    {
+        return delegate.drainTo(items, maxElements, timeout);
+    }
+
     public Serializable peek()
         throws InterruptedException
     {
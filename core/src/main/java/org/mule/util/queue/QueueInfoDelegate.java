@@ -34,6 +34,14 @@ public interface QueueInfoDelegate
      */
     Serializable poll(long timeout) throws InterruptedException;
 
+    /**
+     * Remove up to maxElements members from the front of the queue and add them to
+     * the collection, waiting up to timeout for the first one only
+     *
+     * @return the number of members added to the collection
+     */
+    int drainTo(Collection<? super Serializable> items, int maxElements, long timeout) throws InterruptedException;
+
     /**
      * return, but do not remove, the first member of the queue
      */
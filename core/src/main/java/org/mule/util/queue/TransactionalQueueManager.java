@@ -23,11 +23,11 @@ import org.mule.util.xa.ResourceManagerException;
 import org.mule.util.xa.ResourceManagerSystemException;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import javax.transaction.xa.XAResource;
 
@@ -39,15 +39,15 @@ import javax.transaction.xa.XAResource;
  */
 public class TransactionalQueueManager extends AbstractXAResourceManager implements QueueManager, MuleContextAware
 {
-    private Map<String, QueueInfo> queues = new HashMap<String, QueueInfo>();
+    private ConcurrentMap<String, QueueInfo> queues = new ConcurrentHashMap<String, QueueInfo>();
 
-    private QueueConfiguration defaultQueueConfiguration;
+    private volatile QueueConfiguration defaultQueueConfiguration;
     private MuleContext muleContext;
-    private Set<QueueStore> queueObjectStores = new HashSet<QueueStore>();
-    private Set<ListableObjectStore> listableObjectStores = new HashSet<ListableObjectStore>();
+    private Set<QueueStore> queueObjectStores = new CopyOnWriteArraySet<QueueStore>();
+    private Set<ListableObjectStore> listableObjectStores = new CopyOnWriteArraySet<ListableObjectStore>();
 
     @Override
-    public synchronized QueueSession getQueueSession()
+    public QueueSession getQueueSession()
     {
         return new TransactionalQueueSession(this, this);
     }
@@ -66,23 +66,27 @@ public class TransactionalQueueManager extends AbstractXAResourceManager impleme
         addStore(config.objectStore);
     }
 
-    protected synchronized QueueInfo getQueue(String name)
+    protected QueueInfo getQueue(String name)
     {
         return getQueue(name, defaultQueueConfiguration);
     }
 
-    protected synchronized QueueInfo getQueue(String name, QueueConfiguration config)
+    protected QueueInfo getQueue(String name, QueueConfiguration config)
     {
         QueueInfo q = queues.get(name);
         if (q == null)
         {
-            q = new QueueInfo(name, muleContext, config);
-            queues.put(name, q);
+            QueueInfo newQueue = new QueueInfo(name, muleContext, config);
+            q = queues.putIfAbsent(name, newQueue);
+            if (q == null)
+            {
+                q = newQueue;
+            }
         }
         return q;
     }
 
-    public synchronized QueueInfo getQueueInfo(String name)
+    public QueueInfo getQueueInfo(String name)
     {
         QueueInfo q = queues.get(name);
         return q == null ? q : new QueueInfo(q);
@@ -109,10 +113,7 @@ public class TransactionalQueueManager extends AbstractXAResourceManager impleme
     protected boolean shutdown(int mode, long timeoutMSecs)
     {
         // Clear queues on shutdown to avoid duplicate entries on warm restarts (MULE-3678)
-        synchronized (this)
-        {
-            queues.clear();
-        }
+        queues.clear();
         return super.shutdown(mode, timeoutMSecs);
     }
 
@@ -218,7 +219,7 @@ public class TransactionalQueueManager extends AbstractXAResourceManager impleme
         }
     }
 
-    protected synchronized void findAllQueueStores()
+    protected void findAllQueueStores()
     {
         if (muleContext != null)
         {
@@ -16,6 +16,9 @@ import org.mule.util.xa.AbstractXAResourceManager;
 import org.mule.util.xa.DefaultXASession;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -160,6 +163,126 @@ class TransactionalQueueSession extends DefaultXASession implements QueueSession
             }
         }
 
+        @Override
+        public int drainTo(Collection<? super Serializable> collection, int maxElements, long timeout) throws InterruptedException
+        {
+            if (maxElements <= 0)
+            {
+                return 0;
+            }
+            if ((localContext != null && !queue.isQueueTransactional()) || queue.canTakeFromStore())
+            {
+                // items have to be taken one by one from the transaction context or the store
+                int drained = 0;
+                long pollTimeout = timeout;
+                Serializable item;
+                while (drained < maxElements && (item = poll(pollTimeout)) != null)
+                {
+                    collection.add(item);
+                    drained++;
+                    pollTimeout = 0;
+                }
+                return drained;
+            }
+
+            try
+            {
+                List<Serializable> ids = new ArrayList<Serializable>(Math.min(maxElements, 64));
+                queue.drainTo(ids, maxElements, timeout);
+                int drained = 0;
+                for (int i = 0; i < ids.size(); i++)
+                {
+                    Serializable id = ids.get(i);
+                    Serializable item;
+                    try
+                    {
+                        item = queueManager.doLoad(queue, id);
+                        if (item != null)
+                        {
+                            queueManager.doRemove(queue, id);
+                        }
+                    }
+                    catch (ObjectStoreException e)
+                    {
+                        // put back the ids not taken yet, in their order, so that no
+                        // item is lost
+                        untakeAll(ids, i);
+                        if (drained == 0)
+                        {
+                            throw e;
+                        }
+                        logger.warn("Failed to take an item from queue " + queue.getName()
+                                    + ", returning the " + drained + " taken before it", e);
+                        return drained;
+                    }
+                    item = postProcessIfNeeded(item);
+                    if (item != null)
+                    {
+                        collection.add(item);
+                        drained++;
+                    }
+                }
+                return drained;
+            }
+            catch (InterruptedException iex)
+            {
+                if (queueManager.getMuleContext().isStopping())
+                {
+                    throw iex;
+                }
+                // if stopping, ignore
+                return 0;
+            }
+            catch (ObjectStoreException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * Puts back the ids from <code>from</code> on, last first, so that they keep
+         * their order. Every id is tried even if putting back another one fails, as
+         * the items taken before them have already been handed over.
+         */
+        private void untakeAll(List<Serializable> ids, int from)
+        {
+            boolean interrupted = false;
+            for (int j = ids.size() - 1; j >= from; j--)
+            {
+                Serializable id = ids.get(j);
+                try
+                {
+                    queue.untake(id);
+                }
+                catch (InterruptedException e)
+                {
+                    // the interrupt flag is cleared now, and restored once done
+                    interrupted = true;
+                    untakeQuietly(id);
+                }
+                catch (ObjectStoreException e)
+                {
+                    logger.error("Failed to put back item " + id + " in queue " + queue.getName(), e);
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void untakeQuietly(Serializable id)
+        {
+            try
+            {
+                queue.untake(id);
+            }
+            catch (Exception e)
+            {
+                logger.error("Failed to put back item " + id + " in queue " + queue.getName(), e);
+            }
+        }
+
         @Override
         public Serializable peek() throws InterruptedException
         {
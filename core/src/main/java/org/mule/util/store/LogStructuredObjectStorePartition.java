@@ -0,0 +1,811 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import org.mule.api.MuleContext;
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.store.ExpirableObjectStore;
+import org.mule.api.store.ListableObjectStore;
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.api.store.ObjectStoreNotAvaliableException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.config.i18n.Message;
+import org.mule.util.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A persistent object store partition that keeps all its entries in a single
+ * append-only data file instead of one file per key, as
+ * {@link PersistentObjectStorePartition} does.
+ * <p/>
+ * Every {@link #store(Serializable, Serializable)} appends a record and every
+ * {@link #remove(Serializable)} appends a tombstone, so each operation costs one
+ * append regardless of the number of entries. A hash index maps each key to the
+ * location of its value. It is written to an index file when the partition is
+ * compacted or closed, so that reopening only has to read the index plus the tail of
+ * the data file written after it.
+ * <p/>
+ * Entries can not be overwritten, so the index iterates them in the order they were
+ * stored, which is also the order in which they expire. {@link #expire(int, int)}
+ * therefore only looks at the entries it actually removes. Once the space taken by
+ * removed entries outweighs the live data, the data file is rewritten with the live
+ * entries only. The live entries are copied without holding the lock of the
+ * partition, so that other operations only wait for the records appended meanwhile
+ * to be copied and for the files to be swapped.
+ */
+public class LogStructuredObjectStorePartition<T extends Serializable> implements ListableObjectStore<T>, ExpirableObjectStore<T>
+{
+    private static final String PARTITION_DESCRIPTOR_FILE = "partition-descriptor";
+    private static final String DATA_FILE = "data.log";
+    private static final String INDEX_FILE = "data.index";
+    private static final String COMPACTION_FILE = "data.compact";
+    private static final String REPLACED_FILE = "data.old";
+
+    private static final byte STORE_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+
+    /**
+     * record type, timestamp, key length, value length and CRC32 of key and value
+     */
+    private static final int RECORD_HEADER_SIZE = 1 + 8 + 4 + 4 + 8;
+
+    /**
+     * Data files smaller than this are never compacted
+     */
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    protected final Log logger = LogFactory.getLog(this.getClass());
+    private final MuleContext muleContext;
+
+    private File partitionDirectory;
+    private String partitionName;
+
+    private FileChannel dataChannel;
+    private long dataSize;
+    private long liveBytes;
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+    /**
+     * Entries by key, in the order they were stored
+     */
+    private LinkedHashMap<Serializable, IndexEntry> index;
+
+    LogStructuredObjectStorePartition(MuleContext muleContext, String partitionName, File partitionDirectory)
+    {
+        this.muleContext = muleContext;
+        this.partitionName = partitionName;
+        this.partitionDirectory = partitionDirectory;
+    }
+
+    LogStructuredObjectStorePartition(MuleContext muleContext, File partitionDirectory) throws ObjectStoreNotAvaliableException
+    {
+        this.muleContext = muleContext;
+        this.partitionDirectory = partitionDirectory;
+        this.partitionName = readPartitionFileName(partitionDirectory);
+    }
+
+    private String readPartitionFileName(File partitionDirectory) throws ObjectStoreNotAvaliableException
+    {
+        File partitionDescriptorFile = new File(partitionDirectory, PARTITION_DESCRIPTOR_FILE);
+        try
+        {
+            return FileUtils.readFileToString(partitionDescriptorFile);
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreNotAvaliableException(e);
+        }
+    }
+
+    @Override
+    public synchronized void open() throws ObjectStoreException
+    {
+        if (dataChannel != null)
+        {
+            return;
+        }
+        createDirectory(partitionDirectory);
+        createOrRetrievePartitionDescriptorFile();
+        try
+        {
+            recoverDataFile();
+            dataChannel = new RandomAccessFile(new File(partitionDirectory, DATA_FILE), "rw").getChannel();
+            loadIndex();
+        }
+        catch (IOException e)
+        {
+            String message = String.format("Could not restore object store data from %1s", partitionDirectory.getAbsolutePath());
+            throw new ObjectStoreException(CoreMessages.createStaticMessage(message), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws ObjectStoreException
+    {
+        if (dataChannel == null)
+        {
+            return;
+        }
+        try
+        {
+            dataChannel.force(false);
+            writeIndexFile();
+            dataChannel.close();
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+        finally
+        {
+            dataChannel = null;
+        }
+    }
+
+    @Override
+    public synchronized List<Serializable> allKeys() throws ObjectStoreException
+    {
+        return Collections.unmodifiableList(new ArrayList<Serializable>(index.keySet()));
+    }
+
+    @Override
+    public synchronized boolean contains(Serializable key) throws ObjectStoreException
+    {
+        return index.containsKey(key);
+    }
+
+    @Override
+    public synchronized void store(Serializable key, T value) throws ObjectStoreException
+    {
+        if (index.containsKey(key))
+        {
+            throw new ObjectAlreadyExistsException();
+        }
+        byte[] keyBytes = serialize(key);
+        byte[] valueBytes = serialize(value);
+        long timestamp = System.currentTimeMillis();
+        long position = append(STORE_RECORD, timestamp, keyBytes, valueBytes);
+
+        IndexEntry entry = new IndexEntry(position, keyBytes.length, valueBytes.length, timestamp);
+        index.put(key, entry);
+        liveBytes += entry.recordSize();
+    }
+
+    @Override
+    public synchronized T retrieve(Serializable key) throws ObjectStoreException
+    {
+        IndexEntry entry = index.get(key);
+        if (entry == null)
+        {
+            throw new ObjectDoesNotExistException();
+        }
+        return deserialize(readValue(entry));
+    }
+
+    @Override
+    public T remove(Serializable key) throws ObjectStoreException
+    {
+        T value;
+        boolean compactionNeeded;
+        synchronized (this)
+        {
+            value = retrieve(key);
+            removeEntry(key);
+            compactionNeeded = isCompactionNeeded();
+        }
+        if (compactionNeeded)
+        {
+            compact();
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return true;
+    }
+
+    @Override
+    public void expire(int entryTTL, int maxEntries) throws ObjectStoreException
+    {
+        boolean compactionNeeded;
+        synchronized (this)
+        {
+            expireEntries(entryTTL, maxEntries);
+            compactionNeeded = isCompactionNeeded();
+        }
+        if (compactionNeeded)
+        {
+            compact();
+        }
+    }
+
+    private void expireEntries(int entryTTL, int maxEntries) throws ObjectStoreException
+    {
+        Iterator<Map.Entry<Serializable, IndexEntry>> it = index.entrySet().iterator();
+        int excess = maxEntries < 0 ? 0 : index.size() - maxEntries;
+        long now = System.currentTimeMillis();
+        List<Serializable> expired = new ArrayList<Serializable>();
+
+        // entries are kept in the order they were stored, so stop at the first one
+        // that is still within its time to live
+        while (it.hasNext())
+        {
+            Map.Entry<Serializable, IndexEntry> oldest = it.next();
+            if (excess > 0)
+            {
+                excess--;
+            }
+            else if (entryTTL <= 0 || now - oldest.getValue().timestamp < entryTTL)
+            {
+                break;
+            }
+            expired.add(oldest.getKey());
+        }
+
+        for (Serializable key : expired)
+        {
+            removeEntry(key);
+        }
+    }
+
+    public String getPartitionName()
+    {
+        return partitionName;
+    }
+
+    File getPartitionDirectory()
+    {
+        return partitionDirectory;
+    }
+
+    private void removeEntry(Serializable key) throws ObjectStoreException
+    {
+        IndexEntry entry = index.remove(key);
+        append(REMOVE_RECORD, System.currentTimeMillis(), serialize(key), new byte[0]);
+        liveBytes -= entry.recordSize();
+    }
+
+    private long append(byte type, long timestamp, byte[] keyBytes, byte[] valueBytes) throws ObjectStoreException
+    {
+        ByteBuffer record = encodeRecord(type, timestamp, keyBytes, valueBytes);
+        long position = dataSize;
+        try
+        {
+            long offset = position;
+            while (record.hasRemaining())
+            {
+                offset += dataChannel.write(record, offset);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+        dataSize += record.capacity();
+        return position;
+    }
+
+    private ByteBuffer encodeRecord(byte type, long timestamp, byte[] keyBytes, byte[] valueBytes)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(valueBytes);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length);
+        record.put(type);
+        record.putLong(timestamp);
+        record.putInt(keyBytes.length);
+        record.putInt(valueBytes.length);
+        record.putLong(crc.getValue());
+        record.put(keyBytes);
+        record.put(valueBytes);
+        record.flip();
+        return record;
+    }
+
+    private byte[] readValue(IndexEntry entry) throws ObjectStoreException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.valueLength);
+        try
+        {
+            long offset = entry.position + RECORD_HEADER_SIZE + entry.keyLength;
+            while (buffer.hasRemaining())
+            {
+                int read = dataChannel.read(buffer, offset);
+                if (read < 0)
+                {
+                    throw new EOFException(partitionDirectory.getAbsolutePath());
+                }
+                offset += read;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Rebuilds the index from the index file, if there is one, and the records
+     * appended to the data file after it was written.
+     */
+    private void loadIndex() throws IOException, ObjectStoreException
+    {
+        index = new LinkedHashMap<Serializable, IndexEntry>();
+        liveBytes = 0;
+        long replayFrom = readIndexFile();
+        dataSize = dataChannel.size();
+        if (replayFrom > dataSize)
+        {
+            // the index does not match the data file, rebuild it from scratch
+            index.clear();
+            liveBytes = 0;
+            replayFrom = 0;
+        }
+        replay(replayFrom);
+    }
+
+    private long readIndexFile() throws ObjectStoreException
+    {
+        File indexFile = new File(partitionDirectory, INDEX_FILE);
+        if (!indexFile.exists())
+        {
+            return 0;
+        }
+
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            long coveredSize = in.readLong();
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++)
+            {
+                byte[] keyBytes = new byte[in.readInt()];
+                in.readFully(keyBytes);
+                IndexEntry entry = new IndexEntry(in.readLong(), keyBytes.length, in.readInt(), in.readLong());
+                index.put((Serializable) deserialize(keyBytes), entry);
+                liveBytes += entry.recordSize();
+            }
+            return coveredSize;
+        }
+        catch (IOException e)
+        {
+            logger.warn("Ignoring unreadable object store index " + indexFile.getAbsolutePath(), e);
+            index.clear();
+            liveBytes = 0;
+            return 0;
+        }
+        finally
+        {
+            closeQuietly(in);
+            // a stale index must never be used after more records are appended
+            FileUtils.deleteQuietly(indexFile);
+        }
+    }
+
+    private void writeIndexFile() throws IOException, ObjectStoreException
+    {
+        File indexFile = new File(partitionDirectory, INDEX_FILE);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try
+        {
+            out.writeLong(dataSize);
+            out.writeInt(index.size());
+            for (Map.Entry<Serializable, IndexEntry> mapEntry : index.entrySet())
+            {
+                byte[] keyBytes = serialize(mapEntry.getKey());
+                IndexEntry entry = mapEntry.getValue();
+                out.writeInt(keyBytes.length);
+                out.write(keyBytes);
+                out.writeLong(entry.position);
+                out.writeInt(entry.valueLength);
+                out.writeLong(entry.timestamp);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private void replay(long from) throws IOException, ObjectStoreException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(dataChannel.position(from))));
+        long position = from;
+        CRC32 crc = new CRC32();
+
+        while (position < dataSize)
+        {
+            byte type;
+            long timestamp;
+            byte[] keyBytes;
+            int valueLength;
+            try
+            {
+                type = in.readByte();
+                timestamp = in.readLong();
+                int keyLength = in.readInt();
+                valueLength = in.readInt();
+                long checksum = in.readLong();
+                if (keyLength < 0 || valueLength < 0 || position + RECORD_HEADER_SIZE + keyLength + valueLength > dataSize)
+                {
+                    throw new EOFException();
+                }
+                keyBytes = new byte[keyLength];
+                in.readFully(keyBytes);
+                byte[] valueBytes = new byte[valueLength];
+                in.readFully(valueBytes);
+
+                crc.reset();
+                crc.update(keyBytes);
+                crc.update(valueBytes);
+                if (crc.getValue() != checksum || (type != STORE_RECORD && type != REMOVE_RECORD))
+                {
+                    throw new EOFException();
+                }
+            }
+            catch (EOFException e)
+            {
+                logger.warn("Truncating incomplete record at offset " + position + " of " + partitionDirectory.getAbsolutePath());
+                dataChannel.truncate(position);
+                dataSize = position;
+                break;
+            }
+
+            Serializable key = (Serializable) deserialize(keyBytes);
+            if (type == STORE_RECORD)
+            {
+                IndexEntry entry = new IndexEntry(position, keyBytes.length, valueLength, timestamp);
+                IndexEntry previous = index.put(key, entry);
+                if (previous != null)
+                {
+                    liveBytes -= previous.recordSize();
+                }
+                liveBytes += entry.recordSize();
+            }
+            else
+            {
+                IndexEntry previous = index.remove(key);
+                if (previous != null)
+                {
+                    liveBytes -= previous.recordSize();
+                }
+            }
+            position += RECORD_HEADER_SIZE + keyBytes.length + valueLength;
+        }
+    }
+
+    private boolean isCompactionNeeded()
+    {
+        return dataChannel != null && dataSize >= MIN_COMPACTION_SIZE && dataSize - liveBytes > liveBytes;
+    }
+
+    /**
+     * Rewrites the data file with the live entries only and persists the index for it.
+     * <p/>
+     * The entries live when compaction starts are copied without holding the lock of
+     * the partition. The records appended meanwhile, tombstones included, are then
+     * copied as they are while holding it, so that replaying the compacted file gives
+     * the current entries even if the new index never gets written. Does nothing if
+     * another compaction is in progress.
+     */
+    protected void compact() throws ObjectStoreException
+    {
+        if (!compacting.compareAndSet(false, true))
+        {
+            return;
+        }
+        File compactionFile = new File(partitionDirectory, COMPACTION_FILE);
+        File dataFile = new File(partitionDirectory, DATA_FILE);
+        FileChannel source = null;
+        try
+        {
+            long copiedSize;
+            Map<Serializable, IndexEntry> copied;
+            synchronized (this)
+            {
+                source = dataChannel;
+                copiedSize = dataSize;
+                copied = new LinkedHashMap<Serializable, IndexEntry>(index);
+            }
+            if (source == null)
+            {
+                return;
+            }
+
+            FileChannel compacted = new RandomAccessFile(compactionFile, "rw").getChannel();
+            boolean replaced = false;
+            try
+            {
+                compacted.truncate(0);
+                long position = 0;
+                for (Map.Entry<Serializable, IndexEntry> mapEntry : copied.entrySet())
+                {
+                    IndexEntry entry = mapEntry.getValue();
+                    transfer(source, entry.position, entry.recordSize(), compacted, position);
+                    mapEntry.setValue(new IndexEntry(position, entry.keyLength, entry.valueLength, entry.timestamp));
+                    position += entry.recordSize();
+                }
+
+                synchronized (this)
+                {
+                    if (dataChannel != source)
+                    {
+                        // closed while copying, the data file is left as it is
+                        return;
+                    }
+                    long tailSize = dataSize - copiedSize;
+                    transfer(dataChannel, copiedSize, tailSize, compacted, position);
+                    compacted.force(false);
+                    compacted.close();
+
+                    LinkedHashMap<Serializable, IndexEntry> compactedIndex = new LinkedHashMap<Serializable, IndexEntry>();
+                    long compactedLiveBytes = 0;
+                    for (Map.Entry<Serializable, IndexEntry> mapEntry : index.entrySet())
+                    {
+                        IndexEntry entry = mapEntry.getValue();
+                        IndexEntry compactedEntry = entry.position < copiedSize
+                                                    ? copied.get(mapEntry.getKey())
+                                                    : new IndexEntry(position + entry.position - copiedSize, entry.keyLength, entry.valueLength, entry.timestamp);
+                        compactedIndex.put(mapEntry.getKey(), compactedEntry);
+                        compactedLiveBytes += compactedEntry.recordSize();
+                    }
+
+                    // an index left by an earlier compaction must not be applied to
+                    // the new data file
+                    FileUtils.deleteQuietly(new File(partitionDirectory, INDEX_FILE));
+                    dataChannel.close();
+                    try
+                    {
+                        replace(dataFile, compactionFile);
+                        replaced = true;
+                    }
+                    finally
+                    {
+                        dataChannel = new RandomAccessFile(dataFile, "rw").getChannel();
+                    }
+
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Compacted " + dataFile.getAbsolutePath() + " from " + dataSize + " to "
+                                     + (position + tailSize) + " bytes");
+                    }
+
+                    index = compactedIndex;
+                    dataSize = position + tailSize;
+                    liveBytes = compactedLiveBytes;
+                    writeIndexFile();
+                }
+            }
+            finally
+            {
+                compacted.close();
+                if (!replaced)
+                {
+                    FileUtils.deleteQuietly(compactionFile);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            synchronized (this)
+            {
+                if (dataChannel != source)
+                {
+                    // closed while copying
+                    return;
+                }
+            }
+            throw new ObjectStoreException(CoreMessages.createStaticMessage("Could not compact " + dataFile.getAbsolutePath()), e);
+        }
+        finally
+        {
+            compacting.set(false);
+        }
+    }
+
+    private void transfer(FileChannel from, long fromPosition, long size, FileChannel to, long toPosition) throws IOException
+    {
+        to.position(toPosition);
+        long transferred = 0;
+        while (transferred < size)
+        {
+            transferred += from.transferTo(fromPosition + transferred, size - transferred, to);
+        }
+    }
+
+    /**
+     * Replaces the data file with the compacted one. Where a rename does not replace
+     * an existing file, the data file is moved aside until the compacted one is in
+     * its place, so that one of them can be recovered by {@link #recoverDataFile()}
+     * at any point.
+     */
+    private void replace(File dataFile, File compactionFile) throws IOException
+    {
+        if (compactionFile.renameTo(dataFile))
+        {
+            return;
+        }
+        File replacedFile = new File(partitionDirectory, REPLACED_FILE);
+        FileUtils.deleteQuietly(replacedFile);
+        if (!dataFile.renameTo(replacedFile))
+        {
+            throw new IOException("Could not replace " + dataFile.getAbsolutePath());
+        }
+        if (!compactionFile.renameTo(dataFile))
+        {
+            if (!replacedFile.renameTo(dataFile))
+            {
+                throw new IOException("Could not restore " + dataFile.getAbsolutePath() + " from " + replacedFile.getAbsolutePath());
+            }
+            throw new IOException("Could not replace " + dataFile.getAbsolutePath());
+        }
+        FileUtils.deleteQuietly(replacedFile);
+    }
+
+    /**
+     * Puts back the data file moved aside by a compaction that did not complete, and
+     * discards what the compaction left.
+     */
+    private void recoverDataFile() throws IOException
+    {
+        File dataFile = new File(partitionDirectory, DATA_FILE);
+        File replacedFile = new File(partitionDirectory, REPLACED_FILE);
+        // the compacted file may already be in place, but the one moved aside is
+        // just as valid and certainly complete
+        if (replacedFile.exists() && (!dataFile.exists() || dataFile.length() == 0))
+        {
+            logger.warn("Restoring " + dataFile.getAbsolutePath() + " after an incomplete compaction");
+            if (!replacedFile.renameTo(dataFile))
+            {
+                throw new IOException("Could not restore " + dataFile.getAbsolutePath() + " from " + replacedFile.getAbsolutePath());
+            }
+        }
+        FileUtils.deleteQuietly(replacedFile);
+        FileUtils.deleteQuietly(new File(partitionDirectory, COMPACTION_FILE));
+    }
+
+    protected void createDirectory(File directory) throws ObjectStoreException
+    {
+        try
+        {
+            if (!directory.exists() && !directory.mkdirs())
+            {
+                Message message = CoreMessages.failedToCreate("object store directory "
+                        + directory.getAbsolutePath());
+                throw new MuleRuntimeException(message);
+            }
+        }
+        catch (Exception e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    protected File createOrRetrievePartitionDescriptorFile() throws ObjectStoreException
+    {
+        try
+        {
+            File partitionDescriptorFile = new File(partitionDirectory, PARTITION_DESCRIPTOR_FILE);
+            if (partitionDescriptorFile.exists())
+            {
+                this.partitionName = readPartitionFileName(partitionDirectory);
+                return partitionDescriptorFile;
+            }
+            FileWriter fileWriter = new FileWriter(partitionDescriptorFile.getAbsolutePath(), false);
+            try
+            {
+                fileWriter.write(partitionName);
+                fileWriter.flush();
+            }
+            finally
+            {
+                fileWriter.close();
+            }
+            return partitionDescriptorFile;
+        }
+        catch (Exception e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    protected byte[] serialize(Serializable object) throws ObjectStoreException
+    {
+        try
+        {
+            return muleContext.getObjectSerializer().serialize(object);
+        }
+        catch (Exception e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    protected T deserialize(byte[] bytes) throws ObjectStoreException
+    {
+        try
+        {
+            return muleContext.getObjectSerializer().deserialize(bytes);
+        }
+        catch (Exception e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private void closeQuietly(DataInputStream in)
+    {
+        if (in != null)
+        {
+            try
+            {
+                in.close();
+            }
+            catch (IOException e)
+            {
+                logger.warn("error closing index file of " + partitionDirectory.getAbsolutePath());
+            }
+        }
+    }
+
+    private static class IndexEntry
+    {
+        final long position;
+        final int keyLength;
+        final int valueLength;
+        final long timestamp;
+
+        IndexEntry(long position, int keyLength, int valueLength, long timestamp)
+        {
+            this.position = position;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+            this.timestamp = timestamp;
+        }
+
+        long recordSize()
+        {
+            return RECORD_HEADER_SIZE + keyLength + valueLength;
+        }
+    }
+}
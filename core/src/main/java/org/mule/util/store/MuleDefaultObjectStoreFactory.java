@@ -17,6 +17,17 @@ import java.io.Serializable;
 
 public class MuleDefaultObjectStoreFactory implements DefaultObjectStoreFactory
 {
+    /**
+     * System property that switches the default persistent queue store to the
+     * append-only {@link QueueJournalObjectStore}
+     */
+    public static final String QUEUE_STORE_JOURNAL_PROPERTY = "mule.queuestore.journal";
+
+    /**
+     * System property that switches the default persistent and user object stores to
+     * the single-file {@link PartitionedLogStructuredObjectStore}
+     */
+    public static final String OBJECT_STORE_LOG_STRUCTURED_PROPERTY = "mule.objectstore.logstructured";
 
     @Override
     public ObjectStore<Serializable> createDefaultInMemoryObjectStore()
@@ -27,7 +38,7 @@ public class MuleDefaultObjectStoreFactory implements DefaultObjectStoreFactory
     @Override
     public ObjectStore<Serializable> createDefaultPersistentObjectStore()
     {
-        return new PartitionedPersistentObjectStore<Serializable>();
+        return createPersistentPartitionedObjectStore();
     }
 
     @Override
@@ -39,13 +50,17 @@ public class MuleDefaultObjectStoreFactory implements DefaultObjectStoreFactory
     @Override
     public QueueStore<Serializable> createDefaultPersistentQueueStore()
     {
+        if ("true".equals(System.getProperty(QUEUE_STORE_JOURNAL_PROPERTY)))
+        {
+            return new QueueStoreAdapter<Serializable>(new QueueJournalObjectStore<Serializable>());
+        }
         return new QueueStoreAdapter<Serializable>(new QueuePersistenceObjectStore<Serializable>());
     }
 
     @Override
     public ObjectStore<Serializable> createDefaultUserObjectStore()
     {
-        return new PartitionedPersistentObjectStore<Serializable>();
+        return createPersistentPartitionedObjectStore();
     }
 
     @Override
@@ -53,4 +68,13 @@ public class MuleDefaultObjectStoreFactory implements DefaultObjectStoreFactory
     {
         return new SimpleMemoryObjectStore<Serializable>();
     }
+
+    private ObjectStore<Serializable> createPersistentPartitionedObjectStore()
+    {
+        if ("true".equals(System.getProperty(OBJECT_STORE_LOG_STRUCTURED_PROPERTY)))
+        {
+            return new PartitionedLogStructuredObjectStore<Serializable>();
+        }
+        return new PartitionedPersistentObjectStore<Serializable>();
+    }
 }
@@ -0,0 +1,519 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import org.mule.management.stats.ObjectStoreStatistics;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One partition of a {@link PartitionedOffHeapObjectStore}. Keys and values are kept
+ * as bytes in a ring of direct {@link ByteBuffer} slabs that is written like a log:
+ * records are appended at the tail and the oldest record sits at the head. When the
+ * ring is full, or entries outlive their time to live, records are dropped from the
+ * head, so both eviction and expiry only ever touch the oldest entries and are done
+ * a few records at a time as part of writing.
+ * <p/>
+ * Positions in the ring only grow; the physical location of a position is taken
+ * modulo the capacity. Records never span two slabs, the rest of a slab that is too
+ * small for the next record is skipped. Keys are located through an open addressing
+ * hash index of primitive arrays that maps the key hash to the record position, so
+ * the heap cost is a few bytes per entry regardless of the size of key and value.
+ * <p/>
+ * Record layout: total length (int), status (byte), key hash (int), timestamp
+ * (long), key length (int), value length (int), key bytes, value bytes.
+ */
+class OffHeapObjectStorePartition
+{
+    static final int HEADER_SIZE = 25;
+
+    private static final byte LIVE = 1;
+    private static final byte REMOVED = 2;
+    private static final byte PADDING = 3;
+
+    private static final long EMPTY = -1;
+    private static final long DELETED = -2;
+    private static final int INITIAL_INDEX_SIZE = 64;
+
+    /**
+     * Maximum number of records dropped from the head for expiry on a single write
+     */
+    private static final int EXPIRY_BATCH = 16;
+
+    private final int slabSize;
+    private final ByteBuffer[] slabs;
+    private final long capacity;
+    private final int entryTTL;
+    private final int maxEntries;
+    private final ObjectStoreStatistics statistics;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long head;
+    private long tail;
+    private int size;
+
+    private int[] hashes;
+    private long[] positions;
+    private int usedSlots;
+
+    /**
+     * @param maxBytes bytes of direct memory this partition may use, rounded down to
+     *            a multiple of <code>slabSize</code>
+     * @param slabSize size of each direct buffer, also the largest record allowed
+     * @param entryTTL milliseconds an entry lives, or a non positive number to keep
+     *            entries until they are evicted
+     * @param maxEntries maximum number of entries, or a negative number for no limit
+     */
+    OffHeapObjectStorePartition(long maxBytes,
+                                int slabSize,
+                                int entryTTL,
+                                int maxEntries,
+                                ObjectStoreStatistics statistics)
+    {
+        int slabCount = (int) Math.max(1, maxBytes / slabSize);
+        this.slabSize = slabSize;
+        this.slabs = new ByteBuffer[slabCount];
+        this.capacity = (long) slabCount * slabSize;
+        this.entryTTL = entryTTL;
+        this.maxEntries = maxEntries;
+        this.statistics = statistics;
+        initIndex(INITIAL_INDEX_SIZE);
+    }
+
+    boolean contains(byte[] key)
+    {
+        lock.readLock().lock();
+        try
+        {
+            return findSlot(hash(key), key) >= 0;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return <code>false</code> if the key is already present
+     * @throws IllegalArgumentException if the record does not fit in a slab
+     */
+    boolean store(byte[] key, byte[] value)
+    {
+        int length = HEADER_SIZE + key.length + value.length;
+        if (length > slabSize)
+        {
+            throw new IllegalArgumentException("Entry of " + length
+                                               + " bytes is larger than the slab size of " + slabSize);
+        }
+        int hash = hash(key);
+
+        lock.writeLock().lock();
+        try
+        {
+            if (findSlot(hash, key) >= 0)
+            {
+                return false;
+            }
+
+            int remaining = slabSize - offset(tail);
+            if (remaining < length)
+            {
+                makeRoom(remaining);
+                if (remaining >= HEADER_SIZE)
+                {
+                    ByteBuffer slab = slab(tail);
+                    slab.putInt(offset(tail), remaining);
+                    slab.put(offset(tail) + 4, PADDING);
+                }
+                tail += remaining;
+            }
+            makeRoom(length);
+
+            ByteBuffer slab = slab(tail);
+            int offset = offset(tail);
+            slab.putInt(offset, length);
+            slab.put(offset + 4, LIVE);
+            slab.putInt(offset + 5, hash);
+            slab.putLong(offset + 9, System.nanoTime());
+            slab.putInt(offset + 17, key.length);
+            slab.putInt(offset + 21, value.length);
+            ByteBuffer data = slab.duplicate();
+            data.position(offset + HEADER_SIZE);
+            data.put(key);
+            data.put(value);
+
+            addToIndex(hash, tail);
+            tail += length;
+            size++;
+            statistics.incStored();
+
+            expire(entryTTL, maxEntries, EXPIRY_BATCH);
+            return true;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the value, or <code>null</code> if the key is not present
+     */
+    byte[] retrieve(byte[] key)
+    {
+        lock.readLock().lock();
+        try
+        {
+            int slot = findSlot(hash(key), key);
+            if (slot < 0)
+            {
+                statistics.incMisses();
+                return null;
+            }
+            statistics.incHits();
+            return readValue(positions[slot]);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the removed value, or <code>null</code> if the key is not present
+     */
+    byte[] remove(byte[] key)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            int slot = findSlot(hash(key), key);
+            if (slot < 0)
+            {
+                return null;
+            }
+            long position = positions[slot];
+            byte[] value = readValue(position);
+            slab(position).put(offset(position) + 4, REMOVED);
+            positions[slot] = DELETED;
+            size--;
+            statistics.incRemoved();
+            return value;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<byte[]> allKeys()
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<byte[]> keys = new ArrayList<byte[]>(size);
+            for (long position : positions)
+            {
+                if (position >= 0)
+                {
+                    ByteBuffer slab = slab(position);
+                    int offset = offset(position);
+                    keys.add(read(slab, offset + HEADER_SIZE, slab.getInt(offset + 17)));
+                }
+            }
+            return keys;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops entries older than <code>entryTTL</code> milliseconds and the oldest
+     * entries beyond <code>maxEntries</code>.
+     */
+    void expire(int entryTTL, int maxEntries)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            expire(entryTTL, maxEntries, Integer.MAX_VALUE);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return size;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return bytes between the oldest record and the tail, including removed
+     *         records not yet reclaimed
+     */
+    long getMemoryUsed()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return tail - head;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    long getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Releases the slabs. The partition must not be used afterwards.
+     */
+    void dispose()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Arrays.fill(slabs, null);
+            initIndex(INITIAL_INDEX_SIZE);
+            head = tail = 0;
+            size = 0;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void expire(int entryTTL, int maxEntries, int maxSteps)
+    {
+        long now = System.nanoTime();
+        for (int steps = 0; steps < maxSteps && head < tail; steps++)
+        {
+            int offset = offset(head);
+            if (slabSize - offset >= HEADER_SIZE && slab(head).get(offset + 4) == LIVE)
+            {
+                boolean overLimit = maxEntries >= 0 && size > maxEntries;
+                boolean outlived = entryTTL > 0
+                                   && TimeUnit.NANOSECONDS.toMillis(now - slab(head).getLong(offset + 9)) >= entryTTL;
+                if (!overLimit && !outlived)
+                {
+                    return;
+                }
+                statistics.incExpired();
+            }
+            dropHead();
+        }
+    }
+
+    /**
+     * Drops records from the head until <code>length</code> bytes are free at the
+     * tail.
+     */
+    private void makeRoom(int length)
+    {
+        while (tail + length - head > capacity)
+        {
+            int offset = offset(head);
+            if (slabSize - offset >= HEADER_SIZE && slab(head).get(offset + 4) == LIVE)
+            {
+                statistics.incEvicted();
+            }
+            dropHead();
+        }
+    }
+
+    private void dropHead()
+    {
+        int offset = offset(head);
+        int remaining = slabSize - offset;
+        if (remaining < HEADER_SIZE)
+        {
+            head += remaining;
+            return;
+        }
+        ByteBuffer slab = slab(head);
+        if (slab.get(offset + 4) == LIVE)
+        {
+            removeFromIndex(slab.getInt(offset + 5), head);
+            size--;
+        }
+        head += slab.getInt(offset);
+    }
+
+    private byte[] readValue(long position)
+    {
+        ByteBuffer slab = slab(position);
+        int offset = offset(position);
+        int keyLength = slab.getInt(offset + 17);
+        return read(slab, offset + HEADER_SIZE + keyLength, slab.getInt(offset + 21));
+    }
+
+    private byte[] read(ByteBuffer slab, int offset, int length)
+    {
+        byte[] bytes = new byte[length];
+        ByteBuffer data = slab.duplicate();
+        data.position(offset);
+        data.get(bytes);
+        return bytes;
+    }
+
+    private boolean keyEquals(long position, byte[] key)
+    {
+        ByteBuffer slab = slab(position);
+        int offset = offset(position);
+        if (slab.getInt(offset + 17) != key.length)
+        {
+            return false;
+        }
+        offset += HEADER_SIZE;
+        for (int i = 0; i < key.length; i++)
+        {
+            if (slab.get(offset + i) != key[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer slab(long position)
+    {
+        int index = (int) ((position % capacity) / slabSize);
+        ByteBuffer slab = slabs[index];
+        if (slab == null)
+        {
+            slab = ByteBuffer.allocateDirect(slabSize);
+            slabs[index] = slab;
+        }
+        return slab;
+    }
+
+    private int offset(long position)
+    {
+        return (int) (position % slabSize);
+    }
+
+    private static int hash(byte[] key)
+    {
+        int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private void initIndex(int slots)
+    {
+        hashes = new int[slots];
+        positions = new long[slots];
+        Arrays.fill(positions, EMPTY);
+        usedSlots = 0;
+    }
+
+    private int findSlot(int hash, byte[] key)
+    {
+        int mask = positions.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask)
+        {
+            long position = positions[slot];
+            if (position == EMPTY)
+            {
+                return -1;
+            }
+            if (position >= 0 && hashes[slot] == hash && keyEquals(position, key))
+            {
+                return slot;
+            }
+        }
+    }
+
+    private void addToIndex(int hash, long position)
+    {
+        if ((usedSlots + 1) * 4L > positions.length * 3L)
+        {
+            rehash();
+        }
+        int mask = positions.length - 1;
+        int slot = hash & mask;
+        while (positions[slot] >= 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+        if (positions[slot] == EMPTY)
+        {
+            usedSlots++;
+        }
+        hashes[slot] = hash;
+        positions[slot] = position;
+    }
+
+    private void removeFromIndex(int hash, long position)
+    {
+        int mask = positions.length - 1;
+        for (int slot = hash & mask; positions[slot] != EMPTY; slot = (slot + 1) & mask)
+        {
+            if (positions[slot] == position)
+            {
+                positions[slot] = DELETED;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index without deleted slots, growing it if live entries alone
+     * would fill more than half of it.
+     */
+    private void rehash()
+    {
+        int[] oldHashes = hashes;
+        long[] oldPositions = positions;
+        int slots = oldPositions.length;
+        while (size * 2L >= slots)
+        {
+            slots <<= 1;
+        }
+        initIndex(slots);
+        int mask = slots - 1;
+        for (int i = 0; i < oldPositions.length; i++)
+        {
+            if (oldPositions[i] >= 0)
+            {
+                int slot = oldHashes[i] & mask;
+                while (positions[slot] != EMPTY)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = oldHashes[i];
+                positions[slot] = oldPositions[i];
+                usedSlots++;
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.util.store;
+
+import org.mule.api.MuleContext;
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.api.store.PartitionableExpirableObjectStore;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.config.i18n.Message;
+import org.mule.util.FileUtils;
+import org.mule.util.UUID;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent partitionable object store that keeps each partition in a
+ * {@link LogStructuredObjectStorePartition}, i.e. a single data file per partition
+ * instead of a file per entry as {@link PartitionedPersistentObjectStore} does.
+ */
+public class PartitionedLogStructuredObjectStore<T extends Serializable> extends
+        AbstractPartitionedObjectStore<T> implements MuleContextAware, PartitionableExpirableObjectStore<T>
+{
+
+    public static final String OBJECT_STORE_DIR = "logobjectstore";
+
+    private MuleContext muleContext;
+    private File storeDirectory;
+    private Map<String, LogStructuredObjectStorePartition<T>> partitionsByName = new ConcurrentHashMap<String, LogStructuredObjectStorePartition<T>>();
+    private boolean initialized = false;
+
+    public PartitionedLogStructuredObjectStore()
+    {
+        super();
+    }
+
+    public PartitionedLogStructuredObjectStore(MuleContext context)
+    {
+        super();
+        muleContext = context;
+    }
+
+    public synchronized void open() throws ObjectStoreException
+    {
+        if (!initialized)
+        {
+            initObjectStoreDirectory();
+            loadPreviousStoredPartitions();
+            initialized = true;
+        }
+        if (!partitionsByName.containsKey(DEFAULT_PARTITION))
+        {
+            createPartition(DEFAULT_PARTITION);
+        }
+    }
+
+    @Override
+    public synchronized void open(String partitionName) throws ObjectStoreException
+    {
+        open();
+        if (!partitionsByName.containsKey(partitionName))
+        {
+            createPartition(partitionName);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws ObjectStoreException
+    {
+        for (LogStructuredObjectStorePartition<T> partition : partitionsByName.values())
+        {
+            partition.close();
+        }
+        partitionsByName.clear();
+        initialized = false;
+    }
+
+    @Override
+    public void close(String partitionName) throws ObjectStoreException
+    {
+        // partitions remain open until the whole store is closed, as other
+        // users of the same partition may still be using it
+    }
+
+    private void createPartition(String partitionName) throws ObjectStoreException
+    {
+        LogStructuredObjectStorePartition<T> partition = new LogStructuredObjectStorePartition<T>(muleContext, partitionName, getNewPartitionDirectory());
+        partition.open();
+        partitionsByName.put(partitionName, partition);
+    }
+
+    private File getNewPartitionDirectory()
+    {
+        return new File(storeDirectory, UUID.getUUID());
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean contains(Serializable key, String partitionName) throws ObjectStoreException
+    {
+        return getPartitionObjectStore(partitionName).contains(key.toString());
+    }
+
+    @Override
+    public void store(Serializable key, T value, String partitionName) throws ObjectStoreException
+    {
+        getPartitionObjectStore(partitionName).store(key.toString(), value);
+    }
+
+    @Override
+    public T retrieve(Serializable key, String partitionName) throws ObjectStoreException
+    {
+        return getPartitionObjectStore(partitionName).retrieve(key.toString());
+    }
+
+    @Override
+    public T remove(Serializable key, String partitionName) throws ObjectStoreException
+    {
+        return getPartitionObjectStore(partitionName).remove(key.toString());
+    }
+
+    @Override
+    public List<Serializable> allKeys(String partitionName) throws ObjectStoreException
+    {
+        return getPartitionObjectStore(partitionName).allKeys();
+    }
+
+    private LogStructuredObjectStorePartition<T> getPartitionObjectStore(String partitionName) throws ObjectStoreException
+    {
+        LogStructuredObjectStorePartition<T> partition = partitionsByName.get(partitionName);
+        if (partition == null)
+        {
+            throw new ObjectStoreException(CoreMessages.createStaticMessage("No partition named: " + partitionName));
+        }
+        return partition;
+    }
+
+    @Override
+    public List<String> allPartitions() throws ObjectStoreException
+    {
+        return new ArrayList<String>(partitionsByName.keySet());
+    }
+
+    private void initObjectStoreDirectory()
+    {
+        if (storeDirectory == null)
+        {
+            String workingDirectory = muleContext.getConfiguration().getWorkingDirectory();
+            String path = workingDirectory + File.separator + OBJECT_STORE_DIR;
+            storeDirectory = FileUtils.newFile(path);
+            if (!storeDirectory.exists())
+            {
+                createStoreDirectory(storeDirectory);
+            }
+        }
+    }
+
+    protected synchronized void createStoreDirectory(File directory)
+    {
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            Message message = CoreMessages.failedToCreate("object store directory "
+                                                          + directory.getAbsolutePath());
+            throw new MuleRuntimeException(message);
+        }
+    }
+
+    private void loadPreviousStoredPartitions()
+    {
+        File[] directories = storeDirectory.listFiles(new FileFilter()
+        {
+            @Override
+            public boolean accept(File file)
+            {
+                return file.isDirectory();
+            }
+        });
+        if (directories == null)
+        {
+            return;
+        }
+        for (File partitionDirectory : directories)
+        {
+            try
+            {
+                LogStructuredObjectStorePartition<T> partition = new LogStructuredObjectStorePartition<T>(muleContext, partitionDirectory);
+                partition.open();
+                partitionsByName.put(partition.getPartitionName(), partition);
+            }
+            catch (Exception e)
+            {
+                logger.error("Could not restore partition under directory " + partitionDirectory.getAbsolutePath());
+            }
+        }
+    }
+
+    @Override
+    public void setMuleContext(MuleContext context)
+    {
+        muleContext = context;
+    }
+
+    @Override
+    public void expire(int entryTTL, int maxEntries) throws ObjectStoreException
+    {
+        expire(entryTTL, maxEntries, DEFAULT_PARTITION);
+    }
+
+    @Override
+    public synchronized void disposePartition(String partitionName) throws ObjectStoreException
+    {
+        LogStructuredObjectStorePartition<T> partition = partitionsByName.remove(partitionName);
+        if (partition != null)
+        {
+            partition.close();
+            FileUtils.deleteQuietly(partition.getPartitionDirectory());
+        }
+    }
+
+    @Override
+    public void expire(int entryTTL, int maxEntries, String partitionName) throws ObjectStoreException
+    {
+        getPartitionObjectStore(partitionName).expire(entryTTL, maxEntries);
+    }
+}
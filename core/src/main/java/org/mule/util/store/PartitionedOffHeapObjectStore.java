@@ -0,0 +1,383 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.util.store;
+
+import org.mule.api.MuleContext;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.lifecycle.Disposable;
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.api.store.PartitionableExpirableObjectStore;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.management.stats.ObjectStoreStatistics;
+
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.SerializationException;
+
+/**
+ * A non persistent partitionable object store that keeps entries outside of the
+ * Java heap, in direct buffers, so that very large stores such as those of
+ * idempotent receivers do not add to garbage collection pauses. Each partition is
+ * bounded by {@link #setMaxBytes(long) maxBytes}; once full, the oldest entries are
+ * evicted as new ones are written. Entries may also be given a time to live and the
+ * number of entries may be capped, both enforced incrementally on write.
+ * <p/>
+ * Values are serialized with the {@link MuleContext#getObjectSerializer() object
+ * serializer}. String keys are stored as UTF-8, other keys in their serialized form,
+ * so keys are considered equal when their serialized forms are.
+ */
+public class PartitionedOffHeapObjectStore<T extends Serializable> extends AbstractPartitionedObjectStore<T>
+    implements PartitionableExpirableObjectStore<T>, MuleContextAware, Disposable
+{
+    public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+    public static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte STRING_KEY = 0;
+    private static final byte SERIALIZED_KEY = 1;
+
+    private final ConcurrentMap<String, OffHeapObjectStorePartition> partitions = new ConcurrentHashMap<String, OffHeapObjectStorePartition>();
+    private final ObjectStoreStatistics statistics = new ObjectStoreStatistics();
+
+    private MuleContext muleContext;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private int slabSize = DEFAULT_SLAB_SIZE;
+    private int entryTTL = -1;
+    private int maxEntries = -1;
+
+    public PartitionedOffHeapObjectStore()
+    {
+        super();
+    }
+
+    public PartitionedOffHeapObjectStore(MuleContext context)
+    {
+        super();
+        muleContext = context;
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean contains(Serializable key, String partitionName) throws ObjectStoreException
+    {
+        OffHeapObjectStorePartition partition = partitions.get(partitionName);
+        return partition != null && partition.contains(keyBytes(key));
+    }
+
+    @Override
+    public void store(Serializable key, T value, String partitionName) throws ObjectStoreException
+    {
+        byte[] valueBytes;
+        try
+        {
+            valueBytes = muleContext.getObjectSerializer().serialize(value);
+        }
+        catch (SerializationException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+
+        boolean stored;
+        try
+        {
+            stored = getPartition(partitionName).store(keyBytes(key), valueBytes);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ObjectStoreException(CoreMessages.createStaticMessage(e.getMessage()), e);
+        }
+        if (!stored)
+        {
+            throw new ObjectAlreadyExistsException();
+        }
+    }
+
+    @Override
+    public T retrieve(Serializable key, String partitionName) throws ObjectStoreException
+    {
+        OffHeapObjectStorePartition partition = partitions.get(partitionName);
+        byte[] value = partition == null ? null : partition.retrieve(keyBytes(key));
+        if (value == null)
+        {
+            throw new ObjectDoesNotExistException();
+        }
+        return deserialize(value);
+    }
+
+    @Override
+    public T remove(Serializable key, String partitionName) throws ObjectStoreException
+    {
+        OffHeapObjectStorePartition partition = partitions.get(partitionName);
+        byte[] value = partition == null ? null : partition.remove(keyBytes(key));
+        if (value == null)
+        {
+            throw new ObjectDoesNotExistException();
+        }
+        return deserialize(value);
+    }
+
+    @Override
+    public List<Serializable> allKeys(String partitionName) throws ObjectStoreException
+    {
+        OffHeapObjectStorePartition partition = partitions.get(partitionName);
+        if (partition == null)
+        {
+            return new ArrayList<Serializable>();
+        }
+        List<byte[]> keys = partition.allKeys();
+        List<Serializable> result = new ArrayList<Serializable>(keys.size());
+        for (byte[] key : keys)
+        {
+            result.add(keyFromBytes(key));
+        }
+        return result;
+    }
+
+    @Override
+    public List<String> allPartitions() throws ObjectStoreException
+    {
+        return new ArrayList<String>(partitions.keySet());
+    }
+
+    @Override
+    public void open(String partitionName) throws ObjectStoreException
+    {
+        getPartition(partitionName);
+    }
+
+    @Override
+    public void close(String partitionName) throws ObjectStoreException
+    {
+        // Nothing to do
+    }
+
+    @Override
+    public void expire(int entryTTL, int maxEntries) throws ObjectStoreException
+    {
+        expire(entryTTL, maxEntries, DEFAULT_PARTITION);
+    }
+
+    @Override
+    public void expire(int entryTTL, int maxEntries, String partitionName) throws ObjectStoreException
+    {
+        OffHeapObjectStorePartition partition = partitions.get(partitionName);
+        if (partition != null)
+        {
+            partition.expire(entryTTL, maxEntries);
+        }
+    }
+
+    @Override
+    public void disposePartition(String partitionName) throws ObjectStoreException
+    {
+        OffHeapObjectStorePartition partition = partitions.remove(partitionName);
+        if (partition != null)
+        {
+            partition.dispose();
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        for (String partitionName : new ArrayList<String>(partitions.keySet()))
+        {
+            OffHeapObjectStorePartition partition = partitions.remove(partitionName);
+            if (partition != null)
+            {
+                partition.dispose();
+            }
+        }
+    }
+
+    /**
+     * @return number of entries over all partitions
+     */
+    public long getEntryCount()
+    {
+        long count = 0;
+        for (OffHeapObjectStorePartition partition : partitions.values())
+        {
+            count += partition.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return bytes of direct memory in use over all partitions
+     */
+    public long getMemoryUsed()
+    {
+        long used = 0;
+        for (OffHeapObjectStorePartition partition : partitions.values())
+        {
+            used += partition.getMemoryUsed();
+        }
+        return used;
+    }
+
+    /**
+     * @return bytes of direct memory all current partitions may use
+     */
+    public long getMemoryCapacity()
+    {
+        long capacity = 0;
+        for (OffHeapObjectStorePartition partition : partitions.values())
+        {
+            capacity += partition.getCapacity();
+        }
+        return capacity;
+    }
+
+    public ObjectStoreStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    private OffHeapObjectStorePartition getPartition(String partitionName)
+    {
+        OffHeapObjectStorePartition partition = partitions.get(partitionName);
+        if (partition == null)
+        {
+            partition = new OffHeapObjectStorePartition(maxBytes, (int) Math.min(slabSize, maxBytes),
+                entryTTL, maxEntries, statistics);
+            OffHeapObjectStorePartition previous = partitions.putIfAbsent(partitionName, partition);
+            if (previous != null)
+            {
+                partition = previous;
+            }
+        }
+        return partition;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T deserialize(byte[] value) throws ObjectStoreException
+    {
+        try
+        {
+            return (T) muleContext.getObjectSerializer().deserialize(value);
+        }
+        catch (SerializationException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private byte[] keyBytes(Serializable key) throws ObjectStoreException
+    {
+        byte[] data;
+        byte type;
+        if (key instanceof String)
+        {
+            data = ((String) key).getBytes(UTF_8);
+            type = STRING_KEY;
+        }
+        else
+        {
+            try
+            {
+                data = muleContext.getObjectSerializer().serialize(key);
+            }
+            catch (SerializationException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+            type = SERIALIZED_KEY;
+        }
+        byte[] bytes = new byte[data.length + 1];
+        bytes[0] = type;
+        System.arraycopy(data, 0, bytes, 1, data.length);
+        return bytes;
+    }
+
+    private Serializable keyFromBytes(byte[] bytes) throws ObjectStoreException
+    {
+        if (bytes[0] == STRING_KEY)
+        {
+            return new String(bytes, 1, bytes.length - 1, UTF_8);
+        }
+        return deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+
+    @Override
+    public void setMuleContext(MuleContext context)
+    {
+        this.muleContext = context;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Bytes of direct memory each partition may use. Rounded down to a multiple of
+     * the slab size.
+     */
+    public void setMaxBytes(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    public int getSlabSize()
+    {
+        return slabSize;
+    }
+
+    /**
+     * Size of the direct buffers memory is allocated in. No entry, including its key
+     * and a 25 byte header, may be larger than this.
+     */
+    public void setSlabSize(int slabSize)
+    {
+        this.slabSize = slabSize;
+    }
+
+    public int getEntryTTL()
+    {
+        return entryTTL;
+    }
+
+    /**
+     * Milliseconds entries live after being stored. Non positive values keep
+     * entries until they are evicted or removed.
+     */
+    public void setEntryTTL(int entryTTL)
+    {
+        this.entryTTL = entryTTL;
+    }
+
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    /**
+     * Maximum number of entries in each partition, negative for no limit.
+     */
+    public void setMaxEntries(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+    }
+}
@@ -20,7 +20,6 @@ import org.mule.api.store.ObjectStoreNotAvaliableException;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.config.i18n.Message;
 import org.mule.util.FileUtils;
-import org.mule.util.SerializationUtils;
 
 import java.io.File;
 import java.io.FileFilter;
@@ -285,7 +284,7 @@ public class PersistentObjectStorePartition<T extends Serializable> implements L
         {
             out = new FileOutputStream(outputFile);
             ObjectOutputStream objectOutputStream = new ObjectOutputStream(out);
-            SerializationUtils.serialize(storeValue, objectOutputStream);
+            muleContext.getObjectSerializer().serialize(storeValue, objectOutputStream);
         }
         catch (Exception se)
         {
@@ -314,7 +313,7 @@ public class PersistentObjectStorePartition<T extends Serializable> implements L
         try
         {
             objectInputStream = new ObjectInputStream(new FileInputStream(file));
-            StoreValue<T> storedValue = (StoreValue<T>) SerializationUtils.deserialize(objectInputStream, muleContext);
+            StoreValue<T> storedValue = muleContext.getObjectSerializer().deserialize(objectInputStream);
             if (storedValue.getValue() instanceof DeserializationPostInitialisable)
             {
                 DeserializationPostInitialisable.Implementation.init(storedValue.getValue(),muleContext);
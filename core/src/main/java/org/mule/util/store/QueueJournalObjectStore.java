@@ -0,0 +1,796 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.util.store;
+
+import org.mule.api.MuleContext;
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.store.ListableObjectStore;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.config.i18n.Message;
+import org.mule.util.FileUtils;
+import org.mule.util.concurrent.DaemonThreadFactory;
+import org.mule.util.queue.QueueKey;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.commons.lang.SerializationException;
+
+/**
+ * <p>
+ * An {@link ObjectStore} for Mule's internal queues that appends every stored and
+ * removed event to a segmented, append-only journal in
+ * <code>$MULE_HOME/.mule/queuejournal</code> instead of writing one file per event
+ * like {@link QueuePersistenceObjectStore} does.
+ * </p>
+ * <p>
+ * Writes are group committed: when <code>syncOnWrite</code> is enabled, concurrent
+ * writers share a single <code>fsync</code> of the active segment. Once a segment has
+ * been rolled over and every event it contains has been removed, it is deleted by a
+ * background compaction task. Segments are only ever reclaimed oldest first so that
+ * the removal records of a surviving segment never refer to events that would be
+ * resurrected on recovery.
+ * </p>
+ * <p>
+ * On {@link #open()} the segments are replayed in order to rebuild the index of live
+ * events, so {@link #allKeys()} returns the keys in the order they were stored
+ * without listing the store directory. A torn record at the tail of the last segment,
+ * as left behind by a crash, is truncated.
+ * </p>
+ * <p>
+ * Removals are not forced to disk. After a crash an already consumed event may
+ * therefore be recovered again, which is the same delivery guarantee Mule gives when
+ * a consumer fails before its removal is persisted.
+ * </p>
+ */
+public class QueueJournalObjectStore<T extends Serializable> extends AbstractObjectStore<T>
+    implements ListableObjectStore<T>, MuleContextAware
+{
+    /**
+     * The default directory for the queue journal
+     */
+    public static final String DEFAULT_QUEUE_JOURNAL = "queuejournal";
+
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    public static final int DEFAULT_COMPACTION_INTERVAL = 1000;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_EXTENSION = ".journal";
+
+    private static final byte STORE_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+
+    /**
+     * record type, key length, value length and CRC32 of key and value
+     */
+    private static final int RECORD_HEADER_SIZE = 1 + 4 + 4 + 8;
+
+    private MuleContext muleContext;
+
+    private File storeDirectory;
+
+    private long maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+    private boolean syncOnWrite = true;
+    private int compactionInterval = DEFAULT_COMPACTION_INTERVAL;
+
+    /**
+     * Guards the index, the segments and the append position
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Serializes forcing of the active segment so that one fsync covers all writers
+     * waiting on it. Must never be acquired while holding {@link #lock}.
+     */
+    private final Object syncLock = new Object();
+
+    private final Map<QueueKey, RecordLocation> index = new LinkedHashMap<QueueKey, RecordLocation>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    private Segment currentSegment;
+
+    /**
+     * Total number of bytes appended since the journal was opened
+     */
+    private long writeSequence;
+
+    /**
+     * Value of {@link #writeSequence} covered by the last fsync, guarded by {@link #syncLock}
+     */
+    private long syncedSequence;
+
+    private ScheduledThreadPoolExecutor compactor;
+
+    /**
+     * Default constructor for Spring.
+     */
+    public QueueJournalObjectStore()
+    {
+        super();
+    }
+
+    public QueueJournalObjectStore(MuleContext context)
+    {
+        super();
+        muleContext = context;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isPersistent()
+    {
+        return true;
+    }
+
+    public void open() throws ObjectStoreException
+    {
+        synchronized (lock)
+        {
+            if (currentSegment != null)
+            {
+                return;
+            }
+
+            initStoreDirectory();
+            if (!storeDirectory.exists() && !storeDirectory.mkdirs())
+            {
+                Message message = CoreMessages.failedToCreate("queue journal directory " + storeDirectory.getAbsolutePath());
+                throw new ObjectStoreException(message);
+            }
+
+            replaySegments();
+
+            if (segments.isEmpty())
+            {
+                currentSegment = createSegment(0);
+            }
+            else
+            {
+                currentSegment = segments.lastEntry().getValue();
+            }
+        }
+
+        compact();
+
+        compactor = new ScheduledThreadPoolExecutor(1);
+        compactor.setThreadFactory(new DaemonThreadFactory(DEFAULT_QUEUE_JOURNAL + "-Compactor", getClass().getClassLoader()));
+        compactor.scheduleWithFixedDelay(new Runnable()
+        {
+            public void run()
+            {
+                compact();
+            }
+        }, compactionInterval, compactionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void initStoreDirectory() throws ObjectStoreException
+    {
+        try
+        {
+            String workingDirectory = muleContext.getConfiguration().getWorkingDirectory();
+            String path = workingDirectory + File.separator + DEFAULT_QUEUE_JOURNAL;
+            storeDirectory = FileUtils.newFile(path);
+        }
+        catch (MuleRuntimeException mre)
+        {
+            // FileUtils throws a MuleRuntimeException if something goes wrong when creating the
+            // path. To fully conform to the ObjectStore contract we cannot just let it bubble
+            // through but rather catch it and re-throw as ObjectStoreException
+            throw new ObjectStoreException(mre);
+        }
+    }
+
+    public void close() throws ObjectStoreException
+    {
+        if (compactor != null)
+        {
+            compactor.shutdown();
+            compactor = null;
+        }
+
+        synchronized (lock)
+        {
+            try
+            {
+                if (currentSegment != null)
+                {
+                    currentSegment.channel.force(false);
+                }
+                for (Segment segment : segments.values())
+                {
+                    segment.close();
+                }
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+            finally
+            {
+                segments.clear();
+                index.clear();
+                currentSegment = null;
+            }
+        }
+    }
+
+    public List<Serializable> allKeys() throws ObjectStoreException
+    {
+        synchronized (lock)
+        {
+            if (currentSegment == null)
+            {
+                return Collections.emptyList();
+            }
+            return new ArrayList<Serializable>(index.keySet());
+        }
+    }
+
+    @Override
+    protected boolean doContains(Serializable key) throws ObjectStoreException
+    {
+        synchronized (lock)
+        {
+            return index.containsKey(key);
+        }
+    }
+
+    @Override
+    protected void doStore(Serializable key, T value) throws ObjectStoreException
+    {
+        QueueKey queueKey = (QueueKey) key;
+        byte[] keyBytes = encodeKey(queueKey);
+        byte[] valueBytes = serialize(value);
+        ByteBuffer record = encodeRecord(STORE_RECORD, keyBytes, valueBytes);
+
+        long syncMark;
+        synchronized (lock)
+        {
+            ensureOpen();
+            Segment segment = segmentWithRoomFor(record.remaining());
+            long position = segment.append(record);
+            index.put(queueKey, new RecordLocation(segment, position + RECORD_HEADER_SIZE + keyBytes.length, valueBytes.length));
+            segment.liveRecords++;
+            writeSequence += record.capacity();
+            syncMark = writeSequence;
+        }
+
+        if (syncOnWrite)
+        {
+            sync(syncMark);
+        }
+    }
+
+    @Override
+    protected T doRetrieve(Serializable key) throws ObjectStoreException
+    {
+        RecordLocation location;
+        synchronized (lock)
+        {
+            location = index.get(key);
+        }
+        if (location == null)
+        {
+            throw new ObjectDoesNotExistException();
+        }
+        return deserialize(location.read());
+    }
+
+    @Override
+    protected T doRemove(Serializable key) throws ObjectStoreException
+    {
+        QueueKey queueKey = (QueueKey) key;
+        ByteBuffer record = encodeRecord(REMOVE_RECORD, encodeKey(queueKey), new byte[0]);
+
+        RecordLocation location;
+        synchronized (lock)
+        {
+            location = index.get(queueKey);
+        }
+        if (location == null)
+        {
+            throw new ObjectDoesNotExistException();
+        }
+
+        // read the value while the event is still live so its segment cannot be reclaimed
+        T value = deserialize(location.read());
+
+        synchronized (lock)
+        {
+            ensureOpen();
+            if (index.get(queueKey) != location)
+            {
+                throw new ObjectDoesNotExistException();
+            }
+            index.remove(queueKey);
+            segmentWithRoomFor(record.remaining()).append(record);
+            writeSequence += record.capacity();
+            location.segment.liveRecords--;
+        }
+        return value;
+    }
+
+    /**
+     * Deletes the oldest segments whose events have all been removed. Stops at the
+     * first segment that still holds a live event or that is being written to.
+     */
+    protected void compact()
+    {
+        List<Segment> reclaimed = new ArrayList<Segment>();
+        synchronized (lock)
+        {
+            Iterator<Segment> it = segments.values().iterator();
+            while (it.hasNext())
+            {
+                Segment segment = it.next();
+                if (segment == currentSegment || segment.liveRecords > 0)
+                {
+                    break;
+                }
+                it.remove();
+                reclaimed.add(segment);
+            }
+        }
+
+        for (Segment segment : reclaimed)
+        {
+            try
+            {
+                segment.close();
+            }
+            catch (IOException e)
+            {
+                logger.warn("Could not close journal segment " + segment.file.getAbsolutePath(), e);
+            }
+            if (!segment.file.delete())
+            {
+                logger.warn("Could not delete journal segment " + segment.file.getAbsolutePath());
+            }
+            else if (logger.isDebugEnabled())
+            {
+                logger.debug("Removed fully consumed journal segment " + segment.file.getAbsolutePath());
+            }
+        }
+    }
+
+    private void sync(long syncMark) throws ObjectStoreException
+    {
+        synchronized (syncLock)
+        {
+            if (syncedSequence >= syncMark)
+            {
+                // a concurrent writer's fsync already covered this record
+                return;
+            }
+
+            long target;
+            FileChannel channel;
+            synchronized (lock)
+            {
+                ensureOpen();
+                target = writeSequence;
+                channel = currentSegment.channel;
+            }
+
+            try
+            {
+                channel.force(false);
+            }
+            catch (ClosedChannelException e)
+            {
+                // store closed concurrently, close() has already forced the segment
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+            syncedSequence = target;
+        }
+    }
+
+    private void ensureOpen() throws ObjectStoreException
+    {
+        if (currentSegment == null)
+        {
+            throw new ObjectStoreException(CoreMessages.createStaticMessage("Queue journal is not open"));
+        }
+    }
+
+    /**
+     * Must be called holding {@link #lock}
+     */
+    private Segment segmentWithRoomFor(int recordSize) throws ObjectStoreException
+    {
+        if (currentSegment.size > 0 && currentSegment.size + recordSize > maxSegmentSize)
+        {
+            try
+            {
+                // everything written to the old segment must be durable before writers
+                // start syncing only the new one
+                currentSegment.channel.force(false);
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+            currentSegment = createSegment(currentSegment.id + 1);
+        }
+        return currentSegment;
+    }
+
+    /**
+     * Must be called holding {@link #lock}
+     */
+    private Segment createSegment(long id) throws ObjectStoreException
+    {
+        File file = new File(storeDirectory, String.format("%s%019d%s", SEGMENT_PREFIX, id, SEGMENT_EXTENSION));
+        try
+        {
+            Segment segment = new Segment(id, file);
+            segments.put(id, segment);
+            return segment;
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(CoreMessages.failedToCreate("queue journal segment " + file.getAbsolutePath()), e);
+        }
+    }
+
+    /**
+     * Must be called holding {@link #lock}
+     */
+    private void replaySegments() throws ObjectStoreException
+    {
+        File[] files = storeDirectory.listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXTENSION);
+            }
+        });
+        if (files == null)
+        {
+            return;
+        }
+
+        for (File file : files)
+        {
+            String name = file.getName();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXTENSION.length()));
+            try
+            {
+                segments.put(id, new Segment(id, file));
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(CoreMessages.createStaticMessage("Could not open " + file.getAbsolutePath()), e);
+            }
+        }
+
+        for (Segment segment : segments.values())
+        {
+            try
+            {
+                replay(segment, segment == segments.lastEntry().getValue());
+            }
+            catch (IOException e)
+            {
+                String message = String.format("Could not restore from %1s", segment.file.getAbsolutePath());
+                throw new ObjectStoreException(CoreMessages.createStaticMessage(message), e);
+            }
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Restore retrieved " + index.size() + " objects from " + segments.size() + " journal segments");
+        }
+    }
+
+    private void replay(Segment segment, boolean lastSegment) throws IOException
+    {
+        long length = segment.channel.size();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+            Channels.newInputStream(segment.channel.position(0))));
+        long position = 0;
+        CRC32 crc = new CRC32();
+
+        while (position < length)
+        {
+            byte type;
+            byte[] keyBytes;
+            byte[] valueBytes;
+            try
+            {
+                type = in.readByte();
+                int keyLength = in.readInt();
+                int valueLength = in.readInt();
+                long checksum = in.readLong();
+                if (keyLength < 0 || valueLength < 0 || position + RECORD_HEADER_SIZE + keyLength + valueLength > length)
+                {
+                    throw new EOFException();
+                }
+                keyBytes = new byte[keyLength];
+                in.readFully(keyBytes);
+                valueBytes = new byte[valueLength];
+                in.readFully(valueBytes);
+
+                crc.reset();
+                crc.update(keyBytes);
+                crc.update(valueBytes);
+                if (crc.getValue() != checksum || (type != STORE_RECORD && type != REMOVE_RECORD))
+                {
+                    throw new EOFException();
+                }
+            }
+            catch (EOFException e)
+            {
+                if (lastSegment)
+                {
+                    logger.warn("Truncating incomplete record at offset " + position + " of " + segment.file.getAbsolutePath());
+                    segment.channel.truncate(position);
+                }
+                else
+                {
+                    logger.warn("Ignoring corrupted records from offset " + position + " of " + segment.file.getAbsolutePath());
+                }
+                break;
+            }
+
+            QueueKey key = decodeKey(keyBytes);
+            if (type == STORE_RECORD)
+            {
+                index.put(key, new RecordLocation(segment, position + RECORD_HEADER_SIZE + keyBytes.length, valueBytes.length));
+                segment.liveRecords++;
+            }
+            else
+            {
+                RecordLocation location = index.remove(key);
+                if (location != null)
+                {
+                    location.segment.liveRecords--;
+                }
+            }
+            position += RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length;
+        }
+
+        segment.size = position;
+    }
+
+    private byte[] encodeKey(QueueKey key) throws ObjectStoreException
+    {
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(key.queueName);
+            out.writeUTF(key.id.toString());
+            out.flush();
+            return bytes.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private QueueKey decodeKey(byte[] keyBytes) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(keyBytes));
+        String queueName = in.readUTF();
+        String id = in.readUTF();
+        return new QueueKey(queueName, id);
+    }
+
+    private ByteBuffer encodeRecord(byte type, byte[] keyBytes, byte[] valueBytes)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(valueBytes);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length);
+        record.put(type);
+        record.putInt(keyBytes.length);
+        record.putInt(valueBytes.length);
+        record.putLong(crc.getValue());
+        record.put(keyBytes);
+        record.put(valueBytes);
+        record.flip();
+        return record;
+    }
+
+    protected byte[] serialize(T value) throws ObjectStoreException
+    {
+        try
+        {
+            return muleContext.getObjectSerializer().serialize(value);
+        }
+        catch (SerializationException se)
+        {
+            throw new ObjectStoreException(se);
+        }
+    }
+
+    protected T deserialize(byte[] valueBytes) throws ObjectStoreException
+    {
+        try
+        {
+            return muleContext.getObjectSerializer().deserialize(valueBytes);
+        }
+        catch (SerializationException se)
+        {
+            throw new ObjectStoreException(se);
+        }
+    }
+
+    public void setMuleContext(MuleContext context)
+    {
+        muleContext = context;
+    }
+
+    /**
+     * Size in bytes after which the active segment is rolled over. A single record
+     * larger than this gets a segment of its own.
+     */
+    public void setMaxSegmentSize(long maxSegmentSize)
+    {
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    public long getMaxSegmentSize()
+    {
+        return maxSegmentSize;
+    }
+
+    /**
+     * Whether {@link #store(Serializable, Serializable)} returns only once the event
+     * has been forced to disk. Defaults to <code>true</code>.
+     */
+    public void setSyncOnWrite(boolean syncOnWrite)
+    {
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    public boolean isSyncOnWrite()
+    {
+        return syncOnWrite;
+    }
+
+    /**
+     * Interval in milliseconds at which fully consumed segments are deleted
+     */
+    public void setCompactionInterval(int compactionInterval)
+    {
+        this.compactionInterval = compactionInterval;
+    }
+
+    public int getCompactionInterval()
+    {
+        return compactionInterval;
+    }
+
+    int getSegmentCount()
+    {
+        synchronized (lock)
+        {
+            return segments.size();
+        }
+    }
+
+    private static class Segment
+    {
+        final long id;
+        final File file;
+        final FileChannel channel;
+        long size;
+        int liveRecords;
+
+        Segment(long id, File file) throws IOException
+        {
+            this.id = id;
+            this.file = file;
+            this.channel = new RandomAccessFile(file, "rw").getChannel();
+            this.size = channel.size();
+        }
+
+        long append(ByteBuffer record) throws ObjectStoreException
+        {
+            long position = size;
+            try
+            {
+                long offset = position;
+                while (record.hasRemaining())
+                {
+                    offset += channel.write(record, offset);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+            size = position + record.capacity();
+            return position;
+        }
+
+        void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    private static class RecordLocation
+    {
+        final Segment segment;
+        final long position;
+        final int length;
+
+        RecordLocation(Segment segment, long position, int length)
+        {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+        }
+
+        byte[] read() throws ObjectStoreException
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            try
+            {
+                long offset = position;
+                while (buffer.hasRemaining())
+                {
+                    int read = segment.channel.read(buffer, offset);
+                    if (read < 0)
+                    {
+                        throw new EOFException(segment.file.getAbsolutePath());
+                    }
+                    offset += read;
+                }
+            }
+            catch (ClosedChannelException e)
+            {
+                throw new ObjectDoesNotExistException(e);
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+            return buffer.array();
+        }
+    }
+}
@@ -20,7 +20,6 @@ import org.mule.api.store.ObjectStoreException;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.config.i18n.Message;
 import org.mule.util.FileUtils;
-import org.mule.util.SerializationUtils;
 import org.mule.util.queue.QueueKey;
 
 import java.io.File;
@@ -232,7 +231,7 @@ public class QueuePersistenceObjectStore<T extends Serializable> extends Abstrac
         try
         {
             FileOutputStream out = new FileOutputStream(outputFile);
-            SerializationUtils.serialize(value, out);
+            muleContext.getObjectSerializer().serialize(value, out);
         }
         catch (SerializationException se)
         {
@@ -277,7 +276,7 @@ public class QueuePersistenceObjectStore<T extends Serializable> extends Abstrac
         try
         {
             FileInputStream in = new FileInputStream(file);
-            return (T)SerializationUtils.deserialize(in, muleContext);
+            return muleContext.getObjectSerializer().<T> deserialize(in);
         }
         catch (SerializationException se)
         {
@@ -0,0 +1,158 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.util.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>TimingWheel</code> is a hashed timing wheel that tells which of a large
+ * number of items reached their deadline without looking at all of them. Time is
+ * divided in ticks and every item goes to the bucket of the tick its deadline falls
+ * in; polling only visits the buckets of the ticks elapsed since the previous poll.
+ * Deadlines further away than one revolution of the wheel simply stay in their
+ * bucket until a later revolution reaches them.
+ * <p/>
+ * Items may be scheduled from any thread, but {@link #expire(long)} must only be
+ * called from one thread at a time. Items can not be cancelled; callers are expected
+ * to ignore items that are no longer relevant when they expire. An item expires
+ * at most one tick after its deadline.
+ */
+public class TimingWheel<T>
+{
+    private final long tickNanos;
+    private final List<Entry<T>>[] buckets;
+    private final int mask;
+    private final Queue<Entry<T>> scheduled = new ConcurrentLinkedQueue<Entry<T>>();
+
+    // accessed by the expiring thread only
+    private long lastTick;
+    private int size;
+
+    /**
+     * @param tickDuration the resolution of the wheel
+     * @param unit the unit of <code>tickDuration</code>
+     * @param bucketCount number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickDuration, TimeUnit unit, int bucketCount)
+    {
+        if (tickDuration <= 0 || bucketCount <= 0)
+        {
+            throw new IllegalArgumentException("Tick duration and bucket count must be positive");
+        }
+        int count = 1;
+        while (count < bucketCount)
+        {
+            count <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.buckets = new List[count];
+        for (int i = 0; i < count; i++)
+        {
+            buckets[i] = new ArrayList<Entry<T>>();
+        }
+        this.mask = count - 1;
+        this.lastTick = tick(System.nanoTime()) - 1;
+    }
+
+    /**
+     * Schedules an item.
+     *
+     * @param deadline deadline in terms of {@link System#nanoTime()}
+     */
+    public void schedule(T item, long deadline)
+    {
+        scheduled.add(new Entry<T>(item, deadline));
+    }
+
+    /**
+     * Removes and returns the items whose deadline passed.
+     *
+     * @param now current time in terms of {@link System#nanoTime()}
+     */
+    public List<T> expire(long now)
+    {
+        List<T> expired = new ArrayList<T>();
+        Entry<T> entry;
+        while ((entry = scheduled.poll()) != null)
+        {
+            long deadlineTick = tick(entry.deadline);
+            if (deadlineTick <= lastTick)
+            {
+                expired.add(entry.item);
+            }
+            else
+            {
+                buckets[(int) (deadlineTick & mask)].add(entry);
+                size++;
+            }
+        }
+
+        // only ticks that have fully elapsed are processed
+        long currentTick = tick(now) - 1;
+        long first = Math.max(lastTick + 1, currentTick - mask);
+        for (long t = first; t <= currentTick; t++)
+        {
+            // compacts the entries of later revolutions to the front of the bucket
+            List<Entry<T>> bucket = buckets[(int) (t & mask)];
+            int kept = 0;
+            for (int i = 0; i < bucket.size(); i++)
+            {
+                entry = bucket.get(i);
+                if (tick(entry.deadline) <= currentTick)
+                {
+                    expired.add(entry.item);
+                }
+                else
+                {
+                    bucket.set(kept++, entry);
+                }
+            }
+            size -= bucket.size() - kept;
+            bucket.subList(kept, bucket.size()).clear();
+        }
+        if (currentTick > lastTick)
+        {
+            lastTick = currentTick;
+        }
+        return expired;
+    }
+
+    /**
+     * @return number of items scheduled and not yet expired. Only accurate when
+     *         called from the expiring thread.
+     */
+    public int size()
+    {
+        return size + scheduled.size();
+    }
+
+    private long tick(long nanos)
+    {
+        return nanos / tickNanos;
+    }
+
+    private static final class Entry<T>
+    {
+        private final T item;
+        private final long deadline;
+
+        private Entry(T item, long deadline)
+        {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
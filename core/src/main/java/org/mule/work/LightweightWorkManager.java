@@ -0,0 +1,47 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.work;
+
+import org.mule.api.config.ThreadingProfile;
+import org.mule.util.concurrent.LightweightExecutorService;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A {@link MuleWorkManager} that runs each piece of work in a thread of its own, a
+ * virtual thread when the JVM has them, rather than in a pool of a fixed number of
+ * threads. The maximum number of active threads of the threading profile bounds the
+ * work in flight instead.
+ *
+ * @see LightweightExecutorService
+ */
+public class LightweightWorkManager extends MuleWorkManager
+{
+    private final boolean useVirtualThreads;
+
+    public LightweightWorkManager(ThreadingProfile profile, String name, int shutdownTimeout, boolean useVirtualThreads)
+    {
+        super(profile, name, shutdownTimeout);
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    @Override
+    protected ExecutorService createWorkExecutorService(ThreadingProfile profile, String name)
+    {
+        ExecutorService executor = new LightweightExecutorService(name, profile, useVirtualThreads);
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Work manager " + name + " runs work on "
+                         + (((LightweightExecutorService) executor).isVirtual() ? "virtual" : "platform")
+                         + " threads");
+        }
+        return executor;
+    }
+}
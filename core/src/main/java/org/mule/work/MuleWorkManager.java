@@ -112,10 +112,24 @@ public class MuleWorkManager implements WorkManager, MuleContextAware
         
         if (workExecutorService == null)
         {
-            workExecutorService = threadingProfile.createPool(name);
+            workExecutorService = createWorkExecutorService(threadingProfile, name);
         }
     }
 
+    /**
+     * Creates the <code>ExecutorService</code> that runs the work submitted to this
+     * work manager. Subclasses may override this to run work in other ways than in the
+     * thread pool configured by the threading profile.
+     *
+     * @param profile the threading profile of this work manager
+     * @param name the name of this work manager
+     * @return a new <code>ExecutorService</code>
+     */
+    protected ExecutorService createWorkExecutorService(ThreadingProfile profile, String name)
+    {
+        return profile.createPool(name);
+    }
+
     public synchronized void dispose()
     {
         if (workExecutorService != null)
@@ -0,0 +1,37 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.work;
+
+import org.mule.api.config.ThreadingProfile;
+import org.mule.util.concurrent.WorkStealingExecutorService;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A {@link MuleWorkManager} whose threads each have a queue of work of their own and
+ * steal from each other when out of work, which suits flows that are CPU bound, such
+ * as those transforming XML or JSON, better than a pool sharing a single queue.
+ *
+ * @see WorkStealingExecutorService
+ */
+public class WorkStealingWorkManager extends MuleWorkManager
+{
+
+    public WorkStealingWorkManager(ThreadingProfile profile, String name, int shutdownTimeout)
+    {
+        super(profile, name, shutdownTimeout);
+    }
+
+    @Override
+    protected ExecutorService createWorkExecutorService(ThreadingProfile profile, String name)
+    {
+        return new WorkStealingExecutorService(name, profile);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.work;
+
+import org.mule.api.MuleContext;
+import org.mule.api.config.ThreadingProfile;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.context.WorkManager;
+
+/**
+ * Creates {@link WorkStealingWorkManager}s. Set it as the work manager factory of a
+ * threading profile to have the flow or connector using the profile run its work in a
+ * work stealing pool.
+ */
+public class WorkStealingWorkManagerFactory implements ThreadingProfile.WorkManagerFactory, MuleContextAware
+{
+    protected MuleContext muleContext;
+
+    public WorkManager createWorkManager(ThreadingProfile profile, String name, int shutdownTimeout)
+    {
+        WorkStealingWorkManager workManager = new WorkStealingWorkManager(profile, name, shutdownTimeout);
+        if (muleContext != null)
+        {
+            workManager.setMuleContext(muleContext);
+        }
+        return workManager;
+    }
+
+    public void setMuleContext(MuleContext context)
+    {
+        this.muleContext = context;
+    }
+}
@@ -213,6 +213,71 @@ public class DefaultMuleMessageTestCase extends AbstractMuleContextTestCase
         assertInboundAndOutboundMessageProperties(copy);
     }
 
+    @Test
+    public void testCopiesDoNotSeeEachOthersPropertyChanges() throws Exception
+    {
+        DefaultMuleMessage original = (DefaultMuleMessage) createMuleMessage();
+        original.addInboundProperties(createMessageProperties());
+
+        MuleMessage copy = new DefaultMuleMessage(original);
+        MuleMessage secondCopy = new DefaultMuleMessage(original);
+        copy.setOutboundProperty("copy", "copyValue");
+        copy.removeProperty("MuleMessage", PropertyScope.OUTBOUND);
+        original.setOutboundProperty("original", "originalValue");
+        original.setInboundProperty("MessageProperties", "changed");
+        secondCopy.clearProperties(PropertyScope.OUTBOUND);
+
+        assertEquals("changed", original.getInboundProperty("MessageProperties"));
+        assertEquals("MessageProperties", copy.getInboundProperty("MessageProperties"));
+        assertEquals("MessageProperties", secondCopy.getInboundProperty("MessageProperties"));
+
+        assertEquals(2, original.getOutboundPropertyNames().size());
+        assertOutboundMessageProperty("MuleMessage", original);
+        assertEquals("originalValue", original.getOutboundProperty("original"));
+        assertEquals(1, copy.getOutboundPropertyNames().size());
+        assertEquals("copyValue", copy.getOutboundProperty("copy"));
+        assertEquals(0, secondCopy.getOutboundPropertyNames().size());
+    }
+
+    @Test
+    public void testPropertyNamesOfSharedScopeCannotBeChanged() throws Exception
+    {
+        MuleMessage original = createMuleMessage();
+        MuleMessage copy = new DefaultMuleMessage(original);
+
+        try
+        {
+            copy.getPropertyNames(PropertyScope.OUTBOUND).remove("MuleMessage");
+            fail("Expected the property names not to be modifiable");
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // expected
+        }
+        assertOutboundMessageProperty("MuleMessage", original);
+        assertOutboundMessageProperty("MuleMessage", copy);
+    }
+
+    @Test
+    public void testCopiesDoNotSeeEachOthersAttachmentChanges() throws Exception
+    {
+        MuleMessage original = createMuleMessage();
+        DataHandler handler = new DataHandler("this is the attachment", "text/plain");
+        original.addOutboundAttachment("attachment", handler);
+
+        MuleMessage copy = new DefaultMuleMessage(original);
+        copy.removeOutboundAttachment("attachment");
+        copy.addOutboundAttachment("copy", handler);
+        ((DefaultMuleMessage) original).addInboundAttachment("inbound", handler);
+
+        assertEquals(1, original.getOutboundAttachmentNames().size());
+        assertEquals(handler, original.getOutboundAttachment("attachment"));
+        assertEquals(1, original.getInboundAttachmentNames().size());
+        assertEquals(1, copy.getOutboundAttachmentNames().size());
+        assertEquals(handler, copy.getOutboundAttachment("copy"));
+        assertEquals(0, copy.getInboundAttachmentNames().size());
+    }
+
     private void assertInboundAndOutboundMessageProperties(MuleMessage original)
     {
         assertOutboundMessageProperty("MuleMessage", original);
@@ -21,6 +21,7 @@ import org.mule.api.transport.SessionHandler;
 import org.mule.security.DefaultMuleAuthentication;
 import org.mule.security.DefaultSecurityContextFactory;
 import org.mule.security.MuleCredentials;
+import org.mule.serialization.JavaObjectSerializer;
 import org.mule.session.DefaultMuleSession;
 import org.mule.session.LegacySessionHandler;
 import org.mule.session.SerializeAndEncodeSessionHandler;
@@ -54,6 +55,9 @@ public class MuleSessionHandlerTestCase extends AbstractMuleTestCase
     {
         muleContext = Mockito.mock(MuleContext.class);
         Mockito.when(muleContext.getExecutionClassLoader()).thenReturn(Thread.currentThread().getContextClassLoader());
+        JavaObjectSerializer serializer = new JavaObjectSerializer();
+        serializer.setMuleContext(muleContext);
+        Mockito.when(muleContext.getObjectSerializer()).thenReturn(serializer);
     }
 
     @BeforeClass
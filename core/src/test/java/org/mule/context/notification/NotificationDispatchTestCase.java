@@ -0,0 +1,304 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.context.notification;
+
+import org.mule.api.MuleContext;
+import org.mule.api.context.WorkManager;
+import org.mule.api.context.notification.ServerNotification;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SmallTest
+public class NotificationDispatchTestCase extends AbstractMuleTestCase
+{
+    private static final int TIMEOUT = 5000;
+
+    private ServerNotificationManager manager;
+    private WorkManager workManager;
+    private RecordingListener listener;
+
+    @Before
+    public void createManager() throws Exception
+    {
+        MuleContext muleContext = mock(MuleContext.class, RETURNS_DEEP_STUBS);
+        when(muleContext.getConfiguration().getDefaultQueueTimeout()).thenReturn(100);
+        manager = new ServerNotificationManager();
+        manager.setMuleContext(muleContext);
+        manager.addInterfaceToType(RecordingListener.class, Event1.class);
+        manager.addInterfaceToType(OtherRecordingListener.class, Event1.class);
+
+        workManager = mock(WorkManager.class);
+        doAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                new Thread((Work) invocation.getArguments()[0]).start();
+                return null;
+            }
+        }).when(workManager).scheduleWork(any(Work.class), anyLong(), any(javax.resource.spi.work.ExecutionContext.class), any(WorkListener.class));
+
+        listener = new RecordingListener();
+        manager.addListener(listener);
+    }
+
+    @After
+    public void disposeManager()
+    {
+        manager.dispose();
+    }
+
+    @Test
+    public void deliversInOrder() throws Exception
+    {
+        manager.start(workManager, null);
+        List<ServerNotification> fired = fire(1000);
+
+        assertTrue(listener.await(1000));
+        assertEquals(fired, listener.getReceived());
+    }
+
+    @Test
+    public void deliversInOrderFromSeveralLanes() throws Exception
+    {
+        OtherRecordingListener other = new OtherRecordingListener();
+        manager.addListener(other);
+        manager.setLanes(4);
+        manager.start(workManager, null);
+        List<ServerNotification> fired = fire(1000);
+
+        assertTrue(listener.await(1000));
+        assertTrue(other.await(1000));
+        assertEquals(fired, listener.getReceived());
+        assertEquals(fired, other.getReceived());
+    }
+
+    @Test
+    public void deliversNotificationsQueuedBeforeLanesAreReplaced() throws Exception
+    {
+        manager.start(workManager, null);
+        List<ServerNotification> fired = fire(10);
+        manager.setBufferSize(64);
+        fired.addAll(fire(10));
+
+        assertTrue(listener.await(20));
+        assertEquals(20, listener.getReceived().size());
+        assertTrue(listener.getReceived().containsAll(fired));
+    }
+
+    @Test
+    public void deliversNotificationsQueuedBeforeMoreLanesAreAdded() throws Exception
+    {
+        OtherRecordingListener other = new OtherRecordingListener();
+        manager.addListener(other);
+        List<ServerNotification> fired = fire(100);
+        manager.setLanes(4);
+        manager.start(workManager, null);
+        fired.addAll(fire(100));
+
+        assertReceivedByAll(fired, listener, other);
+    }
+
+    @Test
+    public void deliversNotificationsQueuedBeforeLanesAreRemoved() throws Exception
+    {
+        OtherRecordingListener other = new OtherRecordingListener();
+        manager.addListener(other);
+        manager.setLanes(4);
+        List<ServerNotification> fired = fire(100);
+        manager.start(workManager, null);
+        manager.setLanes(1);
+        fired.addAll(fire(100));
+
+        assertReceivedByAll(fired, listener, other);
+    }
+
+    @Test
+    public void doesNotQueueNotificationsNoListenerIsInterestedIn() throws Exception
+    {
+        manager.fireNotification(new Event2());
+        assertTrue(manager.getEventQueue().isEmpty());
+
+        manager.fireNotification(new Event1());
+        assertEquals(1, manager.getEventQueue().size());
+    }
+
+    @Test
+    public void dropsWhenFullByDefault() throws Exception
+    {
+        manager.setBufferSize(4);
+        fire(10);
+
+        assertEquals(4, manager.getEventQueue().size());
+        assertEquals(6, manager.getDroppedNotificationCount());
+    }
+
+    @Test
+    public void samplesWhenHalfFull() throws Exception
+    {
+        manager.setBufferSize(8);
+        manager.setOverflowPolicy(NotificationOverflowPolicy.SAMPLE);
+        manager.setSampleRate(2);
+        fire(12);
+
+        // 4 until half full, then every other one
+        assertEquals(8, manager.getEventQueue().size());
+        assertEquals(4, manager.getDroppedNotificationCount());
+    }
+
+    @Test
+    public void blocksUntilThereIsRoom() throws Exception
+    {
+        manager.setBufferSize(4);
+        manager.setOverflowPolicy(NotificationOverflowPolicy.BLOCK);
+        fire(4);
+        final CountDownLatch queued = new CountDownLatch(1);
+        new Thread()
+        {
+            @Override
+            public void run()
+            {
+                manager.fireNotification(new Event1());
+                queued.countDown();
+            }
+        }.start();
+        assertEquals(false, queued.await(200, TimeUnit.MILLISECONDS));
+
+        manager.start(workManager, null);
+        assertTrue(queued.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue(listener.await(5));
+        assertEquals(0, manager.getDroppedNotificationCount());
+    }
+
+    @Test
+    public void listenerFiringIntoItsOwnFullLaneDoesNotWaitForItself() throws Exception
+    {
+        manager.setBufferSize(4);
+        manager.setOverflowPolicy(NotificationOverflowPolicy.BLOCK);
+        manager.addListener(new FiringListener(10));
+        manager.start(workManager, null);
+        manager.fireNotification(new Event1());
+
+        // the first notification, and the 10 fired while delivering it, 4 queued and 6 delivered inline
+        assertTrue(listener.await(11));
+        assertEquals(0, manager.getDroppedNotificationCount());
+    }
+
+    private void assertReceivedByAll(List<ServerNotification> fired, AbstractRecordingListener... listeners)
+        throws InterruptedException
+    {
+        for (AbstractRecordingListener recording : listeners)
+        {
+            assertTrue(recording.await(fired.size()));
+            assertTrue(recording.getReceived().containsAll(fired));
+        }
+    }
+
+    private List<ServerNotification> fire(int count)
+    {
+        List<ServerNotification> fired = new ArrayList<ServerNotification>();
+        for (int i = 0; i < count; i++)
+        {
+            ServerNotification notification = new Event1();
+            fired.add(notification);
+            manager.fireNotification(notification);
+        }
+        return fired;
+    }
+
+    public static class RecordingListener extends AbstractRecordingListener
+    {
+    }
+
+    /**
+     * Not a subclass of {@link RecordingListener}, so that it is not registered for
+     * notifications twice.
+     */
+    public static class OtherRecordingListener extends AbstractRecordingListener
+    {
+    }
+
+    public abstract static class AbstractRecordingListener extends AbstractListener<ServerNotification>
+    {
+        private final List<ServerNotification> received = Collections.synchronizedList(new ArrayList<ServerNotification>());
+
+        @Override
+        public void onNotification(ServerNotification notification)
+        {
+            super.onNotification(notification);
+            received.add(notification);
+        }
+
+        public boolean await(int count) throws InterruptedException
+        {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (received.size() < count && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            return received.size() == count;
+        }
+
+        public List<ServerNotification> getReceived()
+        {
+            return new ArrayList<ServerNotification>(received);
+        }
+    }
+
+    /**
+     * Fires notifications from within the lane delivering the first one it gets.
+     */
+    private class FiringListener extends OtherRecordingListener
+    {
+        private final int count;
+        private boolean fired = false;
+
+        FiringListener(int count)
+        {
+            this.count = count;
+        }
+
+        @Override
+        public void onNotification(ServerNotification notification)
+        {
+            super.onNotification(notification);
+            if (!fired)
+            {
+                fired = true;
+                fire(count);
+            }
+        }
+    }
+}
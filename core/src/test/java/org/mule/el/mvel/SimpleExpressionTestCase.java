@@ -0,0 +1,178 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.el.mvel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.transport.PropertyScope;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.transport.NullPayload;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SimpleExpressionTestCase extends AbstractMuleContextTestCase
+{
+
+    private MVELExpressionLanguage optimized;
+    private MVELExpressionLanguage interpreted;
+    private MuleEvent event;
+
+    @Before
+    public void setUpExpressionLanguages() throws Exception
+    {
+        optimized = new MVELExpressionLanguage(muleContext);
+        optimized.initialise();
+        interpreted = new MVELExpressionLanguage(muleContext);
+        interpreted.setOptimizeSimpleExpressions(false);
+        interpreted.initialise();
+
+        event = getTestEvent(new Order("o-1", true));
+        event.getMessage().setProperty("contentType", "text/plain", PropertyScope.INBOUND);
+        event.getMessage().setOutboundProperty("status", 200);
+        event.getMessage().setInvocationProperty("count", 3);
+        event.getMessage().setInvocationProperty("name", "mule");
+        event.getMessage().setInvocationProperty("order", new Order("o-2", false));
+    }
+
+    @Test
+    public void parsesSubset()
+    {
+        assertNotNull(SimpleExpression.parse("payload"));
+        assertNotNull(SimpleExpression.parse("#[message.payload]"));
+        assertNotNull(SimpleExpression.parse("message.inboundProperties['contentType']"));
+        assertNotNull(SimpleExpression.parse("message.outboundProperties.status"));
+        assertNotNull(SimpleExpression.parse("flowVars[\"count\"]"));
+        assertNotNull(SimpleExpression.parse("sessionVars.user"));
+        assertNotNull(SimpleExpression.parse("payload.id"));
+        assertNotNull(SimpleExpression.parse("flowVars.order.lines['a']"));
+        assertNotNull(SimpleExpression.parse(" payload.id == 'o-1' "));
+        assertNotNull(SimpleExpression.parse("flowVars.count != 3"));
+        assertNotNull(SimpleExpression.parse("payload.paid == true"));
+        assertNotNull(SimpleExpression.parse("flowVars.name == null"));
+    }
+
+    @Test
+    public void leavesOtherExpressionsToMvel()
+    {
+        assertNull(SimpleExpression.parse("message.id"));
+        assertNull(SimpleExpression.parse("message.inboundProperties"));
+        assertNull(SimpleExpression.parse("flowVars"));
+        assertNull(SimpleExpression.parse("flowVars.empty"));
+        assertNull(SimpleExpression.parse("foo"));
+        assertNull(SimpleExpression.parse("payload.toString()"));
+        assertNull(SimpleExpression.parse("payload = 'x'"));
+        assertNull(SimpleExpression.parse("payload.id == 'o-1' && true"));
+        assertNull(SimpleExpression.parse("flowVars.count == 3.0"));
+        assertNull(SimpleExpression.parse("flowVars.count == 010"));
+        assertNull(SimpleExpression.parse("payload.id == 'o\\'1'"));
+        assertNull(SimpleExpression.parse("payload[0]"));
+        assertNull(SimpleExpression.parse("#[payload"));
+    }
+
+    @Test
+    public void evaluatesLikeMvel()
+    {
+        assertSameResult("payload");
+        assertSameResult("message.payload");
+        assertSameResult("#[message.inboundProperties['contentType']]");
+        assertSameResult("message.inboundProperties['missing']");
+        assertSameResult("message.outboundProperties.status");
+        assertSameResult("flowVars['count']");
+        assertSameResult("flowVars.name");
+        assertSameResult("payload.id");
+        assertSameResult("payload.paid");
+        assertSameResult("payload.lines['a']");
+        assertSameResult("payload.lines.a");
+        assertSameResult("flowVars.order.id");
+        assertSameResult("payload.id == 'o-1'");
+        assertSameResult("payload.id != 'o-1'");
+        assertSameResult("flowVars.count == 3");
+        assertSameResult("flowVars.count != 4");
+        assertSameResult("payload.paid == true");
+        assertSameResult("flowVars['missing'] == null");
+        assertSameResult("flowVars['missing'] == 'x'");
+        assertSameResult("flowVars.count == '3'");
+    }
+
+    @Test
+    public void fallsBackForNullPayload() throws Exception
+    {
+        MuleEvent nullEvent = getTestEvent(NullPayload.getInstance());
+
+        assertSame(SimpleExpression.FALLBACK, optimized.evaluateSimple("payload", nullEvent.getMessage()));
+        assertNull(optimized.evaluateSimple("message.payload", nullEvent.getMessage()));
+        assertEquals(interpreted.evaluate("payload", nullEvent), optimized.evaluate("payload", nullEvent));
+    }
+
+    @Test
+    public void fallsBackForCoercion()
+    {
+        assertSame(SimpleExpression.FALLBACK,
+            optimized.evaluateSimple("flowVars.count == '3'", event.getMessage()));
+        assertSame(SimpleExpression.FALLBACK, optimized.evaluateSimple("payload.missing", event.getMessage()));
+    }
+
+    @Test
+    public void fallsBackWhenVariableHidesMessage()
+    {
+        event.getMessage().setInvocationProperty("payload", "variable");
+
+        assertSame(SimpleExpression.FALLBACK, optimized.evaluateSimple("payload", event.getMessage()));
+        assertEquals(interpreted.evaluate("payload", event), optimized.evaluate("payload", event));
+    }
+
+    @Test
+    public void evaluatesCompiledExpression() throws Exception
+    {
+        assertEquals("o-1", optimized.compile("#[payload.id]").evaluate(event));
+        assertEquals(Boolean.TRUE, optimized.compile("flowVars.count == 3").evaluate(event));
+    }
+
+    private void assertSameResult(String expression)
+    {
+        assertEquals(expression, interpreted.evaluate(expression, event), optimized.evaluate(expression, event));
+    }
+
+    public static class Order
+    {
+        private final String id;
+        private final boolean paid;
+
+        public Order(String id, boolean paid)
+        {
+            this.id = id;
+            this.paid = paid;
+        }
+
+        public String getId()
+        {
+            return id;
+        }
+
+        public boolean isPaid()
+        {
+            return paid;
+        }
+
+        public Map<String, String> getLines()
+        {
+            return Collections.singletonMap("a", "line a");
+        }
+    }
+}
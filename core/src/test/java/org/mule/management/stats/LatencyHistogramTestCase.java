@@ -0,0 +1,169 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@SmallTest
+public class LatencyHistogramTestCase extends AbstractMuleTestCase
+{
+    private static final int TIMEOUT = 10000;
+
+    @Test
+    public void emptyHistogram()
+    {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().getSnapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getMean());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void bucketsCoverEveryValue()
+    {
+        int previous = -1;
+        for (long value = 0; value < 1L << 20; value++)
+        {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(value <= LatencyHistogram.highestValueInBucket(index));
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void recordsInMicroseconds()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+        {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(500, snapshot.getMean());
+        assertWithinPrecision(500, snapshot.getMedian());
+        assertWithinPrecision(990, snapshot.get99thPercentile());
+        assertWithinPrecision(999, snapshot.get999thPercentile());
+        assertEquals(1000, snapshot.getValueAtPercentile(100));
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void percentilesFollowOutliers()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 990; i++)
+        {
+            histogram.record(100000);
+        }
+        for (int i = 0; i < 10; i++)
+        {
+            histogram.record(5000000000L);
+        }
+
+        assertWithinPrecision(100, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(100, histogram.getValueAtPercentile(99));
+        assertEquals(5000000, histogram.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    public void clear()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(2000);
+        histogram.clear();
+
+        assertEquals(0, histogram.getCount());
+        histogram.record(3000);
+        assertEquals(3, histogram.getSnapshot().getMin());
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int threads = 8;
+        final int records = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] recorders = new Thread[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            final long latency = (i + 1) * 1000L;
+            recorders[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                    for (int j = 0; j < records; j++)
+                    {
+                        histogram.record(latency);
+                    }
+                }
+            };
+            recorders[i].start();
+        }
+        start.countDown();
+        for (Thread recorder : recorders)
+        {
+            recorder.join(TIMEOUT);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(threads * records, snapshot.getCount());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(threads, snapshot.getMax());
+    }
+
+    @Test
+    public void flowStatisticsRecordLatencies()
+    {
+        FlowConstructStatistics statistics = new FlowConstructStatistics("Flow", "test");
+        statistics.addFlowExecutionBranchLatency(4000);
+        statistics.addMessageProcessorLatency("/test/processors/0", 1000);
+        statistics.addMessageProcessorLatency("/test/processors/0", 3000);
+
+        assertEquals(1, statistics.getProcessingLatency().getCount());
+        assertEquals(2, statistics.getMessageProcessorLatencies().get("/test/processors/0").getCount());
+
+        statistics.clear();
+        assertEquals(0, statistics.getProcessingLatency().getCount());
+        assertTrue(statistics.getMessageProcessorLatencies().isEmpty());
+    }
+
+    private void assertWithinPrecision(long expected, long actual)
+    {
+        assertTrue("Expected about " + expected + " but was " + actual,
+            Math.abs(expected - actual) <= Math.max(1, expected / 32));
+    }
+}
@@ -20,6 +20,9 @@ import org.mule.api.MuleMessage;
 import org.mule.api.transport.PropertyScope;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.SerializationUtils;
@@ -91,6 +94,32 @@ public class MessagePropertiesContextTestCase extends AbstractMuleContextTestCas
         doTest(mpc);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInvocationPropertiesSerializedWithLegacyMap() throws Exception
+    {
+        // The map invocation properties were kept in before an event was created
+        // used to extend CaseInsensitiveHashMap; the class kept to read it writes the
+        // same stream as it did
+        Class<?> legacyMapClass = Class.forName(MessagePropertiesContext.class.getName() + "$UndefinedInvocationPropertiesMap");
+        Constructor<?> constructor = legacyMapClass.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Map<String, Object> legacyMap = (Map<String, Object>) constructor.newInstance();
+        legacyMap.put("DOO", "DAR");
+
+        MessagePropertiesContext mpc = new MessagePropertiesContext();
+        Field invocationMap = MessagePropertiesContext.class.getDeclaredField("invocationMap");
+        invocationMap.setAccessible(true);
+        invocationMap.set(mpc, legacyMap);
+
+        byte[] bytes = SerializationUtils.serialize(mpc);
+        mpc = (MessagePropertiesContext) SerializationUtils.deserialize(bytes);
+
+        assertEquals("DAR", mpc.getProperty("doo", PropertyScope.INVOCATION));
+        mpc.setProperty("FOO", "BAR", PropertyScope.INVOCATION);
+        assertEquals("BAR", mpc.getProperty("foo", PropertyScope.INVOCATION));
+    }
+
     /*@Test
     public void testInboundScopeIsImmutable() throws Exception
     {        
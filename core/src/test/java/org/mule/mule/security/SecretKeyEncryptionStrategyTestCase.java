@@ -14,6 +14,11 @@ import org.mule.security.SecretKeyEncryptionStrategy;
 import org.mule.security.SecretKeyFactory;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -74,4 +79,40 @@ public class SecretKeyEncryptionStrategyTestCase extends AbstractMuleTestCase
         assertEquals("hello", s);
     }
 
+    @Test
+    public void testRoundTripStreamEncryption() throws Exception
+    {
+        SecretKeyEncryptionStrategy ske = new SecretKeyEncryptionStrategy();
+        ske.setAlgorithm("Blowfish");
+        ske.setKey("shhhhh");
+        ske.initialise();
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+        {
+            builder.append("hello ").append(i);
+        }
+        String data = builder.toString();
+
+        InputStream encrypted = ske.encrypt(new ByteArrayInputStream(data.getBytes()), null);
+        byte[] b = IOUtils.toByteArray(encrypted);
+
+        assertEquals(data, new String(ske.decrypt(b, null)));
+        InputStream decrypted = ske.decrypt(new ByteArrayInputStream(ske.encrypt(data.getBytes(), null)), null);
+        assertEquals(data, IOUtils.toString(decrypted));
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamDecryptionFailsOnCorruptData() throws Exception
+    {
+        SecretKeyEncryptionStrategy ske = new SecretKeyEncryptionStrategy();
+        ske.setAlgorithm("Blowfish");
+        ske.setKey("shhhhh");
+        ske.setBase64Encoding(false);
+        ske.initialise();
+
+        byte[] b = ske.encrypt("hello".getBytes(), null);
+
+        IOUtils.toByteArray(ske.decrypt(new ByteArrayInputStream(b, 0, b.length - 1), null));
+    }
 }
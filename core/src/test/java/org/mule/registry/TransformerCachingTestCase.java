@@ -9,6 +9,9 @@
  */
 package org.mule.registry;
 
+import org.mule.api.registry.ResolverException;
+import org.mule.api.registry.TransformerResolver;
+import org.mule.api.transformer.DataType;
 import org.mule.api.transformer.DiscoverableTransformer;
 import org.mule.api.transformer.Transformer;
 import org.mule.api.transformer.TransformerException;
@@ -23,7 +26,9 @@ import java.io.FilterInputStream;
 import org.junit.Test;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TransformerCachingTestCase extends AbstractMuleContextTestCase
 {
@@ -53,6 +58,113 @@ public class TransformerCachingTestCase extends AbstractMuleContextTestCase
         assertTrue(trans instanceof ObjectToByteArray);
     }
 
+    @Test
+    public void testMissingTransformerCacheUpdate() throws Exception
+    {
+        SimpleDataType<?> sourceType = new SimpleDataType<FilterInputStream>(FilterInputStream.class);
+        SimpleDataType<?> resultType = new SimpleDataType<Exception>(Exception.class);
+        assertNoTransformer(sourceType, resultType);
+        assertNoTransformer(sourceType, resultType);
+
+        Transformer trans = new FilterInputStreamToException();
+        muleContext.getRegistry().registerTransformer(trans);
+
+        assertTrue(muleContext.getRegistry().lookupTransformer(sourceType, resultType) instanceof FilterInputStreamToException);
+    }
+
+    @Test
+    public void testCachesStayBoundedForManyEncodings() throws Exception
+    {
+        MuleRegistryHelper registry = (MuleRegistryHelper) muleContext.getRegistry();
+        int capacity = MuleRegistryHelper.TRANSFORMER_CACHE_CAPACITY;
+        for (int i = 0; i < capacity * 2; i++)
+        {
+            SimpleDataType<?> sourceType = new SimpleDataType<FilterInputStream>(FilterInputStream.class);
+            sourceType.setEncoding("encoding-" + i);
+            assertNotNull(registry.lookupTransformer(sourceType, DataTypeFactory.BYTE_ARRAY));
+            SimpleDataType<?> resultType = new SimpleDataType<Exception>(Exception.class);
+            resultType.setEncoding("encoding-" + i);
+            assertNoTransformer(sourceType, resultType);
+        }
+
+        // the capacity of each segment is rounded up, by less than one entry each
+        int maxSize = capacity + 64;
+        assertTrue(registry.exactTransformerCache.size() <= maxSize);
+        assertTrue(registry.transformerListCache.size() <= maxSize);
+        assertTrue(registry.missingTransformerCache.size() <= maxSize);
+    }
+
+    @Test
+    public void testMissingTransformerIsNotCachedWhenRegistryChangesWhileResolving() throws Exception
+    {
+        SimpleDataType<?> sourceType = new SimpleDataType<FilterInputStream>(FilterInputStream.class);
+        SimpleDataType<?> resultType = new SimpleDataType<Exception>(Exception.class);
+        Transformer trans = new FilterInputStreamToException();
+        muleContext.getRegistry().registerObject("registeringResolver", new RegisteringResolver(sourceType, resultType, trans));
+
+        assertNoTransformer(sourceType, resultType);
+        assertSame(trans, muleContext.getRegistry().lookupTransformer(sourceType, resultType));
+    }
+
+    private void assertNoTransformer(SimpleDataType<?> sourceType, SimpleDataType<?> resultType)
+    {
+        try
+        {
+            muleContext.getRegistry().lookupTransformer(sourceType, resultType);
+            fail("Expected no transformer to be found");
+        }
+        catch (TransformerException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Finds no transformer for a pair of data types until an object is registered,
+     * which it does itself while resolving the pair, as another thread could.
+     */
+    private class RegisteringResolver implements TransformerResolver
+    {
+        private final DataType<?> source;
+        private final DataType<?> result;
+        private final Transformer transformer;
+        private boolean registered = false;
+
+        RegisteringResolver(DataType<?> source, DataType<?> result, Transformer transformer)
+        {
+            this.source = source;
+            this.result = result;
+            this.transformer = transformer;
+        }
+
+        public Transformer resolve(DataType<?> source, DataType<?> result) throws ResolverException
+        {
+            if (!this.source.equals(source) || !this.result.equals(result))
+            {
+                return null;
+            }
+            if (registered)
+            {
+                return transformer;
+            }
+            registered = true;
+            try
+            {
+                muleContext.getRegistry().registerObject("registeredWhileResolving", new Object());
+            }
+            catch (Exception e)
+            {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        }
+
+        public void transformerChange(Transformer transformer, RegistryAction registryAction)
+        {
+            //no-op
+        }
+    }
+
     public static class FilterInputStreamToByteArray extends AbstractTransformer implements DiscoverableTransformer
     {
         public FilterInputStreamToByteArray()
@@ -77,4 +189,12 @@ public class TransformerCachingTestCase extends AbstractMuleContextTestCase
             //no-op
         }
     }
+
+    public static class FilterInputStreamToException extends FilterInputStreamToByteArray
+    {
+        public FilterInputStreamToException()
+        {
+            setReturnDataType(DataTypeFactory.create(Exception.class));
+        }
+    }
 }
@@ -165,6 +165,23 @@ public class EventGroupTestCase extends AbstractMuleContextTestCase
         assertTrue(Arrays.equals(array1, array2));
     }
 
+    @Test
+    public void sizeFollowsAddedAndRemovedEvents() throws Exception
+    {
+        EventGroup eg = new EventGroup(UUID.getUUID(), muleContext);
+        MuleEvent event = getTestEvent("foo1");
+        eg.addEvent(event);
+        eg.addEvent(getTestEvent("foo2"));
+        assertEquals(2, eg.size());
+
+        eg.removeEvent(event);
+        assertEquals(1, eg.size());
+        assertEquals(1, eg.toArray().length);
+
+        eg.clear();
+        assertEquals(0, eg.size());
+    }
+
     @Test
     public void eventGroupConversionToString() throws Exception
     {
@@ -10,8 +10,10 @@
 
 package org.mule.routing;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -22,8 +24,12 @@ import org.mule.api.MuleMessage;
 import org.mule.api.MuleSession;
 import org.mule.api.endpoint.InboundEndpoint;
 import org.mule.api.service.Service;
+import org.mule.api.store.ObjectStoreException;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
 import org.mule.util.store.InMemoryObjectStore;
+import org.mule.util.store.SimpleMemoryObjectStore;
+
+import java.io.Serializable;
 
 import org.junit.Test;
 
@@ -61,4 +67,102 @@ public class IdempotentMessageFilterTestCase extends AbstractMuleContextTestCase
         event = ir.process(event);
         assertNull(event);
     }
+
+    @Test
+    public void bloomFilterSkipsStoreLookupsForNewIds() throws Exception
+    {
+        Service service = getTestService();
+
+        MuleSession session = mock(MuleSession.class);
+        when(session.getFlowConstruct()).thenReturn(service);
+
+        InboundEndpoint endpoint1 = getTestInboundEndpoint("Test1Provider", "test://Test1Provider?exchangePattern=one-way");
+
+        CountingObjectStore store = new CountingObjectStore();
+        store.store("0", "0");
+
+        IdempotentMessageFilter ir = new IdempotentMessageFilter();
+        ir.setMuleContext(muleContext);
+        ir.setIdExpression("#[header:id]");
+        ir.setFlowConstruct(service);
+        ir.setThrowOnUnaccepted(false);
+        ir.setStorePrefix("foo");
+        ir.setStore(store);
+        ir.setBloomFilterExpectedInsertions(1000);
+        ir.initialise();
+
+        for (int i = 1; i <= 100; i++)
+        {
+            assertNotNull(ir.process(createEvent(String.valueOf(i), endpoint1, session)));
+        }
+        int lookupsForNewIds = store.lookups;
+
+        // ids restored from the store and ids just seen are looked up and rejected
+        assertNull(ir.process(createEvent("0", endpoint1, session)));
+        assertNull(ir.process(createEvent("50", endpoint1, session)));
+
+        assertEquals(2, store.lookups - lookupsForNewIds);
+        // 1% false positive budget
+        assertTrue(lookupsForNewIds <= 5);
+    }
+
+    @Test
+    public void bloomFilterKeepsFalsePositiveBudgetWithMoreStoredIdsThanExpected() throws Exception
+    {
+        Service service = getTestService();
+
+        MuleSession session = mock(MuleSession.class);
+        when(session.getFlowConstruct()).thenReturn(service);
+
+        InboundEndpoint endpoint1 = getTestInboundEndpoint("Test1Provider", "test://Test1Provider?exchangePattern=one-way");
+
+        // more than all the slices of the filter hold
+        CountingObjectStore store = new CountingObjectStore();
+        for (int i = 0; i < 8000; i++)
+        {
+            store.store("stored-" + i, "stored");
+        }
+
+        IdempotentMessageFilter ir = new IdempotentMessageFilter();
+        ir.setMuleContext(muleContext);
+        ir.setIdExpression("#[header:id]");
+        ir.setFlowConstruct(service);
+        ir.setThrowOnUnaccepted(false);
+        ir.setStorePrefix("foo");
+        ir.setStore(store);
+        ir.setBloomFilterExpectedInsertions(1000);
+        ir.initialise();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            assertNotNull(ir.process(createEvent("new-" + i, endpoint1, session)));
+        }
+        // 1% false positive budget
+        assertTrue("Store lookups for new ids: " + store.lookups, store.lookups <= 20);
+
+        // stored ids are rejected whether they fit in the filter or not
+        for (int i = 0; i < 8000; i += 500)
+        {
+            assertNull(ir.process(createEvent("stored-" + i, endpoint1, session)));
+        }
+    }
+
+    private MuleEvent createEvent(String id, InboundEndpoint endpoint, MuleSession session) throws Exception
+    {
+        MuleMessage message = new DefaultMuleMessage("OK", muleContext);
+        message.setOutboundProperty("id", id);
+        return new DefaultMuleEvent(message, endpoint, getTestService(), session);
+    }
+
+    private static class CountingObjectStore extends SimpleMemoryObjectStore<String>
+    {
+        private int lookups;
+
+        @Override
+        public boolean contains(Serializable key) throws ObjectStoreException
+        {
+            lookups++;
+            return super.contains(key);
+        }
+    }
 }
@@ -9,7 +9,9 @@
  */
 package org.mule.routing.correlation;
 
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.isA;
 import static org.mockito.Mockito.mock;
@@ -31,11 +33,15 @@ import org.mule.api.store.ObjectStoreManager;
 import org.mule.routing.EventGroup;
 import org.mule.tck.size.SmallTest;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Answers;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 @SmallTest
 @RunWith(MockitoJUnitRunner.class)
@@ -85,6 +91,29 @@ public class EventCorrelatorTestCase
         }
     }
 
+    @Test
+    public void forcedGroupExpiryDoesNotHoldTheGroupLock() throws Exception
+    {
+        when(mockEventGroup.getCreated()).thenReturn(System.currentTimeMillis());
+        final EventCorrelator eventCorrelator = createEventCorrelator();
+        eventCorrelator.setFailOnTimeout(false);
+        final AtomicBoolean lockHeld = new AtomicBoolean(true);
+        when(mockTimeoutMessageProcessor.process(any(MuleEvent.class))).thenAnswer(new Answer<MuleEvent>()
+        {
+            @Override
+            public MuleEvent answer(InvocationOnMock invocation) throws Throwable
+            {
+                lockHeld.set(Thread.holdsLock(eventCorrelator.getGroupLock(TEST_GROUP_ID)));
+                return null;
+            }
+        });
+
+        eventCorrelator.forceGroupExpiry(TEST_GROUP_ID);
+
+        verify(mockTimeoutMessageProcessor, times(1)).process(any(MuleEvent.class));
+        assertFalse(lockHeld.get());
+    }
+
     @Test
     public void initAfterDeserializationAfterAddEventGroup() throws Exception
     {
@@ -0,0 +1,196 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleMessage;
+import org.mule.api.transport.PropertyScope;
+import org.mule.session.DefaultMuleSession;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.tck.testmodels.fruit.Apple;
+import org.mule.util.SerializationUtils;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.SerializationException;
+import org.junit.Test;
+
+public class CompactObjectSerializerTestCase extends AbstractMuleContextTestCase
+{
+    private CompactObjectSerializer serializer;
+
+    @Override
+    protected void doSetUp() throws Exception
+    {
+        serializer = new CompactObjectSerializer();
+        serializer.setMuleContext(muleContext);
+    }
+
+    @Test
+    public void roundTripsCommonTypes() throws Exception
+    {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("string", "value");
+        map.put("int", 1);
+        map.put("long", 2L);
+        map.put("bytes", new byte[] {1, 2, 3});
+        map.put("date", new Date(1000));
+        map.put("list", new ArrayList<Object>(Arrays.asList("a", null, 3.0)));
+        map.put("apple", new Apple());
+
+        Map<String, Object> copy = serializer.deserialize(serializer.serialize(map));
+
+        assertEquals("value", copy.get("string"));
+        assertEquals(1, copy.get("int"));
+        assertEquals(2L, copy.get("long"));
+        assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) copy.get("bytes"));
+        assertEquals(new Date(1000), copy.get("date"));
+        assertEquals(Arrays.asList("a", null, 3.0), copy.get("list"));
+        assertTrue(copy.get("apple") instanceof Apple);
+        assertNull(serializer.deserialize(serializer.serialize(null)));
+    }
+
+    @Test
+    public void roundTripsMessage() throws Exception
+    {
+        DefaultMuleMessage message = new DefaultMuleMessage("payload", muleContext);
+        message.setOutboundProperty("outbound", "out");
+        message.setInvocationProperty("invocation", 42);
+        message.setEncoding("UTF-16");
+        message.setCorrelationId("correlation");
+
+        MuleMessage copy = serializer.deserialize(serializer.serialize(message));
+
+        assertEquals(message.getUniqueId(), copy.getUniqueId());
+        assertEquals(message.getMessageRootId(), copy.getMessageRootId());
+        assertEquals("payload", copy.getPayload());
+        assertEquals("out", copy.getOutboundProperty("outbound"));
+        assertEquals("out", copy.getOutboundProperty("OUTBOUND"));
+        assertEquals(Integer.valueOf(42), copy.getInvocationProperty("invocation"));
+        assertEquals("correlation", copy.getCorrelationId());
+        assertEquals("UTF-16", copy.getEncoding());
+        assertEquals(message.getPropertyNames(PropertyScope.OUTBOUND), copy.getPropertyNames(PropertyScope.OUTBOUND));
+        assertSame(muleContext, copy.getMuleContext());
+    }
+
+    @Test
+    public void roundTripsSessionWithoutNonSerializableProperties() throws Exception
+    {
+        DefaultMuleSession session = new DefaultMuleSession();
+        session.setProperty("key", "value");
+        session.setProperty("notSerializable", new Object());
+
+        DefaultMuleSession copy = serializer.deserialize(serializer.serialize(session));
+
+        assertEquals(session.getId(), copy.getId());
+        assertEquals("value", copy.getProperty("KEY"));
+        assertFalse(copy.getPropertyNamesAsSet().contains("notSerializable"));
+    }
+
+    @Test
+    public void writesNestedMessagesCompactly() throws Exception
+    {
+        DefaultMuleMessage message = new DefaultMuleMessage("payload", muleContext);
+        Holder holder = new Holder(message);
+
+        Holder copy = serializer.deserialize(serializer.serialize(holder));
+
+        assertEquals(message.getUniqueId(), copy.message.getUniqueId());
+        assertSame(muleContext, copy.message.getMuleContext());
+    }
+
+    @Test
+    public void messageIsSmallerThanWithJavaSerialization() throws Exception
+    {
+        DefaultMuleMessage message = new DefaultMuleMessage("payload", muleContext);
+        message.setOutboundProperty("outbound", "out");
+
+        assertTrue(serializer.serialize(message).length < SerializationUtils.serialize(message).length);
+    }
+
+    @Test
+    public void readsJavaSerializedObjects() throws Exception
+    {
+        DefaultMuleMessage message = new DefaultMuleMessage("payload", muleContext);
+
+        MuleMessage copy = serializer.deserialize(SerializationUtils.serialize(message));
+
+        assertEquals(message.getUniqueId(), copy.getUniqueId());
+        assertSame(muleContext, copy.getMuleContext());
+    }
+
+    @Test(expected = SerializationException.class)
+    public void rejectsCycles() throws Exception
+    {
+        List<Object> list = new ArrayList<Object>();
+        list.add(list);
+        serializer.serialize(list);
+    }
+
+    @Test
+    public void usesCustomTypeSerializers() throws Exception
+    {
+        List<TypeSerializer<?>> typeSerializers = new ArrayList<TypeSerializer<?>>();
+        typeSerializers.add(new HolderSerializer());
+        serializer.setTypeSerializers(typeSerializers);
+
+        DefaultMuleMessage message = new DefaultMuleMessage("payload", muleContext);
+        Holder copy = serializer.deserialize(serializer.serialize(new Holder(message)));
+
+        assertEquals(message.getUniqueId(), copy.message.getUniqueId());
+    }
+
+    private static class Holder implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final MuleMessage message;
+
+        Holder(MuleMessage message)
+        {
+            this.message = message;
+        }
+    }
+
+    private static class HolderSerializer implements TypeSerializer<Holder>
+    {
+        @Override
+        public Class<Holder> getType()
+        {
+            return Holder.class;
+        }
+
+        @Override
+        public void write(Holder holder, CompactObjectOutput out) throws IOException
+        {
+            out.writeObject(holder.message);
+        }
+
+        @Override
+        public Holder read(CompactObjectInput in) throws IOException
+        {
+            return new Holder((MuleMessage) in.readObject());
+        }
+    }
+}
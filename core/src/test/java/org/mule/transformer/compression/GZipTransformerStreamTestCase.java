@@ -10,13 +10,22 @@
 
 package org.mule.transformer.compression;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import org.mule.api.MuleEvent;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.transformer.Transformer;
+import org.mule.api.transport.OutputHandler;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
 
 /**
  * Tests {@link GZipCompressTransformer} and its counterpart, the {@link GZipUncompressTransformer} with streams as inputs.
@@ -62,6 +71,60 @@ public class GZipTransformerStreamTestCase extends GZipTransformerTestCase
 
         return transformer;
     }
-}
 
+    @Test
+    public void testCompressOutputHandler() throws Exception
+    {
+        OutputHandler handler = new OutputHandler()
+        {
+            public void write(MuleEvent event, OutputStream out) throws IOException
+            {
+                out.write(TEST_DATA.getBytes());
+            }
+        };
+
+        Object result = getTransformer().transform(handler);
+        assertTrue(result instanceof OutputHandler);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream()
+        {
+            @Override
+            public void close()
+            {
+                fail("The transport's stream must not be closed");
+            }
+        };
+        ((OutputHandler) result).write(getTestEvent(""), out);
+
+        byte[] uncompressed = strat.uncompressByteArray(out.toByteArray());
+        assertEquals(TEST_DATA, new String(uncompressed));
+    }
+
+    @Test
+    public void testFailingOutputHandlerIsNotTerminated() throws Exception
+    {
+        OutputHandler handler = new OutputHandler()
+        {
+            public void write(MuleEvent event, OutputStream out) throws IOException
+            {
+                out.write(TEST_DATA.getBytes());
+                throw new IOException("failed halfway");
+            }
+        };
+
+        OutputHandler result = (OutputHandler) getTransformer().transform(handler);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        {
+            result.write(getTestEvent(""), out);
+            fail("The failure of the handler must be rethrown");
+        }
+        catch (IOException e)
+        {
+            assertEquals("failed halfway", e.getMessage());
+        }
 
+        // only the header was written, the data is still in the deflater
+        assertEquals(10, out.size());
+    }
+}
@@ -167,6 +167,18 @@ public class GraphTransformerResolverTestCase extends AbstractMuleTestCase
         assertNull(transformer);
     }
 
+    @Test
+    public void resolvesConverterAddedAfterMissingOne() throws ResolverException
+    {
+        assertNull(graphResolver.resolve(XML_DATA_TYPE, JSON_DATA_TYPE));
+        assertNull(graphResolver.resolve(XML_DATA_TYPE, JSON_DATA_TYPE));
+
+        Converter xmlToJson = new MockConverterBuilder().from(XML_DATA_TYPE).to(JSON_DATA_TYPE).build();
+        graphResolver.transformerChange(xmlToJson, TransformerResolver.RegistryAction.ADDED);
+
+        assertEquals(xmlToJson, graphResolver.resolve(XML_DATA_TYPE, JSON_DATA_TYPE));
+    }
+
     @Test
     public void resolvesTransformersWithDifferentLength() throws ResolverException
     {
@@ -0,0 +1,78 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transformer.types;
+
+import org.mule.api.transformer.DataType;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@SmallTest
+public class DataTypePairTestCase extends AbstractMuleTestCase
+{
+    @Test
+    public void equalForEqualDataTypes()
+    {
+        DataTypePair pair = new DataTypePair(DataTypeFactory.create(String.class), DataTypeFactory.create(byte[].class));
+        DataTypePair other = new DataTypePair(DataTypeFactory.create(String.class), DataTypeFactory.create(byte[].class));
+
+        assertEquals(pair, other);
+        assertEquals(pair.hashCode(), other.hashCode());
+    }
+
+    @Test
+    public void differsBySourceAndResult()
+    {
+        DataType<?> string = DataTypeFactory.STRING;
+        DataType<?> bytes = DataTypeFactory.BYTE_ARRAY;
+
+        assertFalse(new DataTypePair(string, bytes).equals(new DataTypePair(bytes, string)));
+    }
+
+    @Test
+    public void differsByMimeTypeAndEncoding()
+    {
+        DataTypePair pair = new DataTypePair(DataTypeFactory.STRING, DataTypeFactory.OBJECT);
+
+        assertFalse(pair.equals(new DataTypePair(DataTypeFactory.XML_STRING, DataTypeFactory.OBJECT)));
+        assertFalse(pair.equals(new DataTypePair(DataTypeFactory.createWithEncoding(String.class, "UTF-16"),
+            DataTypeFactory.OBJECT)));
+    }
+
+    @Test
+    public void differsByItemType()
+    {
+        DataType<?> strings = DataTypeFactory.create(ArrayList.class, String.class);
+        DataType<?> integers = DataTypeFactory.create(ArrayList.class, Integer.class);
+
+        assertFalse(new DataTypePair(strings, DataTypeFactory.OBJECT).equals(
+            new DataTypePair(integers, DataTypeFactory.OBJECT)));
+    }
+
+    @Test
+    public void keepsStateWhenDataTypeChanges()
+    {
+        DataType<List> source = DataTypeFactory.create(List.class);
+        DataTypePair pair = new DataTypePair(source, DataTypeFactory.STRING);
+        int hash = pair.hashCode();
+
+        source.setMimeType(MimeTypes.JSON);
+
+        assertEquals(hash, pair.hashCode());
+        assertFalse(pair.equals(new DataTypePair(source, DataTypeFactory.STRING)));
+    }
+}
@@ -12,8 +12,13 @@ package org.mule.util;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import org.mule.api.MuleMessage;
+import org.mule.api.expression.CompiledExpression;
 import org.mule.api.expression.ExpressionManager;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 import org.mule.tck.size.SmallTest;
@@ -101,4 +106,34 @@ public class AttributeEvaluatorTestCase extends AbstractMuleTestCase
         assertThat(attributeEvaluator.isExpression(), is(true));
     }
 
+    @Test
+    public void testResolvesCompiledExpression()
+    {
+        MuleMessage message = Mockito.mock(MuleMessage.class);
+        CompiledExpression compiledExpression = Mockito.mock(CompiledExpression.class);
+        when(mockExpressionManager.compile("#[payload]")).thenReturn(compiledExpression);
+        when(compiledExpression.evaluate(message)).thenReturn("value");
+        AttributeEvaluator attributeEvaluator = new AttributeEvaluator("#[payload]");
+        attributeEvaluator.initialize(mockExpressionManager);
+
+        assertThat(attributeEvaluator.resolveValue(message), is((Object) "value"));
+        assertThat(attributeEvaluator.resolveValue(message), is((Object) "value"));
+        verify(compiledExpression, times(2)).evaluate(message);
+        verify(mockExpressionManager, never()).evaluate("#[payload]", message);
+    }
+
+    @Test
+    public void testResolvesCompiledTemplate()
+    {
+        MuleMessage message = Mockito.mock(MuleMessage.class);
+        CompiledExpression compiledTemplate = Mockito.mock(CompiledExpression.class);
+        when(mockExpressionManager.compileTemplate("1#[2]3")).thenReturn(compiledTemplate);
+        when(compiledTemplate.evaluate(message)).thenReturn("123");
+        AttributeEvaluator attributeEvaluator = new AttributeEvaluator("1#[2]3");
+        attributeEvaluator.initialize(mockExpressionManager);
+
+        assertThat(attributeEvaluator.resolveValue(message), is((Object) "123"));
+        verify(mockExpressionManager, never()).parse("1#[2]3", message);
+    }
+
 }
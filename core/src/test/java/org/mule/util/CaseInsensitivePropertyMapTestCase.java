@@ -0,0 +1,137 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@SmallTest
+public class CaseInsensitivePropertyMapTestCase extends AbstractMuleTestCase
+{
+    protected CaseInsensitivePropertyMap createTestMap()
+    {
+        CaseInsensitivePropertyMap map = new CaseInsensitivePropertyMap();
+        map.put("FOO", "BAR");
+        map.put("DOO", Integer.valueOf(3));
+        return map;
+    }
+
+    @Test
+    public void testMap() throws Exception
+    {
+        CaseInsensitivePropertyMap map = createTestMap();
+        doTestMap(map);
+    }
+
+    @Test
+    public void testMapSerialization() throws Exception
+    {
+        CaseInsensitivePropertyMap map = createTestMap();
+        doTestMap(map);
+
+        byte[] bytes = SerializationUtils.serialize(map);
+        CaseInsensitivePropertyMap resultMap = (CaseInsensitivePropertyMap) SerializationUtils.deserialize(bytes);
+        doTestMap(resultMap);
+    }
+
+    @Test
+    public void testCopy() throws Exception
+    {
+        doTestMap(new CaseInsensitivePropertyMap(createTestMap()));
+
+        Map<String, Object> source = new HashMap<String, Object>();
+        source.put("FOO", "BAR");
+        source.put("DOO", Integer.valueOf(3));
+        doTestMap(new CaseInsensitivePropertyMap(source));
+    }
+
+    @Test
+    public void testPutKeepsOriginalKey() throws Exception
+    {
+        CaseInsensitivePropertyMap map = createTestMap();
+        assertEquals("BAR", map.put("foo", "BAZ"));
+        assertEquals("BAZ", map.get("Foo"));
+        assertEquals(2, map.size());
+        assertEquals(new HashSet<String>(Arrays.asList("FOO", "DOO")), new HashSet<String>(map.keySet()));
+    }
+
+    @Test
+    public void testRemoveAndGrow() throws Exception
+    {
+        CaseInsensitivePropertyMap map = new CaseInsensitivePropertyMap(0);
+        for (int i = 0; i < 100; i++)
+        {
+            map.put("Header-" + i, Integer.valueOf(i));
+        }
+        for (int i = 0; i < 100; i += 2)
+        {
+            assertEquals(Integer.valueOf(i), map.remove("HEADER-" + i));
+        }
+
+        assertEquals(50, map.size());
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(i % 2 == 1, map.containsKey("header-" + i));
+        }
+        assertNull(map.remove("missing"));
+    }
+
+    @Test
+    public void testIteratorRemove() throws Exception
+    {
+        CaseInsensitivePropertyMap map = createTestMap();
+        map.put(null, "null");
+        for (Iterator<String> keys = map.keySet().iterator(); keys.hasNext();)
+        {
+            if ("DOO".equals(keys.next()))
+            {
+                keys.remove();
+            }
+        }
+
+        assertEquals(new HashSet<String>(Arrays.asList("FOO", null)), new HashSet<String>(map.keySet()));
+        assertEquals("null", map.get(null));
+        assertFalse(map.containsKey("doo"));
+    }
+
+    public void doTestMap(CaseInsensitivePropertyMap map) throws Exception
+    {
+        assertEquals("BAR", map.get("FOO"));
+        assertEquals("BAR", map.get("foo"));
+        assertEquals("BAR", map.get("Foo"));
+
+        assertEquals(Integer.valueOf(3), map.get("DOO"));
+        assertEquals(Integer.valueOf(3), map.get("doo"));
+        assertEquals(Integer.valueOf(3), map.get("Doo"));
+
+        assertEquals(2, map.size());
+
+        // Test that the key set contains the same case as we put in
+        for (Object o : map.keySet())
+        {
+            assertTrue(o.equals("FOO") || o.equals("DOO"));
+            assertFalse(o.equals("foo") || o.equals("doo"));
+        }
+    }
+}
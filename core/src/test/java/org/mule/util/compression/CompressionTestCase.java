@@ -13,7 +13,15 @@ package org.mule.util.compression;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 import org.mule.tck.size.SmallTest;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
 
 import org.junit.Test;
 
@@ -109,4 +117,60 @@ public class CompressionTestCase extends AbstractMuleTestCase
         assertTrue(Arrays.equals(bytes, result));
     }
 
+    @Test
+    public void testCompressOutputStream() throws Exception
+    {
+        byte[] data = largeData();
+        CompressionStrategy strategy = CompressionHelper.getDefaultCompressionStrategy();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = strategy.compressOutputStream(compressed);
+        for (int i = 0; i < data.length; i += 1000)
+        {
+            out.write(data, i, Math.min(1000, data.length - i));
+        }
+        out.close();
+
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        assertTrue(Arrays.equals(data, IOUtils.toByteArray(in)));
+    }
+
+    @Test
+    public void testStreamRoundTrip() throws Exception
+    {
+        byte[] data = largeData();
+        CompressionStrategy strategy = CompressionHelper.getDefaultCompressionStrategy();
+
+        InputStream compressed = strategy.compressInputStream(new ByteArrayInputStream(data));
+        InputStream uncompressed = strategy.uncompressInputStream(compressed);
+
+        assertTrue(Arrays.equals(data, IOUtils.toByteArray(uncompressed)));
+        assertEquals(-1, compressed.read());
+    }
+
+    @Test
+    public void testUncompressConcatenatedMembers() throws Exception
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        for (String member : new String[] {"first ", "second"})
+        {
+            GZIPOutputStream out = new GZIPOutputStream(compressed);
+            out.write(member.getBytes());
+            out.finish();
+        }
+
+        CompressionStrategy strategy = CompressionHelper.getDefaultCompressionStrategy();
+        InputStream in = strategy.uncompressInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+
+        assertEquals("first second", IOUtils.toString(in));
+    }
+
+    private byte[] largeData()
+    {
+        byte[] data = new byte[200000];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) ('a' + (i * 31 % 17));
+        }
+        return data;
+    }
 }
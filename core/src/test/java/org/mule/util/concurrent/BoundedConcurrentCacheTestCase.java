@@ -0,0 +1,170 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import org.mule.management.stats.CacheStatistics;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@SmallTest
+public class BoundedConcurrentCacheTestCase extends AbstractMuleTestCase
+{
+    private static final int TIMEOUT = 10000;
+
+    @Test
+    public void cachesValues()
+    {
+        BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<String, String>(10);
+
+        assertNull(cache.get("a"));
+        assertNull(cache.putIfAbsent("a", "1"));
+        assertEquals("1", cache.putIfAbsent("a", "2"));
+        assertEquals("1", cache.get("a"));
+        assertEquals(1, cache.size());
+
+        assertEquals("1", cache.remove("a"));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void countsHitsAndMisses()
+    {
+        BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<String, String>(10);
+        cache.get("a");
+        cache.putIfAbsent("a", "1");
+        cache.get("a");
+        cache.get("a");
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(2, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+
+        statistics.clear();
+        assertEquals(0, statistics.getHits());
+        assertEquals(0, statistics.getMisses());
+    }
+
+    @Test
+    public void evictsBeyondCapacity()
+    {
+        BoundedConcurrentCache<Integer, Integer> cache = new BoundedConcurrentCache<Integer, Integer>(100, 1);
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.putIfAbsent(i, i);
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void evictsUnusedEntriesFirst()
+    {
+        BoundedConcurrentCache<Integer, Integer> cache = new BoundedConcurrentCache<Integer, Integer>(10, 1);
+        for (int i = 0; i < 10; i++)
+        {
+            cache.putIfAbsent(i, i);
+        }
+        cache.get(0);
+
+        cache.putIfAbsent(10, 10);
+
+        assertEquals(Integer.valueOf(0), cache.get(0));
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void shrinksWhenCapacityIsReduced()
+    {
+        BoundedConcurrentCache<Integer, Integer> cache = new BoundedConcurrentCache<Integer, Integer>(100, 1);
+        for (int i = 0; i < 100; i++)
+        {
+            cache.putIfAbsent(i, i);
+        }
+
+        cache.setCapacity(10);
+        cache.putIfAbsent(100, 100);
+
+        assertEquals(10, cache.getCapacity());
+        assertEquals(10, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCapacityBelowOne()
+    {
+        new BoundedConcurrentCache<String, String>(0);
+    }
+
+    @Test
+    public void staysBoundedWhenUsedConcurrently() throws Exception
+    {
+        final BoundedConcurrentCache<Integer, Integer> cache = new BoundedConcurrentCache<Integer, Integer>(64, 4);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++)
+        {
+            final int offset = t;
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        for (int i = 0; i < 10000; i++)
+                        {
+                            int key = (i * 7 + offset) % 500;
+                            Integer value = cache.get(key);
+                            if (value == null)
+                            {
+                                cache.putIfAbsent(key, key);
+                            }
+                            else if (value != key)
+                            {
+                                throw new AssertionError("Wrong value for " + key + ": " + value);
+                            }
+                        }
+                    }
+                    catch (Throwable e)
+                    {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join(TIMEOUT);
+        }
+
+        assertNull(failure.get());
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(40000, statistics.getHits() + statistics.getMisses());
+        // a put that finds another thread evicting from its segment does not wait for it
+        assertTrue(cache.size() <= cache.getCapacity() + 4 * 4);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import org.mule.api.config.ThreadingProfile;
+import org.mule.config.ChainedThreadingProfile;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@SmallTest
+public class LightweightExecutorServiceTestCase extends AbstractMuleTestCase
+{
+    private static final int MAX_TASKS = 2;
+    private static final int TIMEOUT = 5000;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger completed = new AtomicInteger();
+    private LightweightExecutorService executor;
+
+    @After
+    public void shutDownExecutor() throws Exception
+    {
+        release.countDown();
+        if (executor != null)
+        {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void runsManyTasksConcurrently() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_ABORT, 100, true);
+        final CountDownLatch started = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++)
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    started.countDown();
+                    awaitRelease();
+                }
+            });
+        }
+
+        assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(100, executor.getActiveCount());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void abortsWhenExhausted() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_ABORT, MAX_TASKS, false);
+        fill();
+        executor.execute(new CountingTask());
+    }
+
+    @Test
+    public void runsInCallerWhenExhausted() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_RUN, MAX_TASKS, false);
+        fill();
+        final Thread caller = Thread.currentThread();
+        final Thread[] runner = new Thread[1];
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                runner[0] = Thread.currentThread();
+            }
+        });
+        assertSame(caller, runner[0]);
+    }
+
+    @Test
+    public void discardsWhenExhausted() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_DISCARD, MAX_TASKS, false);
+        fill();
+        executor.execute(new CountingTask());
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(MAX_TASKS, completed.get());
+    }
+
+    @Test
+    public void waitsForRunningTaskWhenExhausted() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_WAIT, MAX_TASKS, false);
+        fill();
+        new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e)
+                {
+                    // ignore
+                }
+                release.countDown();
+            }
+        }.start();
+
+        executor.execute(new CountingTask());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(MAX_TASKS + 1, completed.get());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsAfterShutdown() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_RUN, MAX_TASKS, false);
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        executor.execute(new CountingTask());
+    }
+
+    @Test
+    public void releasesCapacityWhenTaskFails() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_ABORT, 1, false);
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                done.countDown();
+                throw new IllegalStateException("expected");
+            }
+        });
+        assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (executor.getActiveCount() > 0 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.getActiveCount());
+        assertFalse(executor.isTerminated());
+    }
+
+    private LightweightExecutorService createExecutor(int poolExhaustedAction, int maxTasks, boolean useVirtualThreads)
+    {
+        ThreadingProfile profile = new ChainedThreadingProfile();
+        profile.setMaxThreadsActive(maxTasks);
+        profile.setPoolExhaustedAction(poolExhaustedAction);
+        profile.setThreadWaitTimeout(TIMEOUT);
+        return new LightweightExecutorService("test", profile, useVirtualThreads);
+    }
+
+    private void fill()
+    {
+        for (int i = 0; i < MAX_TASKS; i++)
+        {
+            executor.execute(new CountingTask());
+        }
+    }
+
+    private void awaitRelease()
+    {
+        try
+        {
+            release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class CountingTask implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            awaitRelease();
+            completed.incrementAndGet();
+        }
+    }
+}
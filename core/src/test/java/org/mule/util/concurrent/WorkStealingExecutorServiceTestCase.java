@@ -0,0 +1,258 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import org.mule.api.config.ThreadingProfile;
+import org.mule.config.ChainedThreadingProfile;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@SmallTest
+public class WorkStealingExecutorServiceTestCase extends AbstractMuleTestCase
+{
+    private static final int THREADS = 2;
+    private static final int BUFFER = 2;
+    private static final int TIMEOUT = 5000;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger completed = new AtomicInteger();
+    private WorkStealingExecutorService executor;
+
+    @After
+    public void shutDownExecutor() throws Exception
+    {
+        release.countDown();
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void runsAllTasks() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_WAIT, 4, 1000);
+        final CountDownLatch done = new CountDownLatch(10000);
+        for (int i = 0; i < 10000; i++)
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void idleThreadStealsFromBusyOne() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_ABORT, THREADS, BUFFER);
+        final CountDownLatch stolen = new CountDownLatch(1);
+        final Thread[] blocked = new Thread[1];
+        // queues a task behind itself in its own thread's deque and blocks
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                blocked[0] = Thread.currentThread();
+                executor.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (Thread.currentThread() != blocked[0])
+                        {
+                            stolen.countDown();
+                        }
+                    }
+                });
+                awaitRelease();
+            }
+        });
+        assertTrue(stolen.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void abortsWhenExhausted() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_ABORT, THREADS, BUFFER);
+        fill();
+        executor.execute(new CountingTask());
+    }
+
+    @Test
+    public void runsInCallerWhenExhausted() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_RUN, THREADS, BUFFER);
+        fill();
+        final Thread[] runner = new Thread[1];
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                runner[0] = Thread.currentThread();
+            }
+        });
+        assertSame(Thread.currentThread(), runner[0]);
+    }
+
+    @Test
+    public void waitsForCapacityWhenExhausted() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_WAIT, THREADS, BUFFER);
+        fill();
+        new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e)
+                {
+                    // ignore
+                }
+                release.countDown();
+            }
+        }.start();
+
+        executor.execute(new CountingTask());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(THREADS + BUFFER + 1, completed.get());
+    }
+
+    @Test
+    public void shutdownRunsQueuedTasks() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_ABORT, THREADS, BUFFER);
+        fill();
+        executor.shutdown();
+        release.countDown();
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(THREADS + BUFFER, completed.get());
+        assertEquals(0, executor.getTaskCount());
+    }
+
+    @Test
+    public void shutdownNowReturnsQueuedTasks() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_ABORT, THREADS, BUFFER);
+        final CountDownLatch started = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++)
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    started.countDown();
+                    awaitRelease();
+                }
+            });
+        }
+        assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < BUFFER; i++)
+        {
+            executor.execute(new CountingTask());
+        }
+
+        List<Runnable> pending = executor.shutdownNow();
+        assertEquals(BUFFER, pending.size());
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(0, completed.get());
+    }
+
+    @Test
+    public void survivesFailingTask() throws Exception
+    {
+        executor = createExecutor(ThreadingProfile.WHEN_EXHAUSTED_ABORT, 1, 0);
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                throw new IllegalStateException("expected");
+            }
+        });
+        release.countDown();
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (executor.getTaskCount() > 0 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        executor.execute(new CountingTask());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(1, completed.get());
+    }
+
+    private WorkStealingExecutorService createExecutor(int poolExhaustedAction, int threads, int buffer)
+    {
+        ThreadingProfile profile = new ChainedThreadingProfile();
+        profile.setMaxThreadsActive(threads);
+        profile.setMaxBufferSize(buffer);
+        profile.setPoolExhaustedAction(poolExhaustedAction);
+        profile.setThreadWaitTimeout(TIMEOUT);
+        return new WorkStealingExecutorService("test", profile);
+    }
+
+    private void fill()
+    {
+        for (int i = 0; i < THREADS + BUFFER; i++)
+        {
+            executor.execute(new CountingTask());
+        }
+    }
+
+    private void awaitRelease()
+    {
+        try
+        {
+            release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class CountingTask implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            awaitRelease();
+            completed.incrementAndGet();
+        }
+    }
+}
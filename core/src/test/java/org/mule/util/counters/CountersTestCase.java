@@ -12,8 +12,11 @@ package org.mule.util.counters;
 
 import org.mule.tck.junit4.AbstractMuleTestCase;
 import org.mule.util.counters.CounterFactory.Type;
+import org.mule.util.counters.impl.Number;
+import org.mule.util.counters.impl.RatePerUnit;
 
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 
@@ -142,6 +145,113 @@ public class CountersTestCase extends AbstractMuleTestCase
         assertEquals("Average", 14.0, avg.nextValue(), delta);
     }
 
+    @Test
+    public void testOperator()
+    {
+        Counter first = CounterFactory.createCounter("testOperator.first", Type.NUMBER);
+        Counter second = CounterFactory.createCounter("testOperator.second", Type.NUMBER);
+        Counter plus = CounterFactory.createCounter("testOperator.plus", "testOperator.first",
+            "testOperator.second", Type.PLUS);
+        Counter divide = CounterFactory.createCounter("testOperator.divide", "testOperator.first",
+            "testOperator.second", Type.DIVIDE);
+
+        first.setRawValue(6.0);
+        second.setRawValue(3.0);
+        assertEquals("Plus", 9.0, plus.nextValue(), delta);
+        assertEquals("Divide", 2.0, divide.nextValue(), delta);
+        second.setRawValue(0.0);
+        assertEquals("Divide by zero", Double.POSITIVE_INFINITY, divide.nextValue(), delta);
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException
+    {
+        final Counter ct = CounterFactory.createCounter("testConcurrent", Type.NUMBER);
+        Counter sum = CounterFactory.createCounter("testConcurrent.sum", "testConcurrent", Type.SUM);
+        Counter max = CounterFactory.createCounter("testConcurrent.max", "testConcurrent", Type.MAX);
+        Counter rate = CounterFactory.createCounter("testConcurrent.rate", "testConcurrent",
+            Type.RATE_PER_HOUR);
+
+        final int threads = 8;
+        final int increments = 10000;
+        Thread[] incrementers = new Thread[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            incrementers[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < increments; j++)
+                    {
+                        ct.increment();
+                    }
+                }
+            };
+            incrementers[i].start();
+        }
+        for (Thread incrementer : incrementers)
+        {
+            incrementer.join();
+        }
+
+        double total = threads * increments;
+        assertEquals("Number", total, ct.nextValue(), delta);
+        assertEquals("Max", total, max.nextValue(), delta);
+        // every increment adds a value between 1 and the total
+        assertTrue("Sum", sum.nextValue() >= total && sum.nextValue() <= total * total);
+        assertEquals("Rate", sum.nextValue(), rate.nextValue(), delta);
+    }
+
+    @Test
+    public void testConcurrentRatePerUnitKeepsEveryValue() throws InterruptedException
+    {
+        final AtomicLong clock = new AtomicLong();
+        final RatePerUnit rate = new RatePerUnit("testConcurrentRate", "2000", Type.RATE_PER_SECOND,
+            new Number("testConcurrentRateBase"))
+        {
+            @Override
+            protected long getTime()
+            {
+                return clock.get();
+            }
+        };
+        // the window starts at unit 0
+        rate.compute(0.0);
+
+        // more threads than cells, so that threads roll the buckets they share
+        final int threads = 32;
+        final int updates = 20000;
+        Thread[] updaters = new Thread[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            final boolean ticking = i == 0;
+            updaters[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < updates; j++)
+                    {
+                        rate.compute(1.0);
+                        if (ticking && j % 20 == 19)
+                        {
+                            clock.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            updaters[i].start();
+        }
+        for (Thread updater : updaters)
+        {
+            updater.join();
+        }
+
+        double total = threads * updates;
+        assertEquals("RatePerUnit", total / (1 + clock.get()), rate.nextValue(), delta);
+    }
+
     /**
      * Serious non-portable timing issues :(
      * 
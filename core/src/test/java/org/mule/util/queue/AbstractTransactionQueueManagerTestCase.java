@@ -15,6 +15,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.mule.api.store.ObjectStoreException;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
 import org.mule.util.concurrent.Latch;
 import org.mule.util.store.QueueStoreAdapter;
@@ -22,7 +24,11 @@ import org.mule.util.store.SimpleMemoryObjectStore;
 import org.mule.util.xa.AbstractResourceManager;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -62,6 +68,127 @@ public abstract class AbstractTransactionQueueManagerTestCase extends AbstractMu
         mgr.stop(AbstractResourceManager.SHUTDOWN_MODE_NORMAL);
     }
 
+    @Test
+    public void testDrainTo() throws Exception
+    {
+        TransactionalQueueManager mgr = createQueueManager();
+        mgr.start();
+
+        QueueSession s = mgr.getQueueSession();
+        Queue q = s.getQueue("queue1");
+
+        q.put("String1");
+        q.put("String2");
+        q.put("String3");
+
+        List<Serializable> drained = new ArrayList<Serializable>();
+        assertEquals(2, q.drainTo(drained, 2, 0));
+        assertEquals(Arrays.<Serializable> asList("String1", "String2"), drained);
+        assertEquals("Queue size", 1, q.size());
+
+        drained.clear();
+        assertEquals(1, q.drainTo(drained, 10, 0));
+        assertEquals("String3", drained.get(0));
+        assertEquals(0, q.drainTo(drained, 10, 10));
+        assertEquals("Queue size", 0, q.size());
+
+        mgr.stop(AbstractResourceManager.SHUTDOWN_MODE_NORMAL);
+    }
+
+    @Test
+    public void testDrainToKeepsItemsThatFailToLoad() throws Exception
+    {
+        final AtomicReference<Serializable> failingItem = new AtomicReference<Serializable>("String2");
+        TransactionalQueueManager mgr = createQueueManager();
+        mgr.start();
+        mgr.setDefaultQueueConfiguration(new QueueConfiguration(0, new QueueStoreAdapter<Serializable>(new SimpleMemoryObjectStore<Serializable>()
+        {
+            @Override
+            public Serializable retrieve(Serializable key) throws ObjectStoreException
+            {
+                Serializable item = super.retrieve(key);
+                if (item.equals(failingItem.get()))
+                {
+                    throw new ObjectStoreException();
+                }
+                return item;
+            }
+        })));
+
+        QueueSession s = mgr.getQueueSession();
+        Queue q = s.getQueue("queue1");
+
+        q.put("String1");
+        q.put("String2");
+        q.put("String3");
+
+        List<Serializable> drained = new ArrayList<Serializable>();
+        assertEquals(1, q.drainTo(drained, 10, 0));
+        assertEquals(Arrays.<Serializable> asList("String1"), drained);
+        assertEquals("Queue size", 2, q.size());
+
+        try
+        {
+            q.drainTo(drained, 10, 0);
+            fail("expected the failure to load the first item to be reported");
+        }
+        catch (RuntimeException e)
+        {
+            assertEquals("Queue size", 2, q.size());
+        }
+
+        failingItem.set(null);
+        drained.clear();
+        assertEquals(2, q.drainTo(drained, 10, 0));
+        assertEquals(Arrays.<Serializable> asList("String2", "String3"), drained);
+
+        mgr.stop(AbstractResourceManager.SHUTDOWN_MODE_NORMAL);
+    }
+
+    @Test
+    public void testDrainToPutsBackItemsWhenInterrupted() throws Exception
+    {
+        TransactionalQueueManager mgr = createQueueManager();
+        mgr.start();
+        mgr.setDefaultQueueConfiguration(new QueueConfiguration(0, new QueueStoreAdapter<Serializable>(new SimpleMemoryObjectStore<Serializable>()
+        {
+            @Override
+            public Serializable retrieve(Serializable key) throws ObjectStoreException
+            {
+                Serializable item = super.retrieve(key);
+                if (item.equals("String2"))
+                {
+                    // the first item put back is then interrupted
+                    Thread.currentThread().interrupt();
+                    throw new ObjectStoreException();
+                }
+                return item;
+            }
+        })));
+
+        QueueSession s = mgr.getQueueSession();
+        Queue q = s.getQueue("queue1");
+
+        q.put("String1");
+        q.put("String2");
+        q.put("String3");
+
+        List<Serializable> drained = new ArrayList<Serializable>();
+        try
+        {
+            assertEquals(1, q.drainTo(drained, 10, 0));
+            assertEquals(Arrays.<Serializable> asList("String1"), drained);
+            assertTrue(Thread.currentThread().isInterrupted());
+        }
+        finally
+        {
+            Thread.interrupted();
+        }
+        assertEquals("Queue size", 2, q.size());
+
+        mgr.stop(AbstractResourceManager.SHUTDOWN_MODE_NORMAL);
+    }
+
     @Test
     public void testTakePut() throws Exception
     {
@@ -0,0 +1,149 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+@SmallTest
+public class ConcurrentQueueInfoDelegateTestCase extends AbstractMuleTestCase
+{
+    private static final long TIMEOUT = 5000;
+
+    @Test
+    public void testFifoOrderWithUntake() throws Exception
+    {
+        ConcurrentQueueInfoDelegate delegate = new ConcurrentQueueInfoDelegate(0);
+        delegate.putNow("1");
+        delegate.putNow("2");
+        assertEquals("1", delegate.poll(0));
+        delegate.untake("1");
+        assertEquals(2, delegate.getSize());
+        assertEquals("1", delegate.peek());
+        assertEquals("1", delegate.poll(0));
+        assertEquals("2", delegate.poll(0));
+        assertNull(delegate.poll(0));
+        assertEquals(0, delegate.getSize());
+    }
+
+    @Test
+    public void testOfferRespectsCapacityAndRoom() throws Exception
+    {
+        ConcurrentQueueInfoDelegate delegate = new ConcurrentQueueInfoDelegate(2);
+        assertTrue(delegate.offer("1", 0, 0));
+        assertFalse(delegate.offer(null, 1, 0));
+        assertTrue(delegate.offer("2", 0, 0));
+        assertFalse(delegate.offer("3", 0, 10));
+        assertEquals(2, delegate.getSize());
+    }
+
+    @Test
+    public void testBlockedPollIsWokenByPut() throws Exception
+    {
+        final ConcurrentQueueInfoDelegate delegate = new ConcurrentQueueInfoDelegate(0);
+        final AtomicReference<Serializable> polled = new AtomicReference<Serializable>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Thread consumer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    polled.set(delegate.poll(TIMEOUT));
+                }
+                catch (InterruptedException e)
+                {
+                    // fall through with nothing polled
+                }
+                done.countDown();
+            }
+        };
+        consumer.start();
+
+        Thread.sleep(100);
+        delegate.putNow("item");
+
+        assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals("item", polled.get());
+    }
+
+    @Test
+    public void testBlockedOfferIsWokenByPoll() throws Exception
+    {
+        final ConcurrentQueueInfoDelegate delegate = new ConcurrentQueueInfoDelegate(1);
+        delegate.putNow("1");
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Thread producer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    if (delegate.offer("2", 0, TIMEOUT))
+                    {
+                        done.countDown();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    // latch is not released
+                }
+            }
+        };
+        producer.start();
+
+        Thread.sleep(100);
+        assertEquals("1", delegate.poll(0));
+
+        assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals("2", delegate.poll(0));
+    }
+
+    @Test
+    public void testDrainToTakesBatchAfterWaitingForFirst() throws Exception
+    {
+        ConcurrentQueueInfoDelegate delegate = new ConcurrentQueueInfoDelegate(0);
+        List<Serializable> items = new ArrayList<Serializable>();
+        assertEquals(0, delegate.drainTo(items, 10, 10));
+
+        delegate.addAll(Arrays.<Serializable> asList("1", "2", "3"));
+        assertEquals(2, delegate.drainTo(items, 2, 0));
+        assertEquals(Arrays.<Serializable> asList("1", "2"), items);
+        assertEquals(1, delegate.getSize());
+    }
+
+    @Test
+    public void testDrainHandsOverMembers() throws Exception
+    {
+        ConcurrentQueueInfoDelegate delegate = new ConcurrentQueueInfoDelegate(0);
+        delegate.addAll(Arrays.<Serializable> asList("1", "2", "3"));
+        assertEquals(Arrays.<Serializable> asList("1", "2", "3"), delegate.drain());
+        assertEquals(0, delegate.getSize());
+    }
+}
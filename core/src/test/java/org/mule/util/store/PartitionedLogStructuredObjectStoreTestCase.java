@@ -0,0 +1,288 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import org.mule.api.MuleContext;
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.serialization.JavaObjectSerializer;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.util.FileUtils;
+import org.mule.util.store.PartitionedPersistentObjectStoreTestCase.DeserializableValue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+
+public class PartitionedLogStructuredObjectStoreTestCase extends AbstractMuleTestCase
+{
+    private static final String PARTITION = "partition";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MuleContext mockMuleContext = Mockito.mock(MuleContext.class, Answers.RETURNS_DEEP_STUBS.get());
+    private PartitionedLogStructuredObjectStore<Serializable> os;
+
+    @Before
+    public void setUpMockMuleContext() throws Exception
+    {
+        when(mockMuleContext.getConfiguration().getWorkingDirectory()).thenReturn(tempFolder.getRoot().getAbsolutePath());
+        when(mockMuleContext.getExecutionClassLoader()).thenReturn(Thread.currentThread().getContextClassLoader());
+        JavaObjectSerializer serializer = new JavaObjectSerializer();
+        serializer.setMuleContext(mockMuleContext);
+        when(mockMuleContext.getObjectSerializer()).thenReturn(serializer);
+        os = new PartitionedLogStructuredObjectStore<Serializable>(mockMuleContext);
+    }
+
+    @After
+    public void closeStore() throws ObjectStoreException
+    {
+        os.close();
+    }
+
+    @Test
+    public void defaultPartitionAndNamedPartitionsDoNotCollide() throws Exception
+    {
+        os.open(PARTITION);
+        os.store("key", "value");
+        os.store("key", "partitionValue", PARTITION);
+        assertThat((String) os.retrieve("key"), is("value"));
+        assertThat((String) os.retrieve("key", PARTITION), is("partitionValue"));
+    }
+
+    @Test(expected = ObjectAlreadyExistsException.class)
+    public void storeSameKeyThrowsException() throws Exception
+    {
+        os.open();
+        os.store("key", "value");
+        os.store("key", "value");
+    }
+
+    @Test
+    public void removedEntriesAreNotRestored() throws Exception
+    {
+        os.open(PARTITION);
+        os.store("key1", "value1", PARTITION);
+        os.store("key2", "value2", PARTITION);
+        assertThat((String) os.remove("key1", PARTITION), is("value1"));
+        reopen();
+
+        assertFalse(os.contains("key1", PARTITION));
+        assertThat((String) os.retrieve("key2", PARTITION), is("value2"));
+    }
+
+    @Test
+    public void restoresEntriesWithoutIndex() throws Exception
+    {
+        os.open(PARTITION);
+        os.store("key1", "value1", PARTITION);
+        reopen();
+        os.store("key2", "value2", PARTITION);
+        os.remove("key1", PARTITION);
+
+        // simulate a crash: the store is not closed, so no index is written
+        assertFalse(new File(findPartitionDirectory(), "data.index").exists());
+        PartitionedLogStructuredObjectStore<Serializable> crashed = os;
+        os = new PartitionedLogStructuredObjectStore<Serializable>(mockMuleContext);
+        os.open(PARTITION);
+
+        assertThat(os.allKeys(PARTITION), is(Arrays.<Serializable> asList("key2")));
+        assertThat((String) os.retrieve("key2", PARTITION), is("value2"));
+        crashed.close();
+    }
+
+    @Test
+    public void truncatesIncompleteRecord() throws Exception
+    {
+        os.open(PARTITION);
+        os.store("key1", "value1", PARTITION);
+        os.close();
+
+        File partitionDirectory = findPartitionDirectory();
+        new File(partitionDirectory, "data.index").delete();
+        RandomAccessFile data = new RandomAccessFile(new File(partitionDirectory, "data.log"), "rw");
+        try
+        {
+            long validLength = data.length();
+            data.seek(validLength);
+            data.write(new byte[] {1, 0, 0, 0});
+        }
+        finally
+        {
+            data.close();
+        }
+
+        os.open(PARTITION);
+        assertThat((String) os.retrieve("key1", PARTITION), is("value1"));
+        os.store("key2", "value2", PARTITION);
+        reopen();
+        assertThat(os.allKeys(PARTITION), is(Arrays.<Serializable> asList("key1", "key2")));
+    }
+
+    @Test
+    public void expiresOldestEntriesFirst() throws Exception
+    {
+        os.open(PARTITION);
+        for (int i = 0; i < 5; i++)
+        {
+            os.store("key" + i, "value" + i, PARTITION);
+        }
+        os.expire(0, 3, PARTITION);
+        assertThat(os.allKeys(PARTITION), is(Arrays.<Serializable> asList("key2", "key3", "key4")));
+
+        Thread.sleep(20);
+        os.store("key5", "value5", PARTITION);
+        os.expire(10, -1, PARTITION);
+        assertThat(os.allKeys(PARTITION), is(Arrays.<Serializable> asList("key5")));
+    }
+
+    @Test
+    public void compactsRemovedEntries() throws Exception
+    {
+        os.open(PARTITION);
+        byte[] payload = new byte[100 * 1024];
+        for (int i = 0; i < 20; i++)
+        {
+            os.store("key" + i, payload, PARTITION);
+        }
+        File dataFile = new File(findPartitionDirectory(), "data.log");
+        long uncompactedLength = dataFile.length();
+
+        for (int i = 0; i < 15; i++)
+        {
+            os.remove("key" + i, PARTITION);
+        }
+        assertTrue(dataFile.length() < uncompactedLength / 2);
+
+        reopen();
+        assertThat(os.allKeys(PARTITION).size(), is(5));
+        assertThat(((byte[]) os.retrieve("key19", PARTITION)).length, is(payload.length));
+    }
+
+    @Test
+    public void compactionWritesTheIndexOfTheCompactedFile() throws Exception
+    {
+        os.open(PARTITION);
+        byte[] payload = new byte[100 * 1024];
+        for (int i = 0; i < 20; i++)
+        {
+            os.store("key" + i, payload, PARTITION);
+        }
+        for (int i = 0; i < 15; i++)
+        {
+            os.remove("key" + i, PARTITION);
+        }
+        assertTrue(new File(findPartitionDirectory(), "data.index").exists());
+        os.store("key20", "value20", PARTITION);
+
+        // open the files as they are after a crash, without closing the store
+        PartitionedLogStructuredObjectStore<Serializable> recovered = new PartitionedLogStructuredObjectStore<Serializable>(mockMuleContext);
+        try
+        {
+            recovered.open(PARTITION);
+            assertThat(recovered.allKeys(PARTITION).size(), is(6));
+            assertThat(((byte[]) recovered.retrieve("key15", PARTITION)).length, is(payload.length));
+            assertThat((String) recovered.retrieve("key20", PARTITION), is("value20"));
+        }
+        finally
+        {
+            recovered.close();
+        }
+    }
+
+    @Test
+    public void restoresDataFileMovedAsideByIncompleteCompaction() throws Exception
+    {
+        os.open(PARTITION);
+        os.store("key1", "value1", PARTITION);
+        os.store("key2", "value2", PARTITION);
+        os.close();
+
+        File partitionDirectory = findPartitionDirectory();
+        assertTrue(new File(partitionDirectory, "data.log").renameTo(new File(partitionDirectory, "data.old")));
+        FileUtils.writeStringToFile(new File(partitionDirectory, "data.compact"), "partially compacted");
+
+        os.open(PARTITION);
+        assertThat(os.allKeys(PARTITION), is(Arrays.<Serializable> asList("key1", "key2")));
+        assertThat((String) os.retrieve("key2", PARTITION), is("value2"));
+        assertFalse(new File(partitionDirectory, "data.old").exists());
+        assertFalse(new File(partitionDirectory, "data.compact").exists());
+    }
+
+    @Test
+    public void disposePartitionDeletesItsData() throws Exception
+    {
+        os.open(PARTITION);
+        os.store("key", "value", PARTITION);
+        File partitionDirectory = findPartitionDirectory();
+        os.disposePartition(PARTITION);
+
+        assertFalse(partitionDirectory.exists());
+        assertFalse(os.allPartitions().contains(PARTITION));
+    }
+
+    @Test
+    public void muleContextAwareValueGetsDeserialized() throws Exception
+    {
+        os.open();
+        os.store("key", new DeserializableValue(mockMuleContext));
+        DeserializableValue value = (DeserializableValue) os.retrieve("key");
+        assertNotNull(value.getMuleContext());
+    }
+
+    private void reopen() throws ObjectStoreException
+    {
+        os.close();
+        os.open(PARTITION);
+    }
+
+    private File findPartitionDirectory()
+    {
+        File storeDirectory = new File(tempFolder.getRoot(), PartitionedLogStructuredObjectStore.OBJECT_STORE_DIR);
+        for (File partitionDirectory : storeDirectory.listFiles())
+        {
+            if (new File(partitionDirectory, "partition-descriptor").exists()
+                && PARTITION.equals(readDescriptor(partitionDirectory)))
+            {
+                return partitionDirectory;
+            }
+        }
+        throw new AssertionError("No directory for partition " + PARTITION);
+    }
+
+    private String readDescriptor(File partitionDirectory)
+    {
+        try
+        {
+            return FileUtils.readFileToString(new File(partitionDirectory, "partition-descriptor"));
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+}
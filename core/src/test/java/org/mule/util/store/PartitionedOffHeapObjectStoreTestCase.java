@@ -0,0 +1,190 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.mule.api.MuleContext;
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.serialization.JavaObjectSerializer;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SmallTest
+public class PartitionedOffHeapObjectStoreTestCase extends AbstractMuleTestCase
+{
+    private static final String PARTITION = "partition";
+
+    private PartitionedOffHeapObjectStore<Serializable> os;
+
+    @Before
+    public void createStore() throws Exception
+    {
+        MuleContext muleContext = mock(MuleContext.class);
+        JavaObjectSerializer serializer = new JavaObjectSerializer();
+        serializer.setMuleContext(muleContext);
+        when(muleContext.getObjectSerializer()).thenReturn(serializer);
+        os = new PartitionedOffHeapObjectStore<Serializable>(muleContext);
+        os.setMaxBytes(64 * 1024);
+        os.setSlabSize(4 * 1024);
+    }
+
+    @After
+    public void disposeStore()
+    {
+        os.dispose();
+    }
+
+    @Test
+    public void storesRetrievesAndRemoves() throws Exception
+    {
+        os.open(PARTITION);
+        os.store("key", "value", PARTITION);
+        os.store(42, new byte[] {1, 2, 3}, PARTITION);
+
+        assertTrue(os.contains("key", PARTITION));
+        assertThat((String) os.retrieve("key", PARTITION), is("value"));
+        assertThat((byte[]) os.retrieve(42, PARTITION), is(new byte[] {1, 2, 3}));
+        assertThat(keys(PARTITION), is(keySet("key", 42)));
+
+        assertThat((String) os.remove("key", PARTITION), is("value"));
+        assertFalse(os.contains("key", PARTITION));
+        assertThat(os.getEntryCount(), is(1L));
+    }
+
+    @Test
+    public void defaultPartitionAndNamedPartitionsDoNotCollide() throws Exception
+    {
+        os.store("key", "value");
+        os.store("key", "partitionValue", PARTITION);
+        assertThat((String) os.retrieve("key"), is("value"));
+        assertThat((String) os.retrieve("key", PARTITION), is("partitionValue"));
+    }
+
+    @Test(expected = ObjectAlreadyExistsException.class)
+    public void storeSameKeyThrowsException() throws Exception
+    {
+        os.store("key", "value");
+        os.store("key", "value");
+    }
+
+    @Test(expected = ObjectDoesNotExistException.class)
+    public void retrieveMissingKeyThrowsException() throws Exception
+    {
+        os.retrieve("missing", PARTITION);
+    }
+
+    @Test(expected = ObjectStoreException.class)
+    public void entryLargerThanSlabIsRejected() throws Exception
+    {
+        os.store("key", new byte[8 * 1024]);
+    }
+
+    @Test
+    public void evictsOldestEntriesWhenFull() throws Exception
+    {
+        byte[] value = new byte[1000];
+        for (int i = 0; i < 1000; i++)
+        {
+            os.store("key" + i, value, PARTITION);
+        }
+
+        assertTrue(os.getMemoryUsed() <= os.getMemoryCapacity());
+        assertTrue(os.getStatistics().getEvicted() > 0);
+        assertFalse(os.contains("key0", PARTITION));
+        assertTrue(os.contains("key999", PARTITION));
+        assertThat((long) keys(PARTITION).size(), is(os.getEntryCount()));
+        assertThat(os.getEntryCount() + os.getStatistics().getEvicted(), is(1000L));
+    }
+
+    @Test
+    public void reclaimsRemovedEntries() throws Exception
+    {
+        byte[] value = new byte[1000];
+        for (int i = 0; i < 1000; i++)
+        {
+            os.store("key" + i, value, PARTITION);
+            os.remove("key" + i, PARTITION);
+        }
+        os.store("last", value, PARTITION);
+
+        assertThat(os.getEntryCount(), is(1L));
+        assertThat(os.getStatistics().getEvicted(), is(0L));
+    }
+
+    @Test
+    public void expiresOldestEntriesFirst() throws Exception
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            os.store("key" + i, "value" + i, PARTITION);
+        }
+        os.expire(0, 3, PARTITION);
+        assertThat(keys(PARTITION), is(keySet("key2", "key3", "key4")));
+
+        Thread.sleep(20);
+        os.store("key5", "value5", PARTITION);
+        os.expire(10, -1, PARTITION);
+        assertThat(keys(PARTITION), is(keySet("key5")));
+        assertThat(os.getStatistics().getExpired(), is(5L));
+    }
+
+    @Test
+    public void expiresOnWrite() throws Exception
+    {
+        os.setEntryTTL(10);
+        os.setMaxEntries(3);
+        for (int i = 0; i < 5; i++)
+        {
+            os.store("key" + i, "value" + i, PARTITION);
+        }
+        assertThat(keys(PARTITION), is(keySet("key2", "key3", "key4")));
+
+        Thread.sleep(20);
+        os.store("key5", "value5", PARTITION);
+        assertThat(keys(PARTITION), is(keySet("key5")));
+    }
+
+    @Test
+    public void disposePartitionDropsItsEntries() throws Exception
+    {
+        os.store("key", "value", PARTITION);
+        os.disposePartition(PARTITION);
+
+        assertFalse(os.allPartitions().contains(PARTITION));
+        assertFalse(os.contains("key", PARTITION));
+    }
+
+    private Set<Serializable> keys(String partitionName) throws ObjectStoreException
+    {
+        return new HashSet<Serializable>(os.allKeys(partitionName));
+    }
+
+    private Set<Serializable> keySet(Serializable... keys)
+    {
+        return new HashSet<Serializable>(Arrays.asList(keys));
+    }
+}
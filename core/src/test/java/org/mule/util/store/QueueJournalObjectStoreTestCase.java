@@ -0,0 +1,185 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.util.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleContext;
+import org.mule.api.config.MuleConfiguration;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.serialization.JavaObjectSerializer;
+import org.mule.util.UUID;
+import org.mule.util.queue.QueueKey;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QueueJournalObjectStoreTestCase extends AbstractObjectStoreContractTestCase
+{
+    private static final String QUEUE_NAME = "the-queue";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File persistenceFolder;
+    private MuleContext mockMuleContext;
+    private QueueJournalObjectStore<Serializable> store;
+
+    @Override
+    protected void doSetUp() throws Exception
+    {
+        super.doSetUp();
+        persistenceFolder = tempFolder.newFolder("persistence");
+
+        MuleConfiguration mockConfig = mock(MuleConfiguration.class);
+        when(mockConfig.getWorkingDirectory()).thenReturn(persistenceFolder.getAbsolutePath());
+
+        mockMuleContext = mock(MuleContext.class);
+        when(mockMuleContext.getConfiguration()).thenReturn(mockConfig);
+        when(mockMuleContext.getExecutionClassLoader()).thenReturn(getClass().getClassLoader());
+
+        JavaObjectSerializer serializer = new JavaObjectSerializer();
+        serializer.setMuleContext(mockMuleContext);
+        when(mockMuleContext.getObjectSerializer()).thenReturn(serializer);
+    }
+
+    @After
+    public void closeStore() throws ObjectStoreException
+    {
+        if (store != null)
+        {
+            store.close();
+        }
+    }
+
+    @Override
+    public QueueJournalObjectStore<Serializable> getObjectStore() throws ObjectStoreException
+    {
+        closeStore();
+        store = new QueueJournalObjectStore<Serializable>(mockMuleContext);
+        store.open();
+        return store;
+    }
+
+    @Override
+    public Serializable getStorableValue()
+    {
+        return new DefaultMuleMessage(TEST_MESSAGE, muleContext);
+    }
+
+    @Override
+    protected Serializable createKey()
+    {
+        return new QueueKey(QUEUE_NAME, UUID.getUUID());
+    }
+
+    @Test
+    public void testAllKeysOnNotYetOpenedStore() throws ObjectStoreException
+    {
+        QueueJournalObjectStore<Serializable> notOpened = new QueueJournalObjectStore<Serializable>(mockMuleContext);
+        assertEquals(0, notOpened.allKeys().size());
+    }
+
+    @Test
+    public void testRecoversLiveEventsInStoreOrder() throws Exception
+    {
+        QueueJournalObjectStore<Serializable> journal = getObjectStore();
+        QueueKey first = new QueueKey(QUEUE_NAME, "1");
+        QueueKey second = new QueueKey(QUEUE_NAME, "2");
+        QueueKey third = new QueueKey(QUEUE_NAME, "3");
+        journal.store(first, "one");
+        journal.store(second, "two");
+        journal.store(third, "three");
+        assertEquals("two", journal.remove(second));
+
+        journal = getObjectStore();
+
+        List<Serializable> keys = journal.allKeys();
+        assertEquals(2, keys.size());
+        assertEquals(first, keys.get(0));
+        assertEquals(third, keys.get(1));
+        assertEquals("one", journal.retrieve(first));
+        assertEquals("three", journal.retrieve(third));
+        assertFalse(journal.contains(second));
+    }
+
+    @Test
+    public void testTruncatesTornRecordOnRecovery() throws Exception
+    {
+        QueueJournalObjectStore<Serializable> journal = getObjectStore();
+        QueueKey key = new QueueKey(QUEUE_NAME, "1");
+        journal.store(key, TEST_MESSAGE);
+        journal.close();
+
+        File segment = journalDirectory().listFiles()[0];
+        long validLength = segment.length();
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try
+        {
+            file.seek(validLength);
+            file.write(new byte[] {1, 0, 0, 0, 5, 0});
+        }
+        finally
+        {
+            file.close();
+        }
+
+        journal = getObjectStore();
+        assertEquals(1, journal.allKeys().size());
+        assertEquals(TEST_MESSAGE, journal.retrieve(key));
+        assertEquals(validLength, segment.length());
+
+        QueueKey next = new QueueKey(QUEUE_NAME, "2");
+        journal.store(next, "next");
+        journal = getObjectStore();
+        assertEquals("next", journal.retrieve(next));
+    }
+
+    @Test
+    public void testCompactsFullyConsumedSegments() throws Exception
+    {
+        store = new QueueJournalObjectStore<Serializable>(mockMuleContext);
+        store.setMaxSegmentSize(1);
+        store.open();
+
+        QueueKey first = new QueueKey(QUEUE_NAME, "1");
+        QueueKey second = new QueueKey(QUEUE_NAME, "2");
+        store.store(first, "one");
+        store.store(second, "two");
+        assertTrue(store.getSegmentCount() >= 2);
+
+        store.remove(first);
+        store.compact();
+        assertEquals(store.getSegmentCount(), journalDirectory().listFiles().length);
+        assertEquals("two", store.retrieve(second));
+
+        store = getObjectStore();
+        assertEquals(1, store.allKeys().size());
+        assertEquals(second, store.allKeys().get(0));
+    }
+
+    private File journalDirectory()
+    {
+        return new File(persistenceFolder, QueueJournalObjectStore.DEFAULT_QUEUE_JOURNAL);
+    }
+}
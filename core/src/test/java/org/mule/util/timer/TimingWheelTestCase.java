@@ -0,0 +1,68 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+@SmallTest
+public class TimingWheelTestCase extends AbstractMuleTestCase
+{
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void expiresItemsOnlyOnceTheirTickElapsed() throws Exception
+    {
+        TimingWheel<String> wheel = new TimingWheel<String>(10, TimeUnit.MILLISECONDS, 8);
+        long start = System.nanoTime();
+        wheel.schedule("first", start + TICK * 2);
+        wheel.schedule("second", start + TICK * 5);
+
+        assertTrue(wheel.expire(start + TICK).isEmpty());
+        assertEquals(Arrays.asList("first"), wheel.expire(start + TICK * 4));
+        assertEquals(1, wheel.size());
+        assertEquals(Arrays.asList("second"), wheel.expire(start + TICK * 7));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void keepsItemsBeyondOneRevolution() throws Exception
+    {
+        TimingWheel<String> wheel = new TimingWheel<String>(10, TimeUnit.MILLISECONDS, 4);
+        long start = System.nanoTime();
+        wheel.schedule("late", start + TICK * 10);
+
+        for (int i = 1; i <= 9; i++)
+        {
+            assertEquals(Collections.<String> emptyList(), wheel.expire(start + TICK * i));
+        }
+        assertEquals(Arrays.asList("late"), wheel.expire(start + TICK * 12));
+    }
+
+    @Test
+    public void expiresOverdueItemsImmediately() throws Exception
+    {
+        TimingWheel<String> wheel = new TimingWheel<String>(10, TimeUnit.MILLISECONDS, 8);
+        long start = System.nanoTime();
+        wheel.expire(start + TICK * 3);
+        wheel.schedule("overdue", start - TICK * 100);
+
+        assertEquals(Arrays.asList("overdue"), wheel.expire(start + TICK * 3));
+    }
+}
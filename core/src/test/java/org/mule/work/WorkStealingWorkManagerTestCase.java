@@ -0,0 +1,115 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.work;
+
+import org.mule.api.config.ThreadingProfile;
+import org.mule.api.context.WorkManager;
+import org.mule.config.ChainedThreadingProfile;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.transport.ConcurrentWorkTracker;
+import org.mule.transport.TrackingWorkManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkEvent;
+import javax.resource.spi.work.WorkListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WorkStealingWorkManagerTestCase extends AbstractMuleContextTestCase
+{
+    private static final int WORKS = 1000;
+
+    private WorkManager workManager;
+
+    @Before
+    public void createWorkManager() throws Exception
+    {
+        ThreadingProfile profile = new ChainedThreadingProfile();
+        profile.setMaxThreadsActive(4);
+        profile.setMaxBufferSize(WORKS);
+        profile.setPoolExhaustedAction(ThreadingProfile.WHEN_EXHAUSTED_WAIT);
+        WorkStealingWorkManagerFactory factory = new WorkStealingWorkManagerFactory();
+        factory.setMuleContext(muleContext);
+        workManager = factory.createWorkManager(profile, "test", RECEIVE_TIMEOUT);
+        workManager.start();
+    }
+
+    @After
+    public void disposeWorkManager()
+    {
+        workManager.dispose();
+    }
+
+    @Test
+    public void notifiesWorkListener() throws Exception
+    {
+        final CountDownLatch started = new CountDownLatch(WORKS);
+        final CountDownLatch completed = new CountDownLatch(WORKS);
+        WorkListener listener = new DefaultWorkListener()
+        {
+            @Override
+            public void workStarted(WorkEvent event)
+            {
+                started.countDown();
+            }
+
+            @Override
+            public void workCompleted(WorkEvent event)
+            {
+                completed.countDown();
+            }
+        };
+
+        for (int i = 0; i < WORKS; i++)
+        {
+            workManager.scheduleWork(new NoOpWork(), WorkManager.INDEFINITE, null, listener);
+        }
+
+        assertTrue(started.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue(completed.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void tracksPendingWork() throws Exception
+    {
+        ConcurrentWorkTracker workTracker = new ConcurrentWorkTracker();
+        TrackingWorkManager trackingWorkManager = new TrackingWorkManager(workManager, RECEIVE_TIMEOUT);
+        trackingWorkManager.setWorkTracker(workTracker);
+
+        for (int i = 0; i < WORKS; i++)
+        {
+            trackingWorkManager.scheduleWork(new NoOpWork());
+        }
+        trackingWorkManager.dispose();
+
+        assertEquals(0, workTracker.pendingWorks().size());
+    }
+
+    private static class NoOpWork implements Work
+    {
+        @Override
+        public void release()
+        {
+        }
+
+        @Override
+        public void run()
+        {
+        }
+    }
+}
@@ -22,9 +22,13 @@ import org.mule.config.i18n.CoreMessages;
 import org.mule.construct.AbstractFlowConstruct;
 import org.mule.context.notification.MuleContextNotification;
 import org.mule.context.notification.NotificationException;
+import org.mule.el.mvel.MVELExpressionLanguage;
+import org.mule.expression.DefaultExpressionManager;
 import org.mule.management.stats.FlowConstructStatistics;
 import org.mule.module.management.i18n.ManagementMessages;
 import org.mule.module.management.mbean.ApplicationService;
+import org.mule.module.management.mbean.CacheStats;
+import org.mule.module.management.mbean.CacheStatsMBean;
 import org.mule.module.management.mbean.ConnectorService;
 import org.mule.module.management.mbean.ConnectorServiceMBean;
 import org.mule.module.management.mbean.EndpointService;
@@ -37,6 +41,8 @@ import org.mule.module.management.mbean.MuleConfigurationService;
 import org.mule.module.management.mbean.MuleConfigurationServiceMBean;
 import org.mule.module.management.mbean.MuleService;
 import org.mule.module.management.mbean.MuleServiceMBean;
+import org.mule.module.management.mbean.ObjectStoreStats;
+import org.mule.module.management.mbean.ObjectStoreStatsMBean;
 import org.mule.module.management.mbean.ServiceService;
 import org.mule.module.management.mbean.ServiceServiceMBean;
 import org.mule.module.management.mbean.StatisticsService;
@@ -47,6 +53,7 @@ import org.mule.module.management.support.JmxSupportFactory;
 import org.mule.module.management.support.SimplePasswordJmxAuthenticator;
 import org.mule.transport.AbstractConnector;
 import org.mule.util.StringUtils;
+import org.mule.util.store.PartitionedOffHeapObjectStore;
 
 import java.lang.management.ManagementFactory;
 import java.net.URI;
@@ -527,6 +534,42 @@ public class JmxAgent extends AbstractAgent
         }
     }
 
+    @SuppressWarnings("rawtypes")
+    protected void registerObjectStoreServices() throws MalformedObjectNameException,
+        NotCompliantMBeanException, MBeanRegistrationException, InstanceAlreadyExistsException
+    {
+        Map<String, PartitionedOffHeapObjectStore> stores = muleContext.getRegistry().lookupByType(PartitionedOffHeapObjectStore.class);
+        for (Map.Entry<String, PartitionedOffHeapObjectStore> entry : stores.entrySet())
+        {
+            ObjectStoreStatsMBean service = new ObjectStoreStats(entry.getValue());
+            final String name = jmxSupport.escape(entry.getKey());
+            final String jmxName = String.format("%s:%s%s", jmxSupport.getDomainName(muleContext, !containerMode), ObjectStoreStatsMBean.DEFAULT_JMX_NAME_PREFIX, name);
+            ObjectName on = jmxSupport.getObjectName(jmxName);
+            ClassloaderSwitchingMBeanWrapper mBean = new ClassloaderSwitchingMBeanWrapper(service, ObjectStoreStatsMBean.class, muleContext.getExecutionClassLoader());
+            logger.debug("Registering object store with name: " + on);
+            mBeanServer.registerMBean(mBean, on);
+        }
+    }
+
+    protected void registerExpressionCacheService() throws MalformedObjectNameException,
+        NotCompliantMBeanException, MBeanRegistrationException, InstanceAlreadyExistsException
+    {
+        if (!(muleContext.getExpressionManager() instanceof DefaultExpressionManager))
+        {
+            return;
+        }
+        Object expressionLanguage = ((DefaultExpressionManager) muleContext.getExpressionManager()).getExpressionLanguage();
+        if (expressionLanguage instanceof MVELExpressionLanguage)
+        {
+            CacheStatsMBean service = new CacheStats(((MVELExpressionLanguage) expressionLanguage).getCompiledExpressionCache());
+            final String jmxName = String.format("%s:%s%s", jmxSupport.getDomainName(muleContext, !containerMode), CacheStatsMBean.DEFAULT_JMX_NAME_PREFIX, CacheStatsMBean.EXPRESSION_CACHE_NAME);
+            ObjectName on = jmxSupport.getObjectName(jmxName);
+            ClassloaderSwitchingMBeanWrapper mBean = new ClassloaderSwitchingMBeanWrapper(service, CacheStatsMBean.class, muleContext.getExecutionClassLoader());
+            logger.debug("Registering expression cache with name: " + on);
+            mBeanServer.registerMBean(mBean, on);
+        }
+    }
+
     public boolean isCreateServer()
     {
         return createServer;
@@ -713,6 +756,8 @@ public class JmxAgent extends AbstractAgent
                     registerEndpointServices();
                     registerConnectorServices();
                     registerApplicationServices();
+                    registerObjectStoreServices();
+                    registerExpressionCacheService();
                 }
                 catch (Exception e)
                 {
@@ -0,0 +1,58 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+import org.mule.management.stats.CacheStatistics;
+import org.mule.util.concurrent.BoundedConcurrentCache;
+
+/**
+ * A concrete class that holds management information for a bounded in-memory cache.
+ */
+public class CacheStats implements CacheStatsMBean
+{
+    private final BoundedConcurrentCache<?, ?> cache;
+    private final CacheStatistics statistics;
+
+    public CacheStats(BoundedConcurrentCache<?, ?> cache)
+    {
+        this.cache = cache;
+        this.statistics = cache.getStatistics();
+    }
+
+    public void clearStatistics()
+    {
+        statistics.clear();
+    }
+
+    public int getSize()
+    {
+        return cache.size();
+    }
+
+    public int getCapacity()
+    {
+        return cache.getCapacity();
+    }
+
+    public long getHits()
+    {
+        return statistics.getHits();
+    }
+
+    public long getMisses()
+    {
+        return statistics.getMisses();
+    }
+
+    public long getEvictions()
+    {
+        return statistics.getEvictions();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+/**
+ * <code>CacheStatsMBean</code> defines the management interface for a bounded
+ * in-memory cache.
+ */
+public interface CacheStatsMBean
+{
+    String DEFAULT_JMX_NAME_PREFIX = "type=Cache,name=";
+
+    String EXPRESSION_CACHE_NAME = "CompiledExpressions";
+
+    void clearStatistics();
+
+    int getSize();
+
+    int getCapacity();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+}
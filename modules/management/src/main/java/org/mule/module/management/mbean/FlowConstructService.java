@@ -134,6 +134,36 @@ public class FlowConstructService implements FlowConstructServiceMBean, MBeanReg
         return statistics.getFatalErrors();
     }
 
+    public long getMedianProcessingLatency()
+    {
+        return statistics.getProcessingLatency().getValueAtPercentile(50);
+    }
+
+    public long getProcessingLatency99thPercentile()
+    {
+        return statistics.getProcessingLatency().getValueAtPercentile(99);
+    }
+
+    public long getProcessingLatency999thPercentile()
+    {
+        return statistics.getProcessingLatency().getValueAtPercentile(99.9);
+    }
+
+    public long getMaxProcessingLatency()
+    {
+        return statistics.getProcessingLatency().getSnapshot().getMax();
+    }
+
+    public long getProcessingLatencyPercentile(double percentile)
+    {
+        return statistics.getProcessingLatency().getValueAtPercentile(percentile);
+    }
+
+    public String[] getMessageProcessorLatencies()
+    {
+        return FlowConstructStats.describeLatencies(statistics.getMessageProcessorLatencies());
+    }
+
     public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception
     {
         this.server = server;
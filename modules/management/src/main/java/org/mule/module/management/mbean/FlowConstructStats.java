@@ -12,6 +12,12 @@ package org.mule.module.management.mbean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.mule.management.stats.FlowConstructStatistics;
+import org.mule.management.stats.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import javax.management.MBeanRegistration;
 import javax.management.MBeanServer;
@@ -94,6 +100,50 @@ public class FlowConstructStats implements FlowConstructStatsMBean, MBeanRegistr
         return statistics.getFatalErrors();
     }
 
+    public long getMedianProcessingLatency()
+    {
+        return statistics.getProcessingLatency().getValueAtPercentile(50);
+    }
+
+    public long getProcessingLatency99thPercentile()
+    {
+        return statistics.getProcessingLatency().getValueAtPercentile(99);
+    }
+
+    public long getProcessingLatency999thPercentile()
+    {
+        return statistics.getProcessingLatency().getValueAtPercentile(99.9);
+    }
+
+    public long getMaxProcessingLatency()
+    {
+        return statistics.getProcessingLatency().getSnapshot().getMax();
+    }
+
+    public long getProcessingLatencyPercentile(double percentile)
+    {
+        return statistics.getProcessingLatency().getValueAtPercentile(percentile);
+    }
+
+    public String[] getMessageProcessorLatencies()
+    {
+        return describeLatencies(statistics.getMessageProcessorLatencies());
+    }
+
+    /**
+     * @return one line per entry, with the key followed by the latencies
+     */
+    static String[] describeLatencies(Map<String, LatencyHistogram> latencies)
+    {
+        List<String> lines = new ArrayList<String>(latencies.size());
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet())
+        {
+            lines.add(entry.getKey() + ": " + entry.getValue().getSnapshot());
+        }
+        Collections.sort(lines);
+        return lines.toArray(new String[lines.size()]);
+    }
+
     public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception
     {
         this.server = server;
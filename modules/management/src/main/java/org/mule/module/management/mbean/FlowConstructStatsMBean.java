@@ -37,4 +37,36 @@ public interface FlowConstructStatsMBean
     long getFatalErrors();
 
     long getExecutionErrors();
+
+    /**
+     * @return the median processing latency, in microseconds
+     */
+    long getMedianProcessingLatency();
+
+    /**
+     * @return the 99th percentile of the processing latency, in microseconds
+     */
+    long getProcessingLatency99thPercentile();
+
+    /**
+     * @return the 99.9th percentile of the processing latency, in microseconds
+     */
+    long getProcessingLatency999thPercentile();
+
+    /**
+     * @return the maximum processing latency, in microseconds
+     */
+    long getMaxProcessingLatency();
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the processing latency that the given percentage of events did not
+     *         exceed, in microseconds
+     */
+    long getProcessingLatencyPercentile(double percentile);
+
+    /**
+     * @return the latencies of each message processor, one line per processor path
+     */
+    String[] getMessageProcessorLatencies();
 }
@@ -0,0 +1,78 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+import org.mule.management.stats.ObjectStoreStatistics;
+import org.mule.util.store.PartitionedOffHeapObjectStore;
+
+/**
+ * A concrete class that holds management information for an off-heap object store.
+ */
+public class ObjectStoreStats implements ObjectStoreStatsMBean
+{
+    private final PartitionedOffHeapObjectStore<?> store;
+    private final ObjectStoreStatistics statistics;
+
+    public ObjectStoreStats(PartitionedOffHeapObjectStore<?> store)
+    {
+        this.store = store;
+        this.statistics = store.getStatistics();
+    }
+
+    public void clearStatistics()
+    {
+        statistics.clear();
+    }
+
+    public long getEntryCount()
+    {
+        return store.getEntryCount();
+    }
+
+    public long getMemoryUsed()
+    {
+        return store.getMemoryUsed();
+    }
+
+    public long getMemoryCapacity()
+    {
+        return store.getMemoryCapacity();
+    }
+
+    public long getHits()
+    {
+        return statistics.getHits();
+    }
+
+    public long getMisses()
+    {
+        return statistics.getMisses();
+    }
+
+    public long getStored()
+    {
+        return statistics.getStored();
+    }
+
+    public long getRemoved()
+    {
+        return statistics.getRemoved();
+    }
+
+    public long getEvicted()
+    {
+        return statistics.getEvicted();
+    }
+
+    public long getExpired()
+    {
+        return statistics.getExpired();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+/**
+ * <code>ObjectStoreStatsMBean</code> defines the management interface for an
+ * off-heap object store.
+ */
+public interface ObjectStoreStatsMBean
+{
+    String DEFAULT_JMX_NAME_PREFIX = "type=ObjectStore,name=";
+
+    void clearStatistics();
+
+    long getEntryCount();
+
+    long getMemoryUsed();
+
+    long getMemoryCapacity();
+
+    long getHits();
+
+    long getMisses();
+
+    long getStored();
+
+    long getRemoved();
+
+    long getEvicted();
+
+    long getExpired();
+}
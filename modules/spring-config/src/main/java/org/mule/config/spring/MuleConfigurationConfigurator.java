@@ -70,6 +70,7 @@ public class MuleConfigurationConfigurator implements MuleContextAware, SmartFac
             defaultConfig.setFlowEndingWithOneWayEndpointReturnsNull(config.isFlowEndingWithOneWayEndpointReturnsNull());
             defaultConfig.setDefaultExceptionStrategyName(config.getDefaultExceptionStrategyName());
             defaultConfig.setEnricherPropagatesSessionVariableChanges(config.isEnricherPropagatesSessionVariableChanges());
+            defaultConfig.setExpressionCacheCapacity(config.getExpressionCacheCapacity());
             validateDefaultExceptionStrategy();
             return configuration;
         }
@@ -153,4 +154,9 @@ public class MuleConfigurationConfigurator implements MuleContextAware, SmartFac
         config.setEnricherPropagatesSessionVariableChanges(enricherPropagatesSessionVariableChanges);
     }
 
+    public void setExpressionCacheCapacity(int expressionCacheCapacity)
+    {
+        config.setExpressionCacheCapacity(expressionCacheCapacity);
+    }
+
 }
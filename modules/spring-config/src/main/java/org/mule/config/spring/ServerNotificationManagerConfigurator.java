@@ -14,6 +14,7 @@ import org.mule.api.MuleContext;
 import org.mule.api.context.MuleContextAware;
 import org.mule.api.context.notification.ServerNotificationListener;
 import org.mule.context.notification.ListenerSubscriptionPair;
+import org.mule.context.notification.NotificationOverflowPolicy;
 import org.mule.context.notification.ServerNotificationManager;
 
 import java.util.Collection;
@@ -34,6 +35,10 @@ public class ServerNotificationManagerConfigurator
     private ApplicationContext applicationContext;
 
     private Boolean dynamic;
+    private Integer bufferSize;
+    private Integer lanes;
+    private NotificationOverflowPolicy overflowPolicy;
+    private Integer sampleRate;
     private Map interfaceToEvents;
     private Collection interfaces;
     private Collection<ListenerSubscriptionPair> pairs;
@@ -50,6 +55,22 @@ public class ServerNotificationManagerConfigurator
         {
             notificationManager.setNotificationDynamic(dynamic.booleanValue());
         }
+        if (bufferSize != null)
+        {
+            notificationManager.setBufferSize(bufferSize);
+        }
+        if (lanes != null)
+        {
+            notificationManager.setLanes(lanes);
+        }
+        if (overflowPolicy != null)
+        {
+            notificationManager.setOverflowPolicy(overflowPolicy);
+        }
+        if (sampleRate != null)
+        {
+            notificationManager.setSampleRate(sampleRate);
+        }
         if (interfaceToEvents != null)
         {
             notificationManager.setInterfaceToTypes(interfaceToEvents);
@@ -133,6 +154,26 @@ public class ServerNotificationManagerConfigurator
         this.dynamic = new Boolean(dynamic);
     }
 
+    public void setBufferSize(int bufferSize)
+    {
+        this.bufferSize = bufferSize;
+    }
+
+    public void setLanes(int lanes)
+    {
+        this.lanes = lanes;
+    }
+
+    public void setOverflowPolicy(NotificationOverflowPolicy overflowPolicy)
+    {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void setSampleRate(int sampleRate)
+    {
+        this.sampleRate = sampleRate;
+    }
+
     public void setInterfaceToTypes(Map interfaceToEvents) throws ClassNotFoundException
     {
         this.interfaceToEvents = interfaceToEvents;
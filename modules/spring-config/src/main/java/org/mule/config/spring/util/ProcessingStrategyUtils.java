@@ -12,6 +12,7 @@ package org.mule.config.spring.util;
 
 import org.mule.construct.flow.DefaultFlowProcessingStrategy;
 import org.mule.processor.strategy.AsynchronousProcessingStrategy;
+import org.mule.processor.strategy.LightweightAsynchronousProcessingStrategy;
 import org.mule.processor.strategy.QueuedAsynchronousProcessingStrategy;
 import org.mule.processor.strategy.QueuedThreadPerProcessorProcessingStrategy;
 import org.mule.processor.strategy.SynchronousProcessingStrategy;
@@ -30,6 +31,7 @@ public class ProcessingStrategyUtils
     public static String SYNC_PROCESSING_STRATEGY = "synchronous";
     public static String ASYNC_PROCESSING_STRATEGY = "asynchronous";
     public static String QUEUED_ASYNC_PROCESSING_STRATEGY = "queued-asynchronous";
+    public static String LIGHTWEIGHT_ASYNC_PROCESSING_STRATEGY = "lightweight-asynchronous";
     public static String THREAD_PER_PROCESSOR_PROCESSING_STRATEGY = "thread-per-processor";
     public static String QUEUED_THREAD_PER_PROCESSOR_PROCESSING_STRATEGY = "queued-thread-per-processor";
 
@@ -55,6 +57,11 @@ public class ProcessingStrategyUtils
             builder.addPropertyValue(PROCESSING_STRATEGY_ATTRIBUTE_NAME,
                 new QueuedAsynchronousProcessingStrategy());
         }
+        else if (LIGHTWEIGHT_ASYNC_PROCESSING_STRATEGY.equals(processingStrategy))
+        {
+            builder.addPropertyValue(PROCESSING_STRATEGY_ATTRIBUTE_NAME,
+                new LightweightAsynchronousProcessingStrategy());
+        }
         else if (THREAD_PER_PROCESSOR_PROCESSING_STRATEGY.equals(processingStrategy))
         {
             builder.addPropertyValue(PROCESSING_STRATEGY_ATTRIBUTE_NAME,
@@ -0,0 +1,88 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark.counters;
+
+import org.mule.util.counters.Counter;
+import org.mule.util.counters.CounterFactory.Type;
+import org.mule.util.counters.impl.AbstractCounter;
+import org.mule.util.counters.impl.Average;
+import org.mule.util.counters.impl.Max;
+import org.mule.util.counters.impl.Number;
+import org.mule.util.counters.impl.RatePerUnit;
+import org.mule.util.counters.impl.Sum;
+import org.mule.util.counters.impl.TimeAverage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures one increment of a counter shared by all benchmark threads, as when every
+ * message received by an endpoint is counted, with and without aggregate counters
+ * computed from it. Contention is set with the number of threads, e.g.
+ * <code>java -jar benchmarks.jar CounterBenchmark -t 8</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CounterBenchmark
+{
+    @Param({"none", "sum", "average", "max", "timeAverage", "ratePerSecond"})
+    public String aggregate;
+
+    private Counter counter;
+    private Counter aggregateCounter;
+
+    @Setup
+    public void setUp()
+    {
+        AbstractCounter number = new Number("messages");
+        counter = number;
+        if ("sum".equals(aggregate))
+        {
+            aggregateCounter = new Sum("messages.sum", number);
+        }
+        else if ("average".equals(aggregate))
+        {
+            aggregateCounter = new Average("messages.average", number);
+        }
+        else if ("max".equals(aggregate))
+        {
+            aggregateCounter = new Max("messages.max", number);
+        }
+        else if ("timeAverage".equals(aggregate))
+        {
+            aggregateCounter = new TimeAverage("messages.timeAverage", number);
+        }
+        else if ("ratePerSecond".equals(aggregate))
+        {
+            aggregateCounter = new RatePerUnit("messages.rate", null, Type.RATE_PER_SECOND, number);
+        }
+    }
+
+    @Benchmark
+    public double increment()
+    {
+        return counter.increment();
+    }
+
+    @Benchmark
+    public double read()
+    {
+        return aggregateCounter != null ? aggregateCounter.nextValue() : counter.nextValue();
+    }
+}
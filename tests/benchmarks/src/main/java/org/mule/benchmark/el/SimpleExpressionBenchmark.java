@@ -0,0 +1,125 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark.el;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.MessageExchangePattern;
+import org.mule.api.MuleContext;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.transport.PropertyScope;
+import org.mule.context.DefaultMuleContextFactory;
+import org.mule.el.mvel.MVELCompiledExpression;
+import org.mule.el.mvel.MVELExpressionLanguage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures one evaluation of each form of expression MEL evaluates without MVEL, both
+ * by expression string, as routers and filters do, and through a compiled expression.
+ * The <code>interpreted</code> variant turns the simple expression support off, so that
+ * every evaluation creates a context and runs the MVEL interpreter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SimpleExpressionBenchmark
+{
+    @Param({"optimized", "interpreted"})
+    public String mode;
+
+    @Param({"#[payload]",
+            "#[message.inboundProperties['contentType']]",
+            "#[flowVars.count]",
+            "#[payload.customer.name]",
+            "#[flowVars.status == 'OPEN']"})
+    public String expression;
+
+    private MuleContext muleContext;
+    private MVELExpressionLanguage expressionLanguage;
+    private MVELCompiledExpression compiledExpression;
+    private MuleEvent event;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        muleContext = new DefaultMuleContextFactory().createMuleContext();
+        expressionLanguage = new MVELExpressionLanguage(muleContext);
+        expressionLanguage.setOptimizeSimpleExpressions("optimized".equals(mode));
+        expressionLanguage.initialise();
+        compiledExpression = expressionLanguage.compile(expression);
+
+        MuleMessage message = new DefaultMuleMessage(new Order(new Customer("Ada")), muleContext);
+        message.setProperty("contentType", "application/json", PropertyScope.INBOUND);
+        message.setInvocationProperty("count", 42);
+        message.setInvocationProperty("status", "OPEN");
+        event = new DefaultMuleEvent(message, MessageExchangePattern.ONE_WAY, (FlowConstruct) null);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        muleContext.dispose();
+    }
+
+    @Benchmark
+    public Object evaluate()
+    {
+        return expressionLanguage.evaluate(expression, event);
+    }
+
+    @Benchmark
+    public Object evaluateCompiled()
+    {
+        return compiledExpression.evaluate(event);
+    }
+
+    public static class Order
+    {
+        private final Customer customer;
+
+        public Order(Customer customer)
+        {
+            this.customer = customer;
+        }
+
+        public Customer getCustomer()
+        {
+            return customer;
+        }
+    }
+
+    public static class Customer
+    {
+        private final String name;
+
+        public Customer(String name)
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark.message;
+
+import org.mule.util.CaseInsensitiveHashMap;
+import org.mule.util.CaseInsensitivePropertyMap;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the message property maps with typical header counts: filling a map as
+ * transports do when creating a message, looking up every header with the case it was
+ * sent with and with a different one, as MEL and routing do, and copying the map as
+ * happens when a shared property scope is first written to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PropertyMapBenchmark
+{
+    @Param({"CaseInsensitiveHashMap", "CaseInsensitivePropertyMap"})
+    public String map;
+
+    @Param({"10", "30", "100"})
+    public int headers;
+
+    private String[] names;
+    private String[] otherCaseNames;
+    private Map<String, Object> filled;
+
+    @Setup
+    public void setUp()
+    {
+        names = new String[headers];
+        otherCaseNames = new String[headers];
+        for (int i = 0; i < headers; i++)
+        {
+            names[i] = "X-Custom-Header-" + i;
+            otherCaseNames[i] = names[i].toLowerCase();
+        }
+        filled = fill();
+    }
+
+    @Benchmark
+    public Map<String, Object> put()
+    {
+        return fill();
+    }
+
+    @Benchmark
+    public void getSameCase(Blackhole blackhole)
+    {
+        for (String name : names)
+        {
+            blackhole.consume(filled.get(name));
+        }
+    }
+
+    @Benchmark
+    public void getOtherCase(Blackhole blackhole)
+    {
+        for (String name : otherCaseNames)
+        {
+            blackhole.consume(filled.get(name));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> copy()
+    {
+        return copyOf(filled);
+    }
+
+    private Map<String, Object> fill()
+    {
+        Map<String, Object> properties = newMap();
+        for (String name : names)
+        {
+            properties.put(name, name);
+        }
+        return properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> newMap()
+    {
+        if ("CaseInsensitiveHashMap".equals(map))
+        {
+            return new CaseInsensitiveHashMap(6);
+        }
+        return new CaseInsensitivePropertyMap(6);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> copyOf(Map<String, Object> properties)
+    {
+        if ("CaseInsensitiveHashMap".equals(map))
+        {
+            return new CaseInsensitiveHashMap(properties);
+        }
+        return new CaseInsensitivePropertyMap(properties);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark.queue;
+
+import org.mule.util.queue.ConcurrentQueueInfoDelegate;
+import org.mule.util.queue.DefaultQueueInfoDelegate;
+import org.mule.util.queue.QueueInfoDelegate;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the synchronized {@link DefaultQueueInfoDelegate} with the lock-free
+ * {@link ConcurrentQueueInfoDelegate} under concurrent producers and consumers.
+ * The number of producer and consumer threads is set with <code>-tg</code>, e.g.
+ * <code>java -jar benchmarks.jar QueueInfoDelegateBenchmark -tg 16,16</code>, to cover
+ * 1 to 64 threads.
+ * <p/>
+ * Besides the unbounded queue, a small bounded one is measured so that it is full
+ * most of the time: the <code>producerConsumer</code> group then measures offers
+ * rejected by a full queue, and the <code>blockingProducerConsumer</code> group
+ * producers waiting for room and consumers waiting for members, as a bounded SEDA
+ * queue does.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueueInfoDelegateBenchmark
+{
+    private static final Serializable ITEM = "item";
+    // long enough for producers and consumers to park, short enough to end an iteration
+    private static final long TIMEOUT = 100;
+
+    @Param({"default", "concurrent"})
+    public String delegateType;
+
+    @Param({"0", "16", "1000"})
+    public int capacity;
+
+    private QueueInfoDelegate delegate;
+
+    @Setup
+    public void setUp()
+    {
+        if ("default".equals(delegateType))
+        {
+            delegate = new DefaultQueueInfoDelegate(capacity);
+        }
+        else
+        {
+            delegate = new ConcurrentQueueInfoDelegate(capacity);
+        }
+    }
+
+    @Benchmark
+    @Group("producerConsumer")
+    @GroupThreads(1)
+    public boolean offer() throws Exception
+    {
+        return delegate.offer(ITEM, 0, 0);
+    }
+
+    @Benchmark
+    @Group("producerConsumer")
+    @GroupThreads(1)
+    public Serializable poll() throws Exception
+    {
+        return delegate.poll(0);
+    }
+
+    @Benchmark
+    @Group("blockingProducerConsumer")
+    @GroupThreads(1)
+    public boolean put() throws Exception
+    {
+        return delegate.offer(ITEM, 0, TIMEOUT);
+    }
+
+    @Benchmark
+    @Group("blockingProducerConsumer")
+    @GroupThreads(1)
+    public Serializable take() throws Exception
+    {
+        return delegate.poll(TIMEOUT);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark.queue;
+
+import org.mule.util.queue.Queue;
+import org.mule.util.queue.QueueConfiguration;
+import org.mule.util.queue.QueueInfo;
+import org.mule.util.queue.TransactionalQueueManager;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures queue lookups through {@link TransactionalQueueManager} sessions, as done
+ * for every VM dispatch and SEDA hand-off. The <code>synchronized</code> variant
+ * restores the manager-wide monitor the registry used to take. Run with
+ * <code>-t 1</code> up to <code>-t 64</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueueManagerLookupBenchmark
+{
+    private static final String[] QUEUE_NAMES = {"queue0", "queue1", "queue2", "queue3", "queue4", "queue5", "queue6", "queue7"};
+
+    @Param({"synchronized", "concurrent"})
+    public String registry;
+
+    private TransactionalQueueManager queueManager;
+
+    @Setup
+    public void setUp()
+    {
+        if ("synchronized".equals(registry))
+        {
+            queueManager = new SynchronizedQueueManager();
+        }
+        else
+        {
+            queueManager = new TransactionalQueueManager();
+        }
+    }
+
+    @Benchmark
+    public Queue lookup()
+    {
+        String name = QUEUE_NAMES[(int) (Thread.currentThread().getId() % QUEUE_NAMES.length)];
+        return queueManager.getQueueSession().getQueue(name);
+    }
+
+    private static class SynchronizedQueueManager extends TransactionalQueueManager
+    {
+        @Override
+        protected synchronized QueueInfo getQueue(String name, QueueConfiguration config)
+        {
+            return super.getQueue(name, config);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark.work;
+
+import org.mule.api.config.ThreadingProfile;
+import org.mule.config.ChainedThreadingProfile;
+import org.mule.util.concurrent.LightweightExecutorService;
+import org.mule.util.concurrent.WorkStealingExecutorService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares the executors work managers can run on with many events in flight: the
+ * default thread pool, the lightweight executor and the work stealing pool. Events
+ * either block for a while, as they do when waiting on an outbound endpoint, or do
+ * not block at all, as in CPU bound flows. Each invocation submits
+ * <code>inFlight</code> tasks and waits for all of them to complete, so the
+ * throughput and the sampled times are those of a whole burst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorkExecutorBenchmark
+{
+    @Param({"pooled", "lightweight", "workStealing"})
+    public String executor;
+
+    @Param({"10000"})
+    public int inFlight;
+
+    @Param({"0", "1"})
+    public long blockMillis;
+
+    private ExecutorService executorService;
+
+    @Setup
+    public void setUp()
+    {
+        ThreadingProfile profile = new ChainedThreadingProfile();
+        profile.setPoolExhaustedAction(ThreadingProfile.WHEN_EXHAUSTED_WAIT);
+        profile.setThreadWaitTimeout(-1);
+        if ("pooled".equals(executor))
+        {
+            // the default number of threads, all kept busy, queueing what they cannot run right away
+            profile.setMaxThreadsIdle(profile.getMaxThreadsActive());
+            profile.setMaxBufferSize(inFlight);
+            executorService = profile.createPool("benchmark");
+        }
+        else if ("workStealing".equals(executor))
+        {
+            profile.setMaxThreadsActive(Runtime.getRuntime().availableProcessors());
+            profile.setMaxBufferSize(inFlight);
+            executorService = new WorkStealingExecutorService("benchmark", profile);
+        }
+        else
+        {
+            profile.setMaxThreadsActive(inFlight);
+            executorService = new LightweightExecutorService("benchmark", profile, true);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException
+    {
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public void burst() throws InterruptedException
+    {
+        final CountDownLatch completed = new CountDownLatch(inFlight);
+        Runnable task = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    if (blockMillis > 0)
+                    {
+                        Thread.sleep(blockMillis);
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                finally
+                {
+                    completed.countDown();
+                }
+            }
+        };
+        for (int i = 0; i < inFlight; i++)
+        {
+            executorService.execute(task);
+        }
+        completed.await();
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Implemented by response streams that can write a region of a file straight to
+ * their socket with <code>FileChannel.transferTo</code>, so that its bytes are not
+ * copied through the heap.
+ */
+interface FileChannelTransfer
+{
+
+    /**
+     * Writes what the stream has buffered, then the region of the file.
+     */
+    void transferFrom(FileChannel file, long position, long count) throws IOException;
+
+}
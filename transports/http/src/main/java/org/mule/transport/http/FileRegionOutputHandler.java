@@ -0,0 +1,115 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.transport.OutputHandler;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes a region of a file as the body of an HTTP response.
+ * <p/>
+ * When the response is written to a connection of the non-blocking listener the
+ * region is sent with <code>FileChannel.transferTo</code> straight to the socket, so
+ * the operating system sends it from its file cache without copying it through the
+ * heap. Otherwise it is copied a few kilobytes at a time.
+ */
+public class FileRegionOutputHandler implements OutputHandler
+{
+
+    private final File file;
+    private final long position;
+    private final long count;
+
+    /**
+     * @param file the file to write
+     * @param position the offset of the first byte to write
+     * @param count the number of bytes to write
+     */
+    public FileRegionOutputHandler(File file, long position, long count)
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("File can not be null");
+        }
+        if (position < 0 || count < 0)
+        {
+            throw new IllegalArgumentException("Invalid file region: " + position + ", " + count);
+        }
+        this.file = file;
+        this.position = position;
+        this.count = count;
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    public long getPosition()
+    {
+        return position;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    @Override
+    public void write(MuleEvent event, OutputStream out) throws IOException
+    {
+        FileInputStream in = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = in.getChannel();
+            if (out instanceof FileChannelTransfer)
+            {
+                ((FileChannelTransfer) out).transferFrom(channel, position, count);
+            }
+            else
+            {
+                // not closed, as that would close the response stream
+                WritableByteChannel target = Channels.newChannel(out);
+                long offset = position;
+                long remaining = count;
+                while (remaining > 0)
+                {
+                    long written = channel.transferTo(offset, remaining, target);
+                    if (written <= 0)
+                    {
+                        throw new EOFException("File " + file + " is shorter than expected");
+                    }
+                    offset += written;
+                    remaining -= written;
+                }
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[" + file + ", " + position + ", " + count + "]";
+    }
+
+}
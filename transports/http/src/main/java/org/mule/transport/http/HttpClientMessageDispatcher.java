@@ -102,6 +102,11 @@ public class HttpClientMessageDispatcher extends AbstractMessageDispatcher
         client = null;
     }
 
+    protected HttpClient getClient()
+    {
+        return client;
+    }
+
     @Override
     protected void doDispatch(MuleEvent event) throws Exception
     {
@@ -161,7 +166,7 @@ public class HttpClientMessageDispatcher extends AbstractMessageDispatcher
 
     }
 
-    private void processMuleSession(MuleEvent event, HttpMethod httpMethod)
+    protected void processMuleSession(MuleEvent event, HttpMethod httpMethod)
     {
         httpMethod.setRequestHeader(new Header(HttpConstants.HEADER_MULE_SESSION, event.getMessage().<String>getOutboundProperty(MuleProperties.MULE_SESSION_PROPERTY)));
     }
@@ -355,13 +360,18 @@ public class HttpClientMessageDispatcher extends AbstractMessageDispatcher
     }
 
     protected boolean returnException(MuleEvent event, HttpMethod httpMethod)
+    {
+        return returnException(event, httpMethod.getStatusCode());
+    }
+
+    protected boolean returnException(MuleEvent event, int statusCode)
     {
         String disableCheck = event.getMessage().getInvocationProperty(HttpConnector.HTTP_DISABLE_STATUS_CODE_EXCEPTION_CHECK);
         if (disableCheck == null)
         {
             disableCheck = event.getMessage().getOutboundProperty(HttpConnector.HTTP_DISABLE_STATUS_CODE_EXCEPTION_CHECK);
         }
-        return httpMethod.getStatusCode() >= ERROR_STATUS_CODE_RANGE_START
+        return statusCode >= ERROR_STATUS_CODE_RANGE_START
                 && !BooleanUtils.toBoolean(disableCheck);
     }
 
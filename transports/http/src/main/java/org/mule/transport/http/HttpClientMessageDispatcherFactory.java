@@ -16,13 +16,19 @@ import org.mule.api.transport.MessageDispatcher;
 import org.mule.transport.AbstractMessageDispatcherFactory;
 
 /**
- * Creates a HttpClientMessageDispatcher to make client requests
+ * Creates a HttpClientMessageDispatcher to make client requests, or a
+ * NioHttpClientMessageDispatcher if the connector sends one-way requests without
+ * blocking
  */
 public class HttpClientMessageDispatcherFactory extends AbstractMessageDispatcherFactory
 {
     /** {@inheritDoc} */
     public MessageDispatcher create(OutboundEndpoint endpoint) throws MuleException
     {
+        if (((HttpConnector) endpoint.getConnector()).isNioDispatcher())
+        {
+            return new NioHttpClientMessageDispatcher(endpoint);
+        }
         return new HttpClientMessageDispatcher(endpoint);
     }
 }
@@ -28,6 +28,7 @@ import org.mule.transport.http.i18n.HttpMessages;
 import org.mule.transport.http.ntlm.NTLMScheme;
 import org.mule.transport.tcp.TcpConnector;
 import org.mule.util.MapUtils;
+import org.mule.util.concurrent.ThreadNameHelper;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -35,6 +36,7 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -190,6 +192,10 @@ public class HttpConnector extends TcpConnector
 
     private boolean enableCookies = false;
 
+    private boolean nioListener = false;
+
+    private NioHttpClient nioHttpClient;
+
     protected HttpConnectionManager clientConnectionManager;
 
     private IdleConnectionTimeoutThread connectionCleaner;
@@ -275,6 +281,7 @@ public class HttpConnector extends TcpConnector
             connectionManager.dispose();
             connectionManager = null;
         }
+        stopNioHttpClient();
         super.doDispose();
     }
 
@@ -283,6 +290,7 @@ public class HttpConnector extends TcpConnector
     {
         this.connectionManager.dispose();
         this.connectionManager = null;
+        stopNioHttpClient();
     }
 
     @Override
@@ -424,6 +432,57 @@ public class HttpConnector extends TcpConnector
         this.enableCookies = enableCookies;
     }
 
+    /**
+     * @return true if inbound connections are read by a few selector threads, which
+     *         only take a worker thread while a request is being processed, rather
+     *         than each by a thread of its own
+     */
+    public boolean isNioListener()
+    {
+        return nioListener;
+    }
+
+    public void setNioListener(boolean nioListener)
+    {
+        this.nioListener = nioListener;
+    }
+
+    /**
+     * HTTP connections are read by the {@link #isNioListener() NIO listener} rather
+     * than the NIO receiver of the TCP transport.
+     */
+    @Override
+    public boolean isNioReceiver()
+    {
+        return false;
+    }
+
+    /**
+     * @return the client the NIO dispatchers of this connector share, started when
+     *         first used
+     */
+    synchronized NioHttpClient getNioHttpClient() throws IOException
+    {
+        if (nioHttpClient == null)
+        {
+            nioHttpClient = new NioHttpClient(this, getNioMaxConnectionsPerHost(), getNioMaxPipelinedRequests(),
+                getNioConnectionIdleTimeout());
+            Thread thread = new Thread(nioHttpClient, ThreadNameHelper.getPrefix(muleContext) + "http.client." + getName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return nioHttpClient;
+    }
+
+    private synchronized void stopNioHttpClient()
+    {
+        if (nioHttpClient != null)
+        {
+            nioHttpClient.stop();
+            nioHttpClient = null;
+        }
+    }
+
 
     public HttpConnectionManager getClientConnectionManager()
     {
@@ -647,4 +706,10 @@ public class HttpConnector extends TcpConnector
         return super.getServerSocket(uri);
     }
 
+    @Override
+    protected ServerSocketChannel getServerSocketChannel(URI uri) throws IOException
+    {
+        return super.getServerSocketChannel(uri);
+    }
+
 }
@@ -0,0 +1,405 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.util.pool.RecyclingPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.ProtocolException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Reads the head of an HTTP message, like <code>HttpParser</code> of Commons HttpClient
+ * but without building a <code>String</code> for each line.
+ * <p/>
+ * The head is read into a buffer taken from a pool, then copied once into an array
+ * of its exact size that the headers returned keep a slice of. Header names that
+ * are spelled exactly as one of {@link HttpConstants#ALL_HEADER_NAMES} are returned
+ * as that constant, and values are only decoded the first time they are read, so a
+ * header that nothing looks at costs no <code>String</code> at all.
+ * <p/>
+ * Lines end with LF or CRLF, names and values are trimmed, and a line that starts
+ * with a space or a tab continues the value of the header before it, as they do
+ * with <code>HttpParser</code>.
+ */
+public final class HttpHeaderParser
+{
+
+    private static final Log logger = LogFactory.getLog(HttpHeaderParser.class);
+
+    private static final Header[] NO_HEADERS = new Header[0];
+    private static final int BUFFER_SIZE = 4096;
+    private static final int MAX_IDLE_BUFFERS = 64;
+
+    private static final RecyclingPool<byte[]> BUFFERS = new RecyclingPool<byte[]>(MAX_IDLE_BUFFERS)
+    {
+        @Override
+        protected byte[] create()
+        {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    // known header names, by length
+    private static final byte[][][] KNOWN_NAME_BYTES;
+    private static final String[][] KNOWN_NAMES;
+
+    static
+    {
+        int maxLength = 0;
+        for (String name : HttpConstants.ALL_HEADER_NAMES.values())
+        {
+            maxLength = Math.max(maxLength, name.length());
+        }
+        List<List<String>> byLength = new ArrayList<List<String>>();
+        for (int i = 0; i <= maxLength; i++)
+        {
+            byLength.add(new ArrayList<String>());
+        }
+        for (String name : HttpConstants.ALL_HEADER_NAMES.values())
+        {
+            byLength.get(name.length()).add(name);
+        }
+        KNOWN_NAMES = new String[maxLength + 1][];
+        KNOWN_NAME_BYTES = new byte[maxLength + 1][][];
+        for (int i = 0; i <= maxLength; i++)
+        {
+            List<String> names = byLength.get(i);
+            KNOWN_NAMES[i] = names.toArray(new String[names.size()]);
+            KNOWN_NAME_BYTES[i] = new byte[names.size()][];
+            for (int j = 0; j < names.size(); j++)
+            {
+                KNOWN_NAME_BYTES[i][j] = ascii(names.get(j));
+            }
+        }
+    }
+
+    private HttpHeaderParser()
+    {
+        // static methods only
+    }
+
+    /**
+     * Reads a line, without its line terminator.
+     *
+     * @return the line, or null if the end of the stream was reached before any byte
+     *         was read
+     */
+    public static String readLine(InputStream in, String encoding) throws IOException
+    {
+        byte[] pooled = BUFFERS.borrowObject();
+        try
+        {
+            byte[] buffer = pooled;
+            int length = 0;
+            int b = in.read();
+            if (b == -1)
+            {
+                return null;
+            }
+            while (b != -1 && b != '\n')
+            {
+                if (length == buffer.length)
+                {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                buffer[length++] = (byte) b;
+                b = in.read();
+            }
+            if (length > 0 && buffer[length - 1] == '\r')
+            {
+                length--;
+            }
+            return new String(buffer, 0, length, getCharset(encoding));
+        }
+        finally
+        {
+            BUFFERS.returnObject(pooled);
+        }
+    }
+
+    /**
+     * Reads headers up to and including the blank line that ends them, or up to the
+     * end of the stream.
+     *
+     * @throws ProtocolException if a line is not a header
+     */
+    public static Header[] parseHeaders(InputStream in, String encoding) throws IOException
+    {
+        byte[] head = readHead(in);
+        if (head.length == 0)
+        {
+            return NO_HEADERS;
+        }
+        Charset charset = getCharset(encoding);
+
+        List<Header> headers = new ArrayList<Header>(16);
+        LazyHeader previous = null;
+        int position = 0;
+        while (position < head.length)
+        {
+            int lineEnd = indexOf(head, (byte) '\n', position, head.length);
+            int next = lineEnd + 1;
+            if (lineEnd > position && head[lineEnd - 1] == '\r')
+            {
+                lineEnd--;
+            }
+
+            if (previous != null && (head[position] == ' ' || head[position] == '\t'))
+            {
+                previous.appendLine(head, trimStart(head, position, lineEnd), trimEnd(head, position, lineEnd));
+            }
+            else
+            {
+                int colon = indexOf(head, (byte) ':', position, lineEnd);
+                if (colon == lineEnd)
+                {
+                    throw new ProtocolException("Unable to parse header: " + new String(head, position, lineEnd - position, charset));
+                }
+                int nameStart = trimStart(head, position, colon);
+                int nameEnd = trimEnd(head, nameStart, colon);
+                String name = getName(head, nameStart, nameEnd, charset);
+                int valueStart = trimStart(head, colon + 1, lineEnd);
+                previous = new LazyHeader(name, head, valueStart, trimEnd(head, valueStart, lineEnd), charset);
+                headers.add(previous);
+            }
+            position = next;
+        }
+        return headers.toArray(new Header[headers.size()]);
+    }
+
+    /**
+     * @return the bytes of the headers, without the blank line after them
+     */
+    private static byte[] readHead(InputStream in) throws IOException
+    {
+        byte[] pooled = BUFFERS.borrowObject();
+        try
+        {
+            byte[] buffer = pooled;
+            int length = 0;
+            int lineStart = 0;
+            int b;
+            while ((b = in.read()) != -1)
+            {
+                if (length == buffer.length)
+                {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                buffer[length++] = (byte) b;
+                if (b == '\n')
+                {
+                    if (trimStart(buffer, lineStart, length) == length)
+                    {
+                        length = lineStart;
+                        break;
+                    }
+                    lineStart = length;
+                }
+            }
+            if (b == -1 && trimStart(buffer, lineStart, length) == length)
+            {
+                // a last line of white space ends the headers too
+                length = lineStart;
+            }
+            return Arrays.copyOf(buffer, length);
+        }
+        finally
+        {
+            BUFFERS.returnObject(pooled);
+        }
+    }
+
+    private static String getName(byte[] head, int start, int end, Charset charset)
+    {
+        int length = end - start;
+        if (length < KNOWN_NAMES.length)
+        {
+            byte[][] candidates = KNOWN_NAME_BYTES[length];
+            for (int i = 0; i < candidates.length; i++)
+            {
+                if (regionMatches(head, start, candidates[i]))
+                {
+                    return KNOWN_NAMES[length][i];
+                }
+            }
+        }
+        return new String(head, start, length, charset);
+    }
+
+    private static boolean regionMatches(byte[] bytes, int start, byte[] candidate)
+    {
+        for (int i = 0; i < candidate.length; i++)
+        {
+            if (bytes[start + i] != candidate[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            if (bytes[i] == b)
+            {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @return the first position from start that holds no white space or control
+     *         character, the way <code>String.trim()</code> tells them apart
+     */
+    private static int trimStart(byte[] bytes, int start, int end)
+    {
+        while (start < end && (bytes[start] & 0xff) <= ' ')
+        {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(byte[] bytes, int start, int end)
+    {
+        while (end > start && (bytes[end - 1] & 0xff) <= ' ')
+        {
+            end--;
+        }
+        return end;
+    }
+
+    private static Charset getCharset(String encoding)
+    {
+        try
+        {
+            return Charset.forName(encoding);
+        }
+        catch (IllegalCharsetNameException e)
+        {
+            logger.warn("Unsupported encoding: " + encoding + ". System encoding used");
+        }
+        catch (UnsupportedCharsetException e)
+        {
+            logger.warn("Unsupported encoding: " + encoding + ". System encoding used");
+        }
+        return Charset.defaultCharset();
+    }
+
+    private static byte[] ascii(String s)
+    {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * A header whose value is decoded from the head it was read from when it is first
+     * read. Like the headers of a request it is not meant to be shared between
+     * threads.
+     * <p/>
+     * <code>NameValuePair</code> compares the fields of the other pair rather than
+     * calling its getters, so a plain <code>Header</code> only equals one of these
+     * once its value has been read.
+     */
+    private static final class LazyHeader extends Header
+    {
+
+        private static final long serialVersionUID = 2837506295104823413L;
+
+        private transient byte[] head;
+        private transient int valueStart;
+        private transient int valueEnd;
+        private transient Charset charset;
+
+        LazyHeader(String name, byte[] head, int valueStart, int valueEnd, Charset charset)
+        {
+            super(name, null);
+            this.head = head;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+            this.charset = charset;
+        }
+
+        /**
+         * Adds a continuation line to the value.
+         */
+        void appendLine(byte[] line, int start, int end)
+        {
+            setValue(getValue() + " " + new String(line, start, end - start, charset));
+        }
+
+        @Override
+        public String getValue()
+        {
+            if (head != null)
+            {
+                super.setValue(new String(head, valueStart, valueEnd - valueStart, charset));
+                head = null;
+            }
+            return super.getValue();
+        }
+
+        @Override
+        public void setValue(String value)
+        {
+            head = null;
+            super.setValue(value);
+        }
+
+        @Override
+        public String toString()
+        {
+            getValue();
+            return super.toString();
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            getValue();
+            if (object instanceof LazyHeader)
+            {
+                ((LazyHeader) object).getValue();
+            }
+            return super.equals(object);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            getValue();
+            return super.hashCode();
+        }
+
+        private Object writeReplace()
+        {
+            return new Header(getName(), getValue());
+        }
+    }
+
+}
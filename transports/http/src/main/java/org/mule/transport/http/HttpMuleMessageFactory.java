@@ -16,7 +16,7 @@ import org.mule.api.MuleContext;
 import org.mule.api.MuleMessage;
 import org.mule.api.transport.MessageTypeNotSupportedException;
 import org.mule.transport.AbstractMuleMessageFactory;
-import org.mule.util.CaseInsensitiveHashMap;
+import org.mule.util.CaseInsensitivePropertyMap;
 import org.mule.util.IOUtils;
 import org.mule.util.PropertiesUtils;
 import org.mule.util.StringUtils;
@@ -60,7 +60,7 @@ public class HttpMuleMessageFactory extends AbstractMuleMessageFactory
     @Override
     protected Class<?>[] getSupportedTransportMessageTypes()
     {
-        return new Class[]{HttpRequest.class, HttpMethod.class};
+        return new Class[]{HttpRequest.class, HttpMethod.class, NioHttpExchange.class};
     }
 
     @Override
@@ -74,6 +74,10 @@ public class HttpMuleMessageFactory extends AbstractMuleMessageFactory
         {
             return extractPayloadFromHttpMethod((HttpMethod) transportMessage);
         }
+        else if (transportMessage instanceof NioHttpExchange)
+        {
+            return extractPayloadFromExchange((NioHttpExchange) transportMessage);
+        }
         else
         {
             // This should never happen because of the supported type checking
@@ -119,6 +123,19 @@ public class HttpMuleMessageFactory extends AbstractMuleMessageFactory
         }
     }
 
+    private Object extractPayloadFromExchange(NioHttpExchange exchange)
+    {
+        byte[] body = exchange.getResponseBody();
+        if (body.length > 0)
+        {
+            return body;
+        }
+        else
+        {
+            return StringUtils.EMPTY;
+        }
+    }
+
     @Override
     protected void addProperties(DefaultMuleMessage message, Object transportMessage) throws Exception
     {
@@ -148,6 +165,15 @@ public class HttpMuleMessageFactory extends AbstractMuleMessageFactory
             statusCode = String.valueOf(httpMethod.getStatusCode());
             headers = convertHeadersToMap(httpMethod.getResponseHeaders(), uri);
         }
+        else if (transportMessage instanceof NioHttpExchange)
+        {
+            NioHttpExchange exchange = (NioHttpExchange) transportMessage;
+            method = exchange.getMethod();
+            httpVersion = HttpVersion.parse(exchange.getStatusLine().getHttpVersion());
+            uri = exchange.getUri();
+            statusCode = String.valueOf(exchange.getStatusCode());
+            headers = convertHeadersToMap(exchange.getResponseHeaders(), uri);
+        }
         else
         {
             // This should never happen because of the supported type checking in our superclass
@@ -213,7 +239,7 @@ public class HttpMuleMessageFactory extends AbstractMuleMessageFactory
     Map<String, Object> convertHeadersToMap(Header[] headersArray, String uri)
         throws URISyntaxException
     {
-        Map<String, Object> headersMap = new CaseInsensitiveHashMap();
+        Map<String, Object> headersMap = new CaseInsensitivePropertyMap(headersArray.length);
         for (int i = 0; i < headersArray.length; i++)
         {
             final Header header = headersArray[i];
@@ -73,14 +73,20 @@ class HttpRequestDispatcher implements Work
     }
 
     private ExecutorService createRequestDispatcherThreadPool(HttpConnector httpConnector)
+    {
+        MutableThreadingProfile dispatcherThreadingProfile = createDispatcherThreadingProfile(httpConnector);
+        String threadNamePrefix = ThreadNameHelper.getPrefix(httpConnector.getMuleContext()) + "http.request.dispatch." + serverSocket.getLocalPort();
+        ExecutorService executorService = dispatcherThreadingProfile.createPool(threadNamePrefix);
+        return executorService;
+    }
+
+    protected MutableThreadingProfile createDispatcherThreadingProfile(HttpConnector httpConnector)
     {
         ThreadingProfile receiverThreadingProfile = httpConnector.getReceiverThreadingProfile();
         MutableThreadingProfile dispatcherThreadingProfile = new MutableThreadingProfile(receiverThreadingProfile);
         dispatcherThreadingProfile.setThreadFactory(null);
         dispatcherThreadingProfile.setMaxThreadsActive(dispatcherThreadingProfile.getMaxThreadsActive() * 2);
-        String threadNamePrefix = ThreadNameHelper.getPrefix(httpConnector.getMuleContext()) + "http.request.dispatch." + serverSocket.getLocalPort();
-        ExecutorService executorService = dispatcherThreadingProfile.createPool(threadNamePrefix);
-        return executorService;
+        return dispatcherThreadingProfile;
     }
 
     @Override
@@ -111,9 +117,7 @@ class HttpRequestDispatcher implements Work
 
                             if (socket != null)
                             {
-                                final Runnable httpRequestDispatcherWork = new HttpRequestDispatcherWork(httpConnector, socket);
-                                // Process each connection in a different thread so we can continue accepting connection right away.
-                                requestHandOffExecutor.execute(httpRequestDispatcherWork);
+                                dispatch(socket);
                             }
                         }
 
@@ -133,6 +137,16 @@ class HttpRequestDispatcher implements Work
         }
     }
 
+    /**
+     * Hands off an accepted connection so that the next one can be accepted right away.
+     */
+    protected void dispatch(Socket socket)
+    {
+        final Runnable httpRequestDispatcherWork = new HttpRequestDispatcherWork(httpConnector, socket);
+        // Process each connection in a different thread so we can continue accepting connection right away.
+        requestHandOffExecutor.execute(httpRequestDispatcherWork);
+    }
+
     @Override
     public void release()
     {
@@ -16,6 +16,7 @@ import org.mule.api.transport.OutputHandler;
 import org.mule.util.SystemUtils;
 import org.mule.util.concurrent.Latch;
 
+import java.io.BufferedInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,7 +38,6 @@ import javax.net.ssl.SSLSocket;
 
 import org.apache.commons.httpclient.ChunkedOutputStream;
 import org.apache.commons.httpclient.Header;
-import org.apache.commons.httpclient.HttpParser;
 import org.apache.commons.httpclient.StatusLine;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
@@ -73,7 +73,38 @@ public class HttpServerConnection implements HandshakeCompletedListener
         }
 
         this.socket = socket;
+        configureSocket(connector);
 
+        // the head is parsed a byte at a time, so it must not come straight from the socket
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new DataOutputStream(socket.getOutputStream());
+        this.encoding = encoding;
+    }
+
+    /**
+     * Creates a connection that reads and writes through the given streams rather
+     * than those of the socket, as the socket of a non-blocking channel has no
+     * usable ones.
+     */
+    HttpServerConnection(final Socket socket, InputStream in, OutputStream out, String encoding, HttpConnector connector) throws IOException
+    {
+        super();
+
+        if (socket == null)
+        {
+            throw new IllegalArgumentException("Socket may not be null");
+        }
+
+        this.socket = socket;
+        configureSocket(connector);
+
+        this.in = in;
+        this.out = out;
+        this.encoding = encoding;
+    }
+
+    private void configureSocket(HttpConnector connector) throws IOException
+    {
         if (this.socket instanceof SSLSocket)
         {
             ((SSLSocket) socket).addHandshakeCompletedListener(this);
@@ -92,10 +123,6 @@ public class HttpServerConnection implements HandshakeCompletedListener
         {
             socket.setSoTimeout(connector.getServerSoTimeout());
         }
-
-        this.in = socket.getInputStream();
-        this.out = new DataOutputStream(socket.getOutputStream());
-        this.encoding = encoding;
     }
 
     private void setSocketTcpNoDelay(boolean tcpNoDelay) throws IOException
@@ -210,7 +237,7 @@ public class HttpServerConnection implements HandshakeCompletedListener
         }
         try
         {
-            cachedRequest = new HttpRequest(getRequestLine(), HttpParser.parseHeaders(this.in, encoding), this.in, encoding);
+            cachedRequest = new HttpRequest(getRequestLine(), HttpHeaderParser.parseHeaders(this.in, encoding), this.in, encoding);
             return cachedRequest;
         }
         catch (IOException e)
@@ -225,7 +252,7 @@ public class HttpServerConnection implements HandshakeCompletedListener
         try
         {
             String line = readLine();
-            return new HttpResponse(new StatusLine(line), HttpParser.parseHeaders(this.in, encoding), this.in);
+            return new HttpResponse(new StatusLine(line), HttpHeaderParser.parseHeaders(this.in, encoding), this.in);
         }
         catch (IOException e)
         {
@@ -240,7 +267,7 @@ public class HttpServerConnection implements HandshakeCompletedListener
 
         do
         {
-            line = HttpParser.readLine(in, encoding);
+            line = HttpHeaderParser.readLine(in, encoding);
         }
         while (line != null && line.length() == 0);
 
@@ -70,6 +70,25 @@ public class HttpsConnector extends HttpConnector implements TlsDirectKeyStore,
         return serverSocket;
     }
 
+    /**
+     * TLS connections are always read by a thread of their own, as the handshake
+     * needs a blocking socket.
+     */
+    @Override
+    public boolean isNioListener()
+    {
+        return false;
+    }
+
+    /**
+     * Requests over TLS are always sent by the blocking HttpClient dispatcher.
+     */
+    @Override
+    public boolean isNioDispatcher()
+    {
+        return false;
+    }
+
     @Override
     protected void doInitialise() throws InitialisationException
     {
@@ -0,0 +1,409 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Sends HTTP requests over non-blocking connections that a single selector thread
+ * writes and reads, so that a request waiting for its response holds no thread.
+ * <p/>
+ * Connections are pooled by host and port, up to a maximum per host; requests that
+ * find no connection free wait in the queue of the pool. When more than one request
+ * may be pipelined, idempotent requests are also written on connections still waiting
+ * for earlier responses once the pool is full. Connections that waited for no request
+ * for longer than the idle timeout are closed.
+ * <p/>
+ * Pools and connections are only used by the selector thread; other threads hand it
+ * requests with {@link #execute(NioHttpExchange)}.
+ */
+class NioHttpClient implements Runnable
+{
+
+    private static Log logger = LogFactory.getLog(NioHttpClient.class);
+
+    private static final long SELECT_TIMEOUT = 1000;
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final HttpConnector connector;
+    private final int maxConnectionsPerHost;
+    private final int maxPipelinedRequests;
+    private final long idleTimeout;
+    private final Selector selector;
+    private final Queue<NioHttpExchange> submitted = new ConcurrentLinkedQueue<NioHttpExchange>();
+    // only used by the selector thread, so one buffer serves all its connections
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final Map<InetSocketAddress, HostPool> pools = new HashMap<InetSocketAddress, HostPool>();
+    private final Map<NioHttpClientConnection, HostPool> connections = new HashMap<NioHttpClientConnection, HostPool>();
+    private volatile boolean stopped = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param idleTimeout milliseconds a connection is kept open without a request, or
+     *            0 for no limit
+     */
+    NioHttpClient(HttpConnector connector, int maxConnectionsPerHost, int maxPipelinedRequests, long idleTimeout) throws IOException
+    {
+        this.connector = connector;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.maxPipelinedRequests = maxPipelinedRequests;
+        this.idleTimeout = idleTimeout;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Sends a request. It is completed or failed later by the selector thread.
+     */
+    void execute(NioHttpExchange exchange)
+    {
+        submitted.offer(exchange);
+        selector.wakeup();
+        if (closed)
+        {
+            failSubmitted();
+        }
+    }
+
+    public void run()
+    {
+        long lastExpiry = System.currentTimeMillis();
+        try
+        {
+            while (!stopped)
+            {
+                selector.select(SELECT_TIMEOUT);
+
+                NioHttpExchange exchange;
+                while ((exchange = submitted.poll()) != null)
+                {
+                    HostPool pool = pools.get(exchange.getAddress());
+                    if (pool == null)
+                    {
+                        pool = new HostPool(exchange.getAddress());
+                        pools.put(exchange.getAddress(), pool);
+                    }
+                    pool.pending.add(exchange);
+                    pool.dispatchPending();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioHttpClientConnection connection = (NioHttpClientConnection) key.attachment();
+                    try
+                    {
+                        if (key.isConnectable())
+                        {
+                            connection.connectable();
+                        }
+                        else
+                        {
+                            if (key.isWritable())
+                            {
+                                connection.writable();
+                            }
+                            if (key.isValid() && key.isReadable())
+                            {
+                                connection.readable(readBuffer);
+                            }
+                        }
+                    }
+                    catch (CancelledKeyException e)
+                    {
+                        connection.close(null);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastExpiry >= SELECT_TIMEOUT)
+                {
+                    lastExpiry = now;
+                    expire(now);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            if (!stopped)
+            {
+                logger.error("HTTP client selector failed, failing its requests", e);
+            }
+        }
+        finally
+        {
+            close();
+        }
+    }
+
+    private void expire(long now)
+    {
+        for (HostPool pool : new ArrayList<HostPool>(pools.values()))
+        {
+            Iterator<NioHttpExchange> pending = pool.pending.iterator();
+            while (pending.hasNext())
+            {
+                NioHttpExchange exchange = pending.next();
+                if (exchange.isExpired(now))
+                {
+                    pending.remove();
+                    failed(exchange, new SocketTimeoutException("No connection to " + pool.address + " for " + exchange + " in time"));
+                }
+            }
+            for (NioHttpClientConnection connection : new ArrayList<NioHttpClientConnection>(pool.connections))
+            {
+                connection.expire(now, idleTimeout);
+            }
+            if (pool.connections.isEmpty() && pool.pending.isEmpty())
+            {
+                pools.remove(pool.address);
+            }
+        }
+    }
+
+    /**
+     * Called by a connection when it has read a response.
+     */
+    void completed(NioHttpExchange exchange)
+    {
+        try
+        {
+            exchange.completed();
+        }
+        catch (Throwable t)
+        {
+            logger.error("Failed to complete " + exchange, t);
+        }
+    }
+
+    private void failed(NioHttpExchange exchange, Exception cause)
+    {
+        try
+        {
+            exchange.failed(cause);
+        }
+        catch (Throwable t)
+        {
+            logger.error("Failed to fail " + exchange, t);
+        }
+    }
+
+    /**
+     * Called by a connection when it can take more requests.
+     */
+    void connectionAvailable(NioHttpClientConnection connection)
+    {
+        HostPool pool = connections.get(connection);
+        if (pool != null)
+        {
+            pool.dispatchPending();
+        }
+    }
+
+    /**
+     * Called by a connection when it has been closed, with the requests that were
+     * waiting for a response on it.
+     */
+    void connectionClosed(NioHttpClientConnection connection, List<NioHttpExchange> retry,
+                          List<NioHttpExchange> unanswered, IOException cause)
+    {
+        HostPool pool = connections.remove(connection);
+        if (pool == null)
+        {
+            return;
+        }
+        pool.connections.remove(connection);
+        if (stopped)
+        {
+            unanswered.addAll(retry);
+            retry.clear();
+        }
+        for (NioHttpExchange exchange : unanswered)
+        {
+            failed(exchange, cause);
+        }
+        for (ListIterator<NioHttpExchange> exchanges = retry.listIterator(retry.size()); exchanges.hasPrevious();)
+        {
+            NioHttpExchange exchange = exchanges.previous();
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Sending " + exchange + " again after the connection to " + pool.address + " was closed");
+            }
+            pool.pending.addFirst(exchange);
+        }
+        if (!stopped)
+        {
+            pool.dispatchPending();
+        }
+    }
+
+    private NioHttpClientConnection open(HostPool pool) throws IOException
+    {
+        if (pool.address.isUnresolved())
+        {
+            throw new UnknownHostException(pool.address.getHostName());
+        }
+        SocketChannel channel = SocketChannel.open();
+        try
+        {
+            channel.configureBlocking(false);
+            connector.configureSocket(true, channel.socket());
+            boolean connected = channel.connect(pool.address);
+            SelectionKey key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT);
+            NioHttpClientConnection connection = new NioHttpClientConnection(this, channel, key, connected);
+            key.attach(connection);
+            connections.put(connection, pool);
+            return connection;
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void failSubmitted()
+    {
+        NioHttpExchange exchange;
+        while ((exchange = submitted.poll()) != null)
+        {
+            failed(exchange, new IOException("The HTTP client has been stopped"));
+        }
+    }
+
+    private void close()
+    {
+        stopped = true;
+        closed = true;
+        failSubmitted();
+        for (HostPool pool : pools.values())
+        {
+            for (NioHttpExchange exchange : pool.pending)
+            {
+                failed(exchange, new IOException("The HTTP client has been stopped"));
+            }
+            pool.pending.clear();
+            for (NioHttpClientConnection connection : new ArrayList<NioHttpClientConnection>(pool.connections))
+            {
+                connection.close(new IOException("The HTTP client has been stopped"));
+            }
+        }
+        pools.clear();
+        try
+        {
+            selector.close();
+        }
+        catch (IOException e)
+        {
+            logger.debug("(Ignored) Error closing the selector: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops sending requests, failing those still waiting for a response, and closes
+     * the connections.
+     */
+    void stop()
+    {
+        stopped = true;
+        selector.wakeup();
+    }
+
+    /**
+     * The connections to a host and the requests waiting for one.
+     */
+    private class HostPool
+    {
+        private final InetSocketAddress address;
+        private final List<NioHttpClientConnection> connections = new ArrayList<NioHttpClientConnection>();
+        private final Deque<NioHttpExchange> pending = new ArrayDeque<NioHttpExchange>();
+
+        HostPool(InetSocketAddress address)
+        {
+            this.address = address;
+        }
+
+        void dispatchPending()
+        {
+            while (!pending.isEmpty())
+            {
+                NioHttpExchange exchange = pending.peek();
+                NioHttpClientConnection connection;
+                try
+                {
+                    connection = getConnection(exchange);
+                }
+                catch (IOException e)
+                {
+                    pending.poll();
+                    failed(exchange, e);
+                    continue;
+                }
+                if (connection == null)
+                {
+                    return;
+                }
+                pending.poll();
+                connection.send(exchange);
+            }
+        }
+
+        /**
+         * @return an idle connection, else a new one if the pool is not full, else one
+         *         the request can be pipelined on, else null
+         */
+        private NioHttpClientConnection getConnection(NioHttpExchange exchange) throws IOException
+        {
+            NioHttpClientConnection pipelined = null;
+            for (NioHttpClientConnection connection : connections)
+            {
+                if (connection.isIdle())
+                {
+                    return connection;
+                }
+                if (pipelined == null && maxPipelinedRequests > 1
+                    && connection.canPipeline(exchange, maxPipelinedRequests))
+                {
+                    pipelined = connection;
+                }
+            }
+            if (connections.size() < maxConnectionsPerHost)
+            {
+                NioHttpClientConnection connection = open(this);
+                connections.add(connection);
+                return connection;
+            }
+            return pipelined;
+        }
+    }
+
+}
@@ -0,0 +1,545 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpException;
+import org.apache.commons.httpclient.StatusLine;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A non-blocking connection of a {@link NioHttpClient} to a host. Requests are written
+ * as they are sent, and responses read as their bytes arrive and handed to the
+ * requests in the order they were sent.
+ * <p/>
+ * Only the selector thread of the client uses a connection.
+ */
+class NioHttpClientConnection
+{
+
+    private static Log logger = LogFactory.getLog(NioHttpClientConnection.class);
+
+    static final int MAX_HEAD_SIZE = 64 * 1024;
+    private static final String HEAD_ENCODING = "ISO-8859-1";
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private enum Read
+    {
+        HEAD, BODY, CHUNK_SIZE, CHUNK, CHUNK_END, TRAILERS, UNTIL_CLOSED
+    }
+
+    private final NioHttpClient client;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final Deque<NioHttpExchange> inFlight = new ArrayDeque<NioHttpExchange>();
+    private final Deque<ByteBuffer> output = new ArrayDeque<ByteBuffer>();
+    private boolean connected;
+    private boolean closed = false;
+    private int nonIdempotentInFlight = 0;
+    private int responses = 0;
+    private long idleSince = System.currentTimeMillis();
+
+    // the response being read
+    private Read read = Read.HEAD;
+    private byte[] line = new byte[INITIAL_BUFFER_SIZE];
+    private int lineLength = 0;
+    private int lineStart = 0;
+    private boolean receiving = false;
+    private StatusLine statusLine;
+    private Header[] headers;
+    private ByteArrayOutputStream body;
+    private long remaining;
+    private boolean closeAfterResponse;
+
+    NioHttpClientConnection(NioHttpClient client, SocketChannel channel, SelectionKey key, boolean connected)
+    {
+        this.client = client;
+        this.channel = channel;
+        this.key = key;
+        this.connected = connected;
+    }
+
+    SocketChannel getChannel()
+    {
+        return channel;
+    }
+
+    /**
+     * @return true if the connection waits for no response
+     */
+    boolean isIdle()
+    {
+        return !closed && inFlight.isEmpty();
+    }
+
+    /**
+     * @return true if the request may be written before the responses to those
+     *         already sent have been read. Only idempotent requests are pipelined, and
+     *         only on a connection the host has already kept open after a response.
+     */
+    boolean canPipeline(NioHttpExchange exchange, int maxPipelinedRequests)
+    {
+        return !closed && connected && responses > 0 && !closeAfterResponse
+               && inFlight.size() < maxPipelinedRequests && nonIdempotentInFlight == 0
+               && exchange.isIdempotent();
+    }
+
+    void send(NioHttpExchange exchange)
+    {
+        inFlight.add(exchange);
+        if (!exchange.isIdempotent())
+        {
+            nonIdempotentInFlight++;
+        }
+        output.add(ByteBuffer.wrap(exchange.getRequest()));
+        if (connected)
+        {
+            flush();
+        }
+    }
+
+    void connectable()
+    {
+        try
+        {
+            channel.finishConnect();
+            connected = true;
+            key.interestOps(SelectionKey.OP_READ);
+            flush();
+        }
+        catch (IOException e)
+        {
+            close(e);
+        }
+    }
+
+    void writable()
+    {
+        flush();
+    }
+
+    private void flush()
+    {
+        try
+        {
+            while (!output.isEmpty())
+            {
+                ByteBuffer buffer = output.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining())
+                {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                output.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+        catch (IOException e)
+        {
+            close(e);
+        }
+    }
+
+    /**
+     * Reads what the host sent, using the buffer of the selector.
+     */
+    void readable(ByteBuffer buffer)
+    {
+        try
+        {
+            buffer.clear();
+            int count = channel.read(buffer);
+            if (count == -1)
+            {
+                endOfStream();
+                return;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining() && !closed)
+            {
+                if (inFlight.isEmpty())
+                {
+                    throw new HttpException("Received data without a request: closing the connection");
+                }
+                receiving = true;
+                parse(buffer);
+            }
+        }
+        catch (IOException e)
+        {
+            close(e);
+        }
+    }
+
+    private void parse(ByteBuffer buffer) throws IOException
+    {
+        switch (read)
+        {
+            case HEAD:
+                if (readHead(buffer))
+                {
+                    headRead();
+                }
+                break;
+            case BODY:
+                readBody(buffer);
+                if (remaining == 0)
+                {
+                    completed();
+                }
+                break;
+            case CHUNK_SIZE:
+                if (readLine(buffer))
+                {
+                    chunkSizeRead();
+                }
+                break;
+            case CHUNK:
+                readBody(buffer);
+                if (remaining == 0)
+                {
+                    read = Read.CHUNK_END;
+                }
+                break;
+            case CHUNK_END:
+                if (readLine(buffer))
+                {
+                    lineLength = 0;
+                    read = Read.CHUNK_SIZE;
+                }
+                break;
+            case TRAILERS:
+                if (readLine(buffer))
+                {
+                    boolean last = isBlank(line, 0, lineLength);
+                    lineLength = 0;
+                    if (last)
+                    {
+                        completed();
+                    }
+                }
+                break;
+            case UNTIL_CLOSED:
+                remaining = Long.MAX_VALUE;
+                readBody(buffer);
+                break;
+        }
+    }
+
+    /**
+     * @return true once the blank line after the headers has been read
+     */
+    private boolean readHead(ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            byte b = buffer.get();
+            append(b);
+            if (b == '\n')
+            {
+                if (isBlank(line, lineStart, lineLength))
+                {
+                    if (lineStart > 0)
+                    {
+                        return true;
+                    }
+                    // blank lines before the status line are ignored
+                    lineLength = 0;
+                }
+                else
+                {
+                    lineStart = lineLength;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true once a whole line has been read
+     */
+    private boolean readLine(ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            byte b = buffer.get();
+            append(b);
+            if (b == '\n')
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(byte b) throws IOException
+    {
+        if (lineLength == line.length)
+        {
+            if (lineLength == MAX_HEAD_SIZE)
+            {
+                throw new HttpException("Response head is larger than " + MAX_HEAD_SIZE + " bytes");
+            }
+            line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_HEAD_SIZE));
+        }
+        line[lineLength++] = b;
+    }
+
+    private void readBody(ByteBuffer buffer)
+    {
+        int count = (int) Math.min(remaining, buffer.remaining());
+        if (buffer.hasArray())
+        {
+            body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), count);
+            buffer.position(buffer.position() + count);
+        }
+        else
+        {
+            byte[] bytes = new byte[count];
+            buffer.get(bytes);
+            body.write(bytes, 0, count);
+        }
+        remaining -= count;
+    }
+
+    private void headRead() throws IOException
+    {
+        InputStream head = new ByteArrayInputStream(line, 0, lineLength);
+        lineLength = 0;
+        lineStart = 0;
+        statusLine = new StatusLine(HttpHeaderParser.readLine(head, HEAD_ENCODING));
+        headers = HttpHeaderParser.parseHeaders(head, HEAD_ENCODING);
+
+        int status = statusLine.getStatusCode();
+        if (status >= 100 && status < 200)
+        {
+            // an interim response, the final one follows
+            return;
+        }
+
+        closeAfterResponse = !isKeepAlive();
+        body = new ByteArrayOutputStream();
+        String transferEncoding = getHeader(HttpConstants.HEADER_TRANSFER_ENCODING);
+        String contentLength = getHeader(HttpConstants.HEADER_CONTENT_LENGTH);
+        if (HttpConstants.METHOD_HEAD.equals(inFlight.peek().getMethod())
+            || status == HttpConstants.SC_NO_CONTENT || status == HttpConstants.SC_NOT_MODIFIED)
+        {
+            completed();
+        }
+        else if (transferEncoding != null
+                 && transferEncoding.toLowerCase().endsWith(HttpConstants.TRANSFER_ENCODING_CHUNKED))
+        {
+            read = Read.CHUNK_SIZE;
+        }
+        else if (contentLength != null)
+        {
+            try
+            {
+                remaining = Long.parseLong(contentLength.trim());
+            }
+            catch (NumberFormatException e)
+            {
+                throw new HttpException("Invalid Content-Length: " + contentLength);
+            }
+            read = Read.BODY;
+            if (remaining == 0)
+            {
+                completed();
+            }
+        }
+        else
+        {
+            read = Read.UNTIL_CLOSED;
+            closeAfterResponse = true;
+        }
+    }
+
+    private void chunkSizeRead() throws IOException
+    {
+        String size = new String(line, 0, lineLength, HEAD_ENCODING).trim();
+        lineLength = 0;
+        int extension = size.indexOf(';');
+        if (extension >= 0)
+        {
+            size = size.substring(0, extension).trim();
+        }
+        try
+        {
+            remaining = Long.parseLong(size, 16);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new HttpException("Invalid chunk size: " + size);
+        }
+        read = remaining == 0 ? Read.TRAILERS : Read.CHUNK;
+    }
+
+    private boolean isKeepAlive()
+    {
+        String connection = getHeader(HttpConstants.HEADER_CONNECTION);
+        if (connection != null && connection.toLowerCase().indexOf("close") >= 0)
+        {
+            return false;
+        }
+        if (statusLine.getHttpVersion().equals(HttpConstants.HTTP10))
+        {
+            return connection != null && connection.toLowerCase().indexOf("keep-alive") >= 0;
+        }
+        return true;
+    }
+
+    private String getHeader(String name)
+    {
+        for (Header header : headers)
+        {
+            if (name.equalsIgnoreCase(header.getName()))
+            {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private void completed()
+    {
+        NioHttpExchange exchange = inFlight.poll();
+        if (!exchange.isIdempotent())
+        {
+            nonIdempotentInFlight--;
+        }
+        exchange.setResponse(statusLine, headers, body.toByteArray());
+        responses++;
+
+        read = Read.HEAD;
+        receiving = false;
+        statusLine = null;
+        headers = null;
+        body = null;
+        idleSince = System.currentTimeMillis();
+
+        client.completed(exchange);
+        if (closeAfterResponse)
+        {
+            close(null);
+        }
+        else
+        {
+            client.connectionAvailable(this);
+        }
+    }
+
+    private void endOfStream()
+    {
+        if (read == Read.UNTIL_CLOSED)
+        {
+            completed();
+        }
+        close(null);
+    }
+
+    /**
+     * Closes the connection if the oldest request waits past its deadline, or if it
+     * has waited for no request for longer than the idle timeout.
+     */
+    void expire(long now, long idleTimeout)
+    {
+        if (!inFlight.isEmpty())
+        {
+            if (inFlight.peek().isExpired(now))
+            {
+                close(new SocketTimeoutException("No response to " + inFlight.peek() + " in time"));
+            }
+        }
+        else if (idleTimeout > 0 && now - idleSince >= idleTimeout)
+        {
+            close(null);
+        }
+    }
+
+    /**
+     * Closes the connection. The requests still waiting for a response are sent again
+     * on another connection if that is safe, failed otherwise.
+     *
+     * @param cause why the connection is closed, or null if it was closed by the host
+     *            or because it was idle
+     */
+    void close(IOException cause)
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        key.cancel();
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            logger.debug("(Ignored) Error closing the connection: " + e.getMessage());
+        }
+
+        long now = System.currentTimeMillis();
+        List<NioHttpExchange> retry = new ArrayList<NioHttpExchange>();
+        List<NioHttpExchange> failed = new ArrayList<NioHttpExchange>();
+        boolean first = true;
+        for (NioHttpExchange exchange : inFlight)
+        {
+            // a request on a connection the host closed after keeping it open is not
+            // known to have reached it
+            boolean answered = first && receiving;
+            if (connected && !answered && !exchange.isRetried() && !exchange.isExpired(now)
+                && (exchange.isIdempotent() || (first && responses > 0)))
+            {
+                exchange.setRetried();
+                retry.add(exchange);
+            }
+            else
+            {
+                failed.add(exchange);
+            }
+            first = false;
+        }
+        inFlight.clear();
+        output.clear();
+        client.connectionClosed(this, retry, failed,
+            cause != null ? cause : new HttpException("Connection closed before the response was read"));
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (bytes[i] != '\r' && bytes[i] != '\n')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.transport.http;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.endpoint.OutboundEndpoint;
+import org.mule.api.transport.DispatchException;
+import org.mule.util.StringUtils;
+import org.mule.work.AbstractMuleEventWork;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.httpclient.Cookie;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.cookie.CookiePolicy;
+import org.apache.commons.httpclient.cookie.CookieSpec;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+/**
+ * <code>NioHttpClientMessageDispatcher</code> sends one-way requests with the
+ * {@link NioHttpClient} of the connector, so that the dispatcher thread is free as
+ * soon as the request is handed over rather than once the response has been read.
+ * <p/>
+ * The response is handled by a thread of the dispatcher work manager: an error status
+ * goes to the exception strategy of the flow, and if the request message has a reply
+ * to destination, as requests sent from a <code>request-reply</code> router do, the
+ * response is sent there with the correlation id of the request.
+ * <p/>
+ * Request-response sends, and requests through a proxy, are still made with
+ * HttpClient. The request body is buffered, so that it can be sent with a
+ * Content-Length and again if the connection turns out to be closed.
+ */
+public class NioHttpClientMessageDispatcher extends HttpClientMessageDispatcher
+{
+
+    private static final String HEAD_ENCODING = "ISO-8859-1";
+
+    public NioHttpClientMessageDispatcher(OutboundEndpoint endpoint)
+    {
+        super(endpoint);
+    }
+
+    @Override
+    protected void doDispatch(MuleEvent event) throws Exception
+    {
+        if (StringUtils.isNotBlank(httpConnector.getProxyHostname()))
+        {
+            super.doDispatch(event);
+            return;
+        }
+
+        URI uri = endpoint.getEndpointURI().getUri();
+        int port = uri.getPort() == -1 ? HttpConstants.DEFAULT_HTTP_PORT : uri.getPort();
+        InetSocketAddress address = new InetSocketAddress(uri.getHost(), port);
+        if (address.isUnresolved())
+        {
+            throw new DispatchException(event, getEndpoint(), new UnknownHostException(uri.getHost()));
+        }
+
+        HttpMethod httpMethod = getMethod(event);
+        httpConnector.setupClientAuthorization(event, httpMethod, getClient(), endpoint);
+        processCookies(event);
+        processMuleSession(event, httpMethod);
+        if (event.getMessage().getReplyTo() != null)
+        {
+            // the response is the reply, so the host must not send one of its own
+            httpMethod.removeRequestHeader("X-" + MuleProperties.MULE_REPLY_TO_PROPERTY);
+        }
+        byte[] request = toRequest(event, httpMethod, uri.getHost(), port);
+
+        final ResponseWork work = new ResponseWork(event);
+        NioHttpExchange exchange = new NioHttpExchange(address, httpMethod.getName(), uri.toString(), request, endpoint.getResponseTimeout())
+        {
+            @Override
+            protected void completed()
+            {
+                work.schedule(this, null);
+            }
+
+            @Override
+            protected void failed(Exception e)
+            {
+                work.schedule(this, e);
+            }
+        };
+        httpConnector.getNioHttpClient().execute(exchange);
+    }
+
+    /**
+     * @return the head and body of the request, as HttpClient would write them
+     */
+    protected byte[] toRequest(MuleEvent event, HttpMethod httpMethod, String host, int port) throws IOException
+    {
+        ByteArrayOutputStream body = null;
+        String contentType = null;
+        if (httpMethod instanceof EntityEnclosingMethod)
+        {
+            RequestEntity entity = ((EntityEnclosingMethod) httpMethod).getRequestEntity();
+            if (entity != null)
+            {
+                body = new ByteArrayOutputStream();
+                entity.writeRequest(body);
+                contentType = entity.getContentType();
+            }
+            else
+            {
+                body = new ByteArrayOutputStream(0);
+            }
+        }
+
+        StringBuilder head = new StringBuilder(256);
+        head.append(httpMethod.getName()).append(' ').append(httpMethod.getPath());
+        String query = httpMethod.getQueryString();
+        if (query != null)
+        {
+            if (!query.startsWith("?"))
+            {
+                head.append('?');
+            }
+            head.append(query);
+        }
+        head.append(' ').append(HttpConstants.HTTP11).append("\r\n");
+
+        if (httpMethod.getRequestHeader(HttpConstants.HEADER_HOST) == null)
+        {
+            head.append(HttpConstants.HEADER_HOST).append(": ").append(host);
+            if (port != HttpConstants.DEFAULT_HTTP_PORT)
+            {
+                head.append(':').append(port);
+            }
+            head.append("\r\n");
+        }
+        if (event.getCredentials() != null && httpMethod.getRequestHeader(HttpConstants.HEADER_AUTHORIZATION) == null)
+        {
+            // HttpClient sends these preemptively
+            String credentials = event.getCredentials().getUsername() + ":" + new String(event.getCredentials().getPassword());
+            head.append(HttpConstants.HEADER_AUTHORIZATION).append(": Basic ")
+                .append(new String(Base64.encodeBase64(credentials.getBytes(HEAD_ENCODING)), HEAD_ENCODING))
+                .append("\r\n");
+        }
+        appendCookies(head, httpMethod, host, port);
+        if (contentType != null && httpMethod.getRequestHeader(HttpConstants.HEADER_CONTENT_TYPE) == null)
+        {
+            head.append(HttpConstants.HEADER_CONTENT_TYPE).append(": ").append(contentType).append("\r\n");
+        }
+        for (Header header : httpMethod.getRequestHeaders())
+        {
+            if (!HttpConstants.HEADER_CONTENT_LENGTH.equalsIgnoreCase(header.getName())
+                && !HttpConstants.HEADER_TRANSFER_ENCODING.equalsIgnoreCase(header.getName()))
+            {
+                head.append(header.toExternalForm());
+            }
+        }
+        if (body != null)
+        {
+            head.append(HttpConstants.HEADER_CONTENT_LENGTH).append(": ").append(body.size()).append("\r\n");
+        }
+        head.append("\r\n");
+
+        ByteArrayOutputStream request = new ByteArrayOutputStream(head.length() + (body != null ? body.size() : 0));
+        request.write(head.toString().getBytes(HEAD_ENCODING));
+        if (body != null)
+        {
+            body.writeTo(request);
+        }
+        return request.toByteArray();
+    }
+
+    private void appendCookies(StringBuilder head, HttpMethod httpMethod, String host, int port)
+    {
+        HttpClient client = getClient();
+        if (client == null || client.getState().getCookies().length == 0)
+        {
+            return;
+        }
+        CookieSpec spec = CookiePolicy.getCookieSpec(httpMethod.getParams().getCookiePolicy());
+        Cookie[] cookies = spec.match(host, port, httpMethod.getPath(), false, client.getState().getCookies());
+        if (cookies != null && cookies.length > 0)
+        {
+            head.append(spec.formatCookieHeader(cookies).toExternalForm());
+        }
+    }
+
+    /**
+     * Handles the response, or the failure to get one, as the blocking dispatcher
+     * would have after sending the request.
+     */
+    protected void handleResponse(MuleEvent event, MuleMessage response, int statusCode, String reasonPhrase) throws Exception
+    {
+        if (returnException(event, statusCode))
+        {
+            logger.error(response.getPayloadAsString());
+
+            Exception cause = new Exception(String.format("Http call returned a status of: %1d %1s",
+                statusCode, reasonPhrase));
+            throw new DispatchException(event, getEndpoint(), cause);
+        }
+
+        Object replyTo = event.getMessage().getReplyTo();
+        if (replyTo != null)
+        {
+            response.setCorrelationId(event.getMessage().getCorrelationId());
+            httpConnector.getReplyToHandler(endpoint).processReplyTo(event, response, replyTo);
+        }
+        else if (statusCode >= REDIRECT_STATUS_CODE_RANGE_START)
+        {
+            if (logger.isInfoEnabled())
+            {
+                logger.info("Received a redirect response code: " + statusCode + " " + reasonPhrase);
+            }
+        }
+    }
+
+    /**
+     * Handles the outcome of an exchange with a copy of the event made when the
+     * request was sent.
+     */
+    private class ResponseWork extends AbstractMuleEventWork
+    {
+        private NioHttpExchange exchange;
+        private Exception failure;
+
+        ResponseWork(MuleEvent event)
+        {
+            super(event);
+        }
+
+        void schedule(NioHttpExchange exchange, Exception failure)
+        {
+            this.exchange = exchange;
+            this.failure = failure;
+            try
+            {
+                getWorkManager().scheduleWork(this);
+            }
+            catch (Exception e)
+            {
+                logger.error("Failed to handle the response to " + exchange, e);
+            }
+        }
+
+        @Override
+        protected void doRun()
+        {
+            try
+            {
+                if (failure != null)
+                {
+                    throw new DispatchException(event, getEndpoint(), failure);
+                }
+                handleResponse(event, createMuleMessage(exchange), exchange.getStatusCode(),
+                    exchange.getStatusLine().getReasonPhrase());
+            }
+            catch (Exception e)
+            {
+                if (!(e instanceof MuleException))
+                {
+                    e = new DispatchException(event, getEndpoint(), e);
+                }
+                if (event.getFlowConstruct() != null)
+                {
+                    event.getFlowConstruct().getExceptionListener().handleException(e, event);
+                }
+                else
+                {
+                    httpConnector.getMuleContext().getExceptionListener().handleException(e);
+                }
+            }
+        }
+    }
+
+}
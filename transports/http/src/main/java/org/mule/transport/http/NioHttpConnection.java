@@ -0,0 +1,686 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.transport.Connector;
+import org.mule.api.transport.NoReceiverForEndpointException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.transport.http.i18n.HttpMessages;
+import org.mule.util.pool.RecyclingPool;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A connection read by a {@link NioHttpSelector}.
+ * <p/>
+ * The selector thread appends what it reads to a buffer and, once the buffer holds
+ * the whole head of a request, hands the connection to a worker thread, which
+ * processes the request the way {@link HttpRequestDispatcherWork} does, through
+ * streams over the buffer and the channel. When the response has been written the
+ * worker goes on with the next request if its head has already been read, as it is
+ * when requests are pipelined, or else gives the connection back to the selector.
+ * <p/>
+ * The selector stops reading while the buffer holds more than the worker has read
+ * of a large body, so a connection never buffers much more than
+ * {@link #HIGH_WATERMARK}. The buffer is dropped whenever it is empty, so an idle
+ * connection holds no memory beyond its channel.
+ */
+class NioHttpConnection implements Runnable
+{
+
+    private static Log logger = LogFactory.getLog(NioHttpConnection.class);
+
+    static final int MAX_HEAD_SIZE = 64 * 1024;
+    static final int HIGH_WATERMARK = 64 * 1024;
+    private static final int LOW_WATERMARK = HIGH_WATERMARK / 2;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
+    private static final long WRITE_SELECT_TIMEOUT = 1000;
+
+    private static final byte[] BAD_REQUEST = ("HTTP/1.1 400 Bad Request\r\n" + HttpConstants.HEADER_CONNECTION
+                                               + ": close\r\n" + HttpConstants.HEADER_CONTENT_LENGTH + ": 0\r\n\r\n").getBytes();
+    private static final byte[] SERVICE_UNAVAILABLE = ("HTTP/1.1 503 Service Unavailable\r\n" + HttpConstants.HEADER_CONNECTION
+                                                       + ": close\r\n" + HttpConstants.HEADER_CONTENT_LENGTH + ": 0\r\n\r\n").getBytes();
+
+    // selectors a worker waits on when the channel cannot take more of a response
+    private static final RecyclingPool<Selector> WRITE_SELECTORS = new RecyclingPool<Selector>(16)
+    {
+        @Override
+        protected Selector create()
+        {
+            try
+            {
+                return Selector.open();
+            }
+            catch (IOException e)
+            {
+                throw new MuleRuntimeException(CoreMessages.failedToCreate("selector"), e);
+            }
+        }
+
+        @Override
+        protected void destroy(Selector selector)
+        {
+            try
+            {
+                selector.close();
+            }
+            catch (IOException e)
+            {
+                logger.debug("(Ignored) Error closing the selector: " + e.getMessage());
+            }
+        }
+    };
+
+    private enum State
+    {
+        IDLE, BUSY, CLOSED
+    }
+
+    private enum Next
+    {
+        REQUEST, IDLE, CLOSE
+    }
+
+    private final HttpConnector httpConnector;
+    private final SocketChannel channel;
+    private final NioHttpSelector selector;
+    private final Executor executor;
+    private final HttpServerConnection httpServerConnection;
+    private final int readTimeout;
+
+    // guarded by this
+    private byte[] buffer;
+    private int start;
+    private int end;
+    private int scanFrom;
+    private State state = State.IDLE;
+    private long idleSince = System.currentTimeMillis();
+    private boolean eof;
+    private boolean readPaused;
+    private SelectionKey key;
+
+    private final Runnable resumeReads = new Runnable()
+    {
+        public void run()
+        {
+            synchronized (NioHttpConnection.this)
+            {
+                if (state != State.CLOSED && !eof && !readPaused && key != null && key.isValid())
+                {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+        }
+    };
+
+    NioHttpConnection(HttpConnector httpConnector, SocketChannel channel, NioHttpSelector selector, Executor executor) throws IOException
+    {
+        this.httpConnector = httpConnector;
+        this.channel = channel;
+        this.selector = selector;
+        this.executor = executor;
+        this.readTimeout = httpConnector.getServerSoTimeout() == Connector.INT_VALUE_NOT_SET ? 0 : httpConnector.getServerSoTimeout();
+        String encoding = httpConnector.getMuleContext().getConfiguration().getDefaultEncoding();
+        this.httpServerConnection = new HttpServerConnection(channel.socket(), new ChannelInputStream(),
+            new ResponseOutputStream(), encoding, httpConnector);
+    }
+
+    SocketChannel getChannel()
+    {
+        return channel;
+    }
+
+    synchronized void registered(SelectionKey key)
+    {
+        this.key = key;
+        if (state == State.CLOSED)
+        {
+            key.cancel();
+        }
+    }
+
+    /**
+     * Called by the selector thread when the channel is readable.
+     */
+    void read(ByteBuffer readBuffer)
+    {
+        int count;
+        readBuffer.clear();
+        try
+        {
+            count = channel.read(readBuffer);
+        }
+        catch (IOException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Error reading HTTP connection: " + e.getMessage());
+            }
+            count = -1;
+        }
+
+        synchronized (this)
+        {
+            if (state == State.CLOSED)
+            {
+                return;
+            }
+            if (count < 0)
+            {
+                eof = true;
+                key.interestOps(0);
+                notifyAll();
+                if (state == State.IDLE)
+                {
+                    close();
+                }
+                return;
+            }
+            if (count == 0)
+            {
+                return;
+            }
+
+            readBuffer.flip();
+            append(readBuffer);
+            notifyAll();
+
+            if (state == State.IDLE)
+            {
+                int headEnd = findHeadEnd();
+                if (headEnd >= 0)
+                {
+                    state = State.BUSY;
+                    try
+                    {
+                        executor.execute(this);
+                    }
+                    catch (RejectedExecutionException e)
+                    {
+                        logger.warn("No thread available to process HTTP request, refusing it");
+                        writeQuietly(SERVICE_UNAVAILABLE);
+                        close();
+                        return;
+                    }
+                }
+                else if (end - start > MAX_HEAD_SIZE)
+                {
+                    writeQuietly(BAD_REQUEST);
+                    close();
+                    return;
+                }
+            }
+            // a head that is not complete yet is bounded by MAX_HEAD_SIZE instead, as
+            // no worker would ever consume it and resume reading
+            if (state == State.BUSY && end - start >= HIGH_WATERMARK)
+            {
+                readPaused = true;
+                key.interestOps(0);
+            }
+        }
+    }
+
+    private void append(ByteBuffer data)
+    {
+        int count = data.remaining();
+        if (buffer == null)
+        {
+            buffer = new byte[Math.max(INITIAL_BUFFER_SIZE, count)];
+        }
+        else if (buffer.length - end < count)
+        {
+            int length = end - start;
+            byte[] target = buffer;
+            if (buffer.length < length + count)
+            {
+                int size = buffer.length;
+                while (size < length + count)
+                {
+                    size <<= 1;
+                }
+                target = new byte[size];
+            }
+            System.arraycopy(buffer, start, target, 0, length);
+            buffer = target;
+            scanFrom -= start;
+            start = 0;
+            end = length;
+        }
+        data.get(buffer, end, count);
+        end += count;
+    }
+
+    /**
+     * Looks for the blank line ending the head of the next request, skipping any empty
+     * lines before it the way the request line is read.
+     *
+     * @return the position after the blank line, or -1 if it has not been read yet
+     */
+    private int findHeadEnd()
+    {
+        while (start < end && (buffer[start] == '\r' || buffer[start] == '\n'))
+        {
+            start++;
+        }
+        int i = Math.max(scanFrom, start);
+        for (; i < end; i++)
+        {
+            if (buffer[i] == '\n')
+            {
+                if (i + 1 < end && buffer[i + 1] == '\n')
+                {
+                    return i + 2;
+                }
+                if (i + 2 < end && buffer[i + 1] == '\r' && buffer[i + 2] == '\n')
+                {
+                    return i + 3;
+                }
+            }
+        }
+        // the terminator may be split between this read and the next
+        scanFrom = Math.max(start, end - 2);
+        releaseIfEmpty();
+        return -1;
+    }
+
+    private void releaseIfEmpty()
+    {
+        if (start == end)
+        {
+            buffer = null;
+            start = 0;
+            end = 0;
+            scanFrom = 0;
+        }
+    }
+
+    /**
+     * Called by the selector thread to close the connection if it has been waiting
+     * for a request for longer than the keep-alive timeout.
+     */
+    synchronized void expireIfIdle(long now, long keepAliveTimeout)
+    {
+        if (state == State.IDLE && now - idleSince >= keepAliveTimeout)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing idle HTTP connection: " + channel);
+            }
+            close();
+        }
+    }
+
+    /**
+     * Closes the channel right away, without flushing a response being written.
+     */
+    synchronized void close()
+    {
+        if (state == State.CLOSED)
+        {
+            return;
+        }
+        state = State.CLOSED;
+        buffer = null;
+        notifyAll();
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            logger.debug("(Ignored) Error closing the socket: " + e.getMessage());
+        }
+    }
+
+    private void writeQuietly(byte[] response)
+    {
+        try
+        {
+            channel.write(ByteBuffer.wrap(response));
+        }
+        catch (IOException e)
+        {
+            logger.debug("(Ignored) Error writing to the socket: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        Next next = Next.CLOSE;
+        try
+        {
+            do
+            {
+                processRequest();
+                next = httpServerConnection.isKeepAlive() ? nextRequest() : Next.CLOSE;
+            }
+            while (next == Next.REQUEST);
+        }
+        catch (HttpMessageReceiver.EmptyRequestException e)
+        {
+            logger.debug("Discarding request since content was empty");
+        }
+        catch (HttpMessageReceiver.FailureProcessingRequestException e)
+        {
+            logger.debug("Closing socket due to failure during request processing");
+        }
+        catch (Exception e)
+        {
+            httpConnector.getMuleContext().getExceptionListener().handleException(e);
+        }
+        finally
+        {
+            // once idle the connection belongs to the selector again
+            if (next != Next.IDLE)
+            {
+                logger.debug("Closing HTTP connection.");
+                httpServerConnection.close();
+                close();
+            }
+        }
+    }
+
+    private void processRequest() throws Exception
+    {
+        try
+        {
+            httpServerConnection.setKeepAlive(false);
+
+            RequestLine requestLine = httpServerConnection.getRequestLine();
+            if (requestLine != null)
+            {
+                try
+                {
+                    HttpMessageReceiver httpMessageReceiver = httpConnector.lookupReceiver(channel.socket(), requestLine);
+                    httpMessageReceiver.processRequest(httpServerConnection);
+                }
+                catch (NoReceiverForEndpointException e)
+                {
+                    httpServerConnection.writeFailureResponse(HttpConstants.SC_NOT_FOUND, HttpMessages.cannotBindToAddress(httpServerConnection.getFullUri()).toString());
+                }
+            }
+        }
+        finally
+        {
+            httpServerConnection.reset();
+        }
+    }
+
+    /**
+     * Decides what to do once a response has been written.
+     */
+    private synchronized Next nextRequest()
+    {
+        if (state == State.CLOSED)
+        {
+            return Next.CLOSE;
+        }
+        if (buffer != null && findHeadEnd() >= 0)
+        {
+            return Next.REQUEST;
+        }
+        if (eof)
+        {
+            return Next.CLOSE;
+        }
+        if (end - start > MAX_HEAD_SIZE)
+        {
+            writeQuietly(BAD_REQUEST);
+            return Next.CLOSE;
+        }
+        state = State.IDLE;
+        idleSince = System.currentTimeMillis();
+        if (readPaused)
+        {
+            readPaused = false;
+            selector.execute(resumeReads);
+        }
+        return Next.IDLE;
+    }
+
+    /**
+     * Called by the worker when it has taken data out of the buffer.
+     */
+    private void consumed()
+    {
+        releaseIfEmpty();
+        if (readPaused && end - start < LOW_WATERMARK)
+        {
+            readPaused = false;
+            selector.execute(resumeReads);
+        }
+    }
+
+    /**
+     * Waits for the channel to take more of a response.
+     */
+    private void awaitWritable() throws IOException
+    {
+        Selector writeSelector = WRITE_SELECTORS.borrowObject();
+        SelectionKey writeKey = null;
+        boolean reusable = false;
+        try
+        {
+            writeKey = channel.register(writeSelector, SelectionKey.OP_WRITE);
+            while (writeSelector.select(WRITE_SELECT_TIMEOUT) == 0)
+            {
+                if (!channel.isOpen())
+                {
+                    throw new ClosedChannelException();
+                }
+            }
+            reusable = true;
+        }
+        finally
+        {
+            if (writeKey != null)
+            {
+                writeKey.cancel();
+                try
+                {
+                    // deregisters the channel so the selector can be used for another
+                    writeSelector.selectNow();
+                }
+                catch (IOException e)
+                {
+                    reusable = false;
+                }
+            }
+            if (reusable)
+            {
+                WRITE_SELECTORS.returnObject(writeSelector);
+            }
+            else
+            {
+                WRITE_SELECTORS.invalidateObject(writeSelector);
+            }
+        }
+    }
+
+    /**
+     * Reads what the selector has buffered, waiting for it to read more when the
+     * buffer is empty.
+     */
+    private class ChannelInputStream extends InputStream
+    {
+
+        @Override
+        public int read() throws IOException
+        {
+            synchronized (NioHttpConnection.this)
+            {
+                if (!awaitData())
+                {
+                    return -1;
+                }
+                int b = buffer[start++] & 0xff;
+                consumed();
+                return b;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            synchronized (NioHttpConnection.this)
+            {
+                if (!awaitData())
+                {
+                    return -1;
+                }
+                int count = Math.min(len, end - start);
+                System.arraycopy(buffer, start, b, off, count);
+                start += count;
+                consumed();
+                return count;
+            }
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            synchronized (NioHttpConnection.this)
+            {
+                return end - start;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            // the channel is closed with the connection
+        }
+
+        /**
+         * @return false if the end of the stream has been reached
+         */
+        private boolean awaitData() throws IOException
+        {
+            long deadline = readTimeout > 0 ? System.currentTimeMillis() + readTimeout : 0;
+            while (start == end)
+            {
+                if (state == State.CLOSED)
+                {
+                    throw new SocketException("Socket closed");
+                }
+                if (eof)
+                {
+                    return false;
+                }
+                long wait = 0;
+                if (deadline > 0)
+                {
+                    wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0)
+                    {
+                        throw new SocketTimeoutException("Read timed out");
+                    }
+                }
+                try
+                {
+                    NioHttpConnection.this.wait(wait);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Buffers a response, and sends file regions straight from the file to the channel.
+     */
+    private class ResponseOutputStream extends BufferedOutputStream implements FileChannelTransfer
+    {
+
+        ResponseOutputStream()
+        {
+            super(new ChannelOutputStream(), OUTPUT_BUFFER_SIZE);
+        }
+
+        public void transferFrom(FileChannel file, long position, long count) throws IOException
+        {
+            flush();
+            while (count > 0)
+            {
+                long written = file.transferTo(position, count, channel);
+                if (written > 0)
+                {
+                    position += written;
+                    count -= written;
+                }
+                else if (position >= file.size())
+                {
+                    throw new EOFException("File is shorter than expected");
+                }
+                else
+                {
+                    awaitWritable();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes to the non-blocking channel, waiting for it to take more when its send
+     * buffer is full.
+     */
+    private class ChannelOutputStream extends OutputStream
+    {
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            ByteBuffer data = ByteBuffer.wrap(b, off, len);
+            while (data.hasRemaining())
+            {
+                if (channel.write(data) == 0)
+                {
+                    awaitWritable();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import java.net.InetSocketAddress;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.StatusLine;
+
+/**
+ * A request sent by a {@link NioHttpClient} and the response it got.
+ * <p/>
+ * {@link #completed()} or {@link #failed(Exception)} is called once, by the selector
+ * thread of the client, so they must hand any real work to another thread.
+ */
+abstract class NioHttpExchange
+{
+
+    private final InetSocketAddress address;
+    private final String method;
+    private final String uri;
+    private final byte[] request;
+    private final long deadline;
+    private boolean retried = false;
+
+    private StatusLine statusLine;
+    private Header[] responseHeaders;
+    private byte[] responseBody;
+
+    /**
+     * @param address where to connect to
+     * @param method the method of the request
+     * @param uri the URI the request is for
+     * @param request the head and body of the request, as they are to be written
+     * @param timeout milliseconds to wait for the response, or 0 for no limit
+     */
+    NioHttpExchange(InetSocketAddress address, String method, String uri, byte[] request, long timeout)
+    {
+        this.address = address;
+        this.method = method;
+        this.uri = uri;
+        this.request = request;
+        this.deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+    }
+
+    /**
+     * Called when the whole response has been read.
+     */
+    protected abstract void completed();
+
+    /**
+     * Called when no response could be read.
+     */
+    protected abstract void failed(Exception e);
+
+    InetSocketAddress getAddress()
+    {
+        return address;
+    }
+
+    public String getMethod()
+    {
+        return method;
+    }
+
+    public String getUri()
+    {
+        return uri;
+    }
+
+    byte[] getRequest()
+    {
+        return request;
+    }
+
+    /**
+     * @return true if sending the request twice has the same effect as sending it
+     *         once, so that it may be pipelined and sent again after the connection
+     *         was lost
+     */
+    boolean isIdempotent()
+    {
+        return HttpConstants.METHOD_GET.equals(method) || HttpConstants.METHOD_HEAD.equals(method)
+               || HttpConstants.METHOD_PUT.equals(method) || HttpConstants.METHOD_DELETE.equals(method)
+               || HttpConstants.METHOD_OPTIONS.equals(method) || HttpConstants.METHOD_TRACE.equals(method);
+    }
+
+    boolean isExpired(long now)
+    {
+        return now >= deadline;
+    }
+
+    boolean isRetried()
+    {
+        return retried;
+    }
+
+    void setRetried()
+    {
+        this.retried = true;
+    }
+
+    void setResponse(StatusLine statusLine, Header[] headers, byte[] body)
+    {
+        this.statusLine = statusLine;
+        this.responseHeaders = headers;
+        this.responseBody = body;
+    }
+
+    public StatusLine getStatusLine()
+    {
+        return statusLine;
+    }
+
+    public int getStatusCode()
+    {
+        return statusLine.getStatusCode();
+    }
+
+    public Header[] getResponseHeaders()
+    {
+        return responseHeaders;
+    }
+
+    public byte[] getResponseBody()
+    {
+        return responseBody;
+    }
+
+    @Override
+    public String toString()
+    {
+        return method + " " + uri;
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.api.config.ThreadingProfile;
+import org.mule.api.context.WorkManager;
+import org.mule.api.retry.RetryPolicyTemplate;
+import org.mule.config.MutableThreadingProfile;
+import org.mule.util.concurrent.ThreadNameHelper;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Manage a ServerSocketChannel.
+ * <p/>
+ * Accepted connections are read by a few {@link NioHttpSelector} threads rather than
+ * each by a thread of its own. A connection only takes a thread of the request
+ * dispatcher pool once the head of a request has been read, and gives it back when
+ * it is waiting for the next request, so idle keep-alive connections cost no thread.
+ */
+class NioHttpRequestDispatcher extends HttpRequestDispatcher
+{
+
+    private static Log logger = LogFactory.getLog(NioHttpRequestDispatcher.class);
+
+    private final HttpConnector httpConnector;
+    private final NioHttpSelector[] selectors;
+    private final AtomicInteger nextSelector = new AtomicInteger();
+
+    public NioHttpRequestDispatcher(final HttpConnector httpConnector, final RetryPolicyTemplate retryPolicyTemplate, final ServerSocketChannel serverSocketChannel, final WorkManager workManager) throws IOException
+    {
+        super(httpConnector, retryPolicyTemplate, serverSocketChannel.socket(), workManager);
+        this.httpConnector = httpConnector;
+        this.selectors = new NioHttpSelector[httpConnector.getNioSelectorThreads()];
+
+        String threadNamePrefix = ThreadNameHelper.getPrefix(httpConnector.getMuleContext()) + "http.selector." + serverSocketChannel.socket().getLocalPort() + ".";
+        try
+        {
+            for (int i = 0; i < selectors.length; i++)
+            {
+                selectors[i] = new NioHttpSelector(httpConnector.getKeepAliveTimeout());
+                Thread thread = new Thread(selectors[i], threadNamePrefix + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        catch (IOException e)
+        {
+            stopSelectors();
+            serverSocketChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Requests are refused with a 503 rather than processed by the selector thread
+     * when every dispatcher thread is busy, as that would stop it reading the other
+     * connections.
+     */
+    @Override
+    protected MutableThreadingProfile createDispatcherThreadingProfile(HttpConnector httpConnector)
+    {
+        MutableThreadingProfile dispatcherThreadingProfile = super.createDispatcherThreadingProfile(httpConnector);
+        dispatcherThreadingProfile.setRejectedExecutionHandler(null);
+        dispatcherThreadingProfile.setPoolExhaustedAction(ThreadingProfile.WHEN_EXHAUSTED_ABORT);
+        return dispatcherThreadingProfile;
+    }
+
+    @Override
+    protected void dispatch(Socket socket)
+    {
+        SocketChannel channel = socket.getChannel();
+        NioHttpSelector selector = selectors[(nextSelector.getAndIncrement() & Integer.MAX_VALUE) % selectors.length];
+        try
+        {
+            channel.configureBlocking(false);
+            selector.register(new NioHttpConnection(httpConnector, channel, selector, requestHandOffExecutor));
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to register accepted connection: " + e.getMessage(), e);
+            try
+            {
+                channel.close();
+            }
+            catch (IOException closeException)
+            {
+                logger.debug("(Ignored) Error closing the socket: " + closeException.getMessage());
+            }
+        }
+    }
+
+    @Override
+    void disconnect()
+    {
+        super.disconnect();
+        stopSelectors();
+    }
+
+    private void stopSelectors()
+    {
+        for (NioHttpSelector selector : selectors)
+        {
+            if (selector != null)
+            {
+                selector.stop();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Reads the connections registered with it into their {@link NioHttpConnection}, and
+ * closes those that have been idle for longer than the keep-alive timeout.
+ * <p/>
+ * Keys are only changed by the thread running the selector; other threads hand it
+ * the change with {@link #execute(Runnable)}.
+ */
+class NioHttpSelector implements Runnable
+{
+
+    private static Log logger = LogFactory.getLog(NioHttpSelector.class);
+
+    private static final long SELECT_TIMEOUT = 1000;
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    // only used by the selector thread, so one buffer serves all its connections
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final long keepAliveTimeout;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param keepAliveTimeout milliseconds a connection may wait for its next request,
+     *            or 0 for no limit
+     */
+    NioHttpSelector(long keepAliveTimeout) throws IOException
+    {
+        this.selector = Selector.open();
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    /**
+     * Runs a task on the selector thread.
+     */
+    void execute(Runnable task)
+    {
+        tasks.offer(task);
+        selector.wakeup();
+    }
+
+    void register(final NioHttpConnection connection)
+    {
+        execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    connection.registered(connection.getChannel().register(selector, SelectionKey.OP_READ, connection));
+                }
+                catch (ClosedChannelException e)
+                {
+                    connection.close();
+                }
+            }
+        });
+    }
+
+    public void run()
+    {
+        long lastExpiry = System.currentTimeMillis();
+        try
+        {
+            while (!stopped)
+            {
+                selector.select(SELECT_TIMEOUT);
+                runTasks();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioHttpConnection connection = (NioHttpConnection) key.attachment();
+                    try
+                    {
+                        if (key.isReadable())
+                        {
+                            connection.read(readBuffer);
+                        }
+                    }
+                    catch (CancelledKeyException e)
+                    {
+                        connection.close();
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (keepAliveTimeout > 0 && now - lastExpiry >= SELECT_TIMEOUT)
+                {
+                    lastExpiry = now;
+                    for (SelectionKey key : selector.keys())
+                    {
+                        ((NioHttpConnection) key.attachment()).expireIfIdle(now, keepAliveTimeout);
+                    }
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            if (!stopped)
+            {
+                logger.error("HTTP selector failed, closing its connections", e);
+            }
+        }
+        finally
+        {
+            close();
+        }
+    }
+
+    private void runTasks()
+    {
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+        {
+            task.run();
+        }
+    }
+
+    private void close()
+    {
+        try
+        {
+            runTasks();
+            for (SelectionKey key : selector.keys())
+            {
+                ((NioHttpConnection) key.attachment()).close();
+            }
+            selector.close();
+        }
+        catch (IOException e)
+        {
+            logger.debug("(Ignored) Error closing the selector: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops reading and closes the connections registered.
+     */
+    void stop()
+    {
+        stopped = true;
+        selector.wakeup();
+    }
+
+}
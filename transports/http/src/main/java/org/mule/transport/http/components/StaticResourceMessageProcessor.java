@@ -13,38 +13,67 @@ import org.mule.DefaultMuleEvent;
 import org.mule.DefaultMuleMessage;
 import org.mule.api.MuleEvent;
 import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
 import org.mule.api.config.ConfigurationException;
 import org.mule.api.lifecycle.Initialisable;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.processor.MessageProcessor;
 import org.mule.transport.NullPayload;
+import org.mule.transport.http.FileRegionOutputHandler;
 import org.mule.transport.http.HttpConnector;
 import org.mule.transport.http.HttpConstants;
 import org.mule.transport.http.i18n.HttpMessages;
 import org.mule.util.IOUtils;
 import org.mule.util.StringUtils;
+import org.mule.util.concurrent.BoundedConcurrentCache;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
 
 import javax.activation.MimetypesFileTypeMap;
 
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
 /**
  * A MessageProcessor that can be used by HTTP endpoints to serve static files from a directory on the
  * filesystem.  This processor allows the user to specify a resourceBase which refers to the local directory
  * from where files will be served from. Additionally, a default file can be specificed for URLs where no
  * file is set
+ * <p/>
+ * Files up to <code>maxCachedFileSize</code> bytes are kept in memory, up to <code>cacheSize</code> of them,
+ * the least recently used being dropped first. They are checked against the file system on every request and
+ * read again when their size or modification time changed. Larger files are not read into the message: the
+ * response writes them straight from the file, see {@link FileRegionOutputHandler}.
+ * <p/>
+ * Every response carries an <code>ETag</code> made of the size and modification time of the file and its
+ * <code>Last-Modified</code> date, so conditional requests that match them are answered with a 304. A request
+ * for a single byte range is answered with a 206 and that range; requests for several ranges get the whole file.
  */
 public class StaticResourceMessageProcessor implements MessageProcessor, Initialisable
 {
     public static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    public static final int DEFAULT_MAX_CACHED_FILE_SIZE = 64 * 1024;
+
+    private static final String BYTES_UNIT = "bytes";
+    private static final long[] UNSATISFIABLE_RANGE = new long[0];
+
+    private static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormat.forPattern(
+            "EEE, dd MMM yyyy HH:mm:ss 'GMT'").withZone(DateTimeZone.UTC).withLocale(Locale.US);
 
     private String resourceBase;
     private String defaultFile = "index.html";
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+    private int maxCachedFileSize = DEFAULT_MAX_CACHED_FILE_SIZE;
     private MimetypesFileTypeMap mimeTypes;
+    private BoundedConcurrentCache<String, Resource> cache;
 
     @Override
     public void initialise() throws InitialisationException
@@ -52,6 +81,10 @@ public class StaticResourceMessageProcessor implements MessageProcessor, Initial
         mimeTypes = new MimetypesFileTypeMap();
         mimeTypes.addMimeTypes("text/javascript js");
         mimeTypes.addMimeTypes("text/css css");
+        if (cacheSize > 0 && maxCachedFileSize > 0)
+        {
+            cache = new BoundedConcurrentCache<String, Resource>(cacheSize);
+        }
     }
 
     @Override
@@ -86,33 +119,231 @@ public class StaticResourceMessageProcessor implements MessageProcessor, Initial
             return resultEvent;
         }
 
-        InputStream in = null;
+        Resource resource;
         try
         {
-            in = new FileInputStream(file);
+            resource = getResource(file);
+        }
+        catch (IOException e)
+        {
+            throw new ResourceNotFoundException(HttpMessages.fileNotFound(resourceBase + path),event);
+        }
+
+        MuleMessage request = event.getMessage();
+        if (isNotModified(request, resource))
+        {
+            resultEvent = createResponse(event, NullPayload.getInstance(), HttpConstants.SC_NOT_MODIFIED, resource);
+            resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_CONTENT_LENGTH, 0);
+            return resultEvent;
+        }
+
+        long[] range = getRange(request, resource);
+        if (range == UNSATISFIABLE_RANGE)
+        {
+            resultEvent = createResponse(event, NullPayload.getInstance(), HttpConstants.SC_REQUESTED_RANGE_NOT_SATISFIABLE, resource);
+            resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_CONTENT_RANGE, BYTES_UNIT + " */" + resource.length);
+            resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_CONTENT_LENGTH, 0);
+            return resultEvent;
+        }
+
+        long first = range == null ? 0 : range[0];
+        long count = range == null ? resource.length : range[1] - range[0] + 1;
+        Object payload;
+        if (resource.content == null)
+        {
+            payload = new FileRegionOutputHandler(resource.file, first, count);
+        }
+        else if (range == null)
+        {
+            payload = resource.content;
+        }
+        else
+        {
+            payload = Arrays.copyOfRange(resource.content, (int) first, (int) (first + count));
+        }
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            IOUtils.copyLarge(in, baos);
+        resultEvent = createResponse(event, payload, range == null ? HttpConstants.SC_OK : HttpConstants.SC_PARTIAL_CONTENT, resource);
+        resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_CONTENT_TYPE, resource.mimeType);
+        resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_CONTENT_LENGTH, count);
+        if (range != null)
+        {
+            resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_CONTENT_RANGE,
+                    BYTES_UNIT + " " + range[0] + "-" + range[1] + "/" + resource.length);
+        }
+        return resultEvent;
+    }
+
+    private MuleEvent createResponse(MuleEvent event, Object payload, int status, Resource resource)
+    {
+        MuleEvent resultEvent = new DefaultMuleEvent(new DefaultMuleMessage(payload, event.getMuleContext()), event);
+        resultEvent.getMessage().setOutboundProperty(HttpConnector.HTTP_STATUS_PROPERTY, String.valueOf(status));
+        resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_ETAG, resource.etag);
+        resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_LAST_MODIFIED, resource.lastModifiedDate);
+        resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_ACCEPT_RANGES, BYTES_UNIT);
+        return resultEvent;
+    }
+
+    /**
+     * Returns the cached resource for a file if it is still current, or else reads
+     * the file again.
+     */
+    private Resource getResource(File file) throws IOException
+    {
+        if (!file.isFile() || !file.canRead())
+        {
+            throw new FileNotFoundException(file.getPath());
+        }
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String key = file.getPath();
+
+        Resource cached = cache == null ? null : cache.get(key);
+        if (cached != null && cached.length == length && cached.lastModified == lastModified)
+        {
+            return cached;
+        }
+
+        String mimeType = mimeTypes.getContentType(file);
+        if (mimeType == null)
+        {
+            mimeType = DEFAULT_MIME_TYPE;
+        }
+        if (cache == null || length > maxCachedFileSize)
+        {
+            return new Resource(file, length, lastModified, mimeType, null);
+        }
+
+        byte[] content;
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            content = IOUtils.toByteArray(in);
+        }
+        finally
+        {
+            in.close();
+        }
+        Resource resource = new Resource(file, content.length, lastModified, mimeType, content);
+        if (cached != null)
+        {
+            cache.remove(key);
+        }
+        cache.putIfAbsent(key, resource);
+        return resource;
+    }
 
-            byte[] buffer = baos.toByteArray();
+    private boolean isNotModified(MuleMessage request, Resource resource)
+    {
+        String ifNoneMatch = request.getInboundProperty(HttpConstants.HEADER_IF_NONE_MATCH);
+        if (ifNoneMatch != null)
+        {
+            return matchesETag(ifNoneMatch, resource.etag);
+        }
+        String ifModifiedSince = request.getInboundProperty(HttpConstants.HEADER_IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null)
+        {
+            long since = parseDate(ifModifiedSince);
+            // dates are sent in whole seconds
+            return since >= 0 && resource.lastModified / 1000 <= since / 1000;
+        }
+        return false;
+    }
 
-            String mimetype = mimeTypes.getContentType(file);
-            if (mimetype == null)
+    private boolean matchesETag(String header, String etag)
+    {
+        for (String candidate : header.split(","))
+        {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/"))
+            {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag))
             {
-                mimetype = DEFAULT_MIME_TYPE;
+                return true;
             }
+        }
+        return false;
+    }
 
-            resultEvent = new DefaultMuleEvent(new DefaultMuleMessage(buffer, event.getMuleContext()), event);
-            resultEvent.getMessage().setOutboundProperty(HttpConnector.HTTP_STATUS_PROPERTY, String.valueOf(HttpConstants.SC_OK));
-            resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_CONTENT_TYPE, mimetype);
-            resultEvent.getMessage().setOutboundProperty(HttpConstants.HEADER_CONTENT_LENGTH, buffer.length);
+    /**
+     * @return the first and last byte of the range requested, null if the whole
+     *         resource is to be sent, or {@link #UNSATISFIABLE_RANGE}
+     */
+    private long[] getRange(MuleMessage request, Resource resource)
+    {
+        String header = request.getInboundProperty(HttpConstants.HEADER_RANGE);
+        if (header == null || !header.startsWith(BYTES_UNIT + "=") || header.indexOf(',') != -1)
+        {
+            return null;
         }
-        catch (IOException e)
+        String ifRange = request.getInboundProperty(HttpConstants.HEADER_IF_RANGE);
+        if (ifRange != null && !ifRange.equals(resource.etag) && !ifRange.equals(resource.lastModifiedDate))
         {
-            throw new ResourceNotFoundException(HttpMessages.fileNotFound(resourceBase + path),event);
+            return null;
         }
 
-        return resultEvent;
+        String spec = header.substring(BYTES_UNIT.length() + 1).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1)
+        {
+            return null;
+        }
+        try
+        {
+            long first;
+            long last;
+            if (dash == 0)
+            {
+                long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix <= 0 || resource.length == 0)
+                {
+                    return UNSATISFIABLE_RANGE;
+                }
+                first = Math.max(0, resource.length - suffix);
+                last = resource.length - 1;
+            }
+            else
+            {
+                first = Long.parseLong(spec.substring(0, dash).trim());
+                String lastSpec = spec.substring(dash + 1).trim();
+                if (lastSpec.length() == 0)
+                {
+                    last = resource.length - 1;
+                }
+                else
+                {
+                    last = Long.parseLong(lastSpec);
+                    if (last < first)
+                    {
+                        // syntactically invalid, so ignored
+                        return null;
+                    }
+                    last = Math.min(last, resource.length - 1);
+                }
+                if (first >= resource.length)
+                {
+                    return UNSATISFIABLE_RANGE;
+                }
+            }
+            return new long[] {first, last};
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
+    }
+
+    private long parseDate(String date)
+    {
+        try
+        {
+            return HTTP_DATE_FORMAT.parseMillis(date.trim());
+        }
+        catch (IllegalArgumentException e)
+        {
+            return -1;
+        }
     }
 
     public String getResourceBase()
@@ -134,4 +365,56 @@ public class StaticResourceMessageProcessor implements MessageProcessor, Initial
     {
         this.defaultFile = defaultFile;
     }
+
+    public int getCacheSize()
+    {
+        return cacheSize;
+    }
+
+    /**
+     * @param cacheSize the number of files kept in memory, or 0 to keep none
+     */
+    public void setCacheSize(int cacheSize)
+    {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getMaxCachedFileSize()
+    {
+        return maxCachedFileSize;
+    }
+
+    /**
+     * @param maxCachedFileSize the size in bytes of the largest file kept in memory
+     */
+    public void setMaxCachedFileSize(int maxCachedFileSize)
+    {
+        this.maxCachedFileSize = maxCachedFileSize;
+    }
+
+    /**
+     * A file as it was when it was last read, with the headers that describe it.
+     */
+    private static final class Resource
+    {
+        final File file;
+        final long length;
+        final long lastModified;
+        final String mimeType;
+        final String etag;
+        final String lastModifiedDate;
+        // null when the file is too large to be kept in memory
+        final byte[] content;
+
+        Resource(File file, long length, long lastModified, String mimeType, byte[] content)
+        {
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.mimeType = mimeType;
+            this.content = content;
+            this.etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+            this.lastModifiedDate = HTTP_DATE_FORMAT.print(lastModified);
+        }
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.transport.http;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpParser;
+import org.apache.commons.httpclient.ProtocolException;
+import org.junit.Test;
+
+@SmallTest
+public class HttpHeaderParserTestCase extends AbstractMuleTestCase
+{
+
+    private static final String ENCODING = "UTF-8";
+
+    @Test
+    public void parsesHeadersEndedByCrLf() throws Exception
+    {
+        InputStream in = stream("Host: localhost\r\nContent-Length: 5\r\n\r\nhello");
+        Header[] headers = HttpHeaderParser.parseHeaders(in, ENCODING);
+
+        assertThat(headers.length, is(2));
+        assertHeader(headers[0], "Host", "localhost");
+        assertHeader(headers[1], "Content-Length", "5");
+        assertThat(in.read(), is((int) 'h'));
+    }
+
+    @Test
+    public void parsesHeadersEndedByLf() throws Exception
+    {
+        InputStream in = stream("Host: localhost\nAccept: */*\n\nbody");
+        Header[] headers = HttpHeaderParser.parseHeaders(in, ENCODING);
+
+        assertThat(headers.length, is(2));
+        assertHeader(headers[1], "Accept", "*/*");
+        assertThat(in.read(), is((int) 'b'));
+    }
+
+    @Test
+    public void knownNamesAreShared() throws Exception
+    {
+        Header[] headers = HttpHeaderParser.parseHeaders(stream("Content-Type: text/plain\r\n\r\n"), ENCODING);
+
+        assertThat(headers[0].getName(), sameInstance(HttpConstants.HEADER_CONTENT_TYPE));
+    }
+
+    @Test
+    public void nameCaseIsPreserved() throws Exception
+    {
+        Header[] headers = HttpHeaderParser.parseHeaders(stream("content-type: text/plain\r\nX-Custom: 1\r\n\r\n"), ENCODING);
+
+        assertHeader(headers[0], "content-type", "text/plain");
+        assertHeader(headers[1], "X-Custom", "1");
+    }
+
+    @Test
+    public void namesAndValuesAreTrimmed() throws Exception
+    {
+        Header[] headers = HttpHeaderParser.parseHeaders(stream("Host :  localhost \t\r\nEmpty:\r\n\r\n"), ENCODING);
+
+        assertHeader(headers[0], "Host", "localhost");
+        assertHeader(headers[1], "Empty", "");
+    }
+
+    @Test
+    public void continuationLinesAreAppended() throws Exception
+    {
+        Header[] headers = HttpHeaderParser.parseHeaders(stream("X-Folded: one\r\n  two\r\n\tthree\r\nHost: localhost\r\n\r\n"), ENCODING);
+
+        assertThat(headers.length, is(2));
+        assertHeader(headers[0], "X-Folded", "one two three");
+        assertHeader(headers[1], "Host", "localhost");
+    }
+
+    @Test
+    public void endOfStreamEndsHeaders() throws Exception
+    {
+        Header[] headers = HttpHeaderParser.parseHeaders(stream("Host: localhost\r\nAccept: */*"), ENCODING);
+
+        assertThat(headers.length, is(2));
+        assertHeader(headers[1], "Accept", "*/*");
+        assertThat(HttpHeaderParser.parseHeaders(stream(""), ENCODING).length, is(0));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void lineWithoutColonIsRejected() throws Exception
+    {
+        HttpHeaderParser.parseHeaders(stream("Host: localhost\r\nnot a header\r\n\r\n"), ENCODING);
+    }
+
+    @Test
+    public void headLargerThanBufferIsParsed() throws Exception
+    {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+        {
+            value.append((char) ('a' + i % 26));
+        }
+        Header[] headers = HttpHeaderParser.parseHeaders(stream("Cookie: " + value + "\r\nHost: localhost\r\n\r\n"), ENCODING);
+
+        assertHeader(headers[0], "Cookie", value.toString());
+        assertHeader(headers[1], "Host", "localhost");
+    }
+
+    @Test
+    public void valuesAreDecodedWithTheEncoding() throws Exception
+    {
+        Header[] headers = HttpHeaderParser.parseHeaders(new ByteArrayInputStream("X-Name: \u00e9t\u00e9\r\n\r\n".getBytes(ENCODING)), ENCODING);
+
+        assertHeader(headers[0], "X-Name", "\u00e9t\u00e9");
+    }
+
+    @Test
+    public void headersMatchThoseOfHttpParser() throws Exception
+    {
+        String head = "GET / HTTP/1.1\r\nHost: localhost:8080\r\nAccept: text/html, */*\r\nX-Folded: a\r\n b\r\n\r\n";
+        InputStream expectedIn = stream(head);
+        InputStream actualIn = stream(head);
+        HttpParser.readLine(expectedIn, ENCODING);
+        HttpHeaderParser.readLine(actualIn, ENCODING);
+
+        Header[] expected = HttpParser.parseHeaders(expectedIn, ENCODING);
+        Header[] actual = HttpHeaderParser.parseHeaders(actualIn, ENCODING);
+
+        assertThat(actual.length, is(expected.length));
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertHeader(actual[i], expected[i].getName(), expected[i].getValue());
+            assertThat(actual[i].toExternalForm(), is(expected[i].toExternalForm()));
+        }
+    }
+
+    @Test
+    public void valueCanBeReplaced() throws Exception
+    {
+        Header[] headers = HttpHeaderParser.parseHeaders(stream("Host: localhost\r\n\r\n"), ENCODING);
+        headers[0].setValue("example.com");
+
+        assertHeader(headers[0], "Host", "example.com");
+    }
+
+    @Test
+    public void readsLines() throws Exception
+    {
+        InputStream in = stream("GET / HTTP/1.1\r\n\r\nlast");
+
+        assertThat(HttpHeaderParser.readLine(in, ENCODING), is("GET / HTTP/1.1"));
+        assertThat(HttpHeaderParser.readLine(in, ENCODING), is(""));
+        assertThat(HttpHeaderParser.readLine(in, ENCODING), is("last"));
+        assertThat(HttpHeaderParser.readLine(in, ENCODING), nullValue());
+    }
+
+    private static InputStream stream(String s) throws IOException
+    {
+        return new ByteArrayInputStream(s.getBytes(ENCODING));
+    }
+
+    private static void assertHeader(Header header, String name, String value)
+    {
+        assertThat(header.getName(), is(name));
+        assertThat(header.getValue(), is(value));
+    }
+}
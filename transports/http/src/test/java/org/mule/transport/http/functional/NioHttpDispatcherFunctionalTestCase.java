@@ -0,0 +1,87 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http.functional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.client.MuleClient;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.transport.http.HttpConnector;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+public class NioHttpDispatcherFunctionalTestCase extends FunctionalTestCase
+{
+    private static final int TIMEOUT = 10000;
+
+    @Rule
+    public DynamicPort dynamicPort = new DynamicPort("port1");
+
+    @Override
+    protected String getConfigResources()
+    {
+        return "nio-http-dispatcher-config.xml";
+    }
+
+    @Test
+    public void dispatchedRequestsAreAllReceived() throws Exception
+    {
+        MuleClient client = muleContext.getClient();
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 20; i++)
+        {
+            expected.add("request " + i);
+            client.dispatch("vm://dispatch", "request " + i, null);
+        }
+
+        Set<String> received = new HashSet<String>();
+        for (int i = 0; i < 20; i++)
+        {
+            MuleMessage message = client.request("vm://received", TIMEOUT);
+            assertNotNull(message);
+            received.add(message.getPayloadAsString());
+        }
+        assertEquals(expected, received);
+    }
+
+    @Test
+    public void responseIsSentToReplyTo() throws Exception
+    {
+        MuleMessage result = muleContext.getClient().send("vm://requestReply", "hello", null);
+        assertEquals("hello received", result.getPayloadAsString());
+    }
+
+    @Test
+    public void errorStatusGoesToExceptionStrategy() throws Exception
+    {
+        MuleClient client = muleContext.getClient();
+        client.dispatch("vm://dispatchToMissingPath", "lost", null);
+
+        assertNotNull(client.request("vm://failed", TIMEOUT));
+    }
+
+    @Test
+    public void connectorIsConfigured()
+    {
+        HttpConnector connector = (HttpConnector) muleContext.getRegistry().lookupConnector("NioHttpConnector");
+        assertTrue(connector.isNioDispatcher());
+        assertEquals(2, connector.getNioMaxConnectionsPerHost());
+        assertEquals(4, connector.getNioMaxPipelinedRequests());
+        assertEquals(5000, connector.getNioConnectionIdleTimeout());
+    }
+}
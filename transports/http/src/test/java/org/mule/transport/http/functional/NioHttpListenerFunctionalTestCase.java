@@ -0,0 +1,131 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http.functional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.client.MuleClient;
+import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.transport.http.HttpConnector;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class NioHttpListenerFunctionalTestCase extends FunctionalTestCase
+{
+    @Rule
+    public DynamicPort dynamicPort = new DynamicPort("port1");
+
+    @Override
+    protected String getConfigResources()
+    {
+        return "nio-http-listener-config.xml";
+    }
+
+    @Test
+    public void keepAliveConnectionIsReused() throws Exception
+    {
+        MuleClient client = muleContext.getClient();
+        for (int i = 0; i < 3; i++)
+        {
+            MuleMessage result = client.send(getAddress(), "request " + i, null);
+            assertEquals("request " + i, result.getPayloadAsString());
+            assertEquals(200, result.getInboundProperty(HttpConnector.HTTP_STATUS_PROPERTY, 0));
+        }
+    }
+
+    @Test
+    public void largeBodyIsStreamed() throws Exception
+    {
+        byte[] body = new byte[512 * 1024];
+        Arrays.fill(body, (byte) 'a');
+
+        HttpClient client = new HttpClient();
+        PostMethod method = new PostMethod(getAddress());
+        method.setRequestEntity(new ByteArrayRequestEntity(body, "text/plain"));
+        try
+        {
+            assertEquals(200, client.executeMethod(method));
+            assertTrue(Arrays.equals(body, method.getResponseBody()));
+        }
+        finally
+        {
+            method.releaseConnection();
+        }
+    }
+
+    @Test
+    public void pipelinedRequestsAreAnsweredInOrder() throws Exception
+    {
+        Socket socket = new Socket("localhost", dynamicPort.getNumber());
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            out.write((request("first", false) + request("second", true)).getBytes());
+            out.flush();
+
+            String responses = IOUtils.toString(socket.getInputStream());
+            int first = responses.indexOf("first");
+            int second = responses.indexOf("second");
+            assertTrue(responses, first > 0);
+            assertTrue(responses, second > first);
+            assertEquals(responses, 2, responses.split("HTTP/1.1 200").length - 1);
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void oversizedHeadIsRejected() throws Exception
+    {
+        char[] value = new char[64 * 1024];
+        Arrays.fill(value, 'a');
+
+        Socket socket = new Socket("localhost", dynamicPort.getNumber());
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /echo HTTP/1.1\r\nHost: localhost\r\nX-Large: " + new String(value)).getBytes());
+            out.flush();
+
+            String response = IOUtils.toString(socket.getInputStream());
+            assertTrue(response, response.startsWith("HTTP/1.1 400"));
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    private String request(String body, boolean close)
+    {
+        return "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain\r\nContent-Length: " + body.length()
+               + "\r\n" + (close ? "Connection: close\r\n" : "") + "\r\n" + body;
+    }
+
+    private String getAddress()
+    {
+        return ((InboundEndpoint) muleContext.getRegistry().lookupObject("inEcho")).getAddress();
+    }
+}
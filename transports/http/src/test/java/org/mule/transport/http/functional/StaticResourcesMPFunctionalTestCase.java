@@ -127,6 +127,70 @@ public class StaticResourcesMPFunctionalTestCase extends FunctionalTestCase
         assertEquals(HttpConstants.SC_NOT_FOUND, responseCode);
     }
 
+    @Test
+    public void resourceWithMatchingETagShouldNotBeModified() throws Exception
+    {
+        String url = String.format("http://localhost:%d/static/main.html", port1.getNumber());
+        request(url);
+        assertEquals(HttpConstants.SC_OK, responseCode);
+        String etag = method.getResponseHeader(HttpConstants.HEADER_ETAG).getValue();
+
+        request(url, HttpConstants.HEADER_IF_NONE_MATCH, etag);
+        assertEquals(HttpConstants.SC_NOT_MODIFIED, responseCode);
+        assertEquals(etag, method.getResponseHeader(HttpConstants.HEADER_ETAG).getValue());
+
+        request(url, HttpConstants.HEADER_IF_NONE_MATCH, "\"other\"");
+        assertEquals(HttpConstants.SC_OK, responseCode);
+        assertEquals("Test main.html", payload);
+    }
+
+    @Test
+    public void resourceNotModifiedSinceShouldNotBeModified() throws Exception
+    {
+        String url = String.format("http://localhost:%d/static/main.html", port1.getNumber());
+        request(url);
+        String lastModified = method.getResponseHeader(HttpConstants.HEADER_LAST_MODIFIED).getValue();
+
+        request(url, HttpConstants.HEADER_IF_MODIFIED_SINCE, lastModified);
+        assertEquals(HttpConstants.SC_NOT_MODIFIED, responseCode);
+    }
+
+    @Test
+    public void byteRangeShouldReturnPartialContent() throws Exception
+    {
+        for (String path : new String[] {"static", "uncached"})
+        {
+            String url = String.format("http://localhost:%d/%s/main.html", port1.getNumber(), path);
+            request(url, HttpConstants.HEADER_RANGE, "bytes=5-8");
+            assertEquals(HttpConstants.SC_PARTIAL_CONTENT, responseCode);
+            assertEquals("main", payload);
+            assertEquals("bytes 5-8/14", method.getResponseHeader(HttpConstants.HEADER_CONTENT_RANGE).getValue());
+
+            request(url, HttpConstants.HEADER_RANGE, "bytes=-4");
+            assertEquals(HttpConstants.SC_PARTIAL_CONTENT, responseCode);
+            assertEquals("html", payload);
+        }
+    }
+
+    @Test
+    public void unsatisfiableRangeShouldBeRejected() throws Exception
+    {
+        String url = String.format("http://localhost:%d/static/main.html", port1.getNumber());
+        request(url, HttpConstants.HEADER_RANGE, "bytes=100-");
+        assertEquals(HttpConstants.SC_REQUESTED_RANGE_NOT_SATISFIABLE, responseCode);
+        assertEquals("bytes */14", method.getResponseHeader(HttpConstants.HEADER_CONTENT_RANGE).getValue());
+    }
+
+    @Test
+    public void uncachedResourceShouldBeWrittenFromFile() throws Exception
+    {
+        String url = String.format("http://localhost:%d/uncached/main.html", port1.getNumber());
+        request(url);
+        assertEquals(HttpConstants.SC_OK, responseCode);
+        assertEquals("Test main.html", payload);
+        assertEquals("14", method.getResponseHeader(HttpConstants.HEADER_CONTENT_LENGTH).getValue());
+    }
+
     private void request(String url) throws Exception
     {
         method = new GetMethod(url);
@@ -134,6 +198,14 @@ public class StaticResourcesMPFunctionalTestCase extends FunctionalTestCase
         payload = method.getResponseBodyAsString();
     }
 
+    private void request(String url, String header, String value) throws Exception
+    {
+        method = new GetMethod(url);
+        method.setRequestHeader(header, value);
+        responseCode = new HttpClient().executeMethod(method);
+        payload = method.getResponseBodyAsString();
+    }
+
     private void assertResponseContentType(String contentType)
     {
         assertEquals(contentType, method.getResponseHeader("Content-Type").getValue());
@@ -62,6 +62,25 @@ public class SslConnector extends TcpConnector
         setValidateConnections(false);
     }
 
+    /**
+     * SSL connections are always read by a thread of their own, as the NIO receiver
+     * needs a plain socket channel.
+     */
+    @Override
+    public boolean isNioReceiver()
+    {
+        return false;
+    }
+
+    /**
+     * SSL messages are always sent over pooled blocking sockets.
+     */
+    @Override
+    public boolean isNioDispatcher()
+    {
+        return false;
+    }
+
     @Override
     protected void doInitialise() throws InitialisationException
     {
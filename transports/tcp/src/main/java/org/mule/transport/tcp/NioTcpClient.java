@@ -0,0 +1,275 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends messages over non-blocking connections that a single selector thread writes
+ * and reads, so that a message waiting for its response holds no thread.
+ * <p/>
+ * Connections are pooled by host and port, up to a maximum per host; messages that
+ * find no connection free wait in the queue of the pool. When more than one message
+ * may be pipelined, messages are also written on connections still waiting for
+ * earlier responses once the pool is full, and the responses are matched to them in
+ * order. Connections that waited for no message for longer than the idle timeout are
+ * closed.
+ * <p/>
+ * Pools and connections are only used by the selector thread; other threads hand it
+ * messages with {@link #send(NioTcpExchange)}.
+ */
+class NioTcpClient extends NioTcpSelector
+{
+
+    private final TcpConnector connector;
+    private final NioTcpProtocol protocol;
+    private final int maxConnectionsPerHost;
+    private final int maxPipelinedRequests;
+    private final long idleTimeout;
+    private final Map<InetSocketAddress, HostPool> pools = new HashMap<InetSocketAddress, HostPool>();
+
+    /**
+     * @param idleTimeout milliseconds a connection is kept open without a message, or
+     *            0 for no limit
+     */
+    NioTcpClient(TcpConnector connector, int maxConnectionsPerHost, int maxPipelinedRequests, long idleTimeout)
+            throws IOException
+    {
+        this.connector = connector;
+        this.protocol = (NioTcpProtocol) connector.getTcpProtocol();
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.maxPipelinedRequests = maxPipelinedRequests;
+        this.idleTimeout = idleTimeout;
+    }
+
+    long getIdleTimeout()
+    {
+        return idleTimeout;
+    }
+
+    /**
+     * Sends a message. It is completed or failed later by the selector thread.
+     */
+    void send(final NioTcpExchange exchange)
+    {
+        execute(new Runnable()
+        {
+            public void run()
+            {
+                if (isStopped())
+                {
+                    exchange.fail(new IOException("The TCP client has been stopped"));
+                    return;
+                }
+                HostPool pool = pools.get(exchange.getAddress());
+                if (pool == null)
+                {
+                    pool = new HostPool(exchange.getAddress());
+                    pools.put(exchange.getAddress(), pool);
+                }
+                pool.pending.add(exchange);
+                pool.dispatchPending();
+            }
+        });
+    }
+
+    /**
+     * Fails a message that has not been completed in time, closing the connection it
+     * was sent on.
+     */
+    void cancel(final NioTcpExchange exchange, final IOException cause)
+    {
+        execute(new Runnable()
+        {
+            public void run()
+            {
+                if (exchange.isDone())
+                {
+                    return;
+                }
+                NioTcpClientConnection connection = exchange.getConnection();
+                if (connection != null)
+                {
+                    connection.cancel(exchange, cause);
+                    return;
+                }
+                HostPool pool = pools.get(exchange.getAddress());
+                if (pool != null)
+                {
+                    pool.pending.remove(exchange);
+                }
+                exchange.fail(cause);
+            }
+        });
+    }
+
+    /**
+     * Called by a connection when it can take more messages.
+     */
+    void connectionAvailable(NioTcpClientConnection connection)
+    {
+        HostPool pool = pools.get(connection.getAddress());
+        if (pool != null)
+        {
+            pool.dispatchPending();
+        }
+    }
+
+    /**
+     * Called by a connection once it has been closed and its messages failed.
+     */
+    void connectionClosed(NioTcpClientConnection connection)
+    {
+        HostPool pool = pools.get(connection.getAddress());
+        if (pool == null || !pool.connections.remove(connection))
+        {
+            return;
+        }
+        if (!isStopped())
+        {
+            pool.dispatchPending();
+        }
+    }
+
+    private NioTcpClientConnection open(InetSocketAddress address) throws IOException
+    {
+        if (address.isUnresolved())
+        {
+            throw new UnknownHostException(address.getHostName());
+        }
+        SocketChannel channel = SocketChannel.open();
+        try
+        {
+            channel.configureBlocking(false);
+            channel.socket().setReuseAddress(true);
+            connector.configureSocket(TcpConnector.CLIENT, channel.socket());
+            boolean connected = channel.connect(address);
+            NioTcpClientConnection connection = new NioTcpClientConnection(this, channel, address, protocol, !connected);
+            register(connection, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT);
+            return connection;
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void expire(long now)
+    {
+        super.expire(now);
+        for (HostPool pool : new ArrayList<HostPool>(pools.values()))
+        {
+            if (pool.connections.isEmpty() && pool.pending.isEmpty())
+            {
+                pools.remove(pool.address);
+            }
+        }
+    }
+
+    @Override
+    protected void close()
+    {
+        super.close();
+        for (HostPool pool : pools.values())
+        {
+            for (NioTcpExchange exchange : pool.pending)
+            {
+                exchange.fail(new IOException("The TCP client has been stopped"));
+            }
+            pool.pending.clear();
+        }
+        pools.clear();
+    }
+
+    /**
+     * The connections to a host and the messages waiting for one.
+     */
+    private class HostPool
+    {
+        private final InetSocketAddress address;
+        private final List<NioTcpClientConnection> connections = new ArrayList<NioTcpClientConnection>();
+        private final Deque<NioTcpExchange> pending = new ArrayDeque<NioTcpExchange>();
+
+        HostPool(InetSocketAddress address)
+        {
+            this.address = address;
+        }
+
+        void dispatchPending()
+        {
+            while (!pending.isEmpty())
+            {
+                NioTcpExchange exchange = pending.peek();
+                NioTcpClientConnection connection;
+                try
+                {
+                    connection = getConnection(exchange);
+                }
+                catch (IOException e)
+                {
+                    pending.poll();
+                    exchange.fail(e);
+                    continue;
+                }
+                if (connection == null)
+                {
+                    return;
+                }
+                pending.poll();
+                connection.send(exchange);
+            }
+        }
+
+        /**
+         * @return an idle connection, else a new one if the pool is not full, else one
+         *         the message can be pipelined on, else null
+         */
+        private NioTcpClientConnection getConnection(NioTcpExchange exchange) throws IOException
+        {
+            NioTcpClientConnection pipelined = null;
+            for (NioTcpClientConnection connection : connections)
+            {
+                if (connection.isIdle())
+                {
+                    return connection;
+                }
+                if (pipelined == null && maxPipelinedRequests > 1
+                    && connection.canPipeline(exchange, maxPipelinedRequests))
+                {
+                    pipelined = connection;
+                }
+            }
+            if (connections.size() < maxConnectionsPerHost)
+            {
+                NioTcpClientConnection connection = open(address);
+                if (connection.isClosed())
+                {
+                    throw new IOException("Failed to register the connection to " + address);
+                }
+                connections.add(connection);
+                return connection;
+            }
+            return pipelined;
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A connection of a {@link NioTcpClient}. Messages are written in the order they are
+ * sent, and the messages read back are taken to be the responses of those waiting
+ * for one, in the same order.
+ */
+class NioTcpClientConnection extends NioTcpConnection
+{
+
+    private final NioTcpClient client;
+    private final InetSocketAddress address;
+    // sent, and not yet written whole
+    private final Deque<NioTcpExchange> writing = new ArrayDeque<NioTcpExchange>();
+    // written, and waiting for their response
+    private final Deque<NioTcpExchange> waiting = new ArrayDeque<NioTcpExchange>();
+    private boolean reusable = true;
+
+    NioTcpClientConnection(NioTcpClient client, SocketChannel channel, InetSocketAddress address,
+                           NioTcpProtocol protocol, boolean connecting)
+    {
+        super(client, channel, protocol, connecting);
+        this.client = client;
+        this.address = address;
+    }
+
+    InetSocketAddress getAddress()
+    {
+        return address;
+    }
+
+    /**
+     * @return true if a message can be sent without waiting behind another
+     */
+    boolean isIdle()
+    {
+        return reusable && !isClosed() && writing.isEmpty() && waiting.isEmpty();
+    }
+
+    /**
+     * @return true if the message can be sent behind the others in progress, up to
+     *         <code>max</code> messages in all
+     */
+    boolean canPipeline(NioTcpExchange exchange, int max)
+    {
+        return reusable && !isClosed() && exchange.isKeepConnection()
+               && writing.size() + waiting.size() < max;
+    }
+
+    void send(NioTcpExchange exchange)
+    {
+        exchange.setConnection(this);
+        if (!exchange.isKeepConnection())
+        {
+            reusable = false;
+        }
+        writing.add(exchange);
+        write(exchange.getMessage());
+    }
+
+    @Override
+    protected void written(ByteBuffer data)
+    {
+        NioTcpExchange exchange = writing.poll();
+        if (exchange.isResponseExpected())
+        {
+            waiting.add(exchange);
+        }
+        else
+        {
+            exchange.complete(null);
+            done();
+        }
+    }
+
+    @Override
+    protected void received(Object message)
+    {
+        NioTcpExchange exchange = waiting.poll();
+        if (exchange == null)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Discarding a message from " + address + " that no request is waiting for");
+            }
+            return;
+        }
+        exchange.complete(message);
+        done();
+    }
+
+    /**
+     * Closes the connection if it is not to be reused once its messages are done,
+     * or lets the client send another message on it.
+     */
+    private void done()
+    {
+        if (!writing.isEmpty() || !waiting.isEmpty())
+        {
+            return;
+        }
+        if (!reusable)
+        {
+            closeWhenFlushed();
+        }
+        else
+        {
+            client.connectionAvailable(this);
+        }
+    }
+
+    @Override
+    protected void inputEnded()
+    {
+        close(waiting.isEmpty() && writing.isEmpty()
+              ? null
+              : new IOException("Connection to " + address + " closed before the response was read"));
+    }
+
+    /**
+     * Fails a message that has not been completed in time. The connection is closed
+     * along with any other messages on it, as a late response would be taken for
+     * the response of the next message.
+     */
+    void cancel(NioTcpExchange exchange, IOException cause)
+    {
+        if (writing.contains(exchange) || waiting.contains(exchange))
+        {
+            exchange.fail(cause);
+            close(new IOException("Connection to " + address + " closed as a response did not arrive in time"));
+        }
+    }
+
+    @Override
+    void expire(long now)
+    {
+        long idleTimeout = client.getIdleTimeout();
+        if (idleTimeout > 0 && isIdle() && now - lastActive >= idleTimeout)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing idle connection to " + address);
+            }
+            close(null);
+        }
+    }
+
+    @Override
+    protected void closed(IOException cause)
+    {
+        List<NioTcpExchange> unfinished = new ArrayList<NioTcpExchange>(waiting);
+        unfinished.addAll(writing);
+        waiting.clear();
+        writing.clear();
+        IOException failure = cause != null ? cause : new IOException("Connection to " + address + " closed");
+        for (NioTcpExchange exchange : unfinished)
+        {
+            exchange.fail(failure);
+        }
+        client.connectionClosed(this);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "connection to " + address;
+    }
+
+}
@@ -0,0 +1,428 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A non-blocking connection run by a {@link NioTcpSelector}. Data read are framed
+ * into messages with a {@link NioTcpProtocol} straight out of the read buffer of the
+ * selector; only the start of a message that has not been read whole is copied into
+ * a buffer of the connection, so an idle connection holds no buffer. Data written
+ * are queued and written as the channel takes them.
+ * <p/>
+ * Only used by the selector thread.
+ */
+abstract class NioTcpConnection
+{
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    // data read from one connection before the selector moves on to the others
+    private static final int MAX_READ_PER_SELECT = 64 * 1024;
+    private static final int MIN_INPUT_SIZE = 1024;
+
+    protected final NioTcpSelector selector;
+    protected final SocketChannel channel;
+    protected final NioTcpProtocol protocol;
+    private SelectionKey key;
+
+    // data read but not yet framed, in write mode, or null when there are none
+    private ByteBuffer input;
+    private final Deque<ByteBuffer> output = new ArrayDeque<ByteBuffer>();
+    private boolean connecting;
+    private boolean endOfStream = false;
+    private boolean inputEnded = false;
+    private boolean readPaused = false;
+    private boolean closeWhenFlushed = false;
+    private boolean closed = false;
+    protected long lastActive = System.currentTimeMillis();
+
+    NioTcpConnection(NioTcpSelector selector, SocketChannel channel, NioTcpProtocol protocol, boolean connecting)
+    {
+        this.selector = selector;
+        this.channel = channel;
+        this.protocol = protocol;
+        this.connecting = connecting;
+    }
+
+    SocketChannel getChannel()
+    {
+        return channel;
+    }
+
+    void registered(SelectionKey key)
+    {
+        this.key = key;
+        updateInterest();
+    }
+
+    /**
+     * Called by the selector when the channel is ready for the operations of
+     * interest.
+     */
+    void ready(ByteBuffer readBuffer)
+    {
+        if (key.isConnectable())
+        {
+            try
+            {
+                channel.finishConnect();
+                connecting = false;
+                lastActive = System.currentTimeMillis();
+                flush();
+                updateInterest();
+            }
+            catch (IOException e)
+            {
+                close(e);
+            }
+            return;
+        }
+        if (key.isWritable())
+        {
+            flush();
+        }
+        if (!closed && key.isValid() && key.isReadable())
+        {
+            read(readBuffer);
+        }
+    }
+
+    private void read(ByteBuffer readBuffer)
+    {
+        lastActive = System.currentTimeMillis();
+        int total = 0;
+        try
+        {
+            boolean more = true;
+            while (more && !closed)
+            {
+                readBuffer.clear();
+                int count = channel.read(readBuffer);
+                if (count < 0)
+                {
+                    endOfStream = true;
+                    more = false;
+                }
+                else
+                {
+                    total += count;
+                    // a full buffer means there may be more waiting
+                    more = !readBuffer.hasRemaining() && total < MAX_READ_PER_SELECT;
+                }
+                readBuffer.flip();
+                if (more)
+                {
+                    append(readBuffer);
+                }
+                else
+                {
+                    // all the data available for now have been read
+                    frame(readBuffer);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing " + this + ": " + e.getMessage());
+            }
+            close(e);
+        }
+    }
+
+    /**
+     * Frames the messages of the data just read, after those read before.
+     */
+    private void frame(ByteBuffer data) throws IOException
+    {
+        if (input == null)
+        {
+            frameFrom(data);
+            if (data.hasRemaining())
+            {
+                append(data);
+            }
+        }
+        else
+        {
+            append(data);
+            input.flip();
+            try
+            {
+                frameFrom(input);
+            }
+            finally
+            {
+                input.compact();
+                if (input.position() == 0)
+                {
+                    input = null;
+                }
+            }
+        }
+
+        if (endOfStream && !readPaused && !inputEnded && !closed)
+        {
+            inputEnded = true;
+            if (input != null)
+            {
+                logger.warn("Discarding " + input.position() + " bytes left unframed when " + this + " was closed by the other end");
+                input = null;
+            }
+            inputEnded();
+        }
+        if (!closed)
+        {
+            updateInterest();
+        }
+    }
+
+    private void frameFrom(ByteBuffer buffer) throws IOException
+    {
+        while (!readPaused && !closed)
+        {
+            int start = buffer.position();
+            Object message = protocol.read(buffer, endOfStream);
+            if (message == null)
+            {
+                return;
+            }
+            received(message);
+            if (buffer.position() == start)
+            {
+                // nothing more can be framed from these data
+                return;
+            }
+        }
+    }
+
+    private void append(ByteBuffer data)
+    {
+        if (!data.hasRemaining())
+        {
+            return;
+        }
+        if (input == null)
+        {
+            input = ByteBuffer.allocate(Math.max(MIN_INPUT_SIZE, data.remaining() * 2));
+        }
+        else if (input.remaining() < data.remaining())
+        {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(input.capacity() * 2, input.position() + data.remaining()));
+            input.flip();
+            larger.put(input);
+            input = larger;
+        }
+        input.put(data);
+    }
+
+    /**
+     * Stops reading until {@link #resumeReading()}, leaving the data already read
+     * to be framed then.
+     */
+    protected void pauseReading()
+    {
+        readPaused = true;
+        updateInterest();
+    }
+
+    protected void resumeReading()
+    {
+        if (!readPaused || closed)
+        {
+            return;
+        }
+        readPaused = false;
+        try
+        {
+            frame(ByteBuffer.allocate(0));
+        }
+        catch (IOException e)
+        {
+            close(e);
+        }
+    }
+
+    protected boolean isReadPaused()
+    {
+        return readPaused;
+    }
+
+    /**
+     * @return true once the other end has closed the connection and every message
+     *         read has been framed
+     */
+    protected boolean isInputEnded()
+    {
+        return inputEnded;
+    }
+
+    /**
+     * Queues data to be written.
+     */
+    protected void write(ByteBuffer data)
+    {
+        if (closed)
+        {
+            return;
+        }
+        output.add(data);
+        flush();
+        if (!closed)
+        {
+            updateInterest();
+        }
+    }
+
+    protected boolean isFlushed()
+    {
+        return output.isEmpty();
+    }
+
+    private void flush()
+    {
+        if (connecting || closed)
+        {
+            return;
+        }
+        try
+        {
+            while (!output.isEmpty())
+            {
+                ByteBuffer data = output.peek();
+                channel.write(data);
+                if (data.hasRemaining())
+                {
+                    break;
+                }
+                output.poll();
+                lastActive = System.currentTimeMillis();
+                written(data);
+            }
+        }
+        catch (IOException e)
+        {
+            close(e);
+            return;
+        }
+        if (closeWhenFlushed && output.isEmpty())
+        {
+            close(null);
+        }
+        else if (!closed)
+        {
+            updateInterest();
+        }
+    }
+
+    /**
+     * Closes the connection once the data queued have been written.
+     */
+    protected void closeWhenFlushed()
+    {
+        closeWhenFlushed = true;
+        if (output.isEmpty())
+        {
+            close(null);
+        }
+    }
+
+    private void updateInterest()
+    {
+        if (key == null || !key.isValid())
+        {
+            return;
+        }
+        int ops;
+        if (connecting)
+        {
+            ops = SelectionKey.OP_CONNECT;
+        }
+        else
+        {
+            ops = (endOfStream || readPaused ? 0 : SelectionKey.OP_READ)
+                  | (output.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+        }
+        key.interestOps(ops);
+    }
+
+    boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * @param cause why the connection is closed, or null if it is closed normally
+     */
+    void close(IOException cause)
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        input = null;
+        output.clear();
+        if (key != null)
+        {
+            key.cancel();
+        }
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            logger.debug("(Ignored) Error closing " + this + ": " + e.getMessage());
+        }
+        closed(cause);
+    }
+
+    /**
+     * Called with each message framed.
+     */
+    protected abstract void received(Object message);
+
+    /**
+     * Called once the other end has closed the connection and every message read
+     * has been passed to {@link #received(Object)}.
+     */
+    protected abstract void inputEnded();
+
+    /**
+     * Called when data queued with {@link #write(ByteBuffer)} have been written.
+     */
+    protected void written(ByteBuffer data)
+    {
+        // template method
+    }
+
+    /**
+     * Called once when the connection has been closed.
+     */
+    protected abstract void closed(IOException cause);
+
+    /**
+     * Closes the connection if it has been idle for too long.
+     */
+    abstract void expire(long now);
+
+}
@@ -0,0 +1,140 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A message sent by a {@link NioTcpClient}, and its response if one is expected.
+ * <p/>
+ * It is completed or failed once, by the selector thread of the client, while the
+ * thread that sent it waits in {@link #await(long)}.
+ */
+class NioTcpExchange
+{
+
+    private final InetSocketAddress address;
+    private final ByteBuffer message;
+    private final boolean responseExpected;
+    private final boolean keepConnection;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private NioTcpClientConnection connection;
+    private volatile Object response;
+    private volatile IOException failure;
+
+    /**
+     * @param address where to connect to
+     * @param message the data to write, as framed by the protocol
+     * @param responseExpected true if a message is to be read back
+     * @param keepConnection false if the connection is to be closed once the message
+     *            has been written or its response read
+     */
+    NioTcpExchange(InetSocketAddress address, byte[] message, boolean responseExpected, boolean keepConnection)
+    {
+        this.address = address;
+        this.message = ByteBuffer.wrap(message);
+        this.responseExpected = responseExpected;
+        this.keepConnection = keepConnection;
+    }
+
+    InetSocketAddress getAddress()
+    {
+        return address;
+    }
+
+    ByteBuffer getMessage()
+    {
+        return message;
+    }
+
+    boolean isResponseExpected()
+    {
+        return responseExpected;
+    }
+
+    boolean isKeepConnection()
+    {
+        return keepConnection;
+    }
+
+    NioTcpClientConnection getConnection()
+    {
+        return connection;
+    }
+
+    void setConnection(NioTcpClientConnection connection)
+    {
+        this.connection = connection;
+    }
+
+    boolean isDone()
+    {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * @param response the message read back, or null if none was expected
+     */
+    void complete(Object response)
+    {
+        if (!isDone())
+        {
+            this.response = response;
+            done.countDown();
+        }
+    }
+
+    void fail(IOException cause)
+    {
+        if (!isDone())
+        {
+            this.failure = cause;
+            done.countDown();
+        }
+    }
+
+    /**
+     * @param timeout milliseconds to wait, or 0 or less to wait for as long as it takes
+     * @return true if the exchange is done, false if the time ran out
+     */
+    boolean await(long timeout) throws InterruptedException
+    {
+        if (timeout > 0)
+        {
+            return done.await(timeout, TimeUnit.MILLISECONDS);
+        }
+        done.await();
+        return true;
+    }
+
+    /**
+     * @return the response read back
+     * @throws IOException why the message could not be sent or its response read
+     */
+    Object getResponse() throws IOException
+    {
+        if (failure != null)
+        {
+            throw failure;
+        }
+        return response;
+    }
+
+    @Override
+    public String toString()
+    {
+        return message.capacity() + " bytes to " + address;
+    }
+
+}
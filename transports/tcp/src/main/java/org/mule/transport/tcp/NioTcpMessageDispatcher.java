@@ -0,0 +1,153 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.endpoint.OutboundEndpoint;
+import org.mule.transport.AbstractMessageDispatcher;
+import org.mule.transport.NullPayload;
+import org.mule.util.MapUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+
+/**
+ * <code>NioTcpMessageDispatcher</code> sends messages with the {@link NioTcpClient}
+ * of the connector rather than over pooled blocking sockets. The client keeps a few
+ * connections to each host open, and when the connector allows more than one
+ * pipelined request, writes a message on a connection still waiting for earlier
+ * responses once every connection is in use, so that many dispatcher threads share
+ * few connections.
+ * <p/>
+ * The dispatcher thread still waits for the message to be written, and for its
+ * response when one is expected. A response that does not arrive in time closes the
+ * connection, as it could not be told apart from the responses of the messages
+ * pipelined behind it.
+ */
+public class NioTcpMessageDispatcher extends AbstractMessageDispatcher
+{
+
+    private final TcpConnector connector;
+    private InetSocketAddress address;
+
+    public NioTcpMessageDispatcher(OutboundEndpoint endpoint)
+    {
+        super(endpoint);
+        this.connector = (TcpConnector) endpoint.getConnector();
+    }
+
+    @Override
+    protected void doConnect() throws Exception
+    {
+        URI uri = endpoint.getEndpointURI().getUri();
+        address = new InetSocketAddress(uri.getHost(), uri.getPort());
+        if (address.isUnresolved())
+        {
+            throw new UnknownHostException(uri.getHost());
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception
+    {
+        //nothing to do
+    }
+
+    @Override
+    protected void doDispose()
+    {
+        //nothing to do, connections belong to the client of the connector
+    }
+
+    @Override
+    protected void doDispatch(MuleEvent event) throws Exception
+    {
+        NioTcpExchange exchange = send(event, false);
+        await(exchange, event);
+        exchange.getResponse();
+    }
+
+    @Override
+    protected MuleMessage doSend(MuleEvent event) throws Exception
+    {
+        boolean responseExpected = returnResponse(event);
+        NioTcpExchange exchange = send(event, responseExpected);
+        Object result;
+        try
+        {
+            await(exchange, event);
+            result = exchange.getResponse();
+        }
+        catch (SocketTimeoutException e)
+        {
+            if (!responseExpected)
+            {
+                throw e;
+            }
+            // we don't necessarily expect to receive a response here
+            logger.info("Socket timed out normally while doing a synchronous receive on endpointUri: "
+                + endpoint.getEndpointURI());
+            return new DefaultMuleMessage(NullPayload.getInstance(), connector.getMuleContext());
+        }
+
+        if (result == null)
+        {
+            return new DefaultMuleMessage(NullPayload.getInstance(), connector.getMuleContext());
+        }
+        if (result instanceof MuleMessage)
+        {
+            return (MuleMessage) result;
+        }
+        return createMuleMessage(result, endpoint.getEncoding());
+    }
+
+    private NioTcpExchange send(MuleEvent event, boolean responseExpected) throws Exception
+    {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        connector.getTcpProtocol().write(message, event.getMessage().getPayload());
+        boolean keepConnection = MapUtils.getBooleanValue(endpoint.getProperties(),
+            TcpConnector.KEEP_SEND_SOCKET_OPEN_PROPERTY, connector.isKeepSendSocketOpen());
+
+        NioTcpExchange exchange = new NioTcpExchange(address, message.toByteArray(), responseExpected, keepConnection);
+        connector.getNioTcpClient().send(exchange);
+        return exchange;
+    }
+
+    /**
+     * Waits for the exchange to be done, cancelling it if it is not done in time.
+     */
+    private void await(NioTcpExchange exchange, MuleEvent event) throws Exception
+    {
+        int timeout = endpoint.getResponseTimeout() != 0 ? endpoint.getResponseTimeout() : event.getTimeout();
+        boolean done;
+        try
+        {
+            done = exchange.await(timeout);
+        }
+        catch (InterruptedException e)
+        {
+            connector.getNioTcpClient().cancel(exchange, new SocketTimeoutException("Interrupted while sending " + exchange));
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        if (!done)
+        {
+            SocketTimeoutException e = new SocketTimeoutException("Timed out after " + timeout + "ms sending " + exchange);
+            connector.getNioTcpClient().cancel(exchange, e);
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.lifecycle.CreateException;
+import org.mule.api.transport.Connector;
+import org.mule.transport.ConnectException;
+import org.mule.util.concurrent.ThreadNameHelper;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkManager;
+
+/**
+ * <code>NioTcpMessageReceiver</code> accepts connections on a server socket channel
+ * and has them read by a few {@link NioTcpSelector} threads rather than each by a
+ * thread of its own. A connection only takes a receiver thread while messages it has
+ * sent are processed, so idle connections cost a selection key and no thread or
+ * buffer.
+ * <p/>
+ * Messages are framed with the {@link NioTcpProtocol} of the connector, out of the
+ * data buffered by the selector, so a streaming protocol buffers the whole stream
+ * before it is processed. Connections are closed once they have been idle for the
+ * keep alive timeout of the connector, or its server socket timeout if there is none.
+ * <p/>
+ * While every receiver thread is busy, a selector waits for one as the blocking
+ * receiver does, which holds back the other connections it reads.
+ */
+public class NioTcpMessageReceiver extends TcpMessageReceiver
+{
+
+    private NioTcpSelector[] selectors;
+    private final AtomicInteger nextSelector = new AtomicInteger();
+
+    public NioTcpMessageReceiver(Connector connector, FlowConstruct flowConstruct, InboundEndpoint endpoint)
+            throws CreateException
+    {
+        super(connector, flowConstruct, endpoint);
+    }
+
+    @Override
+    protected void doConnect() throws ConnectException
+    {
+        TcpConnector tcpConnector = (TcpConnector) connector;
+        selectors = new NioTcpSelector[tcpConnector.getNioSelectorThreads()];
+        String threadNamePrefix = ThreadNameHelper.getPrefix(connector.getMuleContext()) + "tcp.selector."
+                                  + endpoint.getEndpointURI().getPort() + ".";
+        try
+        {
+            for (int i = 0; i < selectors.length; i++)
+            {
+                selectors[i] = new NioTcpSelector();
+                Thread thread = new Thread(selectors[i], threadNamePrefix + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        catch (IOException e)
+        {
+            stopSelectors();
+            throw new ConnectException(e, this);
+        }
+        try
+        {
+            super.doConnect();
+        }
+        catch (ConnectException e)
+        {
+            stopSelectors();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws ConnectException
+    {
+        super.doDisconnect();
+        stopSelectors();
+    }
+
+    @Override
+    protected void doDispose()
+    {
+        super.doDispose();
+        stopSelectors();
+    }
+
+    private void stopSelectors()
+    {
+        if (selectors == null)
+        {
+            return;
+        }
+        for (NioTcpSelector selector : selectors)
+        {
+            if (selector != null)
+            {
+                selector.stop();
+            }
+        }
+        selectors = null;
+    }
+
+    /**
+     * The socket of a server socket channel, so that accepted sockets have a channel.
+     */
+    @Override
+    protected ServerSocket createServerSocket(URI uri) throws IOException
+    {
+        return ((TcpConnector) connector).getServerSocketChannel(uri).socket();
+    }
+
+    @Override
+    protected void accepted(Socket socket) throws Exception
+    {
+        TcpConnector tcpConnector = (TcpConnector) connector;
+        SocketChannel channel = socket.getChannel();
+        NioTcpSelector[] selectors = this.selectors;
+        if (selectors == null)
+        {
+            socket.close();
+            return;
+        }
+        NioTcpSelector selector = selectors[(nextSelector.getAndIncrement() & Integer.MAX_VALUE) % selectors.length];
+        try
+        {
+            tcpConnector.configureSocket(TcpConnector.SERVER, socket);
+            channel.configureBlocking(false);
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to configure accepted connection: " + e.getMessage(), e);
+            socket.close();
+            return;
+        }
+        selector.register(new NioTcpServerConnection(this, selector, channel,
+            (NioTcpProtocol) tcpConnector.getTcpProtocol(), getIdleTimeout()));
+    }
+
+    private long getIdleTimeout()
+    {
+        TcpConnector tcpConnector = (TcpConnector) connector;
+        if (tcpConnector.getKeepAliveTimeout() > 0)
+        {
+            return tcpConnector.getKeepAliveTimeout();
+        }
+        return Math.max(tcpConnector.getServerSoTimeout(), 0);
+    }
+
+    /**
+     * Schedules the processing of the messages of a connection.
+     */
+    void schedule(Work work) throws WorkException
+    {
+        getWorkManager().scheduleWork(work, WorkManager.INDEFINITE, null, connector);
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link TcpProtocol} that can also frame messages out of the data a selector has
+ * read from a connection, so that the NIO receiver and dispatcher can use it without
+ * a thread blocked on the input stream of each connection.
+ * <p/>
+ * Both reads must return the same messages for the same data. A subclass that
+ * changes what {@link #read(java.io.InputStream)} returns must change
+ * {@link #read(ByteBuffer, boolean)} the same way.
+ */
+public interface NioTcpProtocol extends TcpProtocol
+{
+
+    /**
+     * Reads a whole message from the data of the buffer, between its position and
+     * its limit. Those are all the data available for now: no more will be read
+     * until this returns null.
+     *
+     * @param buffer the data read and not yet framed. Its position is moved past the
+     *            message returned, and is left where it was if null is returned. The
+     *            buffer is reused once this returns, so the message must not share it.
+     * @param endOfStream true if the connection has been closed by the other end, so
+     *            no more data will follow those in the buffer
+     * @return the message, or null if the buffer does not hold a whole one yet
+     * @throws IOException if the data can not be framed, which closes the connection
+     */
+    Object read(ByteBuffer buffer, boolean endOfStream) throws IOException;
+
+}
@@ -0,0 +1,227 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Connects, reads and writes the {@link NioTcpConnection}s registered with it when
+ * their channels are ready, and gives them the chance to expire every second.
+ * <p/>
+ * Connections are only used by the thread running the selector; other threads hand
+ * it work with {@link #execute(Runnable)}.
+ */
+class NioTcpSelector implements Runnable
+{
+
+    private static Log logger = LogFactory.getLog(NioTcpSelector.class);
+
+    private static final long SELECT_TIMEOUT = 1000;
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    // only used by the selector thread, so one buffer serves all its connections
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private volatile boolean stopped = false;
+    private volatile boolean closed = false;
+
+    NioTcpSelector() throws IOException
+    {
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Runs a task on the selector thread. Once the selector has been closed the task
+     * is run by the calling thread, so it must check {@link #isStopped()}.
+     */
+    void execute(Runnable task)
+    {
+        tasks.offer(task);
+        selector.wakeup();
+        if (closed)
+        {
+            runTasks();
+        }
+    }
+
+    /**
+     * Registers an accepted connection for reading.
+     */
+    void register(final NioTcpConnection connection)
+    {
+        execute(new Runnable()
+        {
+            public void run()
+            {
+                if (isStopped())
+                {
+                    connection.close(null);
+                    return;
+                }
+                register(connection, SelectionKey.OP_READ);
+            }
+        });
+    }
+
+    /**
+     * Registers a connection. Only called by the selector thread.
+     */
+    void register(NioTcpConnection connection, int ops)
+    {
+        try
+        {
+            SocketChannel channel = connection.getChannel();
+            connection.registered(channel.register(selector, ops, connection));
+        }
+        catch (ClosedChannelException e)
+        {
+            connection.close(null);
+        }
+    }
+
+    boolean isStopped()
+    {
+        return stopped;
+    }
+
+    public void run()
+    {
+        long lastExpiry = System.currentTimeMillis();
+        try
+        {
+            while (!stopped)
+            {
+                selector.select(SELECT_TIMEOUT);
+                runTasks();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioTcpConnection connection = (NioTcpConnection) key.attachment();
+                    try
+                    {
+                        connection.ready(readBuffer);
+                    }
+                    catch (CancelledKeyException e)
+                    {
+                        connection.close(null);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastExpiry >= SELECT_TIMEOUT)
+                {
+                    lastExpiry = now;
+                    expire(now);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            if (!stopped)
+            {
+                logger.error("TCP selector failed, closing its connections", e);
+            }
+        }
+        finally
+        {
+            stopped = true;
+            close();
+        }
+    }
+
+    /**
+     * Gives every connection the chance to expire. Called by the selector thread
+     * about once a second.
+     */
+    protected void expire(long now)
+    {
+        for (NioTcpConnection connection : connections())
+        {
+            connection.expire(now);
+        }
+    }
+
+    private ArrayList<NioTcpConnection> connections()
+    {
+        ArrayList<NioTcpConnection> connections = new ArrayList<NioTcpConnection>();
+        for (SelectionKey key : selector.keys())
+        {
+            connections.add((NioTcpConnection) key.attachment());
+        }
+        return connections;
+    }
+
+    private void runTasks()
+    {
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+        {
+            try
+            {
+                task.run();
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Failed to run a task of the TCP selector", e);
+            }
+        }
+    }
+
+    /**
+     * Closes the connections and the selector. Called by the selector thread once
+     * it has been stopped.
+     */
+    protected void close()
+    {
+        runTasks();
+        for (NioTcpConnection connection : connections())
+        {
+            connection.close(null);
+        }
+        try
+        {
+            selector.close();
+        }
+        catch (IOException e)
+        {
+            logger.debug("(Ignored) Error closing the selector: " + e.getMessage());
+        }
+        closed = true;
+        // tasks handed over while closing
+        runTasks();
+    }
+
+    /**
+     * Stops the selector thread, which closes the connections registered.
+     */
+    void stop()
+    {
+        stopped = true;
+        selector.wakeup();
+    }
+
+}
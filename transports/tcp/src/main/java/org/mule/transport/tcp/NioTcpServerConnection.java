@@ -0,0 +1,232 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.transaction.Transaction;
+import org.mule.api.transaction.TransactionException;
+import org.mule.transport.AbstractReceiverWorker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.resource.spi.work.WorkException;
+
+/**
+ * A connection accepted by a {@link NioTcpMessageReceiver}.
+ * <p/>
+ * The messages framed are processed in order, by one worker at a time: those framed
+ * while a worker is busy are handed to the next one as a batch. Reading stops while
+ * too many messages are waiting, and the responses, if the endpoint has any, are
+ * written by the selector once the worker is done.
+ */
+class NioTcpServerConnection extends NioTcpConnection
+{
+
+    private static final int MAX_WAITING_MESSAGES = 32;
+
+    private final NioTcpMessageReceiver receiver;
+    private final long idleTimeout;
+    private final String remoteAddress;
+    private List<Object> waiting = new ArrayList<Object>();
+    private boolean working = false;
+
+    /**
+     * @param idleTimeout milliseconds the connection may wait for a message, or 0 for
+     *            no limit
+     */
+    NioTcpServerConnection(NioTcpMessageReceiver receiver, NioTcpSelector selector, SocketChannel channel,
+                           NioTcpProtocol protocol, long idleTimeout)
+    {
+        super(selector, channel, protocol, false);
+        this.receiver = receiver;
+        this.idleTimeout = idleTimeout;
+        SocketAddress address = channel.socket().getRemoteSocketAddress();
+        this.remoteAddress = address == null ? null : address.toString();
+    }
+
+    @Override
+    protected void received(Object message)
+    {
+        waiting.add(message);
+        if (waiting.size() >= MAX_WAITING_MESSAGES)
+        {
+            pauseReading();
+        }
+        process();
+    }
+
+    /**
+     * Hands the messages waiting to a worker, unless one is busy with this
+     * connection. Reading is not resumed here, as this is called while framing.
+     */
+    private void process()
+    {
+        if (working || waiting.isEmpty() || isClosed())
+        {
+            return;
+        }
+        try
+        {
+            receiver.schedule(new Worker(waiting));
+        }
+        catch (WorkException e)
+        {
+            // tried again when the connection is next given the chance to expire
+            logger.warn("Failed to schedule the processing of messages from " + remoteAddress + ": " + e.getMessage());
+            pauseReading();
+            return;
+        }
+        waiting = new ArrayList<Object>();
+        working = true;
+    }
+
+    private void processWaiting()
+    {
+        process();
+        if (waiting.size() < MAX_WAITING_MESSAGES)
+        {
+            resumeReading();
+        }
+    }
+
+    private void processed(List<ByteBuffer> responses, boolean handled)
+    {
+        working = false;
+        lastActive = System.currentTimeMillis();
+        if (isClosed())
+        {
+            return;
+        }
+        if (!handled)
+        {
+            // responses may be missing, so the rest would not match their requests
+            close(null);
+            return;
+        }
+        for (ByteBuffer response : responses)
+        {
+            write(response);
+        }
+        processWaiting();
+        closeIfDone();
+    }
+
+    @Override
+    protected void inputEnded()
+    {
+        closeIfDone();
+    }
+
+    private void closeIfDone()
+    {
+        if (isInputEnded() && !working && waiting.isEmpty())
+        {
+            closeWhenFlushed();
+        }
+    }
+
+    @Override
+    void expire(long now)
+    {
+        if (!working && !waiting.isEmpty())
+        {
+            processWaiting();
+        }
+        else if (idleTimeout > 0 && !working && isFlushed() && now - lastActive >= idleTimeout)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing idle connection from " + remoteAddress);
+            }
+            close(null);
+        }
+    }
+
+    @Override
+    protected void closed(IOException cause)
+    {
+        waiting.clear();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "connection from " + remoteAddress;
+    }
+
+    /**
+     * Processes a batch of messages, and hands their responses and the connection
+     * back to the selector.
+     */
+    private class Worker extends AbstractReceiverWorker
+    {
+        private final List<ByteBuffer> responses = new ArrayList<ByteBuffer>();
+        private boolean handled = false;
+
+        Worker(List<Object> messages)
+        {
+            super(messages, NioTcpServerConnection.this.receiver);
+        }
+
+        @Override
+        protected void bindTransaction(Transaction tx) throws TransactionException
+        {
+            //nothing to do
+        }
+
+        @Override
+        protected void preRouteMuleMessage(MuleMessage message) throws Exception
+        {
+            super.preRouteMuleMessage(message);
+
+            if (remoteAddress != null)
+            {
+                message.setOutboundProperty(MuleProperties.MULE_REMOTE_CLIENT_ADDRESS, remoteAddress);
+            }
+        }
+
+        @Override
+        protected void handleResults(List messages) throws Exception
+        {
+            //should send back only if remote synch is set or no outbound endpoints
+            if (endpoint.getExchangePattern().hasResponse())
+            {
+                for (Object message : messages)
+                {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    protocol.write(out, message);
+                    responses.add(ByteBuffer.wrap(out.toByteArray()));
+                }
+            }
+            handled = true;
+        }
+
+        @Override
+        public void release()
+        {
+            final boolean handled = this.handled;
+            selector.execute(new Runnable()
+            {
+                public void run()
+                {
+                    processed(responses, handled);
+                }
+            });
+        }
+    }
+
+}
@@ -35,6 +35,15 @@ public class PollingTcpConnector extends TcpConnector
             PollingTcpMessageReceiver.class.getName());
     }
 
+    /**
+     * Messages are always polled for by the polling receiver.
+     */
+    @Override
+    public boolean isNioReceiver()
+    {
+        return false;
+    }
+
     public long getPollingFrequency()
     {
         return pollingFrequency;
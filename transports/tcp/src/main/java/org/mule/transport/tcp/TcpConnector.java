@@ -14,14 +14,18 @@ import org.mule.api.MessagingException;
 import org.mule.api.MuleContext;
 import org.mule.api.MuleException;
 import org.mule.api.MuleMessage;
+import org.mule.api.construct.FlowConstruct;
 import org.mule.api.endpoint.ImmutableEndpoint;
+import org.mule.api.endpoint.InboundEndpoint;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.transport.Connector;
 import org.mule.api.transport.MessageDispatcherFactory;
+import org.mule.api.transport.MessageReceiver;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.model.streaming.CallbackOutputStream;
 import org.mule.transport.AbstractConnector;
 import org.mule.transport.ConfigurableKeyedObjectPool;
+import org.mule.transport.tcp.i18n.TcpMessages;
 import org.mule.transport.tcp.protocols.SafeProtocol;
 import org.mule.util.concurrent.ThreadNameHelper;
 import org.mule.util.monitor.ExpiryMonitor;
@@ -34,6 +38,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
 
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
 
@@ -90,6 +95,20 @@ public class TcpConnector extends AbstractConnector
      */
     private boolean keepAlive = false;
 
+    private boolean nioReceiver = false;
+
+    private int nioSelectorThreads = Runtime.getRuntime().availableProcessors();
+
+    private boolean nioDispatcher = false;
+
+    private int nioMaxConnectionsPerHost = 20;
+
+    private int nioMaxPipelinedRequests = 1;
+
+    private int nioConnectionIdleTimeout = 30000;
+
+    private NioTcpClient nioTcpClient;
+
     //TODO MULE-2300 remove once fixed
     private TcpSocketKey lastSocketKey;
 
@@ -165,6 +184,12 @@ public class TcpConnector extends AbstractConnector
                                                  ThreadNameHelper.getPrefix(muleContext),
                                                  getName());
         keepAliveMonitor = new ExpiryMonitor(monitorName, 1000, this.getClass().getClassLoader(), muleContext, false);
+
+        if ((isNioReceiver() || isNioDispatcher()) && !(getTcpProtocol() instanceof NioTcpProtocol))
+        {
+            throw new InitialisationException(
+                    TcpMessages.protocolCannotBeUsedWithNio(getTcpProtocol().getClass()), this);
+        }
     }
 
     @Override
@@ -181,6 +206,17 @@ public class TcpConnector extends AbstractConnector
         }
         
         keepAliveMonitor.dispose();
+        stopNioTcpClient();
+    }
+
+    @Override
+    protected MessageReceiver createReceiver(FlowConstruct flowConstruct, InboundEndpoint endpoint) throws Exception
+    {
+        if (isNioReceiver())
+        {
+            return new NioTcpMessageReceiver(this, flowConstruct, endpoint);
+        }
+        return super.createReceiver(flowConstruct, endpoint);
     }
 
     /**
@@ -277,7 +313,7 @@ public class TcpConnector extends AbstractConnector
     @Override
     protected void doStop() throws MuleException
     {
-        // template method
+        stopNioTcpClient();
     }
 
     public String getProtocol()
@@ -473,6 +509,20 @@ public class TcpConnector extends AbstractConnector
         return getServerSocketFactory().createServerSocket(uri, getReceiveBacklog(), isReuseAddress());
     }
 
+    /**
+     * Opens a server socket channel for a non-blocking listener. It is bound by the
+     * server socket factory if that is a {@link TcpServerSocketFactory}, otherwise by
+     * a default one, as a channel can only have a plain socket.
+     */
+    protected ServerSocketChannel getServerSocketChannel(URI uri) throws IOException
+    {
+        SimpleServerSocketFactory factory = getServerSocketFactory();
+        TcpServerSocketFactory channelFactory = factory instanceof TcpServerSocketFactory
+                                                ? (TcpServerSocketFactory) factory
+                                                : new TcpServerSocketFactory();
+        return channelFactory.createServerSocketChannel(uri, getReceiveBacklog(), isReuseAddress());
+    }
+
     private static int valueOrDefault(int value, int threshhold, int deflt)
     {
         if (value < threshhold)
@@ -524,6 +574,127 @@ public class TcpConnector extends AbstractConnector
         this.keepAliveTimeout = keepAliveTimeout;
     }
     
+    /**
+     * @return true if inbound connections are read by a few selector threads, which
+     *         only take a receiver thread while their messages are processed, rather
+     *         than each by a thread of its own. The protocol must be a
+     *         {@link NioTcpProtocol}.
+     */
+    public boolean isNioReceiver()
+    {
+        return nioReceiver;
+    }
+
+    public void setNioReceiver(boolean nioReceiver)
+    {
+        this.nioReceiver = nioReceiver;
+    }
+
+    public int getNioSelectorThreads()
+    {
+        return nioSelectorThreads;
+    }
+
+    public void setNioSelectorThreads(int nioSelectorThreads)
+    {
+        if (nioSelectorThreads < 1)
+        {
+            throw new IllegalArgumentException(
+                    CoreMessages.propertyHasInvalidValue("nioSelectorThreads", nioSelectorThreads).toString());
+        }
+        this.nioSelectorThreads = nioSelectorThreads;
+    }
+
+    /**
+     * @return true if messages are sent by a single selector thread, which reads
+     *         their responses as they arrive, rather than each over a pooled blocking
+     *         socket. The protocol must be a {@link NioTcpProtocol}. The HTTP
+     *         connector only sends one-way requests this way.
+     */
+    public boolean isNioDispatcher()
+    {
+        return nioDispatcher;
+    }
+
+    public void setNioDispatcher(boolean nioDispatcher)
+    {
+        this.nioDispatcher = nioDispatcher;
+    }
+
+    public int getNioMaxConnectionsPerHost()
+    {
+        return nioMaxConnectionsPerHost;
+    }
+
+    public void setNioMaxConnectionsPerHost(int nioMaxConnectionsPerHost)
+    {
+        if (nioMaxConnectionsPerHost < 1)
+        {
+            throw new IllegalArgumentException(
+                    CoreMessages.propertyHasInvalidValue("nioMaxConnectionsPerHost", nioMaxConnectionsPerHost).toString());
+        }
+        this.nioMaxConnectionsPerHost = nioMaxConnectionsPerHost;
+    }
+
+    /**
+     * @return how many messages the NIO dispatcher may have waiting for a response on
+     *         one connection once every connection to the host is in use; 1 disables
+     *         pipelining. The HTTP connector only pipelines idempotent requests.
+     */
+    public int getNioMaxPipelinedRequests()
+    {
+        return nioMaxPipelinedRequests;
+    }
+
+    public void setNioMaxPipelinedRequests(int nioMaxPipelinedRequests)
+    {
+        if (nioMaxPipelinedRequests < 1)
+        {
+            throw new IllegalArgumentException(
+                    CoreMessages.propertyHasInvalidValue("nioMaxPipelinedRequests", nioMaxPipelinedRequests).toString());
+        }
+        this.nioMaxPipelinedRequests = nioMaxPipelinedRequests;
+    }
+
+    /**
+     * @return milliseconds the NIO dispatcher keeps a connection open without a
+     *         message, or 0 for no limit
+     */
+    public int getNioConnectionIdleTimeout()
+    {
+        return nioConnectionIdleTimeout;
+    }
+
+    public void setNioConnectionIdleTimeout(int nioConnectionIdleTimeout)
+    {
+        this.nioConnectionIdleTimeout = nioConnectionIdleTimeout;
+    }
+
+    /**
+     * @return the client the NIO dispatchers of this connector share, started when
+     *         first used
+     */
+    synchronized NioTcpClient getNioTcpClient() throws IOException
+    {
+        if (nioTcpClient == null)
+        {
+            nioTcpClient = new NioTcpClient(this, nioMaxConnectionsPerHost, nioMaxPipelinedRequests, nioConnectionIdleTimeout);
+            Thread thread = new Thread(nioTcpClient, ThreadNameHelper.getPrefix(muleContext) + "tcp.client." + getName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return nioTcpClient;
+    }
+
+    private synchronized void stopNioTcpClient()
+    {
+        if (nioTcpClient != null)
+        {
+            nioTcpClient.stop();
+            nioTcpClient = null;
+        }
+    }
+
     @Override
     public void setDispatcherFactory(MessageDispatcherFactory dispatcherFactory)
     {
@@ -20,6 +20,10 @@ public class TcpMessageDispatcherFactory extends AbstractMessageDispatcherFactor
 
     public MessageDispatcher create(OutboundEndpoint endpoint) throws MuleException
     {
+        if (((TcpConnector) endpoint.getConnector()).isNioDispatcher())
+        {
+            return new NioTcpMessageDispatcher(endpoint);
+        }
         return new TcpMessageDispatcher(endpoint);
     }
 
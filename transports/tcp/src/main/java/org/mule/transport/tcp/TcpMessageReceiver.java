@@ -73,7 +73,7 @@ public class TcpMessageReceiver extends AbstractMessageReceiver implements Work
 
         try
         {
-            serverSocket = ((TcpConnector) connector).getServerSocket(uri);
+            serverSocket = createServerSocket(uri);
         }
         catch (Exception e)
         {
@@ -161,8 +161,7 @@ public class TcpMessageReceiver extends AbstractMessageReceiver implements Work
 
                             if (socket != null)
                             {
-                                Work work = createWork(socket);
-                                getWorkManager().scheduleWork(work, WorkManager.INDEFINITE, null, connector);
+                                accepted(socket);
                             }
                         }
 
@@ -185,6 +184,20 @@ public class TcpMessageReceiver extends AbstractMessageReceiver implements Work
         // template method
     }
 
+    protected ServerSocket createServerSocket(URI uri) throws IOException
+    {
+        return ((TcpConnector) connector).getServerSocket(uri);
+    }
+
+    /**
+     * Hands an accepted connection over to a worker of its own.
+     */
+    protected void accepted(Socket socket) throws Exception
+    {
+        Work work = createWork(socket);
+        getWorkManager().scheduleWork(work, WorkManager.INDEFINITE, null, connector);
+    }
+
     @Override
     protected void doDispose()
     {
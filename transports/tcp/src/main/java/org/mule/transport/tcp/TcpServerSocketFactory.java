@@ -18,6 +18,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -28,12 +29,9 @@ public class TcpServerSocketFactory implements SimpleServerSocketFactory
 
     public ServerSocket createServerSocket(URI uri, int backlog, Boolean reuse) throws IOException
     {
-        String host = StringUtils.defaultIfEmpty(uri.getHost(), "localhost");
-        InetAddress inetAddress = InetAddress.getByName(host);
-
-        if ((inetAddress.equals(InetAddress.getLocalHost()) || host.trim().equals("localhost")) && TcpPropertyHelper.isBindingLocalhostToAllLocalInterfaces())
+        InetAddress inetAddress = getBindAddress(uri);
+        if (inetAddress == null)
         {
-            logger.warn(TcpMessages.localhostBoundToAllLocalInterfaces());
             return createServerSocket(uri.getPort(), backlog, reuse);
         }
         else
@@ -42,6 +40,45 @@ public class TcpServerSocketFactory implements SimpleServerSocketFactory
         }
     }
 
+    /**
+     * Opens a server socket channel bound to the same address as the server socket
+     * {@link #createServerSocket(URI, int, Boolean)} would create. The channel is left
+     * in blocking mode.
+     */
+    public ServerSocketChannel createServerSocketChannel(URI uri, int backlog, Boolean reuse) throws IOException
+    {
+        InetAddress inetAddress = getBindAddress(uri);
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try
+        {
+            configure(channel.socket(), reuse, inetAddress == null
+                                               ? new InetSocketAddress(uri.getPort())
+                                               : new InetSocketAddress(inetAddress, uri.getPort()), backlog);
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * @return the address to bind to, or null to bind to all local interfaces
+     */
+    protected InetAddress getBindAddress(URI uri) throws IOException
+    {
+        String host = StringUtils.defaultIfEmpty(uri.getHost(), "localhost");
+        InetAddress inetAddress = InetAddress.getByName(host);
+
+        if ((inetAddress.equals(InetAddress.getLocalHost()) || host.trim().equals("localhost")) && TcpPropertyHelper.isBindingLocalhostToAllLocalInterfaces())
+        {
+            logger.warn(TcpMessages.localhostBoundToAllLocalInterfaces());
+            return null;
+        }
+        return inetAddress;
+    }
+
     public ServerSocket createServerSocket(InetAddress address, int port, int backlog, Boolean reuse) throws IOException
     {
         return configure(new ServerSocket(), reuse, new InetSocketAddress(address, port), backlog);
@@ -52,6 +52,11 @@ public class TcpMessages extends MessageFactory
     {
         return factory.createMessage(BUNDLE_PATH, 6, TcpPropertyHelper.MULE_TCP_BIND_LOCALHOST_TO_ALL_LOCAL_INTERFACES_PROPERTY);
     }
+
+    public static Message protocolCannotBeUsedWithNio(Class c)
+    {
+        return factory.createMessage(BUNDLE_PATH, 7, c.getName());
+    }
 }
 
 
@@ -24,6 +24,7 @@ import java.io.Serializable;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -212,6 +213,20 @@ public abstract class AbstractByteProtocol implements TcpProtocol
         return len;
     }
 
+    /**
+     * Copy the next bytes of a buffer into an array of their own
+     *
+     * @param buffer The buffer to take the data from; its position is moved past them
+     * @param length The amount of data to take
+     * @return The data taken
+     */
+    protected byte[] take(ByteBuffer buffer, int length)
+    {
+        byte[] data = new byte[length];
+        buffer.get(data);
+        return data;
+    }
+
     protected byte[] nullEmptyArray(byte[] data)
     {
         if (0 == data.length)
@@ -10,8 +10,11 @@
 
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.NioTcpProtocol;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.text.MessageFormat;
 
 import org.apache.commons.io.output.ByteArrayOutputStream;
@@ -28,7 +31,7 @@ import org.apache.commons.logging.LogFactory;
  *
  * <p>Writing simply writes the data to the socket.</p>
  */
-public class DirectProtocol extends AbstractByteProtocol
+public class DirectProtocol extends AbstractByteProtocol implements NioTcpProtocol
 {
 
     protected static final int UNLIMITED = -1;
@@ -89,6 +92,19 @@ public class DirectProtocol extends AbstractByteProtocol
         return nullEmptyArray(baos.toByteArray());
     }
 
+    /**
+     * Returns the data buffered so far, unless {@link #isRepeat(int, int)} would wait
+     * for more once none are available.
+     */
+    public Object read(ByteBuffer buffer, boolean endOfStream) throws IOException
+    {
+        if (!buffer.hasRemaining() || (!endOfStream && isRepeat(buffer.remaining(), 0)))
+        {
+            return null;
+        }
+        return take(buffer, buffer.remaining());
+    }
+
     protected int remaining(int limit, int remain, int len)
     {
         if (UNLIMITED == limit)
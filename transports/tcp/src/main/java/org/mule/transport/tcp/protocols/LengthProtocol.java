@@ -12,9 +12,11 @@ package org.mule.transport.tcp.protocols;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -70,10 +72,7 @@ public class LengthProtocol extends DirectProtocol
             logger.debug("length: " + length);
         }
 
-        if (length < 0 || (getMaxMessageLength() > 0 && length > getMaxMessageLength()))
-        {
-            throw new IOException("Length " + length + " exceeds limit: " + getMaxMessageLength());
-        }
+        checkLength(length);
 
         // finally read the rest of the data
         byte[] buffer = new byte[length];
@@ -86,6 +85,48 @@ public class LengthProtocol extends DirectProtocol
         return buffer;
     }
 
+    @Override
+    public Object read(ByteBuffer buffer, boolean endOfStream) throws IOException
+    {
+        if (buffer.remaining() < SIZE_INT)
+        {
+            return incomplete(buffer, endOfStream);
+        }
+
+        // the buffer is big-endian, as DataInputStream is
+        int length = buffer.getInt(buffer.position());
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("length: " + length);
+        }
+        checkLength(length);
+
+        if (buffer.remaining() - SIZE_INT < length)
+        {
+            return incomplete(buffer, endOfStream);
+        }
+        buffer.position(buffer.position() + SIZE_INT);
+        return take(buffer, length);
+    }
+
+    private Object incomplete(ByteBuffer buffer, boolean endOfStream) throws EOFException
+    {
+        if (endOfStream && buffer.hasRemaining())
+        {
+            // as readFully would
+            throw new EOFException("Connection closed " + buffer.remaining() + " bytes into a message");
+        }
+        return null;
+    }
+
+    private void checkLength(int length) throws IOException
+    {
+        if (length < 0 || (getMaxMessageLength() > 0 && length > getMaxMessageLength()))
+        {
+            throw new IOException("Length " + length + " exceeds limit: " + getMaxMessageLength());
+        }
+    }
+
     @Override
     protected void writeByteArray(OutputStream os, byte[] data) throws IOException
     {
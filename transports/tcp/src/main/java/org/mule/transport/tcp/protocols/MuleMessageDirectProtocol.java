@@ -17,6 +17,7 @@ import org.mule.transformer.wire.SerializedMuleMessageWireFormat;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This Protocol will send the actual Mule Message over the TCP channel, and in this
@@ -36,6 +37,12 @@ public class MuleMessageDirectProtocol extends DirectProtocol implements MuleCon
         return messageWorker.doRead(super.read(is));
     }
 
+    @Override
+    public Object read(ByteBuffer buffer, boolean endOfStream) throws IOException
+    {
+        return messageWorker.doRead(super.read(buffer, endOfStream));
+    }
+
     @Override
     public void write(OutputStream os, Object data) throws IOException
     {
@@ -11,12 +11,13 @@
 package org.mule.transport.tcp.protocols;
 
 import org.mule.ResponseOutputStream;
-import org.mule.transport.tcp.TcpProtocol;
+import org.mule.transport.tcp.NioTcpProtocol;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 /**
  * This precedes every message with a cookie.
@@ -25,12 +26,12 @@ import java.net.Socket;
  * You should probably change to LengthProtocol.
  * Remember - both sender and receiver must use the same protocol.
  */
-public class SafeProtocol implements TcpProtocol
+public class SafeProtocol implements NioTcpProtocol
 {
 
     public static final String COOKIE = "You are using SafeProtocol";
-    private TcpProtocol delegate = new LengthProtocol();
-    private TcpProtocol cookieProtocol = new LengthProtocol(COOKIE.length());
+    private LengthProtocol delegate = new LengthProtocol();
+    private LengthProtocol cookieProtocol = new LengthProtocol(COOKIE.length());
 
     public Object read(InputStream is) throws IOException
     {
@@ -50,6 +51,39 @@ public class SafeProtocol implements TcpProtocol
         }
     }
 
+    public Object read(ByteBuffer buffer, boolean endOfStream) throws IOException
+    {
+        int start = buffer.position();
+        Object cookie = null;
+        try
+        {
+            cookie = cookieProtocol.read(buffer, endOfStream);
+        }
+        catch (Exception e)
+        {
+            helpUser(e);
+        }
+        if (assertCookie(cookie))
+        {
+            Object result = delegate.read(buffer, endOfStream);
+            if (null == result)
+            {
+                if (endOfStream)
+                {
+                    // EOF after cookie but before data
+                    helpUser();
+                }
+                // wait for the data with the cookie still unread
+                buffer.position(start);
+            }
+            return result;
+        }
+        else
+        {
+            return null;
+        }
+    }
+
     public void write(OutputStream os, Object data) throws IOException
     {
         assureSibling(os);
@@ -82,6 +116,16 @@ public class SafeProtocol implements TcpProtocol
         {
             helpUser(e);
         }
+        return assertCookie(cookie);
+    }
+
+    /**
+     * @param cookie The cookie read, or null on EOF
+     * @return true if further data are available; false if EOF
+     * @throws IOException if the cookie is not the expected one
+     */
+    private boolean assertCookie(Object cookie) throws IOException
+    {
         if (null != cookie)
         {
             if (!(cookie instanceof byte[]
@@ -13,9 +13,11 @@ package org.mule.transport.tcp.protocols;
 import org.mule.transport.tcp.TcpInputStream;
 import org.mule.transport.tcp.TcpProtocol;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class StreamingProtocol extends EOFProtocol implements TcpProtocol
 {
@@ -35,6 +37,17 @@ public class StreamingProtocol extends EOFProtocol implements TcpProtocol
         return is;
     }
 
+    /**
+     * Without a stream to hand over, the data are buffered until the connection is
+     * closed and then returned as a stream.
+     */
+    @Override
+    public Object read(ByteBuffer buffer, boolean endOfStream) throws IOException
+    {
+        Object data = super.read(buffer, endOfStream);
+        return data == null ? null : new ByteArrayInputStream((byte[]) data);
+    }
+
     /**
      * 
      * @param is
@@ -10,9 +10,12 @@
 
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.NioTcpProtocol;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -49,10 +52,11 @@ import java.util.concurrent.ConcurrentMap;
  * be read later.
  * </p>
  */
-public class XmlMessageProtocol extends AbstractByteProtocol
+public class XmlMessageProtocol extends AbstractByteProtocol implements NioTcpProtocol
 {
     
     private static final String XML_PATTERN = "<?xml";
+    private static final byte[] XML_PATTERN_BYTES = XML_PATTERN.getBytes();
 
     private static final int READ_BUFFER_SIZE = 4096;
     private static final int PUSHBACK_BUFFER_SIZE = READ_BUFFER_SIZE * 2;
@@ -131,6 +135,48 @@ public class XmlMessageProtocol extends AbstractByteProtocol
         }
     }
 
+    /**
+     * Returns the data up to the next xml declaration, or all the data buffered if
+     * there is none and {@link #isRepeat(int, int, int)} would not wait for more.
+     */
+    public Object read(ByteBuffer buffer, boolean endOfStream) throws IOException
+    {
+        if (!buffer.hasRemaining())
+        {
+            return null;
+        }
+        // as above, a declaration at the start is that of this message
+        int patternIndex = indexOfPattern(buffer, 1);
+        if (patternIndex < 0 && !endOfStream && isRepeat(patternIndex, buffer.remaining(), 0))
+        {
+            return null;
+        }
+        return take(buffer, patternIndex > 0 ? patternIndex : buffer.remaining());
+    }
+
+    /**
+     * @return the index of the xml declaration relative to the position of the
+     *         buffer, or -1 if there is none from <code>from</code> on
+     */
+    private int indexOfPattern(ByteBuffer buffer, int from)
+    {
+        int start = buffer.position();
+        int last = buffer.limit() - XML_PATTERN_BYTES.length;
+        outer:
+        for (int i = start + from; i <= last; i++)
+        {
+            for (int j = 0; j < XML_PATTERN_BYTES.length; j++)
+            {
+                if (buffer.get(i + j) != XML_PATTERN_BYTES[j])
+                {
+                    continue outer;
+                }
+            }
+            return i - start;
+        }
+        return -1;
+    }
+
     /**
      * Show we continue reading?  This class, following previous implementations, only
      * reads while input is saturated.
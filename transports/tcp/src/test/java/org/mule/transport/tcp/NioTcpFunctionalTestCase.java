@@ -0,0 +1,118 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.client.MuleClient;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+public class NioTcpFunctionalTestCase extends FunctionalTestCase
+{
+    private static final int TIMEOUT = 10000;
+
+    @Rule
+    public DynamicPort dynamicPort1 = new DynamicPort("port1");
+
+    @Rule
+    public DynamicPort dynamicPort2 = new DynamicPort("port2");
+
+    @Override
+    protected String getConfigResources()
+    {
+        return "nio-tcp-functional-test-config.xml";
+    }
+
+    @Test
+    public void sendGetsResponse() throws Exception
+    {
+        MuleMessage result = muleContext.getClient().send("echoEndpoint", "hello", null);
+        assertEquals("hello Received", result.getPayloadAsString());
+    }
+
+    @Test
+    public void concurrentSendsGetTheirOwnResponses() throws Exception
+    {
+        final MuleClient client = muleContext.getClient();
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try
+        {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 50; i++)
+            {
+                final String request = "request " + i;
+                results.add(executor.submit(new Callable<String>()
+                {
+                    public String call() throws Exception
+                    {
+                        return client.send("echoEndpoint", request, null).getPayloadAsString();
+                    }
+                }));
+            }
+            for (int i = 0; i < 50; i++)
+            {
+                assertEquals("request " + i + " Received", results.get(i).get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void dispatchedMessagesAreAllReceived() throws Exception
+    {
+        MuleClient client = muleContext.getClient();
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 20; i++)
+        {
+            expected.add("message " + i);
+            client.dispatch("sinkEndpoint", "message " + i, null);
+        }
+
+        Set<String> received = new HashSet<String>();
+        for (int i = 0; i < 20; i++)
+        {
+            MuleMessage message = client.request("vm://received", TIMEOUT);
+            assertNotNull(message);
+            received.add(message.getPayloadAsString());
+        }
+        assertEquals(expected, received);
+    }
+
+    @Test
+    public void connectorIsConfigured()
+    {
+        TcpConnector connector = (TcpConnector) muleContext.getRegistry().lookupConnector("nioTcpConnector");
+        assertTrue(connector.isNioReceiver());
+        assertTrue(connector.isNioDispatcher());
+        assertEquals(2, connector.getNioSelectorThreads());
+        assertEquals(2, connector.getNioMaxConnectionsPerHost());
+        assertEquals(8, connector.getNioMaxPipelinedRequests());
+        assertEquals(5000, connector.getNioConnectionIdleTimeout());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * $Id$
+ * --------------------------------------------------------------------------------------
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.transport.tcp.NioTcpProtocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+@SmallTest
+public class ByteBufferFramingTestCase extends AbstractMuleTestCase
+{
+
+    private static final String DOCUMENT_1 = "<?xml version=\"1.0\"?><a/>";
+    private static final String DOCUMENT_2 = "<?xml version=\"1.0\"?><b/>";
+
+    @Test
+    public void lengthMessagesSplitAnywhere() throws Exception
+    {
+        LengthProtocol protocol = new LengthProtocol();
+        byte[] data = write(protocol, "hello", "", "world");
+        for (int chunk = 1; chunk <= data.length; chunk++)
+        {
+            assertEquals(Arrays.asList("hello", "", "world"), frame(protocol, data, chunk, false));
+        }
+    }
+
+    @Test
+    public void incompleteLengthMessageIsKept() throws Exception
+    {
+        LengthProtocol protocol = new LengthProtocol();
+        ByteBuffer buffer = ByteBuffer.wrap(write(protocol, "hello"), 0, 6);
+        assertNull(protocol.read(buffer, false));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test(expected = EOFException.class)
+    public void lengthMessageCutByEndOfStream() throws Exception
+    {
+        LengthProtocol protocol = new LengthProtocol();
+        protocol.read(ByteBuffer.wrap(write(protocol, "hello"), 0, 6), true);
+    }
+
+    @Test(expected = IOException.class)
+    public void lengthOverMaximum() throws Exception
+    {
+        new LengthProtocol(4).read(ByteBuffer.wrap(write(new LengthProtocol(), "hello")), false);
+    }
+
+    @Test
+    public void safeMessagesSplitAnywhere() throws Exception
+    {
+        SafeProtocol protocol = new SafeProtocol();
+        byte[] data = write(protocol, "a", "bcd");
+        for (int chunk = 1; chunk <= data.length; chunk++)
+        {
+            assertEquals(Arrays.asList("a", "bcd"), frame(protocol, data, chunk, false));
+        }
+    }
+
+    @Test
+    public void safeRejectsMissingCookie() throws Exception
+    {
+        try
+        {
+            new SafeProtocol().read(ByteBuffer.wrap("not a safe message".getBytes()), false);
+            fail("expected a missing cookie to be rejected");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void eofMessageWaitsForEndOfStream() throws Exception
+    {
+        EOFProtocol protocol = new EOFProtocol();
+        byte[] data = "all of it".getBytes();
+        for (int chunk = 1; chunk <= data.length; chunk++)
+        {
+            assertEquals(Arrays.asList("all of it"), frame(protocol, data, chunk, true));
+        }
+    }
+
+    @Test
+    public void directReturnsWhatIsAvailable() throws Exception
+    {
+        ByteBuffer buffer = ByteBuffer.wrap("some data".getBytes());
+        assertArrayEquals("some data".getBytes(), (byte[]) new DirectProtocol().read(buffer, false));
+        assertEquals(buffer.limit(), buffer.position());
+        assertNull(new DirectProtocol().read(buffer, false));
+    }
+
+    @Test
+    public void xmlDocumentsSplitAtDeclarations() throws Exception
+    {
+        byte[] data = (DOCUMENT_1 + DOCUMENT_2).getBytes();
+        assertEquals(Arrays.asList(DOCUMENT_1, DOCUMENT_2), frame(new XmlMessageProtocol(), data, data.length, true));
+    }
+
+    @Test
+    public void xmlEofDocumentsSplitAnywhere() throws Exception
+    {
+        byte[] data = (DOCUMENT_1 + DOCUMENT_2).getBytes();
+        for (int chunk = 1; chunk <= data.length; chunk++)
+        {
+            assertEquals(Arrays.asList(DOCUMENT_1, DOCUMENT_2), frame(new XmlMessageEOFProtocol(), data, chunk, true));
+        }
+    }
+
+    private byte[] write(NioTcpProtocol protocol, String... messages) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String message : messages)
+        {
+            protocol.write(out, message.getBytes());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Frames the data as a selector would, handing it over <code>chunk</code> bytes at
+     * a time and keeping what has not been framed for the next read.
+     */
+    private List<String> frame(NioTcpProtocol protocol, byte[] data, int chunk, boolean endOfStream)
+        throws IOException
+    {
+        List<String> messages = new ArrayList<String>();
+        ByteBuffer buffer = ByteBuffer.allocate(data.length);
+        for (int offset = 0; offset < data.length; offset += chunk)
+        {
+            int length = Math.min(chunk, data.length - offset);
+            buffer.put(data, offset, length);
+            buffer.flip();
+            boolean last = endOfStream && offset + length == data.length;
+            Object message;
+            while (buffer.hasRemaining() && (message = protocol.read(buffer, last)) != null)
+            {
+                messages.add(new String((byte[]) message));
+            }
+            buffer.compact();
+        }
+        return messages;
+    }
+
+}
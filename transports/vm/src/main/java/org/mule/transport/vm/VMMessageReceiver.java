@@ -29,8 +29,8 @@ import org.mule.transport.TransactedPollingMessageReceiver;
 import org.mule.util.queue.Queue;
 import org.mule.util.queue.QueueSession;
 
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.RejectedExecutionException;
 
@@ -173,28 +173,18 @@ public class VMMessageReceiver extends TransactedPollingMessageReceiver
         QueueSession qs = connector.getQueueSession();
         Queue queue = qs.getQueue(endpoint.getEndpointURI().getAddress());
 
-        // The list of retrieved messages that will be returned
-        List<MuleMessage> messages = new LinkedList<MuleMessage>();
-
         int batchSize = getBatchSize(queue.size());
 
-        // try to get the first event off the queue
-        MuleEvent message = (MuleEvent) queue.poll(connector.getQueueTimeout());
+        // take the first event, waiting for it if necessary, plus up to batchSize
+        // more in one go
+        List<Serializable> events = new ArrayList<Serializable>(batchSize + 1);
+        queue.drainTo(events, batchSize + 1, connector.getQueueTimeout());
 
-        if (message != null)
+        // The list of retrieved messages that will be returned
+        List<MuleMessage> messages = new ArrayList<MuleMessage>(events.size());
+        for (Serializable event : events)
         {
-            // keep first dequeued event
-            messages.add(message.getMessage());
-
-            // keep batching if more events are available
-            for (int i = 0; i < batchSize && message != null; i++)
-            {
-                message = (MuleEvent)queue.poll(0);
-                if (message != null)
-                {
-                    messages.add(message.getMessage());
-                }
-            }
+            messages.add(((MuleEvent) event).getMessage());
         }
 
         // let our workManager handle the batch of events